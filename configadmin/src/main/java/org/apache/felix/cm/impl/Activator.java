@@ -18,6 +18,7 @@
  */
 package org.apache.felix.cm.impl;
 
+import java.io.File;
 import java.security.AccessController;
 import java.security.PrivilegedAction;
 import java.util.ArrayList;
@@ -27,6 +28,7 @@ import java.util.List;
 
 import org.apache.felix.cm.PersistenceManager;
 import org.apache.felix.cm.file.FilePersistenceManager;
+import org.apache.felix.cm.impl.persistence.JournalPersistenceManager;
 import org.apache.felix.cm.impl.persistence.MemoryPersistenceManager;
 import org.osgi.framework.Bundle;
 import org.osgi.framework.BundleActivator;
@@ -45,6 +47,9 @@ import org.osgi.service.log.LogService;
  *  <li>Sets up the logger {@link Log}.
  *  <li>A {@link FilePersistenceManager} instance is registered as a default
  * {@link PersistenceManager}.
+ *  <li>A {@link MemoryPersistenceManager} and a {@link JournalPersistenceManager}
+ * are registered, which can be selected with the <code>felix.cm.pm</code>
+ * framework property.
  *  <li>Creates and sets up the {@link ConfigurationManager}.
  * </ul>
  * <p>
@@ -95,6 +100,12 @@ public class Activator implements BundleActivator
     // the service registration of the memory persistence manager
     private volatile ServiceRegistration<PersistenceManager> memorypmRegistration;
 
+    // the service registration of the journal persistence manager
+    private volatile ServiceRegistration<PersistenceManager> journalpmRegistration;
+
+    // the journal persistence manager, created on first use
+    private volatile JournalPersistenceManager journalpm;
+
     @Override
     public void start( final BundleContext bundleContext ) throws BundleException
     {
@@ -107,6 +118,9 @@ public class Activator implements BundleActivator
         // register memory persistence manager
         registerMemoryPersistenceManager(bundleContext);
 
+        // register journal persistence manager
+        registerJournalPersistenceManager(bundleContext);
+
         try
         {
             this.tracker = new DependencyTracker(bundleContext, defaultFactory,
@@ -161,9 +175,10 @@ public class Activator implements BundleActivator
             this.tracker = null;
         }
 
-        // shutdown the file and memory persistence manager and unregister
+        // shutdown the file, memory and journal persistence manager and unregister
         this.unregisterFilePersistenceManager();
         this.unregisterMemoryPersistenceManager();
+        this.unregisterJournalPersistenceManager();
     }
 
     private ServiceFactory<PersistenceManager> registerFilePersistenceManager(final BundleContext bundleContext)
@@ -209,6 +224,50 @@ public class Activator implements BundleActivator
         memorypmRegistration = bundleContext.registerService(PersistenceManager.class, mpm, props);
     }
 
+    private void registerJournalPersistenceManager(final BundleContext bundleContext) {
+        final Dictionary<String, Object> props = new Hashtable<>();
+        props.put(Constants.SERVICE_DESCRIPTION, "Platform Journal Persistence Manager");
+        props.put(Constants.SERVICE_VENDOR, "The Apache Software Foundation");
+        props.put(PersistenceManager.PROPERTY_NAME, JournalPersistenceManager.PERSISTENCE_MANAGER_NAME);
+
+        final ServiceFactory<PersistenceManager> factory = new ServiceFactory<PersistenceManager>()
+        {
+
+            @Override
+            public synchronized PersistenceManager getService(Bundle bundle, ServiceRegistration<PersistenceManager> registration) {
+                if (journalpm == null) {
+                    journalpm = new JournalPersistenceManager(getJournalFile(bundleContext));
+                }
+
+                return journalpm;
+            }
+
+            @Override
+            public void ungetService(Bundle bundle, ServiceRegistration<PersistenceManager> registration,
+                    PersistenceManager service) {
+                // nothing to do
+            }
+
+        };
+        journalpmRegistration = bundleContext.registerService(PersistenceManager.class, factory, props);
+    }
+
+    /**
+     * The journal is placed in the directory configured with {@link #CM_CONFIG_DIR}
+     * or the data area of this bundle, falling back to the current working directory.
+     */
+    private static File getJournalFile(final BundleContext bundleContext) {
+        final String dir = bundleContext.getProperty(CM_CONFIG_DIR);
+        if (dir != null) {
+            return new File(dir, JournalPersistenceManager.DEFAULT_JOURNAL_FILE);
+        }
+        final File dataFile = bundleContext.getDataFile(JournalPersistenceManager.DEFAULT_JOURNAL_FILE);
+        if (dataFile != null) {
+            return dataFile;
+        }
+        return new File(System.getProperty("user.dir"), JournalPersistenceManager.DEFAULT_JOURNAL_FILE);
+    }
+
     private void unregisterFilePersistenceManager()
     {
         if ( this.filepmRegistration != null )
@@ -225,6 +284,17 @@ public class Activator implements BundleActivator
         }
     }
 
+    private void unregisterJournalPersistenceManager() {
+        if (this.journalpmRegistration != null) {
+            this.journalpmRegistration.unregister();
+            this.journalpmRegistration = null;
+        }
+        if (this.journalpm != null) {
+            this.journalpm.close();
+            this.journalpm = null;
+        }
+    }
+
     public static String getLocation(final Bundle bundle)
     {
         if (System.getSecurityManager() != null)
@@ -27,6 +27,7 @@ import java.security.SecureRandom;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Dictionary;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -87,6 +88,16 @@ import org.osgi.util.tracker.ServiceTracker;
  */
 public class ConfigurationManager implements BundleListener
 {
+    /**
+     * The name of the bundle context property defining the number of
+     * threads used to update managed services and managed service factories
+     * (value is "felix.cm.update.threads"). Updates for the same service are
+     * always delivered in order, updates for different services may be
+     * delivered in parallel if more than one thread is configured.
+     * The default is a single thread.
+     */
+    public static final String CM_UPDATE_THREADS = "felix.cm.update.threads";
+
     // random number generator to create configuration PIDs for factory
     // configurations
     private static Random numberGenerator;
@@ -171,7 +182,15 @@ public class ConfigurationManager implements BundleListener
         // initialize the asynchonous updater thread
         ThreadGroup tg = new ThreadGroup( "Configuration Admin Service" );
         tg.setDaemon( true );
-        this.updateThread = new UpdateThread( tg, "CM Configuration Updater" );
+        final int updateThreads = getUpdateThreads();
+        if ( updateThreads > 1 )
+        {
+            this.updateThread = new StripedUpdateThread( tg, "CM Configuration Updater", updateThreads );
+        }
+        else
+        {
+            this.updateThread = new UpdateThread( tg, "CM Configuration Updater" );
+        }
         this.eventThread = new UpdateThread( tg, "CM Event Dispatcher" );
 
         // register as bundle and service listener
@@ -212,6 +231,25 @@ public class ConfigurationManager implements BundleListener
     }
 
 
+    private int getUpdateThreads()
+    {
+        final String value = bundleContext.getProperty( CM_UPDATE_THREADS );
+        if ( value != null )
+        {
+            try
+            {
+                return Integer.parseInt( value.trim() );
+            }
+            catch ( final NumberFormatException nfe )
+            {
+                Log.logger.log( LogService.LOG_WARNING, "Ignoring invalid value {0} for {1}", new Object[]
+                        { value, CM_UPDATE_THREADS } );
+            }
+        }
+        return 1;
+    }
+
+
     public void stop( )
     {
 
@@ -1053,13 +1091,32 @@ public class ConfigurationManager implements BundleListener
 
     // ---------- inner classes
 
+    /**
+     * Returns the service ids of the services, used as the stripe keys of the
+     * update tasks such that all updates of a service are run in order.
+     */
+    private static Collection<Object> getServiceIds( final List<? extends ServiceReference<?>> services )
+    {
+        final List<Object> ids = new ArrayList<>( services.size() );
+        for ( final ServiceReference<?> sr : services )
+        {
+            final Object id = sr.getProperty( Constants.SERVICE_ID );
+            if ( id != null )
+            {
+                ids.add( id );
+            }
+        }
+        return ids;
+    }
+
+
     /**
      * The <code>ManagedServiceUpdate</code> updates a freshly registered
      * <code>ManagedService</code> with a specific configuration. If a
      * ManagedService is registered with multiple PIDs an instance of this
      * class is used for each registered PID.
      */
-    public class ManagedServiceUpdate implements Runnable
+    public class ManagedServiceUpdate implements StripedUpdateThread.Striped
     {
         public final List<String> pids = new ArrayList<>();
 
@@ -1133,6 +1190,13 @@ public class ConfigurationManager implements BundleListener
             managedServiceTracker.provideConfiguration( sr, configPid, null, properties, revision, this.configs );
         }
 
+        @Override
+        public Collection<?> getStripeKeys()
+        {
+            return getServiceIds( Collections.<ServiceReference<?>> singletonList( this.sr ) );
+        }
+
+
         @Override
         public String toString()
         {
@@ -1147,7 +1211,7 @@ public class ConfigurationManager implements BundleListener
      * multiple PIDs an instance of this class is used for each registered
      * PID.
      */
-    public class ManagedServiceFactoryUpdate implements Runnable
+    public class ManagedServiceFactoryUpdate implements StripedUpdateThread.Striped
     {
         private final String[] factoryPids;
 
@@ -1271,6 +1335,13 @@ public class ConfigurationManager implements BundleListener
         }
 
 
+        @Override
+        public Collection<?> getStripeKeys()
+        {
+            return getServiceIds( Collections.<ServiceReference<?>> singletonList( this.sr ) );
+        }
+
+
         @Override
         public String toString()
         {
@@ -1278,7 +1349,7 @@ public class ConfigurationManager implements BundleListener
         }
     }
 
-    public abstract class ConfigurationProvider<T> implements Runnable
+    public abstract class ConfigurationProvider<T> implements StripedUpdateThread.Striped
     {
 
         protected final ConfigurationImpl config;
@@ -1286,6 +1357,15 @@ public class ConfigurationManager implements BundleListener
         protected final Dictionary<String, ?> properties;
         private BaseTracker<T> helper;
 
+        /**
+         * The services to provide the configuration to if updates are
+         * delivered by several threads. They are determined when the task is
+         * created, services registered later are provided with the
+         * configuration when they are registered. <code>null</code> if the
+         * services are determined when the task is run.
+         */
+        private final List<ServiceReference<T>> services;
+
 
         protected ConfigurationProvider( final ConfigurationImpl config )
         {
@@ -1295,6 +1375,17 @@ public class ConfigurationManager implements BundleListener
                 this.revision = config.getRevision();
                 this.properties = config.getProperties( true );
             }
+            if ( ConfigurationManager.this.updateThread instanceof StripedUpdateThread )
+            {
+                // the trackers are not available before the manager has been started
+                final BaseTracker<T> helper = this.getHelper();
+                this.services = helper == null ? Collections.<ServiceReference<T>> emptyList()
+                        : helper.getServices( getTargetedServicePid() );
+            }
+            else
+            {
+                this.services = null;
+            }
         }
 
 
@@ -1309,6 +1400,27 @@ public class ConfigurationManager implements BundleListener
         }
 
 
+        /**
+         * Tasks are run in order with all other tasks for the services the
+         * configuration is provided to.
+         */
+        @Override
+        public Collection<?> getStripeKeys()
+        {
+            return getServiceIds( this.getServices() );
+        }
+
+
+        protected List<ServiceReference<T>> getServices()
+        {
+            if ( this.services != null )
+            {
+                return this.services;
+            }
+            return this.getHelper().getServices( getTargetedServicePid() );
+        }
+
+
         protected BaseTracker<T> getHelper()
         {
             if ( this.helper == null )
@@ -1387,7 +1499,7 @@ public class ConfigurationManager implements BundleListener
             Log.logger.log( LogService.LOG_DEBUG, "Updating configuration {0} to revision #{1}", new Object[]
                     { config.getPid(), revision } );
 
-            final List<ServiceReference<?>> srList = this.getHelper().getServices( getTargetedServicePid() );
+            final List<ServiceReference<?>> srList = this.getServices();
             if ( !srList.isEmpty() )
             {
                 // optionally bind dynamically to the first service
@@ -1474,7 +1586,7 @@ public class ConfigurationManager implements BundleListener
         @Override
         public void run()
         {
-            List<ServiceReference<?>> srList = this.getHelper().getServices( getTargetedServicePid() );
+            List<ServiceReference<?>> srList = this.getServices();
             if ( !srList.isEmpty() )
             {
                 for (ServiceReference<?> sr : srList)
@@ -1530,7 +1642,7 @@ public class ConfigurationManager implements BundleListener
         @Override
         public void run()
         {
-            List<ServiceReference<?>> srList = this.getHelper().getServices( getTargetedServicePid() );
+            List<ServiceReference<?>> srList = this.getServices();
             if ( !srList.isEmpty() )
             {
                 for (final ServiceReference<?> sr : srList)
@@ -0,0 +1,243 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.cm.impl;
+
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.TreeSet;
+
+
+/**
+ * The <code>StripedUpdateThread</code> distributes tasks over a number of
+ * {@link UpdateThread} workers. Tasks implementing {@link Striped} are
+ * assigned to workers based on their keys, such that all tasks sharing a
+ * key are run in the order they have been scheduled while tasks without
+ * common keys may run in parallel. All other tasks are run by the first
+ * worker.
+ * <p>
+ * A task with keys on several workers is queued on each of these workers and
+ * run once all of them have reached it, so it is ordered with the tasks of
+ * all its keys.
+ */
+public class StripedUpdateThread extends UpdateThread
+{
+
+    /**
+     * A task which must be run in order with all other tasks having one of
+     * its stripe keys.
+     */
+    public interface Striped extends Runnable
+    {
+        /**
+         * Returns the keys of this task, for example the service ids of the
+         * services updated by the task. If the collection is empty the task
+         * is run by the first worker.
+         */
+        Collection<?> getStripeKeys();
+    }
+
+    // the workers, each running the tasks of one stripe
+    private final UpdateThread[] stripes;
+
+    // the tasks waiting for several workers
+    private final Set<Barrier> barriers = Collections.synchronizedSet( new HashSet<Barrier>() );
+
+    public StripedUpdateThread( final ThreadGroup tg, final String name, final int threads )
+    {
+        super( tg, name );
+        this.stripes = new UpdateThread[threads];
+        for ( int i = 0; i < threads; i++ )
+        {
+            this.stripes[i] = new UpdateThread( tg, name + " #" + i );
+        }
+    }
+
+
+    @Override
+    synchronized void start()
+    {
+        for ( final UpdateThread stripe : this.stripes )
+        {
+            stripe.start();
+        }
+    }
+
+
+    /**
+     * Terminates all workers. All workers are asked to terminate before
+     * waiting for them, such that terminating takes at most 5 seconds
+     * regardless of the number of workers.
+     */
+    @Override
+    synchronized void terminate()
+    {
+        final Thread[] workers = new Thread[this.stripes.length];
+        for ( int i = 0; i < this.stripes.length; i++ )
+        {
+            workers[i] = this.stripes[i].requestTermination();
+        }
+
+        // release workers waiting for a worker which is terminating
+        synchronized ( this.barriers )
+        {
+            for ( final Barrier barrier : this.barriers )
+            {
+                barrier.cancel();
+            }
+            this.barriers.clear();
+        }
+
+        final long deadline = System.currentTimeMillis() + TERMINATION_TIMEOUT;
+        for ( int i = 0; i < this.stripes.length; i++ )
+        {
+            if ( workers[i] != null )
+            {
+                this.stripes[i].awaitTermination( workers[i], deadline );
+            }
+        }
+    }
+
+
+    /**
+     * Queues the task on the workers of its keys. Scheduling is synchronized
+     * so tasks spanning several workers are queued in the same order on all
+     * workers and cannot wait for each other.
+     */
+    @Override
+    synchronized void schedule( final Runnable update )
+    {
+        final Set<Integer> stripes = getStripes( update );
+        if ( stripes.size() == 1 )
+        {
+            this.stripes[stripes.iterator().next()].schedule( update );
+        }
+        else
+        {
+            final Barrier barrier = new Barrier( update, stripes.size() );
+            this.barriers.add( barrier );
+            for ( final int stripe : stripes )
+            {
+                this.stripes[stripe].schedule( barrier );
+            }
+        }
+    }
+
+
+    Set<Integer> getStripes( final Runnable update )
+    {
+        final Set<Integer> result = new TreeSet<>();
+        if ( update instanceof Striped )
+        {
+            for ( final Object key : ( ( Striped ) update ).getStripeKeys() )
+            {
+                result.add( getStripe( key ) );
+            }
+        }
+        if ( result.isEmpty() )
+        {
+            result.add( 0 );
+        }
+        return result;
+    }
+
+
+    int getStripe( final Object key )
+    {
+        // spread the hash code as the keys usually differ in the low bits only
+        final int h = key.hashCode() * 0x9E3779B9;
+        return ( ( h ^ ( h >>> 16 ) ) & 0x7fffffff ) % this.stripes.length;
+    }
+
+
+    /**
+     * A task queued on several workers. The task is run by the last worker
+     * reaching it, the other workers wait until the task has been run.
+     */
+    private class Barrier implements Runnable
+    {
+        private final Runnable task;
+
+        private int waiting;
+
+        private boolean done;
+
+
+        Barrier( final Runnable task, final int parties )
+        {
+            this.task = task;
+            this.waiting = parties;
+        }
+
+
+        @Override
+        public void run()
+        {
+            synchronized ( this )
+            {
+                if ( --this.waiting > 0 )
+                {
+                    while ( !this.done )
+                    {
+                        try
+                        {
+                            this.wait();
+                        }
+                        catch ( InterruptedException ie )
+                        {
+                            // give up, the worker is terminating
+                            return;
+                        }
+                    }
+                    return;
+                }
+                if ( this.done )
+                {
+                    // cancelled
+                    return;
+                }
+            }
+            try
+            {
+                this.task.run();
+            }
+            finally
+            {
+                barriers.remove( this );
+                this.cancel();
+            }
+        }
+
+
+        synchronized void cancel()
+        {
+            this.done = true;
+            this.notifyAll();
+        }
+
+
+        @Override
+        public String toString()
+        {
+            return this.task.toString();
+        }
+    }
+}
@@ -50,6 +50,9 @@ public class UpdateThread implements Runnable
     // the access control context
     private final AccessControlContext acc;
 
+    // the time in milliseconds to wait for the worker thread to terminate
+    static final long TERMINATION_TIMEOUT = 5000;
+
     public UpdateThread( final ThreadGroup tg, final String name )
     {
         this.workerThreadGroup = tg;
@@ -156,31 +159,59 @@ public class UpdateThread implements Runnable
      */
     synchronized void terminate()
     {
-        if ( this.worker != null )
+        final Thread workerThread = this.requestTermination();
+        if ( workerThread != null )
         {
-            Thread workerThread = this.worker;
-            this.worker = null;
+            this.awaitTermination( workerThread, System.currentTimeMillis() + TERMINATION_TIMEOUT );
+        }
+    }
 
+
+    /**
+     * Asks the worker thread to terminate once the current task is done
+     * without waiting for it.
+     *
+     * @return the worker thread or <code>null</code> if it is not active
+     */
+    synchronized Thread requestTermination()
+    {
+        final Thread workerThread = this.worker;
+        if ( workerThread != null )
+        {
+            this.worker = null;
             updateTasks.offerFirst( this );
+        }
+        return workerThread;
+    }
 
-            // wait for all updates to terminate (<= 10 seconds !)
-            try
-            {
-                workerThread.join( 5000 );
-            }
-            catch ( InterruptedException ie )
-            {
-                // don't really care
-            }
 
-            if ( workerThread.isAlive() )
+    /**
+     * Waits for the worker thread returned by {@link #requestTermination()}
+     * to terminate, killing it if it is still alive at the deadline.
+     */
+    void awaitTermination( final Thread workerThread, final long deadline )
+    {
+        // wait for all updates to terminate
+        try
+        {
+            final long timeout = deadline - System.currentTimeMillis();
+            if ( timeout > 0 )
             {
-                Log.logger.log( LogService.LOG_ERROR,
-                    "Worker thread {0} did not terminate within 5 seconds; trying to kill", new Object[]
-                        { workerBaseName } );
-                workerThread.stop();
+                workerThread.join( timeout );
             }
         }
+        catch ( InterruptedException ie )
+        {
+            // don't really care
+        }
+
+        if ( workerThread.isAlive() )
+        {
+            Log.logger.log( LogService.LOG_ERROR,
+                "Worker thread {0} did not terminate within 5 seconds; trying to kill", new Object[]
+                    { workerBaseName } );
+            workerThread.stop();
+        }
     }
 
 
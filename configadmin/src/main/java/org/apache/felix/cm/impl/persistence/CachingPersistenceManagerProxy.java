@@ -25,14 +25,11 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Dictionary;
 import java.util.Enumeration;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.felix.cm.PersistenceManager;
 import org.apache.felix.cm.impl.CaseInsensitiveDictionary;
@@ -46,6 +43,15 @@ import org.osgi.service.cm.ConfigurationAdmin;
  * underlying actual {@link PersistenceManager} implementation. All API calls
  * are also (or primarily) routed through a local cache of dictionaries indexed
  * by the <code>service.pid</code>.
+ * <p>
+ * In addition the cache maintains secondary indexes for the
+ * <code>service.factoryPid</code> and <code>service.bundleLocation</code>
+ * properties which are used by {@link #getDictionaries(SimpleFilter)} if the
+ * filter requires an exact value for one of the indexed properties.
+ * <p>
+ * Read access to the cache is not locked. Modifications of the cache are
+ * serialized, such that the underlying persistence manager and the cache are
+ * updated consistently.
  */
 public class CachingPersistenceManagerProxy implements ExtPersistenceManager
 {
@@ -54,10 +60,10 @@ public class CachingPersistenceManagerProxy implements ExtPersistenceManager
     private final PersistenceManager pm;
 
     /** Cached dictionaries */
-    private final Map<String, CaseInsensitiveDictionary> cache = new HashMap<>();
+    private final Map<String, CaseInsensitiveDictionary> cache = new ConcurrentHashMap<>();
 
-    /** Protecting lock */
-    private final ReadWriteLock globalLock = new ReentrantReadWriteLock();
+    /** Lock serializing modifications */
+    private final Object writeLock = new Object();
 
     /**
      * Indicates whether the getDictionaries method has already been called
@@ -66,8 +72,11 @@ public class CachingPersistenceManagerProxy implements ExtPersistenceManager
      */
     private volatile boolean fullyLoaded;
 
-    /** Factory configuration cache. */
-    private final Map<String, Set<String>> factoryConfigCache = new HashMap<>();
+    /** Factory configuration cache, index by factory pid. */
+    private final Map<String, Set<String>> factoryConfigCache = new ConcurrentHashMap<>();
+
+    /** Index by bundle location. */
+    private final Map<String, Set<String>> locationIndex = new ConcurrentHashMap<>();
 
     /**
      * Creates a new caching layer for the given actual {@link PersistenceManager}.
@@ -92,33 +101,11 @@ public class CachingPersistenceManagerProxy implements ExtPersistenceManager
     @Override
     public void delete( final String pid ) throws IOException
     {
-        Lock lock = globalLock.writeLock();
-        try
+        synchronized ( writeLock )
         {
-            lock.lock();
-            final Dictionary props = cache.remove( pid );
-            if ( props != null )
-            {
-                final String factoryPid = (String)props.get(ConfigurationAdmin.SERVICE_FACTORYPID);
-                if ( factoryPid != null )
-                {
-                    final Set<String> factoryPids = this.factoryConfigCache.get(factoryPid);
-                    if ( factoryPids != null )
-                    {
-                        factoryPids.remove(pid);
-                        if ( factoryPids.isEmpty() )
-                        {
-                            this.factoryConfigCache.remove(factoryPid);
-                        }
-                    }
-                }
-            }
+            this.uncache( pid );
             pm.delete(pid);
         }
-        finally
-        {
-            lock.unlock();
-        }
     }
 
 
@@ -130,16 +117,7 @@ public class CachingPersistenceManagerProxy implements ExtPersistenceManager
     @Override
     public boolean exists( final String pid )
     {
-        Lock lock = globalLock.readLock();
-        try
-        {
-            lock.lock();
-            return cache.containsKey( pid ) || ( !fullyLoaded && pm.exists( pid ) );
-        }
-        finally
-        {
-            lock.unlock();
-        }
+        return cache.containsKey( pid ) || ( !fullyLoaded && pm.exists( pid ) );
     }
 
 
@@ -159,6 +137,10 @@ public class CachingPersistenceManagerProxy implements ExtPersistenceManager
         return Collections.enumeration(getDictionaries( null ));
     }
 
+    /**
+     * Cache the dictionary and update the indexes. Must be called while
+     * holding the write lock.
+     */
     private final CaseInsensitiveDictionary cache(final Dictionary props)
     {
         final String pid = (String) props.get( Constants.SERVICE_PID );
@@ -170,36 +152,93 @@ public class CachingPersistenceManagerProxy implements ExtPersistenceManager
             {
                 dict = new CaseInsensitiveDictionary(props);
                 cache.put( pid, dict );
-                final String factoryPid = (String)props.get(ConfigurationAdmin.SERVICE_FACTORYPID);
-                if ( factoryPid != null )
+                addToIndex( this.factoryConfigCache, (String)props.get(ConfigurationAdmin.SERVICE_FACTORYPID), pid );
+                addToIndex( this.locationIndex, (String)props.get(ConfigurationAdmin.SERVICE_BUNDLELOCATION), pid );
+            }
+        }
+        return dict;
+    }
+
+    /**
+     * Replace the cached dictionary and update the indexes. The entry is
+     * replaced in a single step, so readers never miss the configuration
+     * while it is replaced. Must be called while holding the write lock.
+     */
+    private void recache(final String pid, final Dictionary props)
+    {
+        final Dictionary old = cache.put( pid, new CaseInsensitiveDictionary( props ) );
+        // stale index entries are harmless as candidates are matched against
+        // the cached dictionaries, so add the new entries before removing the old ones
+        updateIndex( this.factoryConfigCache, old == null ? null : (String)old.get(ConfigurationAdmin.SERVICE_FACTORYPID),
+            (String)props.get(ConfigurationAdmin.SERVICE_FACTORYPID), pid );
+        updateIndex( this.locationIndex, old == null ? null : (String)old.get(ConfigurationAdmin.SERVICE_BUNDLELOCATION),
+            (String)props.get(ConfigurationAdmin.SERVICE_BUNDLELOCATION), pid );
+    }
+
+    /**
+     * Remove the dictionary from the cache and the indexes. Must be called
+     * while holding the write lock.
+     */
+    private void uncache(final String pid)
+    {
+        final Dictionary props = cache.remove( pid );
+        if ( props != null )
+        {
+            removeFromIndex( this.factoryConfigCache, (String)props.get(ConfigurationAdmin.SERVICE_FACTORYPID), pid );
+            removeFromIndex( this.locationIndex, (String)props.get(ConfigurationAdmin.SERVICE_BUNDLELOCATION), pid );
+        }
+    }
+
+    private static void addToIndex(final Map<String, Set<String>> index, final String key, final String pid)
+    {
+        if ( key != null )
+        {
+            // only called with the write lock held, so no concurrent put
+            Set<String> pids = index.get( key );
+            if ( pids == null )
+            {
+                pids = Collections.newSetFromMap( new ConcurrentHashMap<String, Boolean>() );
+                index.put( key, pids );
+            }
+            pids.add( pid );
+        }
+    }
+
+    private static void updateIndex(final Map<String, Set<String>> index, final String oldKey, final String newKey, final String pid)
+    {
+        if ( oldKey == null ? newKey != null : !oldKey.equals( newKey ) )
+        {
+            addToIndex( index, newKey, pid );
+            removeFromIndex( index, oldKey, pid );
+        }
+    }
+
+    private static void removeFromIndex(final Map<String, Set<String>> index, final String key, final String pid)
+    {
+        if ( key != null )
+        {
+            final Set<String> pids = index.get( key );
+            if ( pids != null )
+            {
+                pids.remove( pid );
+                if ( pids.isEmpty() )
                 {
-                    Set<String> factoryPids = this.factoryConfigCache.get(factoryPid);
-                    if ( factoryPids == null )
-                    {
-                        factoryPids = new HashSet<>();
-                        this.factoryConfigCache.put(factoryPid, factoryPids);
-                    }
-                    factoryPids.add(pid);
+                    index.remove( key );
                 }
             }
         }
-        return dict;
     }
 
-    @Override
-    public Collection<Dictionary> getDictionaries( final SimpleFilter filter ) throws IOException
+    /**
+     * Load all dictionaries from the underlying persistence manager
+     * unless this has already been done.
+     */
+    private void ensureFullyLoaded() throws IOException
     {
-        Lock lock = globalLock.readLock();
-        try
+        if ( !fullyLoaded )
         {
-            lock.lock();
-            // if not fully loaded, call back to the underlying persistence
-            // manager and cache all dictionaries whose service.pid is set
-            if ( !fullyLoaded )
+            synchronized ( writeLock )
             {
-                lock.unlock();
-                lock = globalLock.writeLock();
-                lock.lock();
                 if ( !fullyLoaded )
                 {
                     Enumeration fromPm = pm.getDictionaries();
@@ -211,22 +250,112 @@ public class CachingPersistenceManagerProxy implements ExtPersistenceManager
                     this.fullyLoaded = true;
                 }
             }
+        }
+    }
+
+    @Override
+    public Collection<Dictionary> getDictionaries( final SimpleFilter filter ) throws IOException
+    {
+        // if not fully loaded, call back to the underlying persistence
+        // manager and cache all dictionaries whose service.pid is set
+        ensureFullyLoaded();
 
-            // Deep copy the configuration to avoid any threading issue
-            final List<Dictionary> configs = new ArrayList<>();
-            for (final Dictionary d : cache.values())
+        final Collection<CaseInsensitiveDictionary> candidates;
+        final Set<String> pids = filter == null ? null : getCandidates( filter );
+        if ( pids == null )
+        {
+            candidates = cache.values();
+        }
+        else
+        {
+            candidates = new ArrayList<>( pids.size() );
+            for ( final String pid : pids )
             {
-                if ( d.get( Constants.SERVICE_PID ) != null && ( filter == null || filter.matches( d ) ) )
+                final CaseInsensitiveDictionary d = cache.get( pid );
+                if ( d != null )
                 {
-                    configs.add( new CaseInsensitiveDictionary( d ) );
+                    candidates.add( d );
                 }
             }
-            return configs;
         }
-        finally
+
+        // Deep copy the configuration to avoid any threading issue
+        final List<Dictionary> configs = new ArrayList<>();
+        for (final Dictionary d : candidates)
         {
-            lock.unlock();
+            if ( d.get( Constants.SERVICE_PID ) != null && ( filter == null || filter.matches( d ) ) )
+            {
+                configs.add( new CaseInsensitiveDictionary( d ) );
+            }
         }
+        return configs;
+    }
+
+    /**
+     * Returns the PIDs of the configurations possibly matching the filter
+     * based on the indexes or <code>null</code> if the indexes can not be used
+     * for the filter. The returned configurations must still be matched
+     * against the filter.
+     */
+    Set<String> getCandidates( final SimpleFilter filter )
+    {
+        switch ( filter.getOperation() )
+        {
+            case SimpleFilter.EQ:
+                if ( filter.getValue() instanceof String )
+                {
+                    final String value = ( String ) filter.getValue();
+                    if ( Constants.SERVICE_PID.equalsIgnoreCase( filter.getName() ) )
+                    {
+                        return Collections.singleton( value );
+                    }
+                    if ( ConfigurationAdmin.SERVICE_FACTORYPID.equalsIgnoreCase( filter.getName() ) )
+                    {
+                        return getIndexed( this.factoryConfigCache, value );
+                    }
+                    if ( ConfigurationAdmin.SERVICE_BUNDLELOCATION.equalsIgnoreCase( filter.getName() ) )
+                    {
+                        return getIndexed( this.locationIndex, value );
+                    }
+                }
+                return null;
+
+            case SimpleFilter.AND:
+                // each indexed operand limits the result, use the smallest one
+                Set<String> smallest = null;
+                for ( final Object sf : ( List<?> ) filter.getValue() )
+                {
+                    final Set<String> pids = getCandidates( ( SimpleFilter ) sf );
+                    if ( pids != null && ( smallest == null || pids.size() < smallest.size() ) )
+                    {
+                        smallest = pids;
+                    }
+                }
+                return smallest;
+
+            case SimpleFilter.OR:
+                // all operands must be indexed
+                final Set<String> union = new HashSet<>();
+                for ( final Object sf : ( List<?> ) filter.getValue() )
+                {
+                    final Set<String> pids = getCandidates( ( SimpleFilter ) sf );
+                    if ( pids == null )
+                    {
+                        return null;
+                    }
+                    union.addAll( pids );
+                }
+                return union;
+
+            default:
+                return null;
+        }
+    }
+
+    private static Set<String> getIndexed( final Map<String, Set<String>> index, final String key )
+    {
+        final Set<String> pids = index.get( key );
+        return pids == null ? Collections.<String>emptySet() : pids;
     }
 
 
@@ -243,16 +372,11 @@ public class CachingPersistenceManagerProxy implements ExtPersistenceManager
     @Override
     public Dictionary load( final String pid ) throws IOException
     {
-        Lock lock = globalLock.readLock();
-        try
+        CaseInsensitiveDictionary loaded = cache.get( pid );
+        if ( loaded == null && !fullyLoaded )
         {
-            lock.lock();
-            CaseInsensitiveDictionary loaded = cache.get( pid );
-            if ( loaded == null && !fullyLoaded )
+            synchronized ( writeLock )
             {
-                lock.unlock();
-                lock = globalLock.writeLock();
-                lock.lock();
                 loaded = cache.get( pid );
                 if ( loaded == null )
                 {
@@ -263,19 +387,15 @@ public class CachingPersistenceManagerProxy implements ExtPersistenceManager
                     }
                 }
             }
-            return loaded == null ? null : new CaseInsensitiveDictionary(loaded);
-        }
-        finally
-        {
-            lock.unlock();
         }
+        return loaded == null ? null : new CaseInsensitiveDictionary(loaded);
     }
 
 
     /**
      * Stores the dictionary in the cache and in the underlying persistence
      * manager. This method first calls the underlying persistence manager
-     * before updating the dictionary in the cache.
+     * before replacing the dictionary in the cache.
      * <p>
      * Note, that actually a copy of the dictionary is stored in the cache. That
      * is subsequent modification to the given dictionary has no influence on
@@ -284,17 +404,10 @@ public class CachingPersistenceManagerProxy implements ExtPersistenceManager
     @Override
     public void store( final String pid, final Dictionary properties ) throws IOException
     {
-        final Lock lock = globalLock.writeLock();
-        try
+        synchronized ( writeLock )
         {
-            lock.lock();
             pm.store( pid, properties );
-            this.cache.remove(pid);
-            this.cache(properties);
-        }
-        finally
-        {
-            lock.unlock();
+            this.recache( pid, properties );
         }
     }
 
@@ -302,42 +415,16 @@ public class CachingPersistenceManagerProxy implements ExtPersistenceManager
     public Set<String> getFactoryConfigurationPids(final List<String> targetedFactoryPids )
     throws IOException
     {
+        ensureFullyLoaded();
+
         final Set<String> pids = new HashSet<>();
-        Lock lock = globalLock.readLock();
-        try
+        for(final String targetFactoryPid : targetedFactoryPids)
         {
-            lock.lock();
-            if ( !this.fullyLoaded )
+            final Set<String> cachedPids = this.factoryConfigCache.get(targetFactoryPid);
+            if ( cachedPids != null )
             {
-                lock.unlock();
-                lock = globalLock.writeLock();
-                lock.lock();
-                if ( !this.fullyLoaded )
-                {
-                    final Enumeration fromPm = pm.getDictionaries();
-                    while ( fromPm.hasMoreElements() )
-                    {
-                        Dictionary next = (Dictionary) fromPm.nextElement();
-                        this.cache(next);
-                    }
-                    this.fullyLoaded = true;
-                }
-                lock.unlock();
-                lock = globalLock.readLock();
-                lock.lock();
+                pids.addAll(cachedPids);
             }
-            for(final String targetFactoryPid : targetedFactoryPids)
-            {
-                final Set<String> cachedPids = this.factoryConfigCache.get(targetFactoryPid);
-                if ( cachedPids != null )
-                {
-                    pids.addAll(cachedPids);
-                }
-            }
-        }
-        finally
-        {
-            lock.unlock();
         }
         return pids;
     }
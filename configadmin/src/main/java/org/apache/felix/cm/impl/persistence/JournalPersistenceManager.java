@@ -0,0 +1,777 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.cm.impl.persistence;
+
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Array;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Dictionary;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Hashtable;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import org.apache.felix.cm.PersistenceManager;
+import org.apache.felix.cm.impl.Log;
+import org.osgi.service.log.LogService;
+
+
+/**
+ * The <code>JournalPersistenceManager</code> stores all configurations in a
+ * single append-only file instead of one file per configuration.
+ * <p>
+ * Each {@link #store(String, Dictionary)} and {@link #delete(String)} appends a
+ * record to the end of the journal, existing records are never modified. A
+ * record is prefixed with its length and followed by a CRC32 checksum, so that
+ * a record which has only partially been written when the system went down is
+ * detected and cut off the next time the journal is opened. The configuration
+ * values are stored in a binary encoding supporting the same types as the
+ * {@link org.apache.felix.cm.file.FilePersistenceManager}.
+ * <p>
+ * Only the position of the latest record of each PID is kept in memory. Once
+ * the number of obsolete records exceeds the compaction threshold as well as
+ * the number of live records, the live records are copied into a new journal
+ * which then replaces the old one.
+ * <p>
+ * {@link #getDictionaries()} reads the journal with one sequential read.
+ */
+public class JournalPersistenceManager implements PersistenceManager
+{
+
+    /**
+     * The name of this persistence manager when registered in the service
+     * registry (value is "journal").
+     */
+    public static final String PERSISTENCE_MANAGER_NAME = "journal";
+
+    /**
+     * The default name of the journal file (value is "config.journal").
+     */
+    public static final String DEFAULT_JOURNAL_FILE = "config.journal";
+
+    /**
+     * The default minimum number of obsolete records before the journal is
+     * compacted (value is 1024).
+     */
+    public static final int DEFAULT_COMPACT_THRESHOLD = 1024;
+
+    /** Magic number at the start of the journal ("FCMJ"). */
+    private static final int MAGIC = 0x46434d4a;
+
+    private static final int VERSION = 1;
+
+    private static final int HEADER_LENGTH = 8;
+
+    private static final byte RECORD_STORE = 1;
+
+    private static final byte RECORD_DELETE = 2;
+
+    private static final byte TYPE_NULL = 0;
+    private static final byte TYPE_STRING = 1;
+    private static final byte TYPE_INTEGER = 2;
+    private static final byte TYPE_LONG = 3;
+    private static final byte TYPE_FLOAT = 4;
+    private static final byte TYPE_DOUBLE = 5;
+    private static final byte TYPE_BYTE = 6;
+    private static final byte TYPE_SHORT = 7;
+    private static final byte TYPE_CHARACTER = 8;
+    private static final byte TYPE_BOOLEAN = 9;
+    private static final byte TYPE_ARRAY = 16;
+    private static final byte TYPE_PRIMITIVE_ARRAY = 17;
+    private static final byte TYPE_COLLECTION = 18;
+
+    /** The value classes indexed by their type code */
+    private static final Class<?>[] TYPES =
+        { null, String.class, Integer.class, Long.class, Float.class, Double.class, Byte.class, Short.class,
+            Character.class, Boolean.class };
+
+    /** The primitive classes indexed by their type code */
+    private static final Class<?>[] PRIMITIVES =
+        { null, null, Integer.TYPE, Long.TYPE, Float.TYPE, Double.TYPE, Byte.TYPE, Short.TYPE, Character.TYPE,
+            Boolean.TYPE };
+
+    /** The journal file */
+    private final File file;
+
+    /** The minimum number of obsolete records before compacting */
+    private final int compactThreshold;
+
+    /** The opened journal or <code>null</code> if not opened yet */
+    private RandomAccessFile journal;
+
+    /** The position of the latest store record per PID */
+    private Map<String, Long> positions = new HashMap<>();
+
+    /** The number of records in the journal which are no longer needed */
+    private int obsolete;
+
+
+    /**
+     * Creates a persistence manager storing the configurations in the given
+     * file, using the default compaction threshold.
+     *
+     * @param file The journal file
+     *
+     * @throws IllegalArgumentException If the parent directory of the file
+     *      does not exist and cannot be created.
+     */
+    public JournalPersistenceManager( final File file )
+    {
+        this( file, DEFAULT_COMPACT_THRESHOLD );
+    }
+
+
+    /**
+     * Creates a persistence manager storing the configurations in the given
+     * file. The journal is opened on first use.
+     *
+     * @param file The journal file
+     * @param compactThreshold The minimum number of obsolete records before
+     *      the journal is compacted
+     *
+     * @throws IllegalArgumentException If the parent directory of the file
+     *      does not exist and cannot be created.
+     */
+    public JournalPersistenceManager( final File file, final int compactThreshold )
+    {
+        this.file = file.getAbsoluteFile();
+        this.compactThreshold = compactThreshold;
+
+        final File dir = this.file.getParentFile();
+        if ( dir != null && !dir.isDirectory() && !dir.mkdirs() )
+        {
+            throw new IllegalArgumentException( "Cannot create directory " + dir + " for the configuration journal" );
+        }
+    }
+
+
+    /**
+     * Returns the journal file.
+     */
+    public File getFile()
+    {
+        return this.file;
+    }
+
+
+    @Override
+    public synchronized boolean exists( final String pid )
+    {
+        try
+        {
+            ensureOpen();
+        }
+        catch ( final IOException ioe )
+        {
+            Log.logger.log( LogService.LOG_ERROR, "Cannot open configuration journal {0}", new Object[]
+                { this.file, ioe } );
+            return false;
+        }
+        return this.positions.containsKey( pid );
+    }
+
+
+    @Override
+    public synchronized Dictionary load( final String pid ) throws IOException
+    {
+        ensureOpen();
+        final Long position = this.positions.get( pid );
+        if ( position == null )
+        {
+            return null;
+        }
+
+        this.journal.seek( position.longValue() );
+        final byte[] body = new byte[this.journal.readInt()];
+        this.journal.readFully( body );
+
+        final DataInputStream in = new DataInputStream( new ByteArrayInputStream( body ) );
+        in.readByte();
+        readString( in );
+        return readDictionary( in );
+    }
+
+
+    @Override
+    public synchronized Enumeration getDictionaries() throws IOException
+    {
+        if ( this.journal == null )
+        {
+            openJournal();
+        }
+        final Map<String, Dictionary> dictionaries = new LinkedHashMap<>();
+        scan( dictionaries );
+        compactIfNeeded();
+        return Collections.enumeration( new ArrayList<>( dictionaries.values() ) );
+    }
+
+
+    @Override
+    public synchronized void store( final String pid, final Dictionary properties ) throws IOException
+    {
+        ensureOpen();
+        final long position = append( RECORD_STORE, pid, properties );
+        if ( this.positions.put( pid, Long.valueOf( position ) ) != null )
+        {
+            this.obsolete++;
+        }
+        compactIfNeeded();
+    }
+
+
+    @Override
+    public synchronized void delete( final String pid ) throws IOException
+    {
+        ensureOpen();
+        if ( this.positions.containsKey( pid ) )
+        {
+            append( RECORD_DELETE, pid, null );
+            this.positions.remove( pid );
+            // both the store and the delete record are obsolete now
+            this.obsolete += 2;
+            compactIfNeeded();
+        }
+    }
+
+
+    /**
+     * Closes the journal. It is opened again on next use.
+     */
+    public synchronized void close()
+    {
+        if ( this.journal != null )
+        {
+            try
+            {
+                this.journal.close();
+            }
+            catch ( final IOException ioe )
+            {
+                // ignore
+            }
+            this.journal = null;
+        }
+    }
+
+
+    private void ensureOpen() throws IOException
+    {
+        if ( this.journal == null )
+        {
+            openJournal();
+            scan( null );
+            compactIfNeeded();
+        }
+    }
+
+
+    /**
+     * Opens the journal file, creating a new journal if the file does not
+     * exist yet.
+     */
+    private void openJournal() throws IOException
+    {
+        final RandomAccessFile raf = new RandomAccessFile( this.file, "rw" );
+        try
+        {
+            if ( raf.length() < HEADER_LENGTH )
+            {
+                // new file or crashed while creating it
+                raf.setLength( 0 );
+                raf.writeInt( MAGIC );
+                raf.writeInt( VERSION );
+            }
+            else if ( raf.readInt() != MAGIC || raf.readInt() != VERSION )
+            {
+                throw new IOException( "File " + this.file + " is not a configuration journal" );
+            }
+        }
+        catch ( final IOException ioe )
+        {
+            raf.close();
+            throw ioe;
+        }
+        this.journal = raf;
+    }
+
+
+    /**
+     * Reads all records of the journal sequentially and rebuilds the PID
+     * positions. An incomplete or corrupt record at the end of the journal
+     * is removed together with any data following it.
+     *
+     * @param dictionaries If not <code>null</code> the decoded configurations
+     *      are put into this map
+     */
+    private void scan( final Map<String, Dictionary> dictionaries ) throws IOException
+    {
+        final Map<String, Long> positions = new HashMap<>();
+        int obsolete = 0;
+
+        final long length = this.journal.length();
+        long position = HEADER_LENGTH;
+        final CRC32 crc = new CRC32();
+        try ( DataInputStream in = new DataInputStream(
+            new BufferedInputStream( new FileInputStream( this.file ), 64 * 1024 ) ) )
+        {
+            in.skipBytes( HEADER_LENGTH );
+            while ( position + 8 <= length )
+            {
+                final int size = in.readInt();
+                if ( size <= 0 || position + 8 + size > length )
+                {
+                    break;
+                }
+                final byte[] body = new byte[size];
+                in.readFully( body );
+                crc.reset();
+                crc.update( body, 0, size );
+                if ( in.readInt() != ( int ) crc.getValue() )
+                {
+                    break;
+                }
+
+                final DataInputStream record = new DataInputStream( new ByteArrayInputStream( body ) );
+                final byte type = record.readByte();
+                final String pid = readString( record );
+                if ( type == RECORD_STORE )
+                {
+                    if ( positions.put( pid, Long.valueOf( position ) ) != null )
+                    {
+                        obsolete++;
+                    }
+                    if ( dictionaries != null )
+                    {
+                        dictionaries.put( pid, readDictionary( record ) );
+                    }
+                }
+                else if ( type == RECORD_DELETE )
+                {
+                    if ( positions.remove( pid ) != null )
+                    {
+                        obsolete++;
+                    }
+                    obsolete++;
+                    if ( dictionaries != null )
+                    {
+                        dictionaries.remove( pid );
+                    }
+                }
+                else
+                {
+                    throw new IOException( "Unknown record type " + type + " in configuration journal " + this.file );
+                }
+                position += 8 + size;
+            }
+        }
+        catch ( final EOFException eof )
+        {
+            // truncated while reading, cut off below
+        }
+
+        if ( position < length )
+        {
+            Log.logger.log( LogService.LOG_WARNING,
+                "Removing {0} bytes of incomplete data at the end of the configuration journal {1}", new Object[]
+                    { Long.valueOf( length - position ), this.file } );
+            this.journal.setLength( position );
+        }
+
+        this.positions = positions;
+        this.obsolete = obsolete;
+    }
+
+
+    /**
+     * Appends a record to the journal.
+     *
+     * @return The position of the new record
+     */
+    private long append( final byte type, final String pid, final Dictionary properties ) throws IOException
+    {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream( 256 );
+        final DataOutputStream out = new DataOutputStream( bytes );
+        out.writeByte( type );
+        writeString( out, pid );
+        if ( properties != null )
+        {
+            writeDictionary( out, properties );
+        }
+        out.flush();
+        final byte[] body = bytes.toByteArray();
+
+        final CRC32 crc = new CRC32();
+        crc.update( body, 0, body.length );
+        final ByteBuffer record = ByteBuffer.allocate( body.length + 8 );
+        record.putInt( body.length ).put( body ).putInt( ( int ) crc.getValue() );
+
+        final long position = this.journal.length();
+        try
+        {
+            this.journal.seek( position );
+            this.journal.write( record.array() );
+        }
+        catch ( final IOException ioe )
+        {
+            // do not leave a partial record in front of the next one
+            try
+            {
+                this.journal.setLength( position );
+            }
+            catch ( final IOException ignore )
+            {
+                // the partial record is removed when opening the journal
+            }
+            throw ioe;
+        }
+        return position;
+    }
+
+
+    private void compactIfNeeded()
+    {
+        if ( this.obsolete >= this.compactThreshold && this.obsolete > this.positions.size() )
+        {
+            try
+            {
+                compact();
+            }
+            catch ( final IOException ioe )
+            {
+                Log.logger.log( LogService.LOG_WARNING, "Cannot compact configuration journal {0}", new Object[]
+                    { this.file, ioe } );
+                if ( this.journal == null )
+                {
+                    try
+                    {
+                        openJournal();
+                        scan( null );
+                    }
+                    catch ( final IOException e )
+                    {
+                        Log.logger.log( LogService.LOG_ERROR, "Cannot open configuration journal {0}", new Object[]
+                            { this.file, e } );
+                    }
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Copies the live records into a new journal which replaces the current
+     * one. The records keep their order.
+     */
+    void compact() throws IOException
+    {
+        final List<Map.Entry<String, Long>> live = new ArrayList<>( this.positions.entrySet() );
+        Collections.sort( live, new Comparator<Map.Entry<String, Long>>()
+        {
+            @Override
+            public int compare( final Map.Entry<String, Long> o1, final Map.Entry<String, Long> o2 )
+            {
+                return o1.getValue().compareTo( o2.getValue() );
+            }
+        } );
+
+        final File tmp = new File( this.file.getPath() + ".tmp" );
+        final Map<String, Long> positions = new HashMap<>();
+        try
+        {
+            try ( FileOutputStream fos = new FileOutputStream( tmp ) )
+            {
+                final DataOutputStream out = new DataOutputStream( new BufferedOutputStream( fos, 64 * 1024 ) );
+                out.writeInt( MAGIC );
+                out.writeInt( VERSION );
+                long position = HEADER_LENGTH;
+                for ( final Map.Entry<String, Long> entry : live )
+                {
+                    this.journal.seek( entry.getValue().longValue() );
+                    final int size = this.journal.readInt();
+                    // body and checksum
+                    final byte[] record = new byte[size + 4];
+                    this.journal.readFully( record );
+                    out.writeInt( size );
+                    out.write( record );
+                    positions.put( entry.getKey(), Long.valueOf( position ) );
+                    position += 8 + size;
+                }
+                out.flush();
+                fos.getFD().sync();
+            }
+
+            close();
+            try
+            {
+                Files.move( tmp.toPath(), this.file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE );
+            }
+            catch ( final AtomicMoveNotSupportedException amnse )
+            {
+                Files.move( tmp.toPath(), this.file.toPath(), StandardCopyOption.REPLACE_EXISTING );
+            }
+        }
+        finally
+        {
+            tmp.delete();
+        }
+
+        openJournal();
+        this.positions = positions;
+        this.obsolete = 0;
+    }
+
+
+    private static void writeDictionary( final DataOutputStream out, final Dictionary properties ) throws IOException
+    {
+        out.writeInt( properties.size() );
+        for ( final Enumeration<?> keys = properties.keys(); keys.hasMoreElements(); )
+        {
+            final Object key = keys.nextElement();
+            writeString( out, key.toString() );
+            writeValue( out, properties.get( key ) );
+        }
+    }
+
+
+    private static Dictionary readDictionary( final DataInputStream in ) throws IOException
+    {
+        final int size = in.readInt();
+        final Hashtable<String, Object> properties = new Hashtable<>( Math.max( 2 * size, 11 ) );
+        for ( int i = 0; i < size; i++ )
+        {
+            final String key = readString( in );
+            final Object value = readValue( in );
+            if ( value != null )
+            {
+                properties.put( key, value );
+            }
+        }
+        return properties;
+    }
+
+
+    private static void writeValue( final DataOutputStream out, final Object value ) throws IOException
+    {
+        if ( value == null )
+        {
+            out.writeByte( TYPE_NULL );
+        }
+        else if ( value.getClass().isArray() )
+        {
+            final Class<?> componentType = value.getClass().getComponentType();
+            final boolean primitive = componentType.isPrimitive();
+            final byte type = getType( componentType );
+            out.writeByte( primitive ? TYPE_PRIMITIVE_ARRAY : TYPE_ARRAY );
+            out.writeByte( type );
+            final int length = Array.getLength( value );
+            out.writeInt( length );
+            for ( int i = 0; i < length; i++ )
+            {
+                if ( primitive )
+                {
+                    writeScalar( out, type, Array.get( value, i ) );
+                }
+                else
+                {
+                    writeValue( out, Array.get( value, i ) );
+                }
+            }
+        }
+        else if ( value instanceof Collection )
+        {
+            final Collection<?> collection = ( Collection<?> ) value;
+            out.writeByte( TYPE_COLLECTION );
+            out.writeInt( collection.size() );
+            for ( final Object element : collection )
+            {
+                if ( element != null && ( element.getClass().isArray() || element instanceof Collection ) )
+                {
+                    throw new IOException( "Nested arrays and collections are not supported" );
+                }
+                writeValue( out, element );
+            }
+        }
+        else
+        {
+            final byte type = getType( value.getClass() );
+            out.writeByte( type );
+            writeScalar( out, type, value );
+        }
+    }
+
+
+    private static Object readValue( final DataInputStream in ) throws IOException
+    {
+        final byte type = in.readByte();
+        switch ( type )
+        {
+            case TYPE_NULL:
+                return null;
+
+            case TYPE_ARRAY:
+            case TYPE_PRIMITIVE_ARRAY:
+                final boolean primitive = type == TYPE_PRIMITIVE_ARRAY;
+                final byte componentType = in.readByte();
+                final Class<?>[] classes = primitive ? PRIMITIVES : TYPES;
+                if ( componentType <= 0 || componentType >= classes.length || classes[componentType] == null )
+                {
+                    throw new IOException( "Unknown array type " + componentType );
+                }
+                final int length = in.readInt();
+                final Object array = Array.newInstance( classes[componentType], length );
+                for ( int i = 0; i < length; i++ )
+                {
+                    Array.set( array, i, primitive ? readScalar( in, componentType ) : readValue( in ) );
+                }
+                return array;
+
+            case TYPE_COLLECTION:
+                final int size = in.readInt();
+                final List<Object> list = new ArrayList<>( size );
+                for ( int i = 0; i < size; i++ )
+                {
+                    list.add( readValue( in ) );
+                }
+                return list;
+
+            default:
+                return readScalar( in, type );
+        }
+    }
+
+
+    private static byte getType( final Class<?> clazz ) throws IOException
+    {
+        for ( byte type = 1; type < TYPES.length; type++ )
+        {
+            if ( TYPES[type] == clazz || PRIMITIVES[type] == clazz )
+            {
+                return type;
+            }
+        }
+        throw new IOException( "Unsupported configuration value type " + clazz.getName() );
+    }
+
+
+    private static void writeScalar( final DataOutputStream out, final byte type, final Object value )
+        throws IOException
+    {
+        switch ( type )
+        {
+            case TYPE_STRING:
+                writeString( out, ( String ) value );
+                break;
+            case TYPE_INTEGER:
+                out.writeInt( ( ( Integer ) value ).intValue() );
+                break;
+            case TYPE_LONG:
+                out.writeLong( ( ( Long ) value ).longValue() );
+                break;
+            case TYPE_FLOAT:
+                out.writeInt( Float.floatToRawIntBits( ( ( Float ) value ).floatValue() ) );
+                break;
+            case TYPE_DOUBLE:
+                out.writeLong( Double.doubleToRawLongBits( ( ( Double ) value ).doubleValue() ) );
+                break;
+            case TYPE_BYTE:
+                out.writeByte( ( ( Byte ) value ).byteValue() );
+                break;
+            case TYPE_SHORT:
+                out.writeShort( ( ( Short ) value ).shortValue() );
+                break;
+            case TYPE_CHARACTER:
+                out.writeChar( ( ( Character ) value ).charValue() );
+                break;
+            case TYPE_BOOLEAN:
+                out.writeBoolean( ( ( Boolean ) value ).booleanValue() );
+                break;
+            default:
+                throw new IOException( "Unknown value type " + type );
+        }
+    }
+
+
+    private static Object readScalar( final DataInputStream in, final byte type ) throws IOException
+    {
+        switch ( type )
+        {
+            case TYPE_STRING:
+                return readString( in );
+            case TYPE_INTEGER:
+                return Integer.valueOf( in.readInt() );
+            case TYPE_LONG:
+                return Long.valueOf( in.readLong() );
+            case TYPE_FLOAT:
+                return Float.valueOf( Float.intBitsToFloat( in.readInt() ) );
+            case TYPE_DOUBLE:
+                return Double.valueOf( Double.longBitsToDouble( in.readLong() ) );
+            case TYPE_BYTE:
+                return Byte.valueOf( in.readByte() );
+            case TYPE_SHORT:
+                return Short.valueOf( in.readShort() );
+            case TYPE_CHARACTER:
+                return Character.valueOf( in.readChar() );
+            case TYPE_BOOLEAN:
+                return Boolean.valueOf( in.readBoolean() );
+            default:
+                throw new IOException( "Unknown value type " + type );
+        }
+    }
+
+
+    // DataOutput.writeUTF is limited to 64k
+    private static void writeString( final DataOutputStream out, final String value ) throws IOException
+    {
+        final byte[] bytes = value.getBytes( StandardCharsets.UTF_8 );
+        out.writeInt( bytes.length );
+        out.write( bytes );
+    }
+
+
+    private static String readString( final DataInputStream in ) throws IOException
+    {
+        final byte[] bytes = new byte[in.readInt()];
+        in.readFully( bytes );
+        return new String( bytes, StandardCharsets.UTF_8 );
+    }
+}
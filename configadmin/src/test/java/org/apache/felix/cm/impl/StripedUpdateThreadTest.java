@@ -0,0 +1,209 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.cm.impl;
+
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+
+public class StripedUpdateThreadTest
+{
+    private static final int COUNT = 100;
+
+    private static class Task implements StripedUpdateThread.Striped
+    {
+        private final List<String> keys;
+        private final int index;
+        private final List<Integer> result;
+        private final CountDownLatch counter;
+
+        Task( final String key, final int index, final List<Integer> result, final CountDownLatch counter )
+        {
+            this( Collections.singletonList( key ), index, result, counter );
+        }
+
+        Task( final List<String> keys, final int index, final List<Integer> result, final CountDownLatch counter )
+        {
+            this.keys = keys;
+            this.index = index;
+            this.result = result;
+            this.counter = counter;
+        }
+
+        @Override
+        public Collection<?> getStripeKeys()
+        {
+            return keys;
+        }
+
+        @Override
+        public void run()
+        {
+            result.add( index );
+            counter.countDown();
+        }
+    }
+
+    @Test
+    public void testOrderPerKey() throws Exception {
+        final StripedUpdateThread updateThread = new StripedUpdateThread(null, "name", 4);
+        updateThread.start();
+        try {
+            final CountDownLatch counter = new CountDownLatch(2 * COUNT);
+            final List<Integer> a = Collections.synchronizedList(new ArrayList<Integer>());
+            final List<Integer> b = Collections.synchronizedList(new ArrayList<Integer>());
+            for (int i = 0; i < COUNT; ++i) {
+                updateThread.schedule(new Task("a", i, a, counter));
+                updateThread.schedule(new Task("b", i, b, counter));
+            }
+            assertTrue(counter.await(1L, TimeUnit.MINUTES));
+            for (int i = 0; i < COUNT; ++i) {
+                assertEquals(i, a.get(i).intValue());
+                assertEquals(i, b.get(i).intValue());
+            }
+        } finally {
+            updateThread.terminate();
+        }
+    }
+
+    @Test
+    public void testParallelKeys() throws Exception {
+        final StripedUpdateThread updateThread = new StripedUpdateThread(null, "name", 4);
+        updateThread.start();
+        try {
+            // find two keys on different stripes
+            final String blocked = "pid.0";
+            final String other = otherKey(updateThread, blocked);
+
+            final CountDownLatch release = new CountDownLatch(1);
+            final CountDownLatch done = new CountDownLatch(1);
+            updateThread.schedule(new Task(blocked, 0, new ArrayList<Integer>(), new CountDownLatch(1)) {
+                @Override
+                public void run() {
+                    try {
+                        release.await(1L, TimeUnit.MINUTES);
+                    } catch (InterruptedException e) {
+                        // ignore
+                    }
+                }
+            });
+            updateThread.schedule(new Task(other, 0, new ArrayList<Integer>(), done));
+
+            // the task for the other key is not delayed by the blocked one
+            assertTrue(done.await(1L, TimeUnit.MINUTES));
+            release.countDown();
+        } finally {
+            updateThread.terminate();
+        }
+    }
+
+    @Test
+    public void testOrderAcrossKeys() throws Exception {
+        final StripedUpdateThread updateThread = new StripedUpdateThread(null, "name", 4);
+        updateThread.start();
+        try {
+            final String a = "a";
+            final String b = otherKey(updateThread, a);
+            final CountDownLatch counter = new CountDownLatch(3 * COUNT);
+            final List<Integer> result = Collections.synchronizedList(new ArrayList<Integer>());
+            for (int i = 0; i < COUNT; ++i) {
+                // a task for both keys is run after all earlier tasks of each key
+                updateThread.schedule(new Task(a, 3 * i, result, counter));
+                updateThread.schedule(new Task(b, 3 * i + 1, result, counter));
+                updateThread.schedule(new Task(Arrays.asList(a, b), 3 * i + 2, result, counter));
+            }
+            assertTrue(counter.await(1L, TimeUnit.MINUTES));
+            for (int i = 0; i < COUNT; ++i) {
+                final int position = result.indexOf(3 * i + 2);
+                assertTrue(result.indexOf(3 * i) < position);
+                assertTrue(result.indexOf(3 * i + 1) < position);
+                if (i + 1 < COUNT) {
+                    assertTrue(result.indexOf(3 * i + 3) > position);
+                    assertTrue(result.indexOf(3 * i + 4) > position);
+                }
+            }
+        } finally {
+            updateThread.terminate();
+        }
+    }
+
+    @Test
+    public void testTerminateReleasesWaitingWorkers() throws Exception {
+        final StripedUpdateThread updateThread = new StripedUpdateThread(null, "name", 4);
+        updateThread.start();
+        final String blocked = "pid.0";
+        final String other = otherKey(updateThread, blocked);
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        updateThread.schedule(new Task(blocked, 0, null, null) {
+            @Override
+            public void run() {
+                started.countDown();
+                try {
+                    release.await(1L, TimeUnit.MINUTES);
+                } catch (InterruptedException e) {
+                    // ignore
+                }
+            }
+        });
+        assertTrue(started.await(1L, TimeUnit.MINUTES));
+        // the worker of the other key waits for the blocked worker
+        final CountDownLatch done = new CountDownLatch(1);
+        updateThread.schedule(new Task(Arrays.asList(blocked, other), 0, new ArrayList<Integer>(), done));
+
+        final Thread releaser = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(500);
+                } catch (InterruptedException e) {
+                    // ignore
+                }
+                release.countDown();
+            }
+        };
+        releaser.start();
+        final long start = System.currentTimeMillis();
+        updateThread.terminate();
+        releaser.join();
+        // the waiting worker has been released, the task is dropped
+        assertTrue(System.currentTimeMillis() - start < UpdateThread.TERMINATION_TIMEOUT);
+        assertFalse(done.await(100L, TimeUnit.MILLISECONDS));
+    }
+
+    private static String otherKey(final StripedUpdateThread updateThread, final String key) {
+        for (int i = 1; ; i++) {
+            if (updateThread.getStripe("pid." + i) != updateThread.getStripe(key)) {
+                return "pid." + i;
+            }
+        }
+    }
+}
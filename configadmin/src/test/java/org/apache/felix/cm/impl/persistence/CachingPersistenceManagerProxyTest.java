@@ -20,6 +20,7 @@ package org.apache.felix.cm.impl.persistence;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import java.io.IOException;
@@ -28,6 +29,8 @@ import java.util.Collections;
 import java.util.Dictionary;
 import java.util.Hashtable;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.felix.cm.MockPersistenceManager;
 import org.apache.felix.cm.PersistenceManager;
@@ -178,4 +181,93 @@ public class CachingPersistenceManagerProxyTest
         assertTrue(pids.contains("new_pid_for_newf1"));
         assertTrue(pids.contains("new_pid_for_newf2"));
     }
-}
\ No newline at end of file
+
+    @Test public void testIndexedQueries() throws Exception
+    {
+        final CachingPersistenceManagerProxy cpm = new CachingPersistenceManagerProxy(this.createAndPopulatePersistenceManager());
+        final Dictionary<String, Object> located = createConfiguration("located", FACTORY_PID_B);
+        located.put(ConfigurationAdmin.SERVICE_BUNDLELOCATION, "location");
+        cpm.store("located", located);
+
+        assertEquals(3, cpm.getDictionaries(SimpleFilter.parse("(service.factoryPid=" + FACTORY_PID_A + ")")).size());
+        assertEquals(1, cpm.getDictionaries(SimpleFilter.parse("(service.pid=" + PID_B + ")")).size());
+        assertEquals(1, cpm.getDictionaries(SimpleFilter.parse("(service.bundleLocation=location)")).size());
+        assertEquals(0, cpm.getDictionaries(SimpleFilter.parse("(service.factoryPid=unknown)")).size());
+        assertEquals(1, cpm.getDictionaries(SimpleFilter.parse("(&(service.factoryPid=" + FACTORY_PID_A + ")(value=" + PREFIX + FA_PID_B + "))")).size());
+        assertEquals(5, cpm.getDictionaries(SimpleFilter.parse("(|(service.factoryPid=" + FACTORY_PID_A + ")(service.pid=" + PID_A + ")(service.bundleLocation=location))")).size());
+
+        // index is maintained on update and delete
+        cpm.store("located", createConfiguration("located", FACTORY_PID_A));
+        assertEquals(0, cpm.getDictionaries(SimpleFilter.parse("(service.bundleLocation=location)")).size());
+        assertEquals(4, cpm.getDictionaries(SimpleFilter.parse("(service.factoryPid=" + FACTORY_PID_A + ")")).size());
+        cpm.delete(FA_PID_A);
+        assertEquals(3, cpm.getDictionaries(SimpleFilter.parse("(service.factoryPid=" + FACTORY_PID_A + ")")).size());
+        assertEquals(2, cpm.getDictionaries(SimpleFilter.parse("(service.factoryPid=" + FACTORY_PID_B + ")")).size());
+    }
+
+    @Test public void testCandidates() throws Exception
+    {
+        final CachingPersistenceManagerProxy cpm = new CachingPersistenceManagerProxy(this.createAndPopulatePersistenceManager());
+        cpm.getDictionaries(null);
+
+        assertEquals(3, cpm.getCandidates(SimpleFilter.parse("(SERVICE.FACTORYPID=" + FACTORY_PID_A + ")")).size());
+        assertEquals(2, cpm.getCandidates(SimpleFilter.parse("(&(value=*)(service.factoryPid=" + FACTORY_PID_B + "))")).size());
+
+        // not indexed
+        assertNull(cpm.getCandidates(SimpleFilter.parse("(value=" + PREFIX + PID_A + ")")));
+        assertNull(cpm.getCandidates(SimpleFilter.parse("(service.factoryPid=bla*)")));
+        assertNull(cpm.getCandidates(SimpleFilter.parse("(|(value=x)(service.factoryPid=" + FACTORY_PID_B + "))")));
+        assertNull(cpm.getCandidates(SimpleFilter.parse("(!(service.factoryPid=" + FACTORY_PID_B + "))")));
+    }
+
+    @Test public void testReadDuringStore() throws Exception
+    {
+        final CachingPersistenceManagerProxy cpm = new CachingPersistenceManagerProxy(this.createAndPopulatePersistenceManager());
+        cpm.getDictionaries(null);
+
+        final AtomicBoolean stop = new AtomicBoolean();
+        final AtomicInteger missing = new AtomicInteger();
+        final Thread[] readers = new Thread[2];
+        for ( int i = 0; i < readers.length; i++ )
+        {
+            readers[i] = new Thread()
+            {
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        while ( !stop.get() )
+                        {
+                            if ( !cpm.exists(FA_PID_A) || cpm.load(FA_PID_A) == null
+                                || !cpm.getFactoryConfigurationPids(Collections.singletonList(FACTORY_PID_A)).contains(FA_PID_A) )
+                            {
+                                missing.incrementAndGet();
+                            }
+                        }
+                    }
+                    catch ( final IOException e )
+                    {
+                        missing.incrementAndGet();
+                    }
+                }
+            };
+            readers[i].start();
+        }
+
+        // a configuration being rewritten is never missing
+        for ( int i = 0; i < 20000; i++ )
+        {
+            final Dictionary<String, Object> config = createConfiguration(FA_PID_A, FACTORY_PID_A);
+            config.put("count", i);
+            cpm.store(FA_PID_A, config);
+        }
+        stop.set(true);
+        for ( final Thread reader : readers )
+        {
+            reader.join();
+        }
+        assertEquals(0, missing.get());
+        assertEquals(19999, cpm.load(FA_PID_A).get("count"));
+    }
+}
@@ -0,0 +1,217 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.cm.impl.persistence;
+
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Dictionary;
+import java.util.Enumeration;
+import java.util.Hashtable;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.osgi.framework.Constants;
+
+
+public class JournalPersistenceManagerTest
+{
+    private File file = new File( System.getProperty( "java.io.tmpdir" ), "config-test.journal" );
+
+    private JournalPersistenceManager pm;
+
+
+    @Before
+    public void setUp()
+    {
+        file.delete();
+        pm = new JournalPersistenceManager( file, 10 );
+    }
+
+
+    @After
+    public void tearDown()
+    {
+        pm.close();
+        file.delete();
+    }
+
+
+    private Dictionary<String, Object> createConfiguration( final String pid, final int value )
+    {
+        final Dictionary<String, Object> props = new Hashtable<>();
+        props.put( Constants.SERVICE_PID, pid );
+        props.put( "value", Integer.valueOf( value ) );
+        return props;
+    }
+
+
+    private int count( final Enumeration<?> e )
+    {
+        return Collections.list( e ).size();
+    }
+
+
+    @Test
+    public void testValueTypes() throws Exception
+    {
+        final Dictionary<String, Object> props = new Hashtable<>();
+        props.put( Constants.SERVICE_PID, "types" );
+        props.put( "string", "a ä string" );
+        props.put( "int", Integer.valueOf( 1 ) );
+        props.put( "long", Long.valueOf( Long.MAX_VALUE ) );
+        props.put( "float", Float.valueOf( 1.5f ) );
+        props.put( "double", Double.valueOf( Double.NaN ) );
+        props.put( "byte", Byte.valueOf( ( byte ) -1 ) );
+        props.put( "short", Short.valueOf( ( short ) 2 ) );
+        props.put( "char", Character.valueOf( 'c' ) );
+        props.put( "boolean", Boolean.TRUE );
+        props.put( "strings", new String[]
+            { "a", null, "b" } );
+        props.put( "ints", new int[]
+            { 1, 2, 3 } );
+        props.put( "booleans", new boolean[]
+            { true, false } );
+        props.put( "longs", new Long[]
+            { Long.valueOf( 4 ) } );
+        props.put( "list", Arrays.asList( "x", "y" ) );
+        pm.store( "types", props );
+
+        final Dictionary<?, ?> loaded = pm.load( "types" );
+        assertEquals( props.size(), loaded.size() );
+        for ( final Enumeration<String> keys = props.keys(); keys.hasMoreElements(); )
+        {
+            final String key = keys.nextElement();
+            final Object expected = props.get( key );
+            final Object actual = loaded.get( key );
+            if ( expected.getClass().isArray() )
+            {
+                assertEquals( expected.getClass(), actual.getClass() );
+                assertTrue( key, Arrays.deepEquals( new Object[]
+                    { expected }, new Object[]
+                    { actual } ) );
+            }
+            else
+            {
+                assertEquals( key, expected, actual );
+            }
+        }
+        assertArrayEquals( new int[]
+            { 1, 2, 3 }, ( int[] ) loaded.get( "ints" ) );
+    }
+
+
+    @Test
+    public void testStoreLoadDelete() throws Exception
+    {
+        assertFalse( pm.exists( "a" ) );
+        assertNull( pm.load( "a" ) );
+
+        pm.store( "a", createConfiguration( "a", 1 ) );
+        pm.store( "b", createConfiguration( "b", 1 ) );
+        pm.store( "a", createConfiguration( "a", 2 ) );
+
+        assertTrue( pm.exists( "a" ) );
+        assertEquals( Integer.valueOf( 2 ), pm.load( "a" ).get( "value" ) );
+        assertEquals( 2, count( pm.getDictionaries() ) );
+
+        pm.delete( "a" );
+        assertFalse( pm.exists( "a" ) );
+        assertNull( pm.load( "a" ) );
+        assertEquals( 1, count( pm.getDictionaries() ) );
+    }
+
+
+    @Test
+    public void testReopen() throws Exception
+    {
+        pm.store( "a", createConfiguration( "a", 1 ) );
+        pm.store( "b", createConfiguration( "b", 1 ) );
+        pm.store( "b", createConfiguration( "b", 2 ) );
+        pm.delete( "a" );
+        pm.close();
+
+        pm = new JournalPersistenceManager( file, 10 );
+        assertFalse( pm.exists( "a" ) );
+        assertTrue( pm.exists( "b" ) );
+        assertEquals( Integer.valueOf( 2 ), pm.load( "b" ).get( "value" ) );
+
+        final Enumeration<?> dictionaries = pm.getDictionaries();
+        assertEquals( Integer.valueOf( 2 ), ( ( Dictionary<?, ?> ) dictionaries.nextElement() ).get( "value" ) );
+        assertFalse( dictionaries.hasMoreElements() );
+    }
+
+
+    @Test
+    public void testCompaction() throws Exception
+    {
+        for ( int i = 0; i < 100; i++ )
+        {
+            pm.store( "a", createConfiguration( "a", i ) );
+            pm.store( "b", createConfiguration( "b", i ) );
+        }
+        // without compaction this would be 200 records
+        final long compacted = file.length();
+        assertTrue( compacted < 20 * 100 );
+        assertEquals( Integer.valueOf( 99 ), pm.load( "a" ).get( "value" ) );
+        assertEquals( Integer.valueOf( 99 ), pm.load( "b" ).get( "value" ) );
+
+        pm.close();
+        pm = new JournalPersistenceManager( file, 10 );
+        assertEquals( 2, count( pm.getDictionaries() ) );
+        assertEquals( Integer.valueOf( 99 ), pm.load( "b" ).get( "value" ) );
+    }
+
+
+    @Test
+    public void testIncompleteRecord() throws Exception
+    {
+        pm.store( "a", createConfiguration( "a", 1 ) );
+        final long length = file.length();
+        pm.store( "b", createConfiguration( "b", 1 ) );
+        pm.close();
+
+        // simulate a crash while writing the second record
+        try ( RandomAccessFile raf = new RandomAccessFile( file, "rw" ) )
+        {
+            raf.setLength( file.length() - 3 );
+        }
+
+        pm = new JournalPersistenceManager( file, 10 );
+        assertEquals( 1, count( pm.getDictionaries() ) );
+        assertTrue( pm.exists( "a" ) );
+        assertFalse( pm.exists( "b" ) );
+        assertEquals( length, file.length() );
+
+        // new records are appended after the last complete record
+        pm.store( "c", createConfiguration( "c", 1 ) );
+        pm.close();
+        pm = new JournalPersistenceManager( file, 10 );
+        assertEquals( 2, count( pm.getDictionaries() ) );
+    }
+}
@@ -32,6 +32,7 @@ import org.apache.felix.eventadmin.impl.adapter.LogEventAdapter;
 import org.apache.felix.eventadmin.impl.adapter.ServiceEventAdapter;
 import org.apache.felix.eventadmin.impl.handler.EventAdminImpl;
 import org.apache.felix.eventadmin.impl.security.SecureEventAdminFactory;
+import org.apache.felix.eventadmin.impl.tasks.AsyncDeliverTasks;
 import org.apache.felix.eventadmin.impl.tasks.DefaultThreadPool;
 import org.apache.felix.eventadmin.impl.util.LogWrapper;
 import org.osgi.framework.BundleContext;
@@ -70,6 +71,28 @@ import org.osgi.service.metatype.MetaTypeProvider;
  * </p>
  * <p>
  * <p>
+ *      {@code org.apache.felix.eventadmin.TimeoutWatchdog} - Supervise timeouts
+ *          with a watchdog
+ * </p>
+ * The default is {@code false}. By default each handler called with a timeout is
+ * called using a thread from the thread pool while the sending thread waits. If this
+ * is set to {@code true}, handlers are called directly by the sending thread and a
+ * single watchdog thread denies handlers exceeding the timeout. This avoids a thread
+ * handoff per handler, however the sender stays blocked until a handler returns.
+ * </p>
+ * <p>
+ * <p>
+ *      {@code org.apache.felix.eventadmin.AsyncQueueSize} - The maximum number of
+ *          queued asynchronous events per posting thread
+ * </p>
+ * The default value is 0 which means the queue is unbounded. If a thread posts an
+ * event while its queue is full, the {@code org.apache.felix.eventadmin.AsyncQueuePolicy}
+ * is applied: {@code block} (the default) blocks the posting thread until the queue
+ * has space again, {@code drop-oldest} drops the oldest queued event of the posting
+ * thread and {@code caller-runs} delivers the event using the posting thread.
+ * </p>
+ * <p>
+ * <p>
  *      {@code org.apache.felix.eventadmin.RequireTopic} - Are {@code EventHandler}
  *          required to be registered with a topic?
  * </p>
@@ -131,6 +154,9 @@ public class Configuration
     static final String PROP_THREAD_POOL_SIZE = "org.apache.felix.eventadmin.ThreadPoolSize";
     static final String PROP_ASYNC_TO_SYNC_THREAD_RATIO = "org.apache.felix.eventadmin.AsyncToSyncThreadRatio";
     static final String PROP_TIMEOUT = "org.apache.felix.eventadmin.Timeout";
+    static final String PROP_TIMEOUT_WATCHDOG = "org.apache.felix.eventadmin.TimeoutWatchdog";
+    static final String PROP_ASYNC_QUEUE_SIZE = "org.apache.felix.eventadmin.AsyncQueueSize";
+    static final String PROP_ASYNC_QUEUE_POLICY = "org.apache.felix.eventadmin.AsyncQueuePolicy";
     static final String PROP_REQUIRE_TOPIC = "org.apache.felix.eventadmin.RequireTopic";
     static final String PROP_IGNORE_TIMEOUT = "org.apache.felix.eventadmin.IgnoreTimeout";
     static final String PROP_IGNORE_TOPIC = "org.apache.felix.eventadmin.IgnoreTopic";
@@ -147,6 +173,12 @@ public class Configuration
 
     private int m_timeout;
 
+    private boolean m_timeoutWatchdog;
+
+    private int m_asyncQueueSize;
+
+    private AsyncDeliverTasks.QueuePolicy m_asyncQueuePolicy;
+
     private boolean m_requireTopic;
 
     private String[] m_ignoreTimeout;
@@ -292,6 +324,18 @@ public class Configuration
             m_timeout = getIntProperty(PROP_TIMEOUT,
                     m_bundleContext.getProperty(PROP_TIMEOUT), 5000, Integer.MIN_VALUE);
 
+            // Supervise the timeout with a watchdog thread instead of handing
+            // the delivery over to a thread from the pool - The default is false.
+            m_timeoutWatchdog = getBooleanProperty(
+                m_bundleContext.getProperty(PROP_TIMEOUT_WATCHDOG), false);
+
+            // The maximum number of queued async events per posting thread and the
+            // policy if the queue is full - The default is an unbounded queue.
+            m_asyncQueueSize = getIntProperty(PROP_ASYNC_QUEUE_SIZE,
+                    m_bundleContext.getProperty(PROP_ASYNC_QUEUE_SIZE), 0, 0);
+            m_asyncQueuePolicy = getQueuePolicyProperty(
+                    m_bundleContext.getProperty(PROP_ASYNC_QUEUE_POLICY));
+
             // Are EventHandler required to be registered with a topic? - The default is
             // true. The specification says that EventHandler must register with a list
             // of topics they are interested in. Setting this value to false will enable
@@ -339,6 +383,9 @@ public class Configuration
             m_asyncToSyncThreadRatio = getDoubleProperty(
                 	PROP_ASYNC_TO_SYNC_THREAD_RATIO, config.get(PROP_ASYNC_TO_SYNC_THREAD_RATIO), 0.5, 0.0);
             m_timeout = getIntProperty(PROP_TIMEOUT, config.get(PROP_TIMEOUT), 5000, Integer.MIN_VALUE);
+            m_timeoutWatchdog = getBooleanProperty(config.get(PROP_TIMEOUT_WATCHDOG), false);
+            m_asyncQueueSize = getIntProperty(PROP_ASYNC_QUEUE_SIZE, config.get(PROP_ASYNC_QUEUE_SIZE), 0, 0);
+            m_asyncQueuePolicy = getQueuePolicyProperty(config.get(PROP_ASYNC_QUEUE_POLICY));
             m_requireTopic = getBooleanProperty(config.get(PROP_REQUIRE_TOPIC), true);
             m_ignoreTimeout = null;
             final Object value = config.get(PROP_IGNORE_TIMEOUT);
@@ -396,6 +443,12 @@ public class Configuration
                 "Async Pool Size=" + m_asyncThreadPoolSize);
         LogWrapper.getLogger().log(LogWrapper.LOG_DEBUG,
             PROP_TIMEOUT + "=" + m_timeout);
+        LogWrapper.getLogger().log(LogWrapper.LOG_DEBUG,
+            PROP_TIMEOUT_WATCHDOG + "=" + m_timeoutWatchdog);
+        LogWrapper.getLogger().log(LogWrapper.LOG_DEBUG,
+            PROP_ASYNC_QUEUE_SIZE + "=" + m_asyncQueueSize);
+        LogWrapper.getLogger().log(LogWrapper.LOG_DEBUG,
+            PROP_ASYNC_QUEUE_POLICY + "=" + m_asyncQueuePolicy);
         LogWrapper.getLogger().log(LogWrapper.LOG_DEBUG,
             PROP_REQUIRE_TOPIC + "=" + m_requireTopic);
 
@@ -427,9 +480,12 @@ public class Configuration
                     m_sync_pool,
                     m_async_pool,
                     m_timeout,
+                    m_timeoutWatchdog,
                     m_ignoreTimeout,
                     m_requireTopic,
-                    m_ignoreTopics);
+                    m_ignoreTopics,
+                    m_asyncQueueSize,
+                    m_asyncQueuePolicy);
 
             // Finally, adapt the outside events to our kind of events as per spec
             adaptEvents(m_admin);
@@ -447,7 +503,8 @@ public class Configuration
         }
         else
         {
-            m_admin.update(m_timeout, m_ignoreTimeout, m_requireTopic, m_ignoreTopics);
+            m_admin.update(m_timeout, m_timeoutWatchdog, m_ignoreTimeout, m_requireTopic, m_ignoreTopics,
+                    m_asyncQueueSize, m_asyncQueuePolicy);
         }
 
     }
@@ -521,8 +578,9 @@ public class Configuration
         try
         {
             return new MetaTypeProviderImpl((ManagedService)managedService,
-                    m_threadPoolSize, m_timeout, m_requireTopic,
-                    m_ignoreTimeout, m_ignoreTopics, m_asyncToSyncThreadRatio);
+                    m_threadPoolSize, m_timeout, m_timeoutWatchdog, m_requireTopic,
+                    m_ignoreTimeout, m_ignoreTopics, m_asyncToSyncThreadRatio,
+                    m_asyncQueueSize, m_asyncQueuePolicy.toString());
         }
         catch (final Throwable t)
         {
@@ -633,6 +691,25 @@ public class Configuration
         return defaultValue;
     }
 
+    /**
+     * Returns the queue policy for the value of the property or the default
+     * policy {@code block} if the value is not set or invalid.
+     */
+    private AsyncDeliverTasks.QueuePolicy getQueuePolicyProperty(final Object value)
+    {
+        if ( value != null )
+        {
+            final AsyncDeliverTasks.QueuePolicy policy = AsyncDeliverTasks.QueuePolicy.fromValue(value.toString().trim());
+            if ( policy != null )
+            {
+                return policy;
+            }
+            LogWrapper.getLogger().log(LogWrapper.LOG_WARNING,
+                    "Invalid value for property: " + PROP_ASYNC_QUEUE_POLICY + " - Using default");
+        }
+        return AsyncDeliverTasks.QueuePolicy.BLOCK;
+    }
+
     /**
      * Returns true if the value of the property is set and is either 1, true, or yes
      * Returns false if the value of the property is set and is either 0, false, or no
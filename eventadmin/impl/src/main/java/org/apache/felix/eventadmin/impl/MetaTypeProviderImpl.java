@@ -38,27 +38,35 @@ public class MetaTypeProviderImpl
 {
     private final int m_threadPoolSize;
     private final int m_timeout;
+    private final boolean m_timeoutWatchdog;
     private final boolean m_requireTopic;
     private final String[] m_ignoreTimeout;
     private final String[] m_ignoreTopic;
     private final double m_asyncThreadPoolRatio;
+    private final int m_asyncQueueSize;
+    private final String m_asyncQueuePolicy;
 
     private final ManagedService m_delegatee;
 
     public MetaTypeProviderImpl(final ManagedService delegatee,
             final int threadPoolSize,
-            final int timeout, final boolean requireTopic,
+            final int timeout, final boolean timeoutWatchdog, final boolean requireTopic,
             final String[] ignoreTimeout,
             final String[] ignoreTopic,
-            final double asyncThreadPoolRatio)
+            final double asyncThreadPoolRatio,
+            final int asyncQueueSize,
+            final String asyncQueuePolicy)
     {
         m_threadPoolSize = threadPoolSize;
         m_timeout = timeout;
+        m_timeoutWatchdog = timeoutWatchdog;
         m_requireTopic = requireTopic;
         m_delegatee = delegatee;
         m_ignoreTimeout = ignoreTimeout;
         m_ignoreTopic = ignoreTopic;
         m_asyncThreadPoolRatio = asyncThreadPoolRatio;
+        m_asyncQueueSize = asyncQueueSize;
+        m_asyncQueuePolicy = asyncQueuePolicy;
     }
 
     private ObjectClassDefinition ocd;
@@ -109,6 +117,17 @@ public class MetaTypeProviderImpl
                     "distribution of post to send operations.  Applications with higher number " +
                     "of post operations should have a higher ratio.",
                     m_asyncThreadPoolRatio));
+            adList.add( new AttributeDefinitionImpl( Configuration.PROP_ASYNC_QUEUE_SIZE, "Async Queue Size",
+                    "The maximum number of queued asynchronous events per posting thread. The default value " +
+                    "is 0 which means the queue is unbounded.",
+                    m_asyncQueueSize ) );
+            adList.add( new AttributeDefinitionImpl( Configuration.PROP_ASYNC_QUEUE_POLICY, "Async Queue Policy",
+                    "The policy applied if a thread posts an event while its queue is full. Block waits until " +
+                    "the queue has space again, drop oldest drops the oldest queued event of the posting thread " +
+                    "and caller runs delivers the event using the posting thread.",
+                    AttributeDefinition.STRING, new String[] {m_asyncQueuePolicy}, 0,
+                    new String[] {"Block", "Drop Oldest", "Caller Runs"},
+                    new String[] {"block", "drop-oldest", "caller-runs"}));
 
             adList.add( new AttributeDefinitionImpl( Configuration.PROP_TIMEOUT, "Timeout",
                     "The deny-list timeout in milliseconds. The default value is 5000. Increase or decrease " +
@@ -116,6 +135,13 @@ public class MetaTypeProviderImpl
                     "in milliseconds granted to each event handler before it gets denied",
                     m_timeout ) );
 
+            adList.add( new AttributeDefinitionImpl( Configuration.PROP_TIMEOUT_WATCHDOG, "Timeout Watchdog",
+                    "Supervise the timeout with a single watchdog thread. If enabled, event handlers are called " +
+                    "directly by the thread sending the event and handlers exceeding the timeout are denied by the " +
+                    "watchdog. This avoids handing over each delivery to a thread from the pool, however the sender " +
+                    "is blocked until a handler returns. This is disabled by default.",
+                    m_timeoutWatchdog ) );
+
             adList.add( new AttributeDefinitionImpl( Configuration.PROP_REQUIRE_TOPIC, "Require Topic",
                     "Are event handlers required to be registered with a topic? " +
                     "This is enabled by default. The specification says that event handlers " +
@@ -56,6 +56,9 @@ public class EventAdminImpl implements EventAdmin
     // matchers for ignore topics
     private Matchers.Matcher[] m_ignoreTopics;
 
+    // The delivery statistics
+    private final EventStatistics m_statistics;
+
     /**
      * The constructor of the {@code EventAdmin} implementation.
      *
@@ -63,18 +66,24 @@ public class EventAdminImpl implements EventAdmin
      * @param syncPool The synchronous thread pool
      * @param asyncPool The asynchronous thread pool
      * @param timeout The timeout
+     * @param useTimeoutWatchdog Supervise timeouts with a watchdog instead of the sync pool
      * @param ignoreTimeout The configuration for ignoring timeouts
      * @param requireTopic Are topics required?
      * @param ignoreTopics The configuration to ignore topics
+     * @param asyncQueueSize The maximum number of queued async events per posting thread
+     * @param asyncQueuePolicy The policy for a full async queue
      */
     public EventAdminImpl(
                     final BundleContext bundleContext,
                     final DefaultThreadPool syncPool,
                     final DefaultThreadPool asyncPool,
                     final int timeout,
+                    final boolean useTimeoutWatchdog,
                     final String[] ignoreTimeout,
                     final boolean requireTopic,
-                    final String[] ignoreTopics)
+                    final String[] ignoreTopics,
+                    final int asyncQueueSize,
+                    final AsyncDeliverTasks.QueuePolicy asyncQueuePolicy)
     {
         checkNull(syncPool, "syncPool");
         checkNull(asyncPool, "asyncPool");
@@ -82,8 +91,10 @@ public class EventAdminImpl implements EventAdmin
         this.tracker = new EventHandlerTracker(bundleContext);
         this.tracker.update(ignoreTimeout, requireTopic);
         this.tracker.open();
-        m_sendManager = new SyncDeliverTasks(syncPool, timeout);
-        m_postManager = new AsyncDeliverTasks(asyncPool, m_sendManager);
+        m_sendManager = new SyncDeliverTasks(syncPool, timeout, useTimeoutWatchdog);
+        m_statistics = this.tracker.getStatistics();
+        m_postManager = new AsyncDeliverTasks(asyncPool, m_sendManager, m_statistics);
+        m_postManager.update(asyncQueueSize, asyncQueuePolicy);
         m_ignoreTopics = Matchers.createEventTopicMatchers(ignoreTopics);
     }
 
@@ -163,23 +174,31 @@ public class EventAdminImpl implements EventAdmin
     {
         this.tracker.close();
         this.tracker = null;
+        this.m_sendManager.stop();
     }
 
     /**
      * Update the event admin with new configuration.
      * @param timeout The timeout
+     * @param useTimeoutWatchdog Supervise timeouts with a watchdog instead of the sync pool
      * @param ignoreTimeout The configuration for ignoring timeouts
      * @param requireTopic Are topics required?
      * @param ignoreTopics The configuration to ignore topics
+     * @param asyncQueueSize The maximum number of queued async events per posting thread
+     * @param asyncQueuePolicy The policy for a full async queue
      */
     public void update(final int timeout,
+                    final boolean useTimeoutWatchdog,
                     final String[] ignoreTimeout,
                     final boolean requireTopic,
-                    final String[] ignoreTopics)
+                    final String[] ignoreTopics,
+                    final int asyncQueueSize,
+                    final AsyncDeliverTasks.QueuePolicy asyncQueuePolicy)
     {
         this.tracker.close();
         this.tracker.update(ignoreTimeout, requireTopic);
-        this.m_sendManager.update(timeout);
+        this.m_sendManager.update(timeout, useTimeoutWatchdog);
+        this.m_postManager.update(asyncQueueSize, asyncQueuePolicy);
         this.tracker.open();
         this.m_ignoreTopics = Matchers.createEventTopicMatchers(ignoreTopics);
     }
@@ -200,6 +219,18 @@ public class EventAdminImpl implements EventAdmin
     public interface EventHandlerMBean {
 
         String[] getDeniedEventHandlers();
+
+        /** Number of events currently queued for async delivery, regardless of the number of handlers. */
+        long getQueuedEvents();
+
+        /** Number of async events dropped because of a full queue, regardless of the number of handlers. */
+        long getDroppedEvents();
+
+        /** Delivery statistics per event handler, counting deliveries to the handler. */
+        String[] getEventHandlerStatistics();
+
+        /** Delivery statistics per topic, counting deliveries to each handler. */
+        String[] getTopicStatistics();
     }
 
     public Object getHandlerInfoMBean() {
@@ -214,6 +245,33 @@ public class EventAdminImpl implements EventAdmin
 
                 return names.toArray(new String[names.size()]);
             }
+
+            @Override
+            public long getQueuedEvents() {
+                return m_postManager.getQueuedEvents();
+            }
+
+            @Override
+            public long getDroppedEvents() {
+                return m_statistics.getDropped();
+            }
+
+            @Override
+            public String[] getEventHandlerStatistics() {
+                final List<String> result = new ArrayList<>();
+                final EventHandlerTracker localTracker = tracker;
+                if ( localTracker != null ) {
+                    for(final EventHandlerProxy p : localTracker.getTracked().values()) {
+                        result.add(p.getInfo() + " : " + p.getStatistics());
+                    }
+                }
+                return result.toArray(new String[result.size()]);
+            }
+
+            @Override
+            public String[] getTopicStatistics() {
+                return m_statistics.getTopicStatistics();
+            }
         };
     }
 }
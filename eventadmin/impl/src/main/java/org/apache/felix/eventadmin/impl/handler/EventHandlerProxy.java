@@ -67,6 +67,12 @@ public class EventHandlerProxy {
     /** Deliver async ordered. */
     private boolean asyncOrderedDelivery;
 
+    /** The delivery statistics of this handler. */
+    private final EventStatistics.Counter statistics = new EventStatistics.Counter();
+
+    /** The topic of the event currently delivered. */
+    private volatile String currentTopic;
+
     /**
      * Create an EventHandlerProxy.
      *
@@ -427,6 +433,9 @@ public class EventHandlerProxy {
             return;
         }
 
+        final String topic = event.getTopic();
+        this.currentTopic = topic;
+        final long start = System.nanoTime();
         try
         {
             handlerService.handleEvent(event);
@@ -440,6 +449,25 @@ public class EventHandlerProxy {
                             String.format("Exception during event dispatch [%s | %s | Bundle(%s) | Handler(%s)]", 
                                 event, this.reference, this.reference.getBundle(), handlerService), e);
         }
+        finally
+        {
+            final long time = System.nanoTime() - start;
+            this.statistics.delivered(time);
+            final EventStatistics.Counter topicStatistics = this.handlerContext.statistics.getTopic(topic);
+            if ( topicStatistics != null )
+            {
+                topicStatistics.delivered(time);
+            }
+        }
+    }
+
+    /**
+     * Get the delivery statistics of this handler.
+     * @return The statistics
+     */
+    public EventStatistics.Counter getStatistics()
+    {
+        return this.statistics;
     }
 
     /**
@@ -448,6 +476,13 @@ public class EventHandlerProxy {
     public void denyEventHandler()
     {
         if ( this.denied.compareAndSet(false, true) ) {
+            this.statistics.denied();
+            final String topic = this.currentTopic;
+            final EventStatistics.Counter topicStatistics = topic == null ? null : this.handlerContext.statistics.getTopic(topic);
+            if ( topicStatistics != null )
+            {
+                topicStatistics.denied();
+            }
             final EventHandler handlerService = this.handler;
             LogWrapper.getLogger().log(
                     LogWrapper.LOG_ERROR,
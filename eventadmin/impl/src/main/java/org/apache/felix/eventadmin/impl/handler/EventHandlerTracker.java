@@ -57,6 +57,9 @@ public class EventHandlerTracker extends ServiceTracker<EventHandler, EventHandl
 	/** The context for the proxies. */
 	private HandlerContext handlerContext;
 
+	/** The delivery statistics. */
+	private final EventStatistics statistics = new EventStatistics();
+
     public EventHandlerTracker(final BundleContext context) {
 		super(context, EventHandler.class.getName(), null);
 
@@ -73,7 +76,15 @@ public class EventHandlerTracker extends ServiceTracker<EventHandler, EventHandl
      */
     public void update(final String[] ignoreTimeout, final boolean requireTopic) {
         final Matchers.Matcher[] ignoreTimeoutMatcher = Matchers.createPackageMatchers(ignoreTimeout);
-        this.handlerContext = new HandlerContext(this.context, ignoreTimeoutMatcher, requireTopic);
+        this.handlerContext = new HandlerContext(this.context, ignoreTimeoutMatcher, requireTopic, this.statistics);
+    }
+
+    /**
+     * Get the delivery statistics.
+     * @return The statistics
+     */
+    public EventStatistics getStatistics() {
+        return this.statistics;
     }
 
     /**
@@ -291,13 +302,18 @@ public class EventHandlerTracker extends ServiceTracker<EventHandler, EventHandl
         /** Is a topic required. */
         public final boolean requireTopic;
 
+        /** The delivery statistics. */
+        public final EventStatistics statistics;
+
         public HandlerContext(final BundleContext bundleContext,
                 final Matchers.Matcher[] ignoreTimeoutMatcher,
-                final boolean   requireTopic)
+                final boolean   requireTopic,
+                final EventStatistics statistics)
         {
             this.bundleContext = bundleContext;
             this.ignoreTimeoutMatcher = ignoreTimeoutMatcher;
             this.requireTopic = requireTopic;
+            this.statistics = statistics;
         }
     }
 }
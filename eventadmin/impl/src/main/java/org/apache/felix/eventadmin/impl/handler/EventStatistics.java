@@ -0,0 +1,219 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.eventadmin.impl.handler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Delivery statistics of the event admin. The statistics are kept per
+ * event handler (see {@link EventHandlerProxy#getStatistics()}) and per
+ * topic.
+ *
+ * The {@link Counter}s count deliveries of an event to a single handler: an
+ * event for three handlers is counted once in the counter of each handler and
+ * three times in the counter of its topic. Only the total number of dropped
+ * events (see {@link #getDropped()}) counts events.
+ *
+ * @author <a href="mailto:dev@felix.apache.org">Felix Project Team</a>
+ */
+public class EventStatistics
+{
+    /** Upper bound of topics tracked individually. */
+    private static final int MAX_TOPICS = 1024;
+
+    /** The statistics per topic. */
+    private final Map<String, Counter> topics = new ConcurrentHashMap<>();
+
+    /** Number of async events dropped due to a full queue. */
+    private final LongAdder dropped = new LongAdder();
+
+    /**
+     * Get the counter for a topic.
+     * @param topic The topic
+     * @return The counter or {@code null} if too many topics are tracked already
+     */
+    public Counter getTopic(final String topic)
+    {
+        Counter counter = this.topics.get(topic);
+        if ( counter == null && this.topics.size() < MAX_TOPICS )
+        {
+            counter = this.topics.computeIfAbsent(topic, key -> new Counter());
+        }
+        return counter;
+    }
+
+    /**
+     * Record an async event which has been dropped. The deliveries of the event
+     * are recorded in the counters of the handlers and the topic.
+     */
+    public void dropped()
+    {
+        this.dropped.increment();
+    }
+
+    /**
+     * Get the number of dropped async events. An event is counted once
+     * regardless of the number of handlers.
+     * @return The number of dropped events
+     */
+    public long getDropped()
+    {
+        return this.dropped.sum();
+    }
+
+    /**
+     * Get a readable representation of the statistics of all topics.
+     * @return One entry per topic
+     */
+    public String[] getTopicStatistics()
+    {
+        final List<String> result = new ArrayList<>();
+        for(final Map.Entry<String, Counter> entry : this.topics.entrySet())
+        {
+            result.add(entry.getKey() + " : " + entry.getValue());
+        }
+        return result.toArray(new String[result.size()]);
+    }
+
+    /**
+     * The counters for a single handler or topic, counting deliveries of an
+     * event to a single handler.
+     */
+    public static final class Counter
+    {
+        private final LongAdder queued = new LongAdder();
+
+        private final LongAdder delivered = new LongAdder();
+
+        private final LongAdder time = new LongAdder();
+
+        private final AtomicLong maxTime = new AtomicLong();
+
+        private final LongAdder denied = new LongAdder();
+
+        private final LongAdder dropped = new LongAdder();
+
+        /**
+         * A delivery has been queued for async delivery.
+         */
+        public void queued()
+        {
+            this.queued.increment();
+        }
+
+        /**
+         * A queued delivery has been removed from the queue.
+         */
+        public void dequeued()
+        {
+            this.queued.decrement();
+        }
+
+        /**
+         * An event has been delivered to a handler.
+         * @param nanos The time spent in the handler
+         */
+        public void delivered(final long nanos)
+        {
+            this.delivered.increment();
+            this.time.add(nanos);
+            long max = this.maxTime.get();
+            while ( nanos > max && !this.maxTime.compareAndSet(max, nanos) )
+            {
+                max = this.maxTime.get();
+            }
+        }
+
+        /**
+         * A queued delivery has been dropped.
+         */
+        public void dropped()
+        {
+            this.dropped.increment();
+        }
+
+        /**
+         * A handler has been denied.
+         */
+        public void denied()
+        {
+            this.denied.increment();
+        }
+
+        /**
+         * Get the number of deliveries currently queued.
+         * @return The number of queued deliveries
+         */
+        public long getQueued()
+        {
+            return this.queued.sum();
+        }
+
+        public long getDelivered()
+        {
+            return this.delivered.sum();
+        }
+
+        public long getDenied()
+        {
+            return this.denied.sum();
+        }
+
+        public long getDropped()
+        {
+            return this.dropped.sum();
+        }
+
+        /**
+         * Get the average time spent in the handler
+         * @return The average time in nanoseconds
+         */
+        public long getAverageTime()
+        {
+            final long count = this.delivered.sum();
+            return count == 0 ? 0 : this.time.sum() / count;
+        }
+
+        /**
+         * Get the maximum time spent in the handler
+         * @return The maximum time in nanoseconds
+         */
+        public long getMaxTime()
+        {
+            return this.maxTime.get();
+        }
+
+        @Override
+        public String toString()
+        {
+            return "queued=" + getQueued()
+                    + ", delivered=" + getDelivered()
+                    + ", averageTime=" + TimeUnit.NANOSECONDS.toMicros(getAverageTime()) + "us"
+                    + ", maxTime=" + TimeUnit.NANOSECONDS.toMicros(getMaxTime()) + "us"
+                    + ", denied=" + getDenied()
+                    + ", dropped=" + getDropped();
+        }
+    }
+}
@@ -23,15 +23,67 @@ import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.felix.eventadmin.impl.handler.EventHandlerProxy;
+import org.apache.felix.eventadmin.impl.handler.EventStatistics;
 import org.osgi.service.event.Event;
 
 /**
  * This class does the actual work of the asynchronous event dispatch.
  *
+ * Events posted by the same thread are queued and delivered in order. The
+ * queue of a posting thread can be bounded, in which case the
+ * {@link QueuePolicy} defines what happens if a thread posts an event while
+ * its queue is full.
+ *
  * @author <a href="mailto:dev@felix.apache.org">Felix Project Team</a>
  */
 public class AsyncDeliverTasks
 {
+    /**
+     * The policy applied if an event is posted while the queue is full.
+     */
+    public enum QueuePolicy
+    {
+        /** Block the posting thread until the queue has space again. */
+        BLOCK("block"),
+        /** Drop the oldest queued event of the posting thread. */
+        DROP_OLDEST("drop-oldest"),
+        /**
+         * Deliver the event using the posting thread. The event might be
+         * delivered before events queued earlier by the same thread.
+         */
+        CALLER_RUNS("caller-runs");
+
+        private final String value;
+
+        QueuePolicy(final String value)
+        {
+            this.value = value;
+        }
+
+        /**
+         * Get the policy for a configuration value.
+         * @param value The configuration value
+         * @return The policy or {@code null} if the value is invalid
+         */
+        public static QueuePolicy fromValue(final String value)
+        {
+            for(final QueuePolicy p : values())
+            {
+                if ( p.value.equalsIgnoreCase(value) )
+                {
+                    return p;
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public String toString()
+        {
+            return this.value;
+        }
+    }
+
     /** The thread pool to use to spin-off new threads. */
     private final DefaultThreadPool m_pool;
 
@@ -44,6 +96,15 @@ public class AsyncDeliverTasks
     /** A map of running threads currently delivering async events. */
     private final Map<Long, TaskExecuter> m_running_threads = new ConcurrentHashMap<Long, TaskExecuter>();
 
+    /** The delivery statistics. */
+    private final EventStatistics m_statistics;
+
+    /** The maximum number of queued events per posting thread, 0 for unbounded. */
+    private volatile int m_queue_size;
+
+    /** The policy for a full queue. */
+    private volatile QueuePolicy m_queue_policy = QueuePolicy.BLOCK;
+
     /**
      * The constructor of the class that will use the asynchronous.
      *
@@ -51,11 +112,41 @@ public class AsyncDeliverTasks
      *      dispatching threads in case of timeout or that the asynchronous event
      *      dispatching thread is used to send a synchronous event
      * @param deliverTask The deliver tasks for dispatching the event.
+     * @param statistics The delivery statistics
      */
-    public AsyncDeliverTasks(final DefaultThreadPool pool, final SyncDeliverTasks deliverTask)
+    public AsyncDeliverTasks(final DefaultThreadPool pool, final SyncDeliverTasks deliverTask,
+            final EventStatistics statistics)
     {
         m_pool = pool;
         m_deliver_task = deliverTask;
+        m_statistics = statistics;
+    }
+
+    /**
+     * Update the queue configuration.
+     * @param queueSize The maximum number of queued events per posting thread, 0 for unbounded
+     * @param queuePolicy The policy for a full queue
+     */
+    public void update(final int queueSize, final QueuePolicy queuePolicy)
+    {
+        m_queue_size = queueSize;
+        m_queue_policy = queuePolicy;
+    }
+
+    /**
+     * Get the number of events currently queued for async delivery. Unlike
+     * the counters of {@link EventStatistics}, an event is counted once
+     * regardless of the number of handlers.
+     * @return The number of queued events
+     */
+    public long getQueuedEvents()
+    {
+        long result = 0;
+        for(final TaskExecuter executer : m_running_threads.values())
+        {
+            result += executer.size;
+        }
+        return result;
     }
 
     /**
@@ -85,40 +176,106 @@ public class AsyncDeliverTasks
         }
         if ( hasOrdered )
         {*/
-            final TaskInfo info = new TaskInfo(tasks, event);
+            final TaskInfo info = new TaskInfo(tasks, event, m_statistics.getTopic(event.getTopic()));
             final Long currentThreadId = Thread.currentThread().getId();
             TaskExecuter executer = m_running_threads.get(currentThreadId);
             if ( executer == null )
             {
                 executer = new TaskExecuter(currentThreadId, m_running_threads);
             }
+            boolean callerRuns = false;
             synchronized ( executer )
             {
-                executer.add(info);
-                if ( !executer.isActive() )
+                final int queueSize = m_queue_size;
+                if ( queueSize > 0 && executer.size >= queueSize )
+                {
+                    final QueuePolicy policy = m_queue_policy;
+                    if ( policy == QueuePolicy.DROP_OLDEST )
+                    {
+                        final TaskInfo dropped = executer.removeFirst();
+                        dropped.dropped(m_statistics);
+                    }
+                    else if ( policy == QueuePolicy.CALLER_RUNS || Thread.currentThread() instanceof AsyncThread )
+                    {
+                        // blocking an event admin thread might block the thread
+                        // which is supposed to empty the queue
+                        callerRuns = true;
+                    }
+                    else
+                    {
+                        executer.awaitSpace(queueSize);
+                    }
+                }
+                if ( !callerRuns )
                 {
-                    // reactivate thread
-                    executer.setSyncDeliverTasks(m_deliver_task);
-                    if ( !m_pool.executeTask(executer) )
+                    info.queued();
+                    executer.add(info);
+                    if ( !executer.isActive() )
                     {
-                        // scheduling failed: last resort, call directly
-                        executer.run();
+                        // reactivate thread
+                        executer.setSyncDeliverTasks(m_deliver_task);
+                        if ( !m_pool.executeTask(executer) )
+                        {
+                            // scheduling failed: last resort, call directly
+                            executer.run();
+                        }
+                        m_running_threads.put(currentThreadId, executer);
                     }
-                    m_running_threads.put(currentThreadId, executer);
                 }
             }
+            if ( callerRuns )
+            {
+                m_deliver_task.execute(tasks, event, true);
+            }
         //}
     }
 
     private final static class TaskInfo {
         public final Collection<EventHandlerProxy> tasks;
         public final Event event;
+        public final EventStatistics.Counter topicStatistics;
 
         public TaskInfo next;
 
-        public TaskInfo(final Collection<EventHandlerProxy> tasks, final Event event) {
+        public TaskInfo(final Collection<EventHandlerProxy> tasks, final Event event,
+                final EventStatistics.Counter topicStatistics) {
             this.tasks = tasks;
             this.event = event;
+            this.topicStatistics = topicStatistics;
+        }
+
+        /**
+         * Count the deliveries of this event as queued. The event is counted
+         * once for each handler, in the counter of the handler and in the
+         * counter of the topic.
+         */
+        public void queued() {
+            for(final EventHandlerProxy p : tasks) {
+                p.getStatistics().queued();
+                if ( topicStatistics != null ) {
+                    topicStatistics.queued();
+                }
+            }
+        }
+
+        public void dequeued() {
+            for(final EventHandlerProxy p : tasks) {
+                p.getStatistics().dequeued();
+                if ( topicStatistics != null ) {
+                    topicStatistics.dequeued();
+                }
+            }
+        }
+
+        public void dropped(final EventStatistics statistics) {
+            this.dequeued();
+            statistics.dropped();
+            for(final EventHandlerProxy p : tasks) {
+                p.getStatistics().dropped();
+                if ( topicStatistics != null ) {
+                    topicStatistics.dropped();
+                }
+            }
         }
     }
 
@@ -127,6 +284,9 @@ public class AsyncDeliverTasks
         private volatile TaskInfo first;
         private volatile TaskInfo last;
 
+        /** The number of queued events. */
+        volatile int size;
+
         private volatile SyncDeliverTasks m_deliver_task;
 
         private final Map<Long, TaskExecuter> m_running_threads;
@@ -157,13 +317,11 @@ public class AsyncDeliverTasks
                 TaskInfo info = null;
                 synchronized ( this )
                 {
-                    info = first;
-                    first = info.next;
-                    if ( first == null )
-                    {
-                        last = null;
-                    }
+                    info = removeFirst();
+                    // wake up senders waiting for space in the queue
+                    this.notifyAll();
                 }
+                info.dequeued();
                 m_deliver_task.execute(info.tasks, info.event, true);
                 synchronized ( this )
                 {
@@ -189,6 +347,46 @@ public class AsyncDeliverTasks
                 last.next = info;
                 last = info;
             }
+            size++;
+        }
+
+        public TaskInfo removeFirst()
+        {
+            final TaskInfo info = first;
+            first = info.next;
+            info.next = null;
+            if ( first == null )
+            {
+                last = null;
+            }
+            size--;
+            return info;
+        }
+
+        /**
+         * Wait until the number of queued events is below the queue size.
+         * Must be called while holding the lock of this executer.
+         * @param queueSize The queue size
+         */
+        public void awaitSpace(final int queueSize)
+        {
+            boolean interrupted = false;
+            while ( size >= queueSize )
+            {
+                try
+                {
+                    this.wait();
+                }
+                catch ( final InterruptedException ie )
+                {
+                    // we don't drop the event, but keep the interrupt state
+                    interrupted = true;
+                }
+            }
+            if ( interrupted )
+            {
+                Thread.currentThread().interrupt();
+            }
         }
     }
 }
@@ -16,30 +16,24 @@
  * specific language governing permissions and limitations
  * under the License.
  */
-package org.apache.felix.resolver.util;
+package org.apache.felix.eventadmin.impl.tasks;
 
-import org.osgi.resource.Requirement;
-
-public class OpenHashMapList extends OpenHashMap<Requirement, CandidateSelector> {
-    private static final long serialVersionUID = 0L;
-
-    public OpenHashMapList() {
-        super();
-    }
-
-    public OpenHashMapList(int initialCapacity) {
-        super(initialCapacity);
-    }
+/**
+ * This thread class is used for delivering the events
+ * asynchronously.
+ * It acts like a marker.
+ *
+ * @author <a href="mailto:dev@felix.apache.org">Felix Project Team</a>
+ */
+public class AsyncThread extends Thread
+{
 
-    public OpenHashMapList deepClone() {
-        OpenHashMapList copy = (OpenHashMapList) super.clone();
-        Object[] values = copy.value;
-        for (int i = values.length; i-- > 0;) {
-            if (values[i] != null) {
-                values[i] = ((CandidateSelector) values[i]).copy();
-            }
-        }
-        return copy;
+    /**
+     * Constructor used by the thread pool.
+     * @param target The target
+     */
+    public AsyncThread(Runnable target)
+    {
+        super(target);
     }
-
 }
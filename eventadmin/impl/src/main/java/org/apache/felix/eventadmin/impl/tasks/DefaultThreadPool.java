@@ -74,7 +74,7 @@ public class DefaultThreadPool
                 @Override
                 public Thread newThread( final Runnable command )
                 {
-                    final Thread thread = new Thread( command );
+                    final Thread thread = new AsyncThread( command );
                     thread.setPriority( Thread.NORM_PRIORITY );
                     thread.setDaemon( true );
 
@@ -48,6 +48,11 @@ import org.osgi.service.event.Event;
  * If during an event delivery a new event should be delivered from
  * within the event handler, the timeout handler is stopped for the
  * delivery time of the inner event!
+ * <p>
+ * If the timeout watchdog is enabled, handlers are always called using the
+ * calling thread and a single {@link TimeoutWatchdog} denies handlers exceeding
+ * the timeout. This avoids the thread handoff per handler at the price that a
+ * sender is blocked until a timed-out handler returns.
  *
  * @author <a href="mailto:dev@felix.apache.org">Felix Project Team</a>
  */
@@ -57,26 +62,51 @@ public class SyncDeliverTasks
     /** The thread pool used to spin-off new threads. */
     private final DefaultThreadPool pool;
 
-    private long timeout;
+    /** The watchdog used if handlers are called directly. */
+    private final TimeoutWatchdog watchdog = new TimeoutWatchdog();
+
+    private volatile long timeout;
+
+    private volatile boolean useWatchdog;
 
     /**
      * Construct a new sync deliver tasks.
      * @param pool The thread pool used to spin-off new threads.
      * @param timeout The timeout configuration
+     * @param useWatchdog Whether handlers are called directly and supervised by a watchdog
      */
-    public SyncDeliverTasks(final DefaultThreadPool pool, final long timeout)
+    public SyncDeliverTasks(final DefaultThreadPool pool, final long timeout, final boolean useWatchdog)
     {
         this.pool = pool;
-        this.update(timeout);
+        this.update(timeout, useWatchdog);
     }
 
     /**
      * Update the timeout configuration
      * @param timeout The timeout configuration
+     * @param useWatchdog Whether handlers are called directly and supervised by a watchdog
      */
-    public void update(final long timeout)
+    public void update(final long timeout, final boolean useWatchdog)
     {
         this.timeout = timeout;
+        this.useWatchdog = useWatchdog && timeout > 0;
+        if ( this.useWatchdog )
+        {
+            this.watchdog.start();
+        }
+        else
+        {
+            this.watchdog.stop();
+        }
+    }
+
+    /**
+     * Stop the timeout watchdog.
+     */
+    public void stop()
+    {
+        this.useWatchdog = false;
+        this.watchdog.stop();
     }
 
     /**
@@ -90,6 +120,11 @@ public class SyncDeliverTasks
      */
     public void execute(final Collection<EventHandlerProxy> tasks, final Event event, final boolean filterAsyncUnordered)
     {
+        if ( this.useWatchdog )
+        {
+            this.executeSupervised(tasks, event);
+            return;
+        }
         final Thread sleepingThread = Thread.currentThread();
         final SyncThread syncThread = sleepingThread instanceof SyncThread ? (SyncThread)sleepingThread : null;
 
@@ -128,4 +163,35 @@ public class SyncDeliverTasks
         handlerLatch.awaitAndDenylistCheck();
 
     }
+
+    /**
+     * Deliver the event using the calling thread, the timeout is
+     * checked by the watchdog.
+     *
+     * @param tasks The event handler dispatch tasks to execute
+     * @param event The event
+     */
+    private void executeSupervised(final Collection<EventHandlerProxy> tasks, final Event event)
+    {
+        final long currentTimeout = this.timeout;
+        for(final EventHandlerProxy task : tasks)
+        {
+            if ( !task.useTimeout() )
+            {
+                task.sendEvent(event);
+            }
+            else
+            {
+                final TimeoutWatchdog.Delivery delivery = this.watchdog.begin(task, currentTimeout);
+                try
+                {
+                    task.sendEvent(event);
+                }
+                finally
+                {
+                    this.watchdog.end(delivery);
+                }
+            }
+        }
+    }
 }
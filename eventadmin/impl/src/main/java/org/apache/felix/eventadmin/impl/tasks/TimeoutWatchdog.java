@@ -0,0 +1,326 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.eventadmin.impl.tasks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.apache.felix.eventadmin.impl.handler.EventHandlerProxy;
+import org.apache.felix.eventadmin.impl.util.LogWrapper;
+
+/**
+ * A single watchdog thread supervising handlers which are called directly
+ * by the thread sending the event.
+ *
+ * In-progress deliveries are kept in a hashed timer wheel. Each delivery
+ * registers a {@link Delivery} in the bucket of its deadline and marks it as
+ * done once the handler returns. Done deliveries are dropped lazily by the
+ * watchdog, so completing a delivery does not need any locking. If the deadline
+ * of a delivery which is still in progress expires, the handler is denied.
+ *
+ * A delivery has a single valid slot in the wheel. If a delivery is moved to
+ * an earlier bucket, the entry in its previous bucket becomes stale and is
+ * dropped once that bucket is processed.
+ *
+ * The watchdog can not release the blocked sender - it only ensures that a
+ * handler exceeding the timeout does not receive any further events.
+ *
+ * @author <a href="mailto:dev@felix.apache.org">Felix Project Team</a>
+ */
+public class TimeoutWatchdog implements Runnable
+{
+    /** The duration of a tick of the wheel in milliseconds. */
+    private static final long TICK = 50;
+
+    /** The number of buckets of the wheel, must be a power of two. */
+    private static final int WHEEL_SIZE = 64;
+
+    /** The currently supervised delivery of the sending thread. */
+    private final ThreadLocal<Delivery> current = new ThreadLocal<Delivery>();
+
+    private final List<ConcurrentLinkedQueue<Slot>> wheel;
+
+    private volatile Thread thread;
+
+    /**
+     * Create a new watchdog. The watchdog thread is started by {@link #start()}.
+     */
+    public TimeoutWatchdog()
+    {
+        this.wheel = new ArrayList<ConcurrentLinkedQueue<Slot>>(WHEEL_SIZE);
+        for(int i=0; i<WHEEL_SIZE; i++)
+        {
+            this.wheel.add(new ConcurrentLinkedQueue<Slot>());
+        }
+    }
+
+    /**
+     * Start the watchdog thread if it is not already running.
+     */
+    public synchronized void start()
+    {
+        if ( this.thread == null )
+        {
+            final Thread t = new Thread(this, "EventAdminTimeoutWatchdog");
+            t.setDaemon(true);
+            this.thread = t;
+            t.start();
+        }
+    }
+
+    /**
+     * Stop the watchdog thread. Deliveries which are still supervised are
+     * no longer checked.
+     */
+    public synchronized void stop()
+    {
+        final Thread t = this.thread;
+        if ( t != null )
+        {
+            this.thread = null;
+            t.interrupt();
+        }
+        for(final ConcurrentLinkedQueue<Slot> bucket : this.wheel)
+        {
+            bucket.clear();
+        }
+    }
+
+    /**
+     * Begin supervising a delivery to a handler on the current thread.
+     * If the current thread is already delivering an event (a nested send),
+     * the outer delivery is suspended until {@link #end(Delivery)} is called
+     * for the returned delivery.
+     *
+     * @param handler The handler
+     * @param timeout The timeout in milliseconds
+     * @return The delivery which must be passed to {@link #end(Delivery)}
+     */
+    public Delivery begin(final EventHandlerProxy handler, final long timeout)
+    {
+        final Delivery outer = this.current.get();
+        if ( outer != null )
+        {
+            outer.suspend();
+        }
+        final Delivery delivery = new Delivery(handler, timeout, outer);
+        this.current.set(delivery);
+        this.schedule(delivery, System.currentTimeMillis(), -1);
+        return delivery;
+    }
+
+    /**
+     * End supervising a delivery and resume a suspended outer delivery.
+     * @param delivery The delivery returned by {@link #begin(EventHandlerProxy, long)}
+     */
+    public void end(final Delivery delivery)
+    {
+        delivery.done = true;
+        final Delivery outer = delivery.outer;
+        if ( outer == null )
+        {
+            this.current.remove();
+        }
+        else
+        {
+            this.current.set(outer);
+            outer.resume();
+            // the slot of the outer delivery might be far behind its new deadline
+            // if it has been suspended while its bucket was processed
+            this.reschedule(outer, System.currentTimeMillis());
+        }
+    }
+
+    /**
+     * Move the delivery to the bucket of its deadline if this is earlier than
+     * its current slot. Otherwise the current slot is kept and the delivery is
+     * moved on once its bucket is processed.
+     */
+    private void reschedule(final Delivery delivery, final long now)
+    {
+        synchronized ( delivery )
+        {
+            if ( this.tick(delivery, now) < delivery.scheduledTick )
+            {
+                this.schedule(delivery, now, delivery.scheduledTick);
+            }
+        }
+    }
+
+    /**
+     * Put the delivery into the bucket of its deadline, but not into a bucket
+     * which has already been processed. The delivery is only scheduled if its
+     * current slot is still the expected one.
+     *
+     * @param delivery The delivery
+     * @param now The current time
+     * @param expectedTick The tick of the current slot, or -1 for a new delivery
+     */
+    private void schedule(final Delivery delivery, final long now, final long expectedTick)
+    {
+        synchronized ( delivery )
+        {
+            if ( delivery.scheduledTick == expectedTick )
+            {
+                final long tick = this.tick(delivery, now);
+                delivery.scheduledTick = tick;
+                this.wheel.get((int)tick & (WHEEL_SIZE - 1)).add(new Slot(delivery, tick));
+            }
+        }
+    }
+
+    private long tick(final Delivery delivery, final long now)
+    {
+        return Math.max(delivery.deadline, now + TICK) / TICK;
+    }
+
+    /**
+     * The number of entries in the wheel, including stale and done ones.
+     */
+    int size()
+    {
+        int size = 0;
+        for(final ConcurrentLinkedQueue<Slot> bucket : this.wheel)
+        {
+            size += bucket.size();
+        }
+        return size;
+    }
+
+    @Override
+    public void run()
+    {
+        long lastTick = System.currentTimeMillis() / TICK;
+        final List<Slot> pending = new ArrayList<Slot>();
+        while ( this.thread == Thread.currentThread() )
+        {
+            try
+            {
+                Thread.sleep(TICK);
+            }
+            catch (final InterruptedException ie)
+            {
+                // stopped or spurious - the loop condition decides
+                continue;
+            }
+            final long now = System.currentTimeMillis();
+            final long currentTick = now / TICK;
+            // process every bucket passed since the last run, at most one revolution
+            final long firstTick = Math.max(lastTick + 1, currentTick - WHEEL_SIZE + 1);
+            for(long tick = firstTick; tick <= currentTick; tick++)
+            {
+                final ConcurrentLinkedQueue<Slot> bucket = this.wheel.get((int)tick & (WHEEL_SIZE - 1));
+                Slot slot;
+                while ( (slot = bucket.poll()) != null )
+                {
+                    final Delivery delivery = slot.delivery;
+                    if ( delivery.done || delivery.scheduledTick != slot.tick )
+                    {
+                        // done or moved to an earlier bucket
+                        continue;
+                    }
+                    if ( delivery.deadline <= now )
+                    {
+                        this.expire(delivery);
+                    }
+                    else
+                    {
+                        // deadline in a later revolution or delivery suspended
+                        pending.add(slot);
+                    }
+                }
+            }
+            lastTick = currentTick;
+            for(final Slot slot : pending)
+            {
+                this.schedule(slot.delivery, now, slot.tick);
+            }
+            pending.clear();
+        }
+    }
+
+    private void expire(final Delivery delivery)
+    {
+        try
+        {
+            delivery.handler.denyEventHandler();
+        }
+        catch (final Throwable t)
+        {
+            LogWrapper.getLogger().log(
+                    LogWrapper.LOG_WARNING,
+                    "Exception: " + t, t);
+        }
+    }
+
+    /**
+     * A supervised delivery of an event to a single handler.
+     */
+    public static final class Delivery
+    {
+        final EventHandlerProxy handler;
+
+        final Delivery outer;
+
+        volatile long deadline;
+
+        volatile boolean done;
+
+        /** The tick of the valid slot of this delivery in the wheel. */
+        volatile long scheduledTick = -1;
+
+        /** The remaining time while suspended. */
+        private long remaining;
+
+        Delivery(final EventHandlerProxy handler, final long timeout, final Delivery outer)
+        {
+            this.handler = handler;
+            this.outer = outer;
+            this.deadline = System.currentTimeMillis() + timeout;
+        }
+
+        void suspend()
+        {
+            this.remaining = Math.max(0, this.deadline - System.currentTimeMillis());
+            this.deadline = Long.MAX_VALUE;
+        }
+
+        void resume()
+        {
+            this.deadline = System.currentTimeMillis() + this.remaining;
+        }
+    }
+
+    /**
+     * An entry of a delivery in a bucket of the wheel.
+     */
+    private static final class Slot
+    {
+        final Delivery delivery;
+
+        final long tick;
+
+        Slot(final Delivery delivery, final long tick)
+        {
+            this.delivery = delivery;
+            this.tick = tick;
+        }
+    }
+}
@@ -0,0 +1,347 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.felix.eventadmin.impl.handler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.felix.eventadmin.impl.tasks.AsyncDeliverTasks.QueuePolicy;
+import org.apache.felix.eventadmin.impl.tasks.DefaultThreadPool;
+import org.junit.After;
+import org.junit.Test;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.Constants;
+import org.osgi.framework.ServiceEvent;
+import org.osgi.framework.ServiceListener;
+import org.osgi.framework.ServiceReference;
+import org.osgi.service.event.Event;
+import org.osgi.service.event.EventConstants;
+import org.osgi.service.event.EventHandler;
+
+/**
+ * Tests the bounded async queues and the statistics exposed by the
+ * {@link EventAdminImpl.EventHandlerMBean}.
+ */
+public class EventAdminImplTest {
+
+    private static final String TOPIC = "org/apache/felix/test";
+
+    private final Map<ServiceReference<?>, EventHandler> services = new HashMap<>();
+
+    private ServiceListener listener;
+
+    private DefaultThreadPool syncPool;
+
+    private DefaultThreadPool asyncPool;
+
+    private EventAdminImpl eventAdmin;
+
+    @After public void tearDown()
+    {
+        if ( eventAdmin != null )
+        {
+            eventAdmin.stop();
+        }
+        if ( syncPool != null )
+        {
+            syncPool.close();
+            asyncPool.close();
+        }
+    }
+
+    @Test public void testDropOldest() throws Exception
+    {
+        start(2, QueuePolicy.DROP_OLDEST);
+        final Handler handler = register(1);
+        post(0, true);
+        assertTrue(handler.started.await(5, TimeUnit.SECONDS));
+        post(1, false);
+        post(2, false);
+        // the queue is full, event 1 is dropped
+        post(3, false);
+        assertEquals(2, mbean().getQueuedEvents());
+        assertEquals(1, mbean().getDroppedEvents());
+
+        handler.release.countDown();
+        assertEquals(Arrays.asList(0, 2, 3), handler.await(3));
+        final String statistics = handlerStatistics(1);
+        assertEquals(0, counter(statistics, "queued"));
+        assertEquals(3, counter(statistics, "delivered"));
+        assertEquals(1, counter(statistics, "dropped"));
+    }
+
+    @Test public void testBlock() throws Exception
+    {
+        start(2, QueuePolicy.BLOCK);
+        final Handler handler = register(1);
+        post(0, true);
+        assertTrue(handler.started.await(5, TimeUnit.SECONDS));
+        post(1, false);
+        post(2, false);
+        // the queue is full, the poster is blocked until the handler is released
+        final long[] queued = new long[1];
+        final Thread releaser = new Thread()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    Thread.sleep(200);
+                }
+                catch (final InterruptedException ie)
+                {
+                    // release now
+                }
+                queued[0] = mbean().getQueuedEvents();
+                handler.release.countDown();
+            }
+        };
+        releaser.start();
+        post(3, false);
+        assertEquals(0, handler.release.getCount());
+        releaser.join();
+        assertEquals(2, queued[0]);
+        assertEquals(Arrays.asList(0, 1, 2, 3), handler.await(4));
+        assertEquals(0, mbean().getDroppedEvents());
+    }
+
+    @Test public void testCallerRuns() throws Exception
+    {
+        start(2, QueuePolicy.CALLER_RUNS);
+        final Handler handler = register(1);
+        post(0, true);
+        assertTrue(handler.started.await(5, TimeUnit.SECONDS));
+        post(1, false);
+        post(2, false);
+        // the queue is full, the event is delivered by the poster
+        post(3, false);
+        assertEquals(Arrays.asList(0, 3), handler.await(2));
+        assertEquals(2, mbean().getQueuedEvents());
+
+        handler.release.countDown();
+        assertEquals(Arrays.asList(0, 3, 1, 2), handler.await(4));
+        assertEquals(0, mbean().getDroppedEvents());
+    }
+
+    @Test public void testStatisticsCountDeliveries() throws Exception
+    {
+        start(2, QueuePolicy.DROP_OLDEST);
+        final Handler first = register(1);
+        final Handler second = register(2);
+        post(0, true);
+        // the handlers are called one after the other
+        assertTrue(first.started.await(5, TimeUnit.SECONDS) || second.started.await(5, TimeUnit.SECONDS));
+        post(1, false);
+        post(2, false);
+        post(3, false);
+
+        // events are counted once, deliveries once per handler
+        assertEquals(2, mbean().getQueuedEvents());
+        assertEquals(1, mbean().getDroppedEvents());
+        assertEquals(2, counter(handlerStatistics(1), "queued"));
+        assertEquals(2, counter(handlerStatistics(2), "queued"));
+        assertEquals(4, counter(topicStatistics(), "queued"));
+        assertEquals(1, counter(handlerStatistics(1), "dropped"));
+        assertEquals(2, counter(topicStatistics(), "dropped"));
+
+        first.release.countDown();
+        second.release.countDown();
+        first.await(3);
+        second.await(3);
+        assertEquals(0, counter(topicStatistics(), "queued"));
+        assertEquals(3, counter(handlerStatistics(1), "delivered"));
+        assertEquals(3, counter(handlerStatistics(2), "delivered"));
+        assertEquals(6, counter(topicStatistics(), "delivered"));
+    }
+
+    private void start(final int queueSize, final QueuePolicy policy)
+    {
+        syncPool = new DefaultThreadPool(2, true);
+        asyncPool = new DefaultThreadPool(2, false);
+        eventAdmin = new EventAdminImpl(createBundleContext(), syncPool, asyncPool,
+                0, false, null, true, null, queueSize, policy);
+    }
+
+    private EventAdminImpl.EventHandlerMBean mbean()
+    {
+        return (EventAdminImpl.EventHandlerMBean) eventAdmin.getHandlerInfoMBean();
+    }
+
+    private String handlerStatistics(final long id)
+    {
+        for(final String statistics : mbean().getEventHandlerStatistics())
+        {
+            if ( statistics.startsWith("Handler " + id + " ") )
+            {
+                return statistics;
+            }
+        }
+        throw new AssertionError("No statistics for handler " + id);
+    }
+
+    private String topicStatistics()
+    {
+        final String[] statistics = mbean().getTopicStatistics();
+        assertEquals(1, statistics.length);
+        assertTrue(statistics[0], statistics[0].startsWith(TOPIC + " : "));
+        return statistics[0];
+    }
+
+    private static long counter(final String statistics, final String name)
+    {
+        final Matcher m = Pattern.compile("\\b" + name + "=(\\d+)").matcher(statistics);
+        assertTrue(statistics, m.find());
+        return Long.parseLong(m.group(1));
+    }
+
+    private void post(final int index, final boolean block)
+    {
+        final Map<String, Object> props = new HashMap<>();
+        props.put("index", index);
+        props.put("block", block);
+        eventAdmin.postEvent(new Event(TOPIC, props));
+    }
+
+    private Handler register(final long id)
+    {
+        final Map<String, Object> props = new HashMap<>();
+        props.put(Constants.SERVICE_ID, id);
+        props.put(Constants.OBJECTCLASS, new String[] {EventHandler.class.getName()});
+        props.put(EventConstants.EVENT_TOPIC, TOPIC);
+        final ServiceReference<?> reference = createReference(props);
+        final Handler handler = new Handler();
+        services.put(reference, handler);
+        listener.serviceChanged(new ServiceEvent(ServiceEvent.REGISTERED, reference));
+        return handler;
+    }
+
+    private BundleContext createBundleContext()
+    {
+        return proxy(BundleContext.class, (proxy, method, args) -> {
+            switch ( method.getName() )
+            {
+                case "addServiceListener" :
+                    listener = (ServiceListener) args[0];
+                    return null;
+                case "getService" :
+                    return services.get(args[0]);
+                case "ungetService" :
+                    return true;
+                default :
+                    return null;
+            }
+        });
+    }
+
+    private static ServiceReference<?> createReference(final Map<String, Object> props)
+    {
+        final Bundle bundle = proxy(Bundle.class, (proxy, method, args) -> {
+            switch ( method.getName() )
+            {
+                case "hasPermission" :
+                    return true;
+                case "toString" :
+                    return "test";
+                default :
+                    return null;
+            }
+        });
+        return proxy(ServiceReference.class, (proxy, method, args) -> {
+            switch ( method.getName() )
+            {
+                case "getProperty" :
+                    return props.get(args[0]);
+                case "getPropertyKeys" :
+                    return props.keySet().toArray(new String[props.size()]);
+                case "getBundle" :
+                    return bundle;
+                case "compareTo" :
+                    final Long otherId = (Long) ((ServiceReference<?>) args[0]).getProperty(Constants.SERVICE_ID);
+                    return otherId.compareTo((Long) props.get(Constants.SERVICE_ID));
+                case "equals" :
+                    return proxy == args[0];
+                case "hashCode" :
+                    return System.identityHashCode(proxy);
+                case "toString" :
+                    return "Handler " + props.get(Constants.SERVICE_ID);
+                default :
+                    return null;
+            }
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(final Class<?> type, final InvocationHandler handler)
+    {
+        return (T) Proxy.newProxyInstance(EventAdminImplTest.class.getClassLoader(), new Class<?>[] {type}, handler);
+    }
+
+    private static final class Handler implements EventHandler
+    {
+        final List<Integer> received = Collections.synchronizedList(new ArrayList<Integer>());
+
+        final CountDownLatch started = new CountDownLatch(1);
+
+        final CountDownLatch release = new CountDownLatch(1);
+
+        @Override
+        public void handleEvent(final Event event)
+        {
+            received.add((Integer) event.getProperty("index"));
+            if ( Boolean.TRUE.equals(event.getProperty("block")) )
+            {
+                started.countDown();
+                try
+                {
+                    release.await(5, TimeUnit.SECONDS);
+                }
+                catch (final InterruptedException ie)
+                {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        List<Integer> await(final int count) throws InterruptedException
+        {
+            final long deadline = System.currentTimeMillis() + 5000;
+            while ( received.size() < count && System.currentTimeMillis() < deadline )
+            {
+                Thread.sleep(10);
+            }
+            synchronized ( received )
+            {
+                return new ArrayList<>(received);
+            }
+        }
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.felix.eventadmin.impl.tasks;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.felix.eventadmin.impl.handler.EventHandlerProxy;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TimeoutWatchdogTest {
+
+    private TimeoutWatchdog watchdog;
+
+    @Before public void setUp()
+    {
+        watchdog = new TimeoutWatchdog();
+    }
+
+    @After public void tearDown()
+    {
+        watchdog.stop();
+    }
+
+    @Test public void testTimeoutDeniesHandler() throws Exception
+    {
+        watchdog.start();
+        final Handler handler = new Handler();
+        final TimeoutWatchdog.Delivery delivery = watchdog.begin(handler, 100);
+        try
+        {
+            assertTrue(handler.denied.await(2, TimeUnit.SECONDS));
+        }
+        finally
+        {
+            watchdog.end(delivery);
+        }
+    }
+
+    @Test public void testCompletedDeliveryIsNotDenied() throws Exception
+    {
+        watchdog.start();
+        final Handler handler = new Handler();
+        watchdog.end(watchdog.begin(handler, 100));
+        assertFalse(handler.denied.await(500, TimeUnit.MILLISECONDS));
+        assertEquals(0, watchdog.size());
+    }
+
+    @Test public void testNestedDeliverySuspendsOuter() throws Exception
+    {
+        watchdog.start();
+        final Handler outer = new Handler();
+        final Handler inner = new Handler();
+        final TimeoutWatchdog.Delivery outerDelivery = watchdog.begin(outer, 300);
+        final TimeoutWatchdog.Delivery innerDelivery = watchdog.begin(inner, 5000);
+        // the bucket of the outer delivery is processed while it is suspended
+        Thread.sleep(600);
+        watchdog.end(innerDelivery);
+        assertEquals(1, outer.denied.getCount());
+        assertEquals(1, inner.denied.getCount());
+        try
+        {
+            // the remaining time of the outer delivery applies after resuming,
+            // not the next revolution of the wheel
+            assertTrue(outer.denied.await(1, TimeUnit.SECONDS));
+        }
+        finally
+        {
+            watchdog.end(outerDelivery);
+        }
+        assertEquals(1, inner.denied.getCount());
+    }
+
+    @Test public void testNestedDeliveriesKeepSingleSlot()
+    {
+        // not started, so no entries are dropped
+        final TimeoutWatchdog.Delivery outer = watchdog.begin(new Handler(), 10000);
+        for(int i=0; i<1000; i++)
+        {
+            watchdog.end(watchdog.begin(new Handler(), 10000));
+        }
+        // one entry for the outer delivery and one for each inner delivery
+        assertEquals(1001, watchdog.size());
+        watchdog.end(outer);
+    }
+
+    private static final class Handler extends EventHandlerProxy
+    {
+        /** Released once the handler is denied. */
+        final CountDownLatch denied = new CountDownLatch(1);
+
+        Handler()
+        {
+            super(null, null);
+        }
+
+        @Override
+        public void denyEventHandler()
+        {
+            denied.countDown();
+        }
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.framework.benchmark;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+
+import org.apache.felix.framework.Felix;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.Constants;
+
+/**
+ * Base class of the benchmarks which run against a framework started in a
+ * temporary storage directory.
+ */
+@State(Scope.Benchmark)
+public abstract class AbstractFrameworkBenchmark
+{
+    private File storage;
+
+    private Felix framework;
+
+    @Setup
+    public void startFramework() throws Exception
+    {
+        storage = Files.createTempDirectory("felix-benchmark").toFile();
+        Map<String, Object> config = new HashMap<>();
+        config.put(Constants.FRAMEWORK_STORAGE, storage.getAbsolutePath());
+        config.put(Constants.FRAMEWORK_STORAGE_CLEAN, Constants.FRAMEWORK_STORAGE_CLEAN_ONFIRSTINIT);
+        framework = new Felix(config);
+        framework.start();
+        setUp(framework.getBundleContext());
+    }
+
+    @TearDown
+    public void stopFramework() throws Exception
+    {
+        framework.stop();
+        framework.waitForStop(10000);
+        delete(storage);
+    }
+
+    /**
+     * Called once the framework is started.
+     */
+    protected abstract void setUp(BundleContext context) throws Exception;
+
+    /**
+     * Installs a bundle with the given manifest headers and the class files
+     * of the given classes.
+     */
+    protected Bundle installBundle(String symbolicName, Map<String, String> headers, Class<?>... classes)
+        throws Exception
+    {
+        Manifest manifest = new Manifest();
+        Attributes main = manifest.getMainAttributes();
+        main.put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        main.putValue(Constants.BUNDLE_MANIFESTVERSION, "2");
+        main.putValue(Constants.BUNDLE_SYMBOLICNAME, symbolicName);
+        for (Map.Entry<String, String> header : headers.entrySet())
+        {
+            main.putValue(header.getKey(), header.getValue());
+        }
+
+        File file = new File(storage, symbolicName + ".jar");
+        try (JarOutputStream jar = new JarOutputStream(new FileOutputStream(file), manifest))
+        {
+            for (Class<?> clazz : classes)
+            {
+                String name = clazz.getName().replace('.', '/') + ".class";
+                jar.putNextEntry(new JarEntry(name));
+                try (InputStream in = clazz.getClassLoader().getResourceAsStream(name))
+                {
+                    copy(in, jar);
+                }
+                jar.closeEntry();
+            }
+        }
+        return framework.getBundleContext().installBundle(file.toURI().toString());
+    }
+
+    private static void copy(InputStream in, OutputStream out) throws IOException
+    {
+        byte[] buffer = new byte[4096];
+        for (int n = in.read(buffer); n != -1; n = in.read(buffer))
+        {
+            out.write(buffer, 0, n);
+        }
+    }
+
+    private static void delete(File file)
+    {
+        File[] children = file.listFiles();
+        if (children != null)
+        {
+            for (File child : children)
+            {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.framework.benchmark;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.felix.framework.capabilityset.CapabilitySet;
+import org.apache.felix.framework.capabilityset.SimpleFilter;
+import org.apache.felix.framework.wiring.BundleCapabilityImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.osgi.framework.Version;
+import org.osgi.framework.namespace.PackageNamespace;
+import org.osgi.resource.Capability;
+
+/**
+ * Measures {@link CapabilitySet#match(SimpleFilter, boolean)} for package
+ * capabilities, with filters using the index and filters which must be
+ * checked against every capability.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class CapabilitySetBenchmark
+{
+    @Param({"1000", "10000"})
+    public int capabilities;
+
+    private CapabilitySet capabilitySet;
+
+    private SimpleFilter indexed;
+
+    private SimpleFilter versioned;
+
+    private SimpleFilter unindexed;
+
+    @Setup
+    public void setUp()
+    {
+        capabilitySet = new CapabilitySet(
+            Collections.singletonList(PackageNamespace.PACKAGE_NAMESPACE), true);
+        for (int i = 0; i < capabilities; i++)
+        {
+            Map<String, Object> attrs = new HashMap<String, Object>();
+            attrs.put(PackageNamespace.PACKAGE_NAMESPACE, "org.example.pkg" + (i / 2));
+            attrs.put(PackageNamespace.CAPABILITY_VERSION_ATTRIBUTE, new Version(1, i % 2, 0));
+            attrs.put(PackageNamespace.CAPABILITY_BUNDLE_SYMBOLICNAME_ATTRIBUTE, "org.example.bundle" + i);
+            capabilitySet.addCapability(new BundleCapabilityImpl(
+                null, PackageNamespace.PACKAGE_NAMESPACE, Collections.<String, String>emptyMap(), attrs));
+        }
+        String pkg = "org.example.pkg" + (capabilities / 4);
+        indexed = SimpleFilter.parse("(osgi.wiring.package=" + pkg + ")");
+        versioned = SimpleFilter.parse("(&(osgi.wiring.package=" + pkg
+            + ")(version>=1.1.0)(!(version>=2.0.0)))");
+        unindexed = SimpleFilter.parse("(bundle-symbolic-name=org.example.bundle" + (capabilities / 2) + ")");
+    }
+
+    @Benchmark
+    public Set<Capability> matchIndexed()
+    {
+        return capabilitySet.match(indexed, true);
+    }
+
+    @Benchmark
+    public Set<Capability> matchVersionRange()
+    {
+        return capabilitySet.match(versioned, true);
+    }
+
+    @Benchmark
+    public Set<Capability> matchUnindexed()
+    {
+        return capabilitySet.match(unindexed, true);
+    }
+}
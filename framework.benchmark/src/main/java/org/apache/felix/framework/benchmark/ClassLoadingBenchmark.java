@@ -0,0 +1,95 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.framework.benchmark;
+
+import java.net.URL;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.felix.framework.benchmark.classes.Exported;
+import org.apache.felix.framework.benchmark.classes.local.Local;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.Constants;
+
+/**
+ * Measures the class and resource lookups of {@code BundleWiringImpl} for
+ * a class of an imported package, a class of the bundle itself and a class
+ * which cannot be found.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class ClassLoadingBenchmark extends AbstractFrameworkBenchmark
+{
+    private static final String LOCAL_RESOURCE = Local.class.getName().replace('.', '/') + ".class";
+
+    private Bundle importer;
+
+    @Override
+    protected void setUp(BundleContext context) throws Exception
+    {
+        String pkg = Exported.class.getPackage().getName();
+        installBundle("exporter", Collections.singletonMap(Constants.EXPORT_PACKAGE, pkg),
+            Exported.class).start();
+        importer = installBundle("importer", Collections.singletonMap(Constants.IMPORT_PACKAGE, pkg),
+            Local.class);
+        importer.start();
+    }
+
+    @Benchmark
+    public Class<?> loadImportedClass() throws ClassNotFoundException
+    {
+        return importer.loadClass(Exported.class.getName());
+    }
+
+    @Benchmark
+    public Class<?> loadLocalClass() throws ClassNotFoundException
+    {
+        return importer.loadClass(Local.class.getName());
+    }
+
+    @Benchmark
+    public Class<?> loadMissingClass()
+    {
+        try
+        {
+            return importer.loadClass("org.example.Missing");
+        }
+        catch (ClassNotFoundException e)
+        {
+            return null;
+        }
+    }
+
+    @Benchmark
+    public URL getLocalResource()
+    {
+        return importer.getResource(LOCAL_RESOURCE);
+    }
+}
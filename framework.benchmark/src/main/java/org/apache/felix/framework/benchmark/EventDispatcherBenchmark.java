@@ -0,0 +1,97 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.framework.benchmark;
+
+import java.util.Dictionary;
+import java.util.Hashtable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Warmup;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.ServiceEvent;
+import org.osgi.framework.ServiceListener;
+import org.osgi.framework.ServiceRegistration;
+
+/**
+ * Measures the synchronous delivery of service events by the
+ * {@code EventDispatcher} to a number of service listeners, half of which
+ * have a filter which does not match the modified service.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class EventDispatcherBenchmark extends AbstractFrameworkBenchmark
+{
+    @Param({"10", "100", "1000"})
+    public int listeners;
+
+    private final AtomicLong events = new AtomicLong();
+
+    private ServiceRegistration<Runnable> registration;
+
+    private Dictionary<String, Object> properties;
+
+    @Override
+    protected void setUp(BundleContext context) throws Exception
+    {
+        for (int i = 0; i < listeners; i++)
+        {
+            // a listener added twice only keeps its last filter
+            ServiceListener listener = new ServiceListener()
+            {
+                @Override
+                public void serviceChanged(ServiceEvent event)
+                {
+                    events.incrementAndGet();
+                }
+            };
+            String filter = (i % 2 == 0)
+                ? "(objectClass=" + Runnable.class.getName() + ")"
+                : "(objectClass=" + Object.class.getName() + ")";
+            context.addServiceListener(listener, filter);
+        }
+        properties = new Hashtable<>();
+        properties.put("id", 0);
+        registration = context.registerService(Runnable.class, new Runnable()
+        {
+            @Override
+            public void run()
+            {
+            }
+        }, properties);
+    }
+
+    @Benchmark
+    public long fireServiceEvent()
+    {
+        // modifying the properties fires a MODIFIED event
+        registration.setProperties(properties);
+        return events.get();
+    }
+}
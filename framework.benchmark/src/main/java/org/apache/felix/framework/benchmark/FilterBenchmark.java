@@ -0,0 +1,118 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.framework.benchmark;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Hashtable;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.felix.utils.filter.FilterImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.osgi.framework.Filter;
+import org.osgi.framework.InvalidSyntaxException;
+import org.osgi.framework.Version;
+
+/**
+ * Measures the LDAP filters of felix-utils against the filters of the
+ * framework, with operands which must be converted to numbers, versions and
+ * other comparable types. The felix-utils evaluator being measured is selected
+ * by the felix.utils.version property of the build, so the same benchmark can
+ * be run against a released version.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class FilterBenchmark
+{
+    private static final String FILTER = "(&(objectClass=org.example.Service)(service.ranking>=10)"
+        + "(weight<=5.5)(amount>=100.25)(bundle-version>=1.2.0))";
+
+    private FilterImpl utils;
+
+    private Filter framework;
+
+    private Map<String, Object> properties;
+
+    private Hashtable<String, Object> dictionary;
+
+    @Setup
+    public void setUp() throws InvalidSyntaxException
+    {
+        utils = FilterImpl.newInstance(FILTER);
+        framework = new org.apache.felix.framework.FilterImpl(FILTER);
+        properties = new HashMap<String, Object>();
+        properties.put("objectClass", "org.example.Service");
+        properties.put("service.ranking", 20);
+        properties.put("weight", 3.0d);
+        properties.put("amount", new BigDecimal("200"));
+        properties.put("bundle-version", new Version(1, 3, 0));
+        dictionary = new Hashtable<String, Object>(properties);
+    }
+
+    @Benchmark
+    public boolean utilsMatches()
+    {
+        // matchCase(Map) is also available in older releases
+        return utils.matchCase(properties);
+    }
+
+    @Benchmark
+    public boolean utilsMatchDictionary()
+    {
+        return utils.match(dictionary);
+    }
+
+    @Benchmark
+    public Filter utilsParse() throws InvalidSyntaxException
+    {
+        return FilterImpl.newInstance(FILTER);
+    }
+
+    @Benchmark
+    public boolean frameworkMatches()
+    {
+        return framework.matches(properties);
+    }
+
+    @Benchmark
+    public boolean frameworkMatchDictionary()
+    {
+        return framework.match(dictionary);
+    }
+
+    @Benchmark
+    public Filter frameworkParse() throws InvalidSyntaxException
+    {
+        return new org.apache.felix.framework.FilterImpl(FILTER);
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.framework.benchmark;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.felix.resolver.Logger;
+import org.apache.felix.resolver.ResolverImpl;
+import org.apache.felix.resolver.test.BigResolutionTest;
+import org.apache.felix.resolver.test.util.PackageCapability;
+import org.apache.felix.resolver.test.util.PackageRequirement;
+import org.apache.felix.resolver.test.util.ResolveContextImpl;
+import org.apache.felix.resolver.test.util.ResourceImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.osgi.framework.namespace.PackageNamespace;
+import org.osgi.resource.Capability;
+import org.osgi.resource.Requirement;
+import org.osgi.resource.Resource;
+import org.osgi.resource.Wire;
+import org.osgi.resource.Wiring;
+import org.osgi.service.resolver.ResolutionException;
+import org.osgi.service.resolver.ResolveContext;
+
+/**
+ * Measures {@link ResolverImpl#resolve(ResolveContext)} over the repository
+ * of the resolver tests and over a synthetic graph in which every package
+ * uses all the packages imported by its exporter.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class ResolverBenchmark
+{
+    @Param({"100", "400"})
+    public int resources;
+
+    @Param({"5"})
+    public int imports;
+
+    private ResolverImpl resolver;
+
+    private ResolveContext repository;
+
+    private ResolveContext uses;
+
+    @Setup
+    public void setUp() throws Exception
+    {
+        resolver = new ResolverImpl(new Logger(Logger.LOG_ERROR), 1);
+        repository = BigResolutionTest.buildResolutionContext();
+        uses = createUsesContext(resources, imports);
+    }
+
+    @Benchmark
+    public Map<Resource, List<Wire>> resolveRepository() throws ResolutionException
+    {
+        return resolver.resolve(repository);
+    }
+
+    @Benchmark
+    public Map<Resource, List<Wire>> resolveUses() throws ResolutionException
+    {
+        return resolver.resolve(uses);
+    }
+
+    /**
+     * Creates resources which each export a package and import the packages
+     * of the previous resources, with the exported package using all the
+     * imported ones.
+     */
+    static ResolveContext createUsesContext(int resources, int imports)
+    {
+        Map<Requirement, List<Capability>> candMap = new HashMap<Requirement, List<Capability>>();
+        List<Capability> exports = new ArrayList<Capability>();
+        List<Resource> mandatory = new ArrayList<Resource>();
+        for (int i = 0; i < resources; i++)
+        {
+            ResourceImpl resource = new ResourceImpl("resource" + i);
+            StringBuilder used = new StringBuilder();
+            for (int j = Math.max(0, i - imports); j < i; j++)
+            {
+                Requirement req = new PackageRequirement(resource, "pkg" + j);
+                resource.addRequirement(req);
+                candMap.put(req, Collections.singletonList(exports.get(j)));
+                if (used.length() > 0)
+                {
+                    used.append(',');
+                }
+                used.append("pkg").append(j);
+            }
+            PackageCapability cap = new PackageCapability(resource, "pkg" + i);
+            if (used.length() > 0)
+            {
+                cap.addDirective(PackageNamespace.CAPABILITY_USES_DIRECTIVE, used.toString());
+            }
+            resource.addCapability(cap);
+            exports.add(cap);
+            mandatory.add(resource);
+        }
+        return new ResolveContextImpl(Collections.<Resource, Wiring>emptyMap(), candMap,
+            mandatory, Collections.<Resource>emptyList());
+    }
+}
@@ -0,0 +1,299 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.framework.benchmark;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.felix.scr.impl.inject.BindParameters;
+import org.apache.felix.scr.impl.inject.MethodResult;
+import org.apache.felix.scr.impl.inject.internal.ComponentMethodsImpl;
+import org.apache.felix.scr.impl.inject.methods.BaseMethod;
+import org.apache.felix.scr.impl.inject.methods.BindMethod;
+import org.apache.felix.scr.impl.logger.ComponentLogger;
+import org.apache.felix.scr.impl.logger.InternalLogger.Level;
+import org.apache.felix.scr.impl.manager.ComponentActivator;
+import org.apache.felix.scr.impl.manager.ComponentContainer;
+import org.apache.felix.scr.impl.manager.ComponentContextImpl;
+import org.apache.felix.scr.impl.manager.SingleComponentManager;
+import org.apache.felix.scr.impl.manager.SingleRefPair;
+import org.apache.felix.scr.impl.metadata.ComponentMetadata;
+import org.apache.felix.scr.impl.metadata.DSVersion;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.ServiceReference;
+
+/**
+ * Measures the bind callbacks of SCR components, as called for each service
+ * bound to a dynamic reference. The bind method is either invoked through the
+ * method handle created by {@code BaseMethod}, or by reflection after the
+ * handle has been cleared. The bind methods of several component classes are
+ * called in turn, as in a framework running many components, which makes the
+ * call sites of the invocation megamorphic.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class ScrBindBenchmark
+{
+    private static final Class<?>[] TARGETS = {Target0.class, Target1.class, Target2.class, Target3.class,
+        Target4.class, Target5.class, Target6.class, Target7.class};
+
+    @Param({"handle", "reflection"})
+    public String invocation;
+
+    @Param({"1", "8"})
+    public int components;
+
+    private Object[] targets;
+
+    private BindMethod[] bindMethods;
+
+    private BindParameters parameters;
+
+    private int next;
+
+    @Setup
+    public void setUp() throws Exception
+    {
+        ComponentMetadata metadata = new ComponentMetadata(DSVersion.DS13);
+        metadata.setName("benchmark");
+        metadata.setImplementationClassName(Target0.class.getName());
+        metadata.validate();
+        SingleComponentManager<Object> manager = new SingleComponentManager<>(
+            new Container(metadata), new ComponentMethodsImpl<>());
+        Bundle bundle = proxy(Bundle.class);
+        BundleContext context = proxy(BundleContext.class);
+        ComponentContextImpl<Object> componentContext = new ComponentContextImpl<>(manager, bundle, null);
+        ServiceReference<Runnable> reference = proxy(ServiceReference.class);
+        parameters = new BindParameters(componentContext, new SingleRefPair<Object, Runnable>(reference));
+
+        Field handle = BaseMethod.class.getDeclaredField("m_methodHandle");
+        handle.setAccessible(true);
+        targets = new Object[components];
+        bindMethods = new BindMethod[components];
+        for (int i = 0; i < components; i++)
+        {
+            targets[i] = TARGETS[i].getConstructor().newInstance();
+            bindMethods[i] = new BindMethod("bind", TARGETS[i], Runnable.class.getName(), DSVersion.DS13, false);
+            bindMethods[i].getServiceObject(parameters, context);
+            // resolve the method and create its handle
+            if (!bindMethods[i].methodExists(componentContext.getLogger()))
+            {
+                throw new IllegalStateException("Bind method not found in " + TARGETS[i]);
+            }
+            if ("reflection".equals(invocation))
+            {
+                handle.set(bindMethods[i], null);
+            }
+        }
+    }
+
+    @Benchmark
+    public MethodResult bind()
+    {
+        int i = next;
+        next = i + 1 < components ? i + 1 : 0;
+        return bindMethods[i].invoke(targets[i], parameters, null);
+    }
+
+    public static class Target0
+    {
+        ServiceReference<?> bound;
+
+        public void bind(ServiceReference<?> reference)
+        {
+            bound = reference;
+        }
+    }
+
+    public static class Target1 extends Target0
+    {
+        @Override
+        public void bind(ServiceReference<?> reference)
+        {
+            bound = reference;
+        }
+    }
+
+    public static class Target2 extends Target0
+    {
+        @Override
+        public void bind(ServiceReference<?> reference)
+        {
+            bound = reference;
+        }
+    }
+
+    public static class Target3 extends Target0
+    {
+        @Override
+        public void bind(ServiceReference<?> reference)
+        {
+            bound = reference;
+        }
+    }
+
+    public static class Target4 extends Target0
+    {
+        @Override
+        public void bind(ServiceReference<?> reference)
+        {
+            bound = reference;
+        }
+    }
+
+    public static class Target5 extends Target0
+    {
+        @Override
+        public void bind(ServiceReference<?> reference)
+        {
+            bound = reference;
+        }
+    }
+
+    public static class Target6 extends Target0
+    {
+        @Override
+        public void bind(ServiceReference<?> reference)
+        {
+            bound = reference;
+        }
+    }
+
+    public static class Target7 extends Target0
+    {
+        @Override
+        public void bind(ServiceReference<?> reference)
+        {
+            bound = reference;
+        }
+    }
+
+    private static final class Container implements ComponentContainer<Object>
+    {
+        private final ComponentActivator activator = proxy(ComponentActivator.class);
+
+        private final ComponentMetadata metadata;
+
+        Container(ComponentMetadata metadata)
+        {
+            this.metadata = metadata;
+        }
+
+        @Override
+        public ComponentActivator getActivator()
+        {
+            return activator;
+        }
+
+        @Override
+        public ComponentMetadata getComponentMetadata()
+        {
+            return metadata;
+        }
+
+        @Override
+        public void disposed(SingleComponentManager<Object> component)
+        {
+        }
+
+        @Override
+        public ComponentLogger getLogger()
+        {
+            // measure the invocation, not the logging
+            return new ComponentLogger()
+            {
+                @Override
+                public boolean isLogEnabled(Level level)
+                {
+                    return false;
+                }
+
+                @Override
+                public void log(Level level, String message, Throwable ex)
+                {
+                }
+
+                @Override
+                public void log(Level level, String message, Throwable ex, Object... args)
+                {
+                }
+
+                @Override
+                public void setComponentId(long componentId)
+                {
+                }
+            };
+        }
+    }
+
+    /**
+     * Returns a proxy of the interface returning the default value of the
+     * return type of each method, and further proxies for OSGi interfaces.
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<?> type)
+    {
+        InvocationHandler handler = (proxy, method, args) -> {
+            Class<?> returnType = method.getReturnType();
+            switch (method.getName())
+            {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return type.getSimpleName();
+                default:
+                    break;
+            }
+            if (returnType == boolean.class)
+            {
+                return false;
+            }
+            if (returnType == int.class || returnType == long.class)
+            {
+                return returnType == int.class ? (Object) 0 : (Object) 0L;
+            }
+            if (returnType.isInterface() && returnType.getName().startsWith("org.osgi."))
+            {
+                return proxy(returnType);
+            }
+            return null;
+        };
+        return (T) Proxy.newProxyInstance(ScrBindBenchmark.class.getClassLoader(), new Class<?>[] {type}, handler);
+    }
+}
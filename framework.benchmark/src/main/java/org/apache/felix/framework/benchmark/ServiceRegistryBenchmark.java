@@ -0,0 +1,103 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.framework.benchmark;
+
+import java.util.Dictionary;
+import java.util.Hashtable;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Warmup;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.InvalidSyntaxException;
+import org.osgi.framework.ServiceReference;
+import org.osgi.framework.ServiceRegistration;
+
+/**
+ * Measures service registration and lookup through the
+ * {@code ServiceRegistry} of a running framework holding a number of
+ * services of the same type.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class ServiceRegistryBenchmark extends AbstractFrameworkBenchmark
+{
+    @Param({"100", "1000"})
+    public int services;
+
+    private BundleContext context;
+
+    private String filter;
+
+    @Override
+    protected void setUp(BundleContext context)
+    {
+        this.context = context;
+        for (int i = 0; i < services; i++)
+        {
+            context.registerService(Runnable.class, new Task(), properties(i));
+        }
+        filter = "(id=" + (services / 2) + ")";
+    }
+
+    @Benchmark
+    public ServiceRegistration<Runnable> registerService()
+    {
+        ServiceRegistration<Runnable> registration =
+            context.registerService(Runnable.class, new Task(), properties(-1));
+        registration.unregister();
+        return registration;
+    }
+
+    @Benchmark
+    public ServiceReference<?>[] getServiceReferences() throws InvalidSyntaxException
+    {
+        return context.getServiceReferences(Runnable.class.getName(), null);
+    }
+
+    @Benchmark
+    public ServiceReference<?>[] getServiceReferencesFiltered() throws InvalidSyntaxException
+    {
+        return context.getServiceReferences(Runnable.class.getName(), filter);
+    }
+
+    private static Dictionary<String, Object> properties(int id)
+    {
+        Dictionary<String, Object> props = new Hashtable<>();
+        props.put("id", id);
+        return props;
+    }
+
+    private static class Task implements Runnable
+    {
+        @Override
+        public void run()
+        {
+        }
+    }
+}
@@ -0,0 +1,299 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.gogo.jline;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.Consumer;
+
+/**
+ * Support for the posix commands working on large files: buffered input,
+ * splitting of files in chunks of lines which can be processed concurrently,
+ * and sorting of more lines than fit in memory.
+ * <p>
+ * Files are read into heap buffers rather than mapped in memory, as a mapped
+ * file stays open until the mapping is garbage collected, which prevents
+ * deleting the file on Windows.
+ */
+final class LargeFiles {
+
+    /**
+     * Size of the buffers used to read files.
+     */
+    static final int BUFFER_SIZE = 64 << 10;
+
+    /**
+     * Approximate size of the chunks processed concurrently.
+     */
+    static final int CHUNK_SIZE = 1 << 20;
+
+    private LargeFiles() {
+    }
+
+    /**
+     * Opens a buffered stream on the given file.
+     */
+    static InputStream newInputStream(Path path) throws IOException {
+        return new BufferedInputStream(Files.newInputStream(path), BUFFER_SIZE);
+    }
+
+    /**
+     * Counts the lines of the given file. The last line is counted even if it
+     * is not terminated by a new line, as done by <code>wc</code>.
+     */
+    static long countLines(FileChannel channel) throws IOException {
+        long lines = 0;
+        byte last = '\n';
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        byte[] bytes = buffer.array();
+        long pos = 0;
+        int nb;
+        while ((nb = channel.read(buffer, pos)) > 0) {
+            for (int i = 0; i < nb; i++) {
+                if (bytes[i] == '\n') {
+                    lines++;
+                }
+            }
+            last = bytes[nb - 1];
+            pos += nb;
+            buffer.clear();
+        }
+        return last != '\n' ? lines + 1 : lines;
+    }
+
+    /**
+     * Splits the given file in chunks of about {@link #CHUNK_SIZE} bytes
+     * ending on a line boundary.
+     * @return the offsets of the chunks, the last one being the size of the file
+     */
+    static long[] split(FileChannel channel, long chunkSize) throws IOException {
+        long size = channel.size();
+        List<Long> offsets = new ArrayList<>();
+        offsets.add(0L);
+        ByteBuffer buffer = ByteBuffer.allocate(8192);
+        long pos = chunkSize;
+        while (pos < size) {
+            // move to the start of the next line
+            long eol = -1;
+            while (eol < 0 && pos < size) {
+                buffer.clear();
+                int nb = channel.read(buffer, pos);
+                if (nb <= 0) {
+                    break;
+                }
+                for (int i = 0; i < nb; i++) {
+                    if (buffer.get(i) == '\n') {
+                        eol = pos + i;
+                        break;
+                    }
+                }
+                if (eol < 0) {
+                    pos += nb;
+                }
+            }
+            if (eol < 0 || eol + 1 >= size) {
+                break;
+            }
+            offsets.add(eol + 1);
+            pos = eol + 1 + chunkSize;
+        }
+        offsets.add(size);
+        long[] result = new long[offsets.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = offsets.get(i);
+        }
+        return result;
+    }
+
+    /**
+     * Reads the lines of the given region of the file, split as done by
+     * {@link BufferedReader#readLine()}.
+     */
+    static List<String> lines(FileChannel channel, long start, long end, Charset charset) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(Math.toIntExact(end - start));
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, start + buffer.position()) < 0) {
+                break;
+            }
+        }
+        buffer.flip();
+        CharSequence chars = charset.decode(buffer);
+        List<String> lines = new ArrayList<>();
+        int length = chars.length();
+        int begin = 0;
+        for (int i = 0; i < length; i++) {
+            char c = chars.charAt(i);
+            if (c == '\n' || c == '\r') {
+                lines.add(chars.subSequence(begin, i).toString());
+                if (c == '\r' && i + 1 < length && chars.charAt(i + 1) == '\n') {
+                    i++;
+                }
+                begin = i + 1;
+            }
+        }
+        if (begin < length) {
+            lines.add(chars.subSequence(begin, length).toString());
+        }
+        return lines;
+    }
+
+    /**
+     * Sorts lines. Lines are sorted in memory until their size exceeds the
+     * buffer size, in which case the sorted runs are written to temporary
+     * files and merged when the lines are output.
+     */
+    static class Sorter implements Closeable {
+        private final Comparator<String> comparator;
+        private final long bufferSize;
+        private final Path tmpDir;
+        private final List<String> buffer = new ArrayList<>();
+        private final List<Path> runs = new ArrayList<>();
+        private long size;
+
+        /**
+         * @param comparator the comparator
+         * @param bufferSize the approximate number of bytes used to hold lines in memory
+         * @param tmpDir the directory of the temporary files, or <code>null</code> for the default
+         */
+        Sorter(Comparator<String> comparator, long bufferSize, Path tmpDir) {
+            this.comparator = comparator;
+            this.bufferSize = bufferSize;
+            this.tmpDir = tmpDir;
+        }
+
+        void add(String line) throws IOException {
+            buffer.add(line);
+            // chars and object overhead
+            size += 2L * line.length() + 48;
+            if (size > bufferSize) {
+                runs.add(spill());
+                buffer.clear();
+                size = 0;
+            }
+        }
+
+        /**
+         * Outputs the lines added so far in sorted order.
+         */
+        void output(Consumer<String> output) throws IOException {
+            buffer.sort(comparator);
+            if (runs.isEmpty()) {
+                buffer.forEach(output);
+            } else {
+                merge(output);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            for (Path run : runs) {
+                Files.deleteIfExists(run);
+            }
+            runs.clear();
+        }
+
+        private Path spill() throws IOException {
+            buffer.sort(comparator);
+            Path run = tmpDir != null
+                    ? Files.createTempFile(tmpDir, "gogo-sort", ".tmp")
+                    : Files.createTempFile("gogo-sort", ".tmp");
+            try (BufferedWriter writer = Files.newBufferedWriter(run, StandardCharsets.UTF_8)) {
+                for (String line : buffer) {
+                    // lines do not contain new lines, so no escaping is needed
+                    writer.write(line);
+                    writer.write('\n');
+                }
+            } catch (IOException e) {
+                Files.deleteIfExists(run);
+                throw e;
+            }
+            return run;
+        }
+
+        private void merge(Consumer<String> output) throws IOException {
+            List<BufferedReader> readers = new ArrayList<>();
+            try {
+                // equal lines are output in the order of their runs to keep the sort stable
+                PriorityQueue<Run> queue = new PriorityQueue<>((r1, r2) -> {
+                    int c = comparator.compare(r1.line, r2.line);
+                    return c != 0 ? c : Integer.compare(r1.index, r2.index);
+                });
+                for (Path path : runs) {
+                    BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8);
+                    readers.add(reader);
+                    Run run = new Run(readers.size() - 1, reader::readLine);
+                    if (run.next()) {
+                        queue.add(run);
+                    }
+                }
+                Iterator<String> it = buffer.iterator();
+                Run run = new Run(runs.size(), () -> it.hasNext() ? it.next() : null);
+                if (run.next()) {
+                    queue.add(run);
+                }
+                while (!queue.isEmpty()) {
+                    run = queue.poll();
+                    output.accept(run.line);
+                    if (run.next()) {
+                        queue.add(run);
+                    }
+                }
+            } finally {
+                for (BufferedReader reader : readers) {
+                    reader.close();
+                }
+            }
+        }
+    }
+
+    private interface LineSupplier {
+        String get() throws IOException;
+    }
+
+    private static class Run {
+        final int index;
+        final LineSupplier supplier;
+        String line;
+
+        Run(int index, LineSupplier supplier) {
+            this.index = index;
+            this.supplier = supplier;
+        }
+
+        boolean next() throws IOException {
+            line = supplier.get();
+            return line != null;
+        }
+    }
+}
@@ -30,9 +30,14 @@ import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.PrintStream;
 import java.io.Reader;
+import java.net.URI;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.LinkOption;
 import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.nio.file.StandardWatchEventKinds;
 import java.nio.file.WatchKey;
 import java.nio.file.WatchService;
@@ -44,11 +49,13 @@ import java.time.Instant;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
+import java.util.Deque;
 import java.util.EnumSet;
 import java.util.HashSet;
 import java.util.List;
@@ -57,10 +64,12 @@ import java.util.Objects;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
 import java.util.function.IntBinaryOperator;
@@ -126,6 +135,11 @@ public class Posix {
 
     public static final String DEFAULT_LS_COLORS = "dr=1;91:ex=1;92:sl=1;96:ot=34;43";
     public static final String DEFAULT_GREP_COLORS = "mt=1;31:fn=35:ln=32:se=36";
+    /**
+     * Minimum number of bytes used by <code>sort</code> to hold lines in memory
+     * before spilling them to temporary files.
+     */
+    public static final long DEFAULT_SORT_BUFFER_SIZE = 64L * 1024 * 1024;
 
     private static final LinkOption[] NO_FOLLOW_OPTIONS = new LinkOption[]{LinkOption.NOFOLLOW_LINKS};
     private static final List<String> WINDOWS_EXECUTABLE_EXTENSIONS = Collections.unmodifiableList(Arrays.asList(".bat", ".exe", ".cmd"));
@@ -384,7 +398,7 @@ public class Posix {
             if ("-".equals(arg)) {
                 sources.add(new StdInSource(process));
             } else {
-                sources.add(new PathSource(session.currentDir().resolve(arg), arg));
+                sources.add(new FileSource(session.currentDir().resolve(arg), arg));
             }
         }
         boolean displayLines = opt.isSet("lines");
@@ -428,16 +442,27 @@ public class Posix {
         if (sources.size() > 1 || (sources.size() == 1 && sources.get(0).getName() != null)) {
             format += "  %5$8s";
         }
-        int totalLines = 0;
-        int totalBytes = 0;
-        int totalChars = 0;
-        int totalWords = 0;
+        long totalLines = 0;
+        long totalBytes = 0;
+        long totalChars = 0;
+        long totalWords = 0;
         for (Source src : sources) {
+            if (!displayWords && !displayChars && src instanceof FileSource && ((FileSource) src).isRegularFile()) {
+                // lines and bytes can be counted without decoding the characters
+                try (FileChannel channel = FileChannel.open(((FileSource) src).path, StandardOpenOption.READ)) {
+                    long lines = LargeFiles.countLines(channel);
+                    long bytes = channel.size();
+                    process.out().println(String.format(format, lines, 0L, 0L, bytes, src.getName()));
+                    totalBytes += bytes;
+                    totalLines += lines;
+                }
+                continue;
+            }
             try (InputStream is = src.read()) {
-                AtomicInteger lines = new AtomicInteger();
-                AtomicInteger bytes = new AtomicInteger();
-                AtomicInteger chars = new AtomicInteger();
-                AtomicInteger words = new AtomicInteger();
+                AtomicLong lines = new AtomicLong();
+                AtomicLong bytes = new AtomicLong();
+                AtomicLong chars = new AtomicLong();
+                AtomicLong words = new AtomicLong();
                 AtomicBoolean inWord = new AtomicBoolean();
                 AtomicBoolean lastNl = new AtomicBoolean(true);
                 InputStream isc = new FilterInputStream(is) {
@@ -1008,25 +1033,14 @@ public class Posix {
                 "  -t --field-separator=SEP     use SEP instead of non-blank to blank transition",
                 "  -b --ignore-leading-blanks   ignore leading blancks",
                 "     --numeric-sort            compare according to string numerical value",
-                "  -k --key=KEY                 fields to use for sorting separated by whitespaces"};
+                "  -k --key=KEY                 fields to use for sorting separated by whitespaces",
+                "  -S --buffer-size=SIZE        use SIZE for main memory buffer, in kilobytes unless suffixed by b, K, M or G",
+                "  -T --temporary-directory=DIR use DIR for temporaries"};
 
         Options opt = parseOptions(session, usage, argv);
 
         List<String> args = opt.args();
 
-        List<String> lines = new ArrayList<>();
-        if (!args.isEmpty()) {
-            for (String filename : args) {
-                try (BufferedReader reader = new BufferedReader(new InputStreamReader(
-                        session.currentDir().toUri().resolve(filename).toURL().openStream()))) {
-                    read(reader, lines);
-                }
-            }
-        } else {
-            BufferedReader r = new BufferedReader(new InputStreamReader(process.in()));
-            read(r, lines);
-        }
-
         String separator = opt.get("field-separator");
         boolean caseInsensitive = opt.isSet("ignore-case");
         boolean reverse = opt.isSet("reverse");
@@ -1034,15 +1048,36 @@ public class Posix {
         boolean numeric = opt.isSet("numeric-sort");
         boolean unique = opt.isSet("unique");
         List<String> sortFields = opt.getList("key");
+        long bufferSize = opt.isSet("buffer-size")
+                ? parseSize(opt.get("buffer-size"))
+                : Math.max(DEFAULT_SORT_BUFFER_SIZE, Runtime.getRuntime().maxMemory() / 8);
+        Path tmpDir = opt.isSet("temporary-directory")
+                ? session.currentDir().resolve(opt.get("temporary-directory")) : null;
 
         char sep = (separator == null || separator.length() == 0) ? '\0' : separator.charAt(0);
-        lines.sort(new SortComparator(caseInsensitive, reverse, ignoreBlanks, numeric, sep, sortFields));
-        String last = null;
-        for (String s : lines) {
-            if (!unique || last == null || !s.equals(last)) {
-                process.out().println(s);
+        SortComparator comparator = new SortComparator(caseInsensitive, reverse, ignoreBlanks, numeric, sep, sortFields);
+        // lines are spilled to temporary files when they do not fit in the buffer
+        try (LargeFiles.Sorter sorter = new LargeFiles.Sorter(comparator, bufferSize, tmpDir)) {
+            if (!args.isEmpty()) {
+                for (String filename : args) {
+                    URI uri = session.currentDir().toUri().resolve(filename);
+                    InputStream is = "file".equals(uri.getScheme())
+                            ? LargeFiles.newInputStream(Paths.get(uri)) : uri.toURL().openStream();
+                    try (BufferedReader reader = new BufferedReader(new InputStreamReader(is))) {
+                        read(reader, sorter);
+                    }
+                }
+            } else {
+                BufferedReader r = new BufferedReader(new InputStreamReader(process.in()));
+                read(r, sorter);
             }
-            last = s;
+            AtomicReference<String> last = new AtomicReference<>();
+            sorter.output(s -> {
+                if (!unique || last.get() == null || !s.equals(last.get())) {
+                    process.out().println(s);
+                }
+                last.set(s);
+            });
         }
     }
 
@@ -1620,13 +1655,104 @@ public class Posix {
             if ("-".equals(arg)) {
                 sources.add(new StdInSource(process));
             } else {
-                sources.add(new PathSource(session.currentDir().resolve(arg), arg));
+                sources.add(new FileSource(session.currentDir().resolve(arg), arg));
             }
         }
+        // formats a line for the output and returns the number of occurrences of the pattern
+        class LineFormatter {
+            int format(AttributedStringBuilder sbl, Source source, String line, int lineno, boolean matches) {
+                int nb = 0;
+                if (sources.size() > 1) {
+                    if (colored) {
+                        applyStyle(sbl, colors, "fn");
+                    }
+                    sbl.append(source.getName());
+                    if (colored) {
+                        applyStyle(sbl, colors, "se");
+                    }
+                    sbl.append(":");
+                }
+                if (lineNumber) {
+                    if (colored) {
+                        applyStyle(sbl, colors, "ln");
+                    }
+                    sbl.append(String.format(lineFmt, lineno));
+                    if (colored) {
+                        applyStyle(sbl, colors, "se");
+                    }
+                    sbl.append((matches ^ invertMatch) ? ":" : "-");
+                }
+                String style = matches ^ invertMatch ^ (invertMatch && colors.containsKey("rv"))
+                        ? "sl" : "cx";
+                if (colored) {
+                    applyStyle(sbl, colors, style);
+                }
+                AttributedString aLine = AttributedString.fromAnsi(line);
+                Matcher matcher2 = p2.matcher(aLine.toString());
+                int cur = 0;
+                while (matcher2.find()) {
+                    int index = matcher2.start(0);
+                    AttributedString prefix = aLine.subSequence(cur, index);
+                    sbl.append(prefix);
+                    cur = matcher2.end();
+                    if (colored) {
+                        applyStyle(sbl, colors, invertMatch ? "mc" : "ms", "mt");
+                    }
+                    sbl.append(aLine.subSequence(index, cur));
+                    if (colored) {
+                        applyStyle(sbl, colors, style);
+                    }
+                    nb++;
+                }
+                sbl.append(aLine.subSequence(cur, aLine.length()));
+                return nb;
+            }
+        }
+        LineFormatter formatter = new LineFormatter();
         boolean match = false;
         for (Source source : sources) {
+            if (before == 0 && after == 0 && source instanceof FileSource
+                    && ((FileSource) source).size() > LargeFiles.CHUNK_SIZE) {
+                // large files are matched concurrently by chunks of lines, which are printed in order
+                int selected = 0;
+                int lineno = 1;
+                Deque<Future<GrepChunk>> pending = new ArrayDeque<>();
+                try (FileChannel channel = FileChannel.open(((FileSource) source).path, StandardOpenOption.READ)) {
+                    long[] offsets = LargeFiles.split(channel, LargeFiles.CHUNK_SIZE);
+                    int window = 2 * ForkJoinPool.getCommonPoolParallelism();
+                    int next = 0;
+                    while (next < offsets.length - 1 || !pending.isEmpty()) {
+                        while (next < offsets.length - 1 && pending.size() < window) {
+                            long start = offsets[next];
+                            long end = offsets[++next];
+                            pending.add(ForkJoinPool.commonPool().submit(
+                                    () -> grepChunk(channel, start, end, p, invertMatch)));
+                        }
+                        GrepChunk chunk = pending.poll().get();
+                        selected += chunk.selected.size();
+                        if (!count) {
+                            for (int i = 0; i < chunk.selected.size(); i++) {
+                                AttributedStringBuilder sbl = new AttributedStringBuilder();
+                                formatter.format(sbl, source, chunk.selected.get(i),
+                                        lineno + chunk.indexes.get(i), !invertMatch);
+                                process.out().println(sbl.toAnsi(Shell.getTerminal(session)));
+                            }
+                        }
+                        lineno += chunk.lines;
+                    }
+                } finally {
+                    for (Future<GrepChunk> future : pending) {
+                        future.cancel(true);
+                    }
+                }
+                if (count) {
+                    process.out().println(selected);
+                }
+                match |= selected > 0;
+                continue;
+            }
             boolean firstPrint = true;
-            int nb = 0;
+            int selected = 0;
             int lineno = 1;
             String line;
             int lineMatch = 0;
@@ -1638,51 +1764,10 @@ public class Posix {
                     boolean matches = p.matcher(line).matches();
                     AttributedStringBuilder sbl = new AttributedStringBuilder();
                     if (!count) {
-                        if (sources.size() > 1) {
-                            if (colored) {
-                                applyStyle(sbl, colors, "fn");
-                            }
-                            sbl.append(source.getName());
-                            if (colored) {
-                                applyStyle(sbl, colors, "se");
-                            }
-                            sbl.append(":");
-                        }
-                        if (lineNumber) {
-                            if (colored) {
-                                applyStyle(sbl, colors, "ln");
-                            }
-                            sbl.append(String.format(lineFmt, lineno));
-                            if (colored) {
-                                applyStyle(sbl, colors, "se");
-                            }
-                            sbl.append((matches ^ invertMatch) ? ":" : "-");
-                        }
-                        String style = matches ^ invertMatch ^ (invertMatch && colors.containsKey("rv"))
-                                ? "sl" : "cx";
-                        if (colored) {
-                            applyStyle(sbl, colors, style);
-                        }
-                        AttributedString aLine = AttributedString.fromAnsi(line);
-                        Matcher matcher2 = p2.matcher(aLine.toString());
-                        int cur = 0;
-                        while (matcher2.find()) {
-                            int index = matcher2.start(0);
-                            AttributedString prefix = aLine.subSequence(cur, index);
-                            sbl.append(prefix);
-                            cur = matcher2.end();
-                            if (colored) {
-                                applyStyle(sbl, colors, invertMatch ? "mc" : "ms", "mt");
-                            }
-                            sbl.append(aLine.subSequence(index, cur));
-                            if (colored) {
-                                applyStyle(sbl, colors, style);
-                            }
-                            nb++;
-                        }
-                        sbl.append(aLine.subSequence(cur, aLine.length()));
+                        formatter.format(sbl, source, line, lineno, matches);
                     }
                     if (matches ^ invertMatch) {
+                        selected++;
                         lines.add(sbl.toAnsi(Shell.getTerminal(session)));
                         lineMatch = lines.size();
                     } else {
@@ -1730,14 +1815,35 @@ public class Posix {
                     }
                 }
                 if (count) {
-                    process.out().println(nb);
+                    process.out().println(selected);
                 }
-                match |= nb > 0;
+                match |= selected > 0;
             }
         }
         Process.Utils.current().error(match ? 0 : 1);
     }
 
+    private static GrepChunk grepChunk(FileChannel channel, long start, long end, Pattern p,
+                                       boolean invertMatch) throws IOException {
+        GrepChunk chunk = new GrepChunk();
+        List<String> lines = LargeFiles.lines(channel, start, end, Charset.defaultCharset());
+        chunk.lines = lines.size();
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i);
+            if (p.matcher(line).matches() ^ invertMatch) {
+                chunk.indexes.add(i);
+                chunk.selected.add(line);
+            }
+        }
+        return chunk;
+    }
+
+    private static class GrepChunk {
+        final List<Integer> indexes = new ArrayList<>();
+        final List<String> selected = new ArrayList<>();
+        int lines;
+    }
+
     protected void sleep(CommandSession session, Process process, String[] argv) throws Exception {
         final String[] usage = {
                 "sleep -  suspend execution for an interval of time",
@@ -1760,6 +1866,33 @@ public class Posix {
         }
     }
 
+    private static long parseSize(String size) {
+        long unit = 1024;
+        char suffix = size.isEmpty() ? ' ' : Character.toUpperCase(size.charAt(size.length() - 1));
+        switch (suffix) {
+            case 'B':
+                unit = 1;
+                break;
+            case 'K':
+                break;
+            case 'M':
+                unit = 1024L * 1024;
+                break;
+            case 'G':
+                unit = 1024L * 1024 * 1024;
+                break;
+            default:
+                return Long.parseLong(size) * unit;
+        }
+        return Long.parseLong(size.substring(0, size.length() - 1)) * unit;
+    }
+
+    private static void read(BufferedReader r, LargeFiles.Sorter sorter) throws IOException {
+        for (String s = r.readLine(); s != null; s = r.readLine()) {
+            sorter.add(s);
+        }
+    }
+
     private static void cat(Process process, final BufferedReader reader, boolean displayLineNumbers) throws IOException {
         String line;
         int lineno = 1;
@@ -2148,4 +2281,42 @@ public class Posix {
             return null;
         }
     }
+
+    /**
+     * Source reading a file through the buffered heap streams of
+     * {@link LargeFiles#newInputStream(Path)}.
+     */
+    private static class FileSource implements Source {
+
+        private final Path path;
+        private final String name;
+
+        FileSource(Path path, String name) {
+            this.path = path;
+            this.name = name;
+        }
+
+        boolean isRegularFile() {
+            return Files.isRegularFile(path);
+        }
+
+        long size() throws IOException {
+            return isRegularFile() ? Files.size(path) : -1;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public InputStream read() throws IOException {
+            return LargeFiles.newInputStream(path);
+        }
+
+        @Override
+        public Long lines() {
+            return null;
+        }
+    }
 }
@@ -24,6 +24,8 @@ import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.Reader;
 import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
 
 import org.junit.Test;
 
@@ -101,6 +103,97 @@ public class PosixTest extends AbstractParserTest {
         assertEquals("       1       5       5", res);
     }
 
+    @Test
+    public void testGrepLargeFile() throws Exception {
+        Path file = Files.createTempFile("grep", ".txt");
+        try {
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < 200000; i++) {
+                sb.append("line ").append(i).append('\n');
+            }
+            Files.write(file, sb.toString().getBytes());
+            Context context = new Context();
+            context.addCommand("grep", new Posix(context));
+            context.addCommand("tac", this);
+
+            Object res = context.execute("grep 99999 " + file + " | tac");
+            assertArrayEquals(new String[] { "line 99999", "line 199999" }, res.toString().trim().split("\\r?\\n"));
+            res = context.execute("grep -n 123456 " + file + " | tac");
+            assertEquals("123457:line 123456", res.toString().trim());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testGrepCount() throws Exception {
+        Path small = Files.createTempFile("grep", ".txt");
+        Path large = Files.createTempFile("grep", ".txt");
+        try {
+            Files.write(small, "foo\nbar\nfoo bar\nbaz\n".getBytes());
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < 200000; i++) {
+                sb.append("line ").append(i).append('\n');
+            }
+            Files.write(large, sb.toString().getBytes());
+            Context context = new Context();
+            context.addCommand("grep", new Posix(context));
+            context.addCommand("tac", this);
+
+            Object res = context.execute("grep -c foo " + small + " | tac");
+            assertEquals("2", res.toString().trim());
+            res = context.execute("grep -c -v foo " + small + " | tac");
+            assertEquals("2", res.toString().trim());
+            res = context.execute("grep -c 99999 " + large + " | tac");
+            assertEquals("2", res.toString().trim());
+            res = context.execute("grep -c -v 99999 " + large + " | tac");
+            assertEquals("199998", res.toString().trim());
+        } finally {
+            Files.delete(small);
+            Files.delete(large);
+        }
+    }
+
+    @Test
+    public void testSortSpill() throws Exception {
+        Path file = Files.createTempFile("sort", ".txt");
+        try {
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < 5000; i++) {
+                sb.append(Integer.toString((i * 7919) % 5000, 36)).append('\n');
+            }
+            Files.write(file, sb.toString().getBytes());
+            Context context = new Context();
+            context.addCommand("sort", new Posix(context));
+            context.addCommand("tac", this);
+
+            Object inMemory = context.execute("sort " + file + " | tac");
+            Object spilled = context.execute("sort -S 16K " + file + " | tac");
+            assertEquals(5000, inMemory.toString().trim().split("\\r?\\n").length);
+            assertEquals(inMemory, spilled);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testWcFile() throws Exception {
+        Path file = Files.createTempFile("wc", ".txt");
+        try {
+            Files.write(file, "a b\nc\nd".getBytes());
+            Context context = new Context();
+            context.addCommand("wc", new Posix(context));
+            context.addCommand("tac", this);
+
+            Object res = context.execute("wc -l -c " + file + " | tac");
+            assertEquals("3       7  " + file, res.toString().trim());
+            res = context.execute("wc -w " + file + " | tac");
+            assertEquals("4  " + file, res.toString().trim());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
     public String tac() throws IOException {
         StringWriter sw = new StringWriter();
         Reader rdr = new InputStreamReader(System.in);
@@ -73,20 +73,13 @@ public class Closure implements Function, Evaluate
         this.source = source;
         this.script = session.get("0"); // by convention, $0 is script name
 
-        if (source instanceof Program)
+        try
         {
-            program = (Program) source;
+            this.program = ((CommandProcessorImpl) session.processor()).parse(source);
         }
-        else
+        catch (Exception e)
         {
-            try
-            {
-                this.program = new Parser(source).program();
-            }
-            catch (Exception e)
-            {
-                throw setLocation(e);
-            }
+            throw setLocation(e);
         }
     }
 
@@ -458,9 +451,15 @@ public class Closure implements Function, Evaluate
             errTok2 = tokens.get(2);
         }
 
-        for (Token t : tokens)
+        for (int i = 0; i < tokens.size(); i++)
         {
-            Object v = eval(t, values.isEmpty());
+            Token t = tokens.get(i);
+            // plain words were resolved when the statement was parsed
+            Object v = values.isEmpty() == (i == 0) ? statement.constant(i) : null;
+            if (v == null)
+            {
+                v = eval(t, values.isEmpty());
+            }
 
 //            if ((Token.Type.EXECUTION == t.type) && (tokens.size() == 1)) {
 //                return v;
@@ -34,7 +34,9 @@ import java.util.WeakHashMap;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ExecutorService;
 
+import org.apache.felix.gogo.runtime.Parser.Program;
 import org.apache.felix.service.command.*;
 import org.apache.felix.service.threadio.ThreadIO;
 import org.osgi.annotation.bundle.Capability;
@@ -46,13 +48,30 @@ import org.osgi.namespace.service.ServiceNamespace;
 )
 public class CommandProcessorImpl implements CommandProcessor
 {
+    /**
+     * Number of parsed programs kept, so that scripts and command lines which
+     * are executed repeatedly are only parsed once.
+     */
+    public static final int PROGRAM_CACHE_SIZE = 256;
+
+    /**
+     * Number of platform threads kept by the executor shared by the sessions
+     * using the {@link CommandSessionImpl#EXECUTION_SHARED} execution.
+     */
+    public static final int SHARED_THREADS = 32;
+
     protected final Set<Converter> converters = new CopyOnWriteArraySet<>();
     protected final Set<CommandSessionListener> listeners = new CopyOnWriteArraySet<>();
     protected final ConcurrentMap<String, Map<Object, Integer>> commands = new ConcurrentHashMap<>();
     protected final Map<String, Object> constants = new ConcurrentHashMap<>();
     protected final ThreadIO threadIO;
     protected final WeakHashMap<CommandSession, Object> sessions = new WeakHashMap<>();
+    protected final Map<String, Program> programs = Collections.synchronizedMap(new ProgramCache(PROGRAM_CACHE_SIZE));
     protected boolean stopped;
+    protected volatile String execution = CommandSessionImpl.EXECUTION_THREAD;
+    private ExecutorService sharedExecutor;
+    private ExecutorService virtualExecutor;
+    private boolean virtualUnavailable;
 
     public CommandProcessorImpl()
     {
@@ -115,6 +134,73 @@ public class CommandProcessorImpl implements CommandProcessor
             }
             // Just in case...
             sessions.clear();
+            if (sharedExecutor != null)
+            {
+                sharedExecutor.shutdownNow();
+            }
+            if (virtualExecutor != null)
+            {
+                virtualExecutor.shutdownNow();
+            }
+        }
+    }
+
+    /**
+     * Returns the execution used by sessions which do not set the
+     * {@link CommandSessionImpl#EXECUTION} variable.
+     * @return the default execution
+     */
+    public String getExecution()
+    {
+        return execution;
+    }
+
+    /**
+     * Sets the execution used by sessions which do not set the
+     * {@link CommandSessionImpl#EXECUTION} variable.
+     * @param execution {@link CommandSessionImpl#EXECUTION_THREAD}, {@link CommandSessionImpl#EXECUTION_VIRTUAL}
+     *                  or {@link CommandSessionImpl#EXECUTION_SHARED}
+     */
+    public void setExecution(String execution)
+    {
+        this.execution = execution != null ? execution : CommandSessionImpl.EXECUTION_THREAD;
+    }
+
+    /**
+     * Returns the executor shared by all sessions for the given execution, or
+     * null if the sessions use their own executor.
+     */
+    ExecutorService executor(String execution)
+    {
+        synchronized (sessions)
+        {
+            if (stopped)
+            {
+                throw new IllegalStateException("CommandProcessor has been stopped");
+            }
+            if (CommandSessionImpl.EXECUTION_VIRTUAL.equals(execution))
+            {
+                if (virtualExecutor == null && !virtualUnavailable)
+                {
+                    virtualExecutor = ThreadUtils.newVirtualThreadExecutor("session");
+                    virtualUnavailable = virtualExecutor == null;
+                }
+                if (virtualExecutor != null)
+                {
+                    return virtualExecutor;
+                }
+                // virtual threads are not available, use the shared platform threads
+                execution = CommandSessionImpl.EXECUTION_SHARED;
+            }
+            if (CommandSessionImpl.EXECUTION_SHARED.equals(execution))
+            {
+                if (sharedExecutor == null)
+                {
+                    sharedExecutor = ThreadUtils.newBoundedExecutor("session", SHARED_THREADS);
+                }
+                return sharedExecutor;
+            }
+            return null;
         }
     }
 
@@ -405,6 +491,22 @@ public class CommandProcessorImpl implements CommandProcessor
         }
     }
 
+    public Program parse(CharSequence source)
+    {
+        if (source instanceof Program)
+        {
+            return (Program) source;
+        }
+        String key = source.toString();
+        Program program = programs.get(key);
+        if (program == null)
+        {
+            program = new Parser(source).program();
+            programs.put(key, program);
+        }
+        return program;
+    }
+
     public Object expr(CommandSessionImpl session, CharSequence expr)
     {
         return new Expression(expr.toString()).eval(session.variables);
@@ -419,4 +521,23 @@ public class CommandProcessorImpl implements CommandProcessor
     {
         return session.currentDir().resolve(path);
     }
+
+    private static class ProgramCache extends LinkedHashMap<String, Program>
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final int size;
+
+        ProgramCache(int size)
+        {
+            super(16, 0.75f, true);
+            this.size = size;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Entry<String, Program> eldest)
+        {
+            return size() > size;
+        }
+    }
 }
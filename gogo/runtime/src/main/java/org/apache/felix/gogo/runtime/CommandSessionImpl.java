@@ -67,6 +67,23 @@ public class CommandSessionImpl implements CommandSession, Converter
     public static final String VARIABLES = ".variables";
     public static final String COMMANDS = ".commands";
     public static final String CONSTANTS = ".constants";
+    /**
+     * Variable selecting the threads running the jobs and pipes of the session.
+     */
+    public static final String EXECUTION = ".execution";
+    /**
+     * Jobs run on platform threads owned by the session (the default).
+     */
+    public static final String EXECUTION_THREAD = "thread";
+    /**
+     * Jobs run on virtual threads shared by all sessions, or on the shared
+     * platform threads if virtual threads are not available.
+     */
+    public static final String EXECUTION_VIRTUAL = "virtual";
+    /**
+     * Jobs run on a bounded pool of platform threads shared by all sessions.
+     */
+    public static final String EXECUTION_SHARED = "shared";
     private static final String COLUMN = "%-20s %s\n";
 
     // Streams and channels
@@ -83,7 +100,7 @@ public class CommandSessionImpl implements CommandSession, Converter
     private final List<JobImpl> jobs = new ArrayList<>();
     private JobListener jobListener;
 
-    private final ExecutorService executor;
+    private ExecutorService executor;
 
     private Path currentDir;
     private ClassLoader classLoader;
@@ -91,7 +108,6 @@ public class CommandSessionImpl implements CommandSession, Converter
     protected CommandSessionImpl(CommandProcessorImpl shell, CommandSessionImpl parent)
     {
         this.currentDir = parent.currentDir;
-        this.executor = Executors.newCachedThreadPool(ThreadUtils.namedThreadFactory("session"));
         this.processor = shell;
         this.channels = parent.channels;
         this.in = parent.in;
@@ -104,7 +120,6 @@ public class CommandSessionImpl implements CommandSession, Converter
     protected CommandSessionImpl(CommandProcessorImpl shell, InputStream in, OutputStream out, OutputStream err)
     {
         this.currentDir = Paths.get(System.getProperty("user.dir")).toAbsolutePath().normalize();
-        this.executor = Executors.newCachedThreadPool(ThreadUtils.namedThreadFactory("session"));
         this.processor = shell;
         ReadableByteChannel inCh = Channels.newChannel(in);
         WritableByteChannel outCh = Channels.newChannel(out);
@@ -158,7 +173,51 @@ public class CommandSessionImpl implements CommandSession, Converter
         {
             this.closed = true;
             this.processor.closeSession(this);
-            executor.shutdownNow();
+            ExecutorService executor;
+            synchronized (this)
+            {
+                executor = this.executor;
+            }
+            if (executor != null)
+            {
+                executor.shutdownNow();
+            }
+            // jobs running on shared threads are not stopped by the shutdown
+            List<JobImpl> jobs;
+            synchronized (this.jobs)
+            {
+                jobs = new ArrayList<>(this.jobs);
+            }
+            for (JobImpl job : jobs)
+            {
+                job.interrupt();
+            }
+        }
+    }
+
+    /**
+     * Returns the executor for the execution selected by the {@link #EXECUTION}
+     * variable, or by the processor if the variable is not set.
+     */
+    ExecutorService executor()
+    {
+        Object execution = variables.get(EXECUTION);
+        ExecutorService shared = processor.executor(execution != null ? execution.toString() : processor.getExecution());
+        if (shared != null)
+        {
+            return shared;
+        }
+        synchronized (this)
+        {
+            if (closed)
+            {
+                throw new IllegalStateException(SESSION_CLOSED);
+            }
+            if (executor == null)
+            {
+                executor = Executors.newCachedThreadPool(ThreadUtils.namedThreadFactory("session"));
+            }
+            return executor;
         }
     }
 
@@ -606,6 +665,7 @@ public class CommandSessionImpl implements CommandSession, Converter
         private final List<Job> children = new ArrayList<>();
         private Status status = Status.Created;
         private Future<?> future;
+        private ExecutorService executor;
         private Result result;
 
         public JobImpl(int id, JobImpl parent, CharSequence command)
@@ -796,6 +856,7 @@ public class CommandSessionImpl implements CommandSession, Converter
                 case Created:
                 case Done:
             }
+            executor = executor();
             future = executor.submit(this);
             while (this.status == Status.Foreground)
             {
@@ -25,6 +25,12 @@ import java.util.regex.Pattern;
 public class Parser
 {
 
+    /**
+     * Characters which cause a word to be expanded: variables, expressions,
+     * quotes, escapes, braces, home directory and file name patterns.
+     */
+    private static final String EXPANDED = "%$\\\"'{~*(|<[?";
+
     public static abstract class Executable extends Token
     {
         public Executable(Token cs)
@@ -44,12 +50,23 @@ public class Parser
     {
         private final List<Token> tokens;
         private final List<Token> redirections;
+        private final Object[] constants;
 
         public Statement(Token cs, List<Token> tokens, List<Token> redirections)
         {
             super(cs);
             this.tokens = tokens;
             this.redirections = redirections;
+            this.constants = new Object[tokens.size()];
+            for (int i = 0; i < constants.length; i++)
+            {
+                Token t = tokens.get(i);
+                if (isConstant(t))
+                {
+                    // the command name is converted like any other evaluated value
+                    constants[i] = i == 0 ? org.apache.felix.gogo.runtime.Closure.eval((Object) t) : t;
+                }
+            }
         }
 
         public List<Token> tokens()
@@ -57,6 +74,32 @@ public class Parser
             return tokens;
         }
 
+        /**
+         * Returns the value of the token at the given index if it is a plain
+         * word which needs no expansion, or null if it must be evaluated.
+         * The command name is converted to a number or boolean if possible.
+         */
+        public Object constant(int index)
+        {
+            return constants[index];
+        }
+
+        private static boolean isConstant(Token t)
+        {
+            if (t.getClass() != Token.class)
+            {
+                return false;
+            }
+            for (int i = 0; i < t.length(); i++)
+            {
+                if (EXPANDED.indexOf(t.charAt(i)) >= 0)
+                {
+                    return false;
+                }
+            }
+            return true;
+        }
+
         public List<Token> redirections() {
             return redirections;
         }
@@ -19,6 +19,7 @@
 package org.apache.felix.gogo.runtime;
 
 import java.lang.annotation.Annotation;
+import java.lang.ref.WeakReference;
 import java.lang.reflect.Array;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
@@ -35,6 +36,8 @@ import java.util.LinkedHashSet;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.apache.felix.service.command.CommandSession;
 import org.apache.felix.service.command.Parameter;
@@ -78,15 +81,23 @@ public final class Reflective
             name = "_" + name;
         }
 
-        Set<Class<?>> publicClasses = new LinkedHashSet<>();
-        Set<Class<?>> nonPublicClasses = new LinkedHashSet<>();
-        getClassAndAncestors(publicClasses, nonPublicClasses, target.getClass());
-        List<Method> methods = new ArrayList<>();
-        for (Class<?> cl : publicClasses) {
-            Collections.addAll(methods, cl.getMethods());
-        }
-        for (Class<?> cl : nonPublicClasses) {
-            Collections.addAll(methods, cl.getMethods());
+        Candidates candidates = CANDIDATES.get(target.getClass()).get(org, name, get, is, set);
+        Method[] methods = candidates.methods;
+
+        // try the method that was chosen for the same argument types before
+        Signature signature = candidates.memoizable ? Signature.of(args) : null;
+        if (signature != null)
+        {
+            Method m = candidates.memo.get(signature);
+            if (m != null)
+            {
+                Class<?>[] types = m.getParameterTypes();
+                Object[] parms = new Object[types.length];
+                if (coerce(session, target, m, types, parms, mainArgs(m, org, args)) == 0)
+                {
+                    return invoke(target, m, parms);
+                }
+            }
         }
 
         Method bestMethod = null;
@@ -96,59 +107,40 @@ public final class Reflective
 
         for (Method m : methods)
         {
-            String mname = m.getName().toLowerCase(Locale.ENGLISH);
-            if (mname.equals(name) || mname.equals(get) || mname.equals(set)
-                || mname.equals(is) || mname.equals(MAIN))
-            {
-                Class<?>[] types = m.getParameterTypes();
-                ArrayList<Object> xargs = new ArrayList<>(args);
-
-                // pass command name as argv[0] to main, so it can handle
-                // multiple commands
-                if (mname.equals(MAIN))
-                {
-                    xargs.add(0, org);
-                }
+            Class<?>[] types = m.getParameterTypes();
+            Object[] parms = new Object[types.length];
+            int match = coerce(session, target, m, types, parms, mainArgs(m, org, args));
 
-                Object[] parms = new Object[types.length];
-                int match = coerce(session, target, m, types, parms, xargs);
-
-                if (match < 0)
+            if (match < 0)
+            {
+                // coerce failed
+                possibleTypes.add(types);
+            }
+            else
+            {
+                if (match < lowestMatch)
                 {
-                    // coerce failed
-                    possibleTypes.add(types);
+                    lowestMatch = match;
+                    bestMethod = m;
+                    bestArgs = parms;
                 }
-                else
-                {
-                    if (match < lowestMatch)
-                    {
-                        lowestMatch = match;
-                        bestMethod = m;
-                        bestArgs = parms;
-                    }
 
-                    if (match == 0)
-                        break; // can't get better score
-                }
+                if (match == 0)
+                    break; // can't get better score
             }
         }
 
         if (bestMethod != null)
         {
-            bestMethod.setAccessible(true);
-            try
+            if (signature != null && lowestMatch == 0)
             {
-                return bestMethod.invoke(target, bestArgs);
-            }
-            catch (InvocationTargetException e)
-            {
-                Throwable cause = e.getCause();
-                if (cause instanceof Exception)
+                if (candidates.memo.size() >= MAX_MEMO_SIZE)
                 {
-                    throw (Exception) cause;
+                    candidates.memo.clear();
                 }
-                throw e;
+                candidates.memo.put(signature, bestMethod);
             }
+            return invoke(target, bestMethod, bestArgs);
         }
         else
         {
@@ -204,6 +196,202 @@ public final class Reflective
         }
     }
 
+    private static Object invoke(Object target, Method method, Object[] args) throws Exception
+    {
+        method.setAccessible(true);
+        try
+        {
+            return method.invoke(target, args);
+        }
+        catch (InvocationTargetException e)
+        {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception)
+            {
+                throw (Exception) cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * pass command name as argv[0] to main, so it can handle multiple commands
+     */
+    private static List<Object> mainArgs(Method m, String org, List<Object> args)
+    {
+        ArrayList<Object> xargs = new ArrayList<>(args);
+        if (m.getName().equalsIgnoreCase(MAIN))
+        {
+            xargs.add(0, org);
+        }
+        return xargs;
+    }
+
+    /**
+     * The methods of a class, grouped by command name. Values are kept per
+     * class with a {@link ClassValue}, so they are discarded when the class
+     * is unloaded.
+     */
+    private static final ClassValue<ClassMethods> CANDIDATES = new ClassValue<ClassMethods>()
+    {
+        @Override
+        protected ClassMethods computeValue(Class<?> type)
+        {
+            return new ClassMethods(type);
+        }
+    };
+
+    private static final int MAX_MEMO_SIZE = 64;
+
+    private static final class ClassMethods
+    {
+        private final Method[] methods;
+        private final ConcurrentMap<String, Candidates> candidates = new ConcurrentHashMap<>();
+
+        ClassMethods(Class<?> type)
+        {
+            Set<Class<?>> publicClasses = new LinkedHashSet<>();
+            Set<Class<?>> nonPublicClasses = new LinkedHashSet<>();
+            getClassAndAncestors(publicClasses, nonPublicClasses, type);
+            Set<Method> methods = new LinkedHashSet<>();
+            for (Class<?> cl : publicClasses) {
+                Collections.addAll(methods, cl.getMethods());
+            }
+            for (Class<?> cl : nonPublicClasses) {
+                Collections.addAll(methods, cl.getMethods());
+            }
+            this.methods = methods.toArray(new Method[0]);
+        }
+
+        Candidates get(String org, String name, String get, String is, String set)
+        {
+            Candidates c = candidates.get(org);
+            if (c == null)
+            {
+                List<Method> list = new ArrayList<>();
+                for (Method m : methods)
+                {
+                    String mname = m.getName().toLowerCase(Locale.ENGLISH);
+                    if (mname.equals(name) || mname.equals(get) || mname.equals(set)
+                        || mname.equals(is) || mname.equals(MAIN))
+                    {
+                        list.add(m);
+                    }
+                }
+                c = new Candidates(list.toArray(new Method[0]));
+                Candidates prev = candidates.putIfAbsent(org, c);
+                if (prev != null)
+                {
+                    c = prev;
+                }
+            }
+            return c;
+        }
+    }
+
+    private static final class Candidates
+    {
+        private final Method[] methods;
+        /**
+         * Only methods without {@link Parameter} annotations are chosen based
+         * on the argument types alone.
+         */
+        private final boolean memoizable;
+        private final ConcurrentMap<Signature, Method> memo = new ConcurrentHashMap<>();
+
+        Candidates(Method[] methods)
+        {
+            this.methods = methods;
+            boolean memoizable = true;
+            for (Method m : methods)
+            {
+                for (Annotation[] as : m.getParameterAnnotations())
+                {
+                    for (Annotation a : as)
+                    {
+                        memoizable &= !(a instanceof Parameter);
+                    }
+                }
+            }
+            this.memoizable = memoizable;
+        }
+    }
+
+    /**
+     * The argument types used to look up the method chosen for previous
+     * invocations. The types are weakly referenced so that the memo does not
+     * prevent the classes of the arguments from being unloaded.
+     */
+    private static final class Signature
+    {
+        private static final WeakReference<?> NULL_TYPE = new WeakReference<>(null);
+
+        private final WeakReference<?>[] types;
+        private final int hash;
+
+        private Signature(WeakReference<?>[] types, int hash)
+        {
+            this.types = types;
+            this.hash = hash;
+        }
+
+        /**
+         * @return the signature of the arguments, or null if the choice of
+         * the method also depends on their values.
+         */
+        static Signature of(List<Object> args)
+        {
+            WeakReference<?>[] types = new WeakReference<?>[args.size()];
+            int hash = 1;
+            for (int i = 0; i < types.length; i++)
+            {
+                Object arg = args.get(i);
+                if (arg instanceof Token)
+                {
+                    return null;
+                }
+                Class<?> type = arg != null ? arg.getClass() : null;
+                types[i] = type != null ? new WeakReference<>(type) : NULL_TYPE;
+                hash = 31 * hash + System.identityHashCode(type);
+            }
+            return new Signature(types, hash);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            if (!(obj instanceof Signature))
+            {
+                return false;
+            }
+            Signature other = (Signature) obj;
+            if (hash != other.hash || types.length != other.types.length)
+            {
+                return false;
+            }
+            for (int i = 0; i < types.length; i++)
+            {
+                Object type = types[i].get();
+                if (type != other.types[i].get())
+                {
+                    return false;
+                }
+                // a cleared reference never matches
+                if (type == null && (types[i] != NULL_TYPE || other.types[i] != NULL_TYPE))
+                {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
     private static void getClassAndAncestors(Set<Class<?>> publicClasses, Set<Class<?>> nonPublicClasses, Class<?> aClass)
     {
         for (Class<?> itf : aClass.getInterfaces())
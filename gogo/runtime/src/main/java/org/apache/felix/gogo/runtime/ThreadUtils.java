@@ -16,7 +16,14 @@
  */
 package org.apache.felix.gogo.runtime;
 
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.SynchronousQueue;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 public class ThreadUtils {
@@ -30,6 +37,47 @@ public class ThreadUtils {
         return new NamedThreadFactory(prefix);
     }
 
+    /**
+     * Creates an executor running each task on a new virtual thread.
+     * @param prefix prefix to be used for the names of the threads
+     * @return the executor, or <code>null</code> if virtual threads are not available
+     */
+    public static ExecutorService newVirtualThreadExecutor(String prefix) {
+        try {
+            // Java 21 API, invoked reflectively as the runtime targets older versions
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, prefix + "-virtual-", 1L);
+            ThreadFactory factory = (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+            return (ExecutorService) Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class)
+                    .invoke(null, factory);
+        } catch (Exception | LinkageError e) {
+            return null;
+        }
+    }
+
+    /**
+     * Creates an executor keeping up to the given number of threads. When all
+     * of them are busy, tasks are run on new threads which are not kept, as
+     * the stages of a pipeline must run concurrently and cannot be queued.
+     * @param prefix prefix to be used for the names of the threads
+     * @param threads the maximum number of threads kept
+     * @return the executor
+     */
+    public static ExecutorService newBoundedExecutor(String prefix, int threads) {
+        final ThreadFactory factory = namedThreadFactory(prefix);
+        return new ThreadPoolExecutor(0, threads, 60L, TimeUnit.SECONDS, new SynchronousQueue<Runnable>(), factory,
+            new RejectedExecutionHandler() {
+                @Override
+                public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
+                    if (executor.isShutdown()) {
+                        throw new RejectedExecutionException("Executor has been shut down");
+                    }
+                    factory.newThread(r).start();
+                }
+            });
+    }
+
     private static class NamedThreadFactory implements ThreadFactory {
 
         private static final AtomicInteger poolNumber = new AtomicInteger(1);
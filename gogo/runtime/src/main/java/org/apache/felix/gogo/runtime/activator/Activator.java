@@ -27,6 +27,7 @@ import java.util.concurrent.ConcurrentMap;
 
 import org.apache.felix.gogo.runtime.CommandProcessorImpl;
 import org.apache.felix.gogo.runtime.CommandProxy;
+import org.apache.felix.gogo.runtime.CommandSessionImpl;
 import org.apache.felix.gogo.runtime.threadio.ThreadIOImpl;
 import org.apache.felix.service.command.CommandSessionListener;
 import org.apache.felix.service.command.CommandProcessor;
@@ -54,10 +55,16 @@ public class Activator implements BundleActivator
     private ServiceRegistration<?> threadioRegistration;
 
     public static final String CONTEXT = ".context";
+    /**
+     * Framework property selecting the default execution of the sessions,
+     * see {@link CommandSessionImpl#EXECUTION}.
+     */
+    public static final String EXECUTION = "gogo.execution";
 
     protected ServiceRegistration<?> newProcessor(ThreadIO tio, BundleContext context)
     {
         processor = new CommandProcessorImpl(tio);
+        processor.setExecution(context.getProperty(EXECUTION));
         try
         {
             processor.addListener(new EventAdminListener(context));
@@ -96,11 +96,24 @@ public class ThreadIOImpl implements ThreadIO
             {
                 m = m.previous;
             }
-            current.set(m);
+            set(m);
         }
         return m;
     }
 
+    private void set(Marker m)
+    {
+        if (m == defaultMarker)
+        {
+            // do not keep the marker on pooled or virtual threads
+            current.remove();
+        }
+        else
+        {
+            current.set(m);
+        }
+    }
+
     public void close()
     {
         checkIO(); // derek
@@ -112,7 +125,7 @@ public class ThreadIOImpl implements ThreadIO
         if (top != defaultMarker)
         {
             top.deactivate();
-            this.current.set(top.previous);
+            set(top.previous);
         }
     }
 
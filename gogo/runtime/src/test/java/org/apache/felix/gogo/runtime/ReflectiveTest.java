@@ -68,7 +68,32 @@ public class ReflectiveTest {
                 Collections.<Object>singletonList(conv));
     }
 
+    @Test
+    public void testRepeatedInvocation() throws Exception {
+        // the method chosen for the first invocation must not be reused for other argument types
+        for (int i = 0; i < 3; i++) {
+            assertEquals("string:a", invoke("overloaded", Collections.<Object>singletonList("a")));
+            assertEquals("long:1", invoke("overloaded", Collections.<Object>singletonList(1L)));
+            assertEquals("none", invoke("overloaded", Collections.emptyList()));
+        }
+        // the chosen method is still found when coercion is needed
+        assertEquals("string:x", invoke("overloaded", Collections.<Object>singletonList(new StringBuilder("x"))));
+    }
+
     static class Target {
+        public String overloaded() {
+            return "none";
+        }
+
+        public String overloaded(String s) {
+            return "string:" + s;
+        }
+
+        public String overloaded(long l) {
+            return "long:" + l;
+        }
+
+
         public Object test1(CommandSession session, Object[] argv) {
             return argv;
         }
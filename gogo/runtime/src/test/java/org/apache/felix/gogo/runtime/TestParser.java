@@ -38,6 +38,9 @@ import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.fail;
 
 public class TestParser extends AbstractParserTest
@@ -73,6 +76,32 @@ public class TestParser extends AbstractParserTest
         assertEquals("a", c.execute("((echo a)) | capture"));
     }
 
+    @Test
+    public void testProgramCache() throws Exception
+    {
+        Context c = new Context();
+        c.addCommand("echo", this);
+        c.set("x", "b");
+
+        Program program = c.parse("echo a $x 1");
+        assertSame(program, c.parse(new StringBuilder("echo a $x 1")));
+        assertEquals("a b 1", c.execute("echo a $x 1"));
+        c.set("x", "c");
+        assertEquals("a c 1", c.execute("echo a $x 1"));
+
+        Statement statement = (Statement) program.tokens().get(0);
+        assertEquals("echo", statement.constant(0));
+        assertEquals("a", statement.constant(1).toString());
+        assertNull(statement.constant(2));
+        assertEquals("1", statement.constant(3).toString());
+
+        for (int i = 0; i <= Context.PROGRAM_CACHE_SIZE; i++)
+        {
+            c.parse("echo " + i);
+        }
+        assertNotSame(program, c.parse("echo a $x 1"));
+    }
+
     @Test
     public void testUnknownCommand() throws Exception
     {
@@ -159,6 +188,33 @@ public class TestParser extends AbstractParserTest
 //        assertEquals("defghi", c.execute("(echoout abc; echoout def; echoout ghi)|grep 'def|ghi'|capture"));
     }
 
+    @Test
+    public void testPipeExecution() throws Exception
+    {
+        Context c = new Context();
+        c.addCommand("echo", this);
+        c.addCommand("capture", this);
+        c.addCommand("grep", this);
+        c.addCommand("echoout", this);
+        c.currentDir(null);
+
+        for (String execution : new String[] { CommandSessionImpl.EXECUTION_SHARED,
+            CommandSessionImpl.EXECUTION_VIRTUAL, CommandSessionImpl.EXECUTION_THREAD })
+        {
+            c.set(CommandSessionImpl.EXECUTION, execution);
+            for (int i = 0; i < 10; i++)
+            {
+                assertEquals("def", c.execute("echoout def|grep d.*|capture"));
+            }
+        }
+
+        c.set(CommandSessionImpl.EXECUTION, null);
+        c.setExecution(CommandSessionImpl.EXECUTION_SHARED);
+        assertEquals("def", c.execute("(echoout def)|grep d.*|capture"));
+        assertNotNull(c.executor(CommandSessionImpl.EXECUTION_SHARED));
+        assertNull(c.executor(CommandSessionImpl.EXECUTION_THREAD));
+    }
+
     @Test
     public void testAssignment() throws Exception
     {
@@ -51,7 +51,7 @@ class Candidates
     // Maps a capability to requirements that match it.
     private final OpenHashMapSet<Capability, Requirement> m_dependentMap;
     // Maps a requirement to the capability it matches.
-    private final OpenHashMapList m_candidateMap;
+    private final CandidateSelectorMap m_candidateMap;
     // Maps a bundle revision to its associated wrapped revision; this only happens
     // when a revision being resolved has fragments to attach to it.
     private final Map<Resource, WrappedResource> m_allWrappedHosts;
@@ -70,7 +70,7 @@ class Candidates
         ResolveSession session,
         AtomicBoolean candidateSelectorsUnmodifiable,
         OpenHashMapSet<Capability, Requirement> dependentMap,
-        OpenHashMapList candidateMap,
+        CandidateSelectorMap candidateMap,
         Map<Resource, WrappedResource> wrappedHosts,
         OpenHashMap<Resource, PopulateResult> populateResultCache,
         Map<Capability, Requirement> substitutableMap,
@@ -94,7 +94,7 @@ class Candidates
         m_session = session;
         m_candidateSelectorsUnmodifiable = new AtomicBoolean(false);
         m_dependentMap = new OpenHashMapSet<Capability, Requirement>();
-        m_candidateMap = new OpenHashMapList();
+        m_candidateMap = new CandidateSelectorMap();
         m_allWrappedHosts = new HashMap<Resource, WrappedResource>();
         m_populateResultCache = new OpenHashMap<Resource, PopulateResult>();
         m_subtitutableMap = new OpenHashMap<Capability, Requirement>();
@@ -348,7 +348,7 @@ class Candidates
             {
                 for (Requirement dependent : dependents)
                 {
-                    CandidateSelector candidates = m_candidateMap.get(dependent);
+                    CandidateSelector candidates = m_candidateMap.getForUpdate(dependent);
                     if (candidates != null)
                     {
                         candidates:
@@ -712,7 +712,7 @@ class Candidates
 
     public void removeFirstCandidate(Requirement req)
     {
-        CandidateSelector candidates = m_candidateMap.get(req);
+        CandidateSelector candidates = m_candidateMap.getForUpdate(req);
         // Remove the conflicting candidate.
         Capability cap = candidates.removeCurrentCandidate();
         if (candidates.isEmpty())
@@ -1140,7 +1140,7 @@ class Candidates
                 m_session,
                 m_candidateSelectorsUnmodifiable,
                 m_dependentMap,
-                m_candidateMap.deepClone(),
+                m_candidateMap.copy(),
                 m_allWrappedHosts,
                 m_populateResultCache,
                 m_subtitutableMap,
@@ -1152,7 +1152,7 @@ class Candidates
         // Create set of all revisions from requirements.
         Set<Resource> resources = new CopyOnWriteSet<Resource>();
         for (Entry<Requirement, CandidateSelector> entry
-            : m_candidateMap.entrySet())
+            : m_candidateMap.fast())
         {
             resources.add(entry.getKey().getResource());
         }
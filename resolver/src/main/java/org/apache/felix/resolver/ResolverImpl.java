@@ -45,6 +45,11 @@ public class ResolverImpl implements Resolver
 
     private final Executor m_executor;
 
+    // Package spaces of resolved resources, reused across resolve operations;
+    // keyed by wiring so that a refreshed resource is computed again
+    private final Map<Wiring, WiredPackages> m_wiredPackages =
+        Collections.synchronizedMap(new WeakHashMap<Wiring, WiredPackages>());
+
     enum PermutationType {
         USES,
         IMPORT,
@@ -1165,10 +1170,21 @@ public class ResolverImpl implements Resolver
             executor.await();
         }
 
-        // Parallel get all exported packages
+        // Reuse the package spaces of resolved resources from previous
+        // resolve operations and parallel get all exported packages
+        // for the other ones
+        final Map<Resource, Wiring> wirings = session.getContext().getWirings();
         final OpenHashMap<Resource, Packages> allPackages = new OpenHashMap<Resource, Packages>(allCandidates.getNbResources());
+        final Set<Resource> wiredResources = new HashSet<Resource>();
         for (final Resource resource : allWireCandidates.keySet())
         {
+            Packages wired = getWiredPackages(session, wirings.get(resource), resource, allWireCandidates.get(resource));
+            if (wired != null)
+            {
+                allPackages.put(resource, new Packages(wired));
+                wiredResources.add(resource);
+                continue;
+            }
             final Packages packages = new Packages(resource);
             allPackages.put(resource, packages);
             executor.execute(new Runnable()
@@ -1185,6 +1201,10 @@ public class ResolverImpl implements Resolver
         // Parallel compute package lists
         for (final Resource resource : allWireCandidates.keySet())
         {
+            if (wiredResources.contains(resource))
+            {
+                continue;
+            }
             executor.execute(new Runnable()
             {
                 public void run()
@@ -1203,7 +1223,7 @@ public class ResolverImpl implements Resolver
         {
             final Resource resource = entry.getKey();
             final Packages packages = entry.getValue();
-            if (!packages.m_requiredPkgs.isEmpty())
+            if (!packages.m_requiredPkgs.isEmpty() && !wiredResources.contains(resource))
             {
                 getPackageSourcesInternal(session, allPackages, resource, packages);
             }
@@ -1214,7 +1234,7 @@ public class ResolverImpl implements Resolver
         {
             final Resource resource = entry.getKey();
             final Packages packages = entry.getValue();
-            if (packages.m_sources.isEmpty())
+            if (packages.m_sources.isEmpty() && !wiredResources.contains(resource))
             {
                 executor.execute(new Runnable()
                 {
@@ -1227,6 +1247,20 @@ public class ResolverImpl implements Resolver
         }
         executor.await();
 
+        // Remember the package spaces of resolved resources, without the
+        // uses constraints which are computed for each resolve operation
+        for (Map.Entry<Resource, Packages> entry : allPackages.fast())
+        {
+            Resource resource = entry.getKey();
+            Wiring wiring = wirings.get(resource);
+            if (wiring != null && !wiredResources.contains(resource)
+                && !resource.equals(session.getDynamicHost()))
+            {
+                m_wiredPackages.put(wiring, new WiredPackages(
+                    new Packages(entry.getValue()), allWireCandidates.get(resource).size()));
+            }
+        }
+
         // Parallel compute uses
         for (final Resource resource : allWireCandidates.keySet())
         {
@@ -1243,6 +1277,31 @@ public class ResolverImpl implements Resolver
         return allPackages;
     }
 
+    /**
+     * Returns the package space computed by a previous resolve operation
+     * for the given resolved resource, or null if it must be computed.
+     * The package space of a resolved resource only depends on its
+     * wiring, except when it is dynamically importing. The returned
+     * package space is shared and must not be modified, its uses
+     * constraints are empty.
+     */
+    private Packages getWiredPackages(
+        ResolveSession session, Wiring wiring, Resource resource,
+        List<WireCandidate> wireCandidates)
+    {
+        if (wiring == null || resource.equals(session.getDynamicHost()))
+        {
+            return null;
+        }
+        WiredPackages wired = m_wiredPackages.get(wiring);
+        // a dynamic import adds a wire to an existing wiring
+        if (wired == null || wired.m_wires != wireCandidates.size())
+        {
+            return null;
+        }
+        return wired.m_packages;
+    }
+
     private static List<String> parseUses(String s) {
         int nb = 1;
         int l = s.length();
@@ -2140,7 +2199,28 @@ public class ResolverImpl implements Resolver
                     return new ArrayList<Blame>();
                 }
             };
-            m_usedPkgs = new OpenHashMap<String, ArrayMap<Set<Capability>, UsedBlames>>(128) {
+            m_usedPkgs = createUsedPkgs();
+            m_sources = new OpenHashMap<Capability, Set<Capability>>(nbCaps);
+        }
+
+        /**
+         * Creates a package space sharing the packages of the given one,
+         * which must not be modified anymore, with empty uses constraints.
+         */
+        Packages(Packages packages)
+        {
+            m_exportedPkgs = packages.m_exportedPkgs;
+            m_substitePkgs = packages.m_substitePkgs;
+            m_importedPkgs = packages.m_importedPkgs;
+            m_requiredPkgs = packages.m_requiredPkgs;
+            m_usedPkgs = createUsedPkgs();
+            m_sources = packages.m_sources;
+        }
+
+        @SuppressWarnings("serial")
+        private static OpenHashMap<String, ArrayMap<Set<Capability>, UsedBlames>> createUsedPkgs()
+        {
+            return new OpenHashMap<String, ArrayMap<Set<Capability>, UsedBlames>>(128) {
                 @Override
                 protected ArrayMap<Set<Capability>, UsedBlames> compute(String s) {
                     return new ArrayMap<Set<Capability>, UsedBlames>() {
@@ -2151,7 +2231,18 @@ public class ResolverImpl implements Resolver
                     };
                 }
             };
-            m_sources = new OpenHashMap<Capability, Set<Capability>>(nbCaps);
+        }
+    }
+
+    private static class WiredPackages
+    {
+        private final Packages m_packages;
+        private final int m_wires;
+
+        WiredPackages(Packages packages, int wires)
+        {
+            m_packages = packages;
+            m_wires = wires;
         }
     }
 
@@ -0,0 +1,150 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.resolver.util;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.osgi.resource.Capability;
+import org.osgi.resource.Requirement;
+
+/**
+ * Map of the candidate selectors of a {@code Candidates} permutation.
+ * <p>
+ * Permutations only differ from the permutation they are copied from by a
+ * few selectors, so copies share an immutable base map and only record their
+ * own changes in a small overlay. Copying is proportional to the size of the
+ * overlay; the overlay is merged into a new base once it grows beyond a
+ * fraction of the base.
+ * <p>
+ * Selectors may be shared between copies. A selector must be obtained with
+ * {@link #getForUpdate(Requirement)} before its current candidate is changed.
+ */
+public class CandidateSelectorMap {
+
+    // Marks a requirement which is removed from the shared base
+    private static final CandidateSelector REMOVED = new CandidateSelector(
+            Collections.<Capability>emptyList(), new AtomicBoolean(true));
+
+    private OpenHashMap<Requirement, CandidateSelector> m_base;
+    private OpenHashMap<Requirement, CandidateSelector> m_changes;
+    private boolean m_shared;
+
+    public CandidateSelectorMap() {
+        m_base = new OpenHashMap<Requirement, CandidateSelector>();
+        m_changes = new OpenHashMap<Requirement, CandidateSelector>();
+    }
+
+    private CandidateSelectorMap(OpenHashMap<Requirement, CandidateSelector> base,
+                                 OpenHashMap<Requirement, CandidateSelector> changes) {
+        m_base = base;
+        m_changes = changes;
+        m_shared = true;
+    }
+
+    public CandidateSelector get(Requirement req) {
+        if (!m_changes.isEmpty()) {
+            CandidateSelector selector = m_changes.get(req);
+            if (selector != null) {
+                return selector == REMOVED ? null : selector;
+            }
+        }
+        return m_base.get(req);
+    }
+
+    /**
+     * Returns the selector for the given requirement, copied if necessary so
+     * that it can be changed without affecting other copies of this map.
+     */
+    public CandidateSelector getForUpdate(Requirement req) {
+        CandidateSelector selector = get(req);
+        if (selector != null) {
+            selector = selector.copy();
+            put(req, selector);
+        }
+        return selector;
+    }
+
+    public void put(Requirement req, CandidateSelector selector) {
+        if (m_shared) {
+            m_changes.put(req, selector);
+        } else {
+            m_base.put(req, selector);
+        }
+    }
+
+    public CandidateSelector remove(Requirement req) {
+        if (!m_shared) {
+            return m_base.remove(req);
+        }
+        CandidateSelector selector = get(req);
+        if (m_base.containsKey(req)) {
+            m_changes.put(req, REMOVED);
+        } else {
+            m_changes.remove(req);
+        }
+        return selector;
+    }
+
+    public Iterable<Map.Entry<Requirement, CandidateSelector>> fast() {
+        if (!m_changes.isEmpty()) {
+            merge();
+        }
+        return m_base.fast();
+    }
+
+    public void trim() {
+        if (!m_changes.isEmpty()) {
+            merge();
+        } else if (!m_shared) {
+            m_base.trim();
+        }
+    }
+
+    /**
+     * Creates a copy of this map. The selectors are not copied.
+     */
+    public CandidateSelectorMap copy() {
+        if (m_changes.size() > (m_base.size() >> 3)) {
+            merge();
+        }
+        m_shared = true;
+        return new CandidateSelectorMap(m_base, m_changes.clone());
+    }
+
+    private void merge() {
+        OpenHashMap<Requirement, CandidateSelector> base =
+                new OpenHashMap<Requirement, CandidateSelector>(m_base.size() + m_changes.size());
+        for (Map.Entry<Requirement, CandidateSelector> entry : m_base.fast()) {
+            base.put(entry.getKey(), entry.getValue());
+        }
+        for (Map.Entry<Requirement, CandidateSelector> entry : m_changes.fast()) {
+            if (entry.getValue() == REMOVED) {
+                base.remove(entry.getKey());
+            } else {
+                base.put(entry.getKey(), entry.getValue());
+            }
+        }
+        m_base = base;
+        m_changes = new OpenHashMap<Requirement, CandidateSelector>();
+        m_shared = false;
+    }
+
+}
@@ -20,6 +20,8 @@ package org.apache.felix.resolver.test;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -70,17 +72,23 @@ public class BigResolutionTest {
 
         System.out.println("Running...");
         RunningStat stats = new RunningStat();
+        RunningStat allocStats = new RunningStat();
         for (int i = 1; i <= 100; i++) {
             System.gc();
             Thread.sleep(100);
             System.gc();
             Thread.sleep(100);
+            long a0 = getAllocatedBytes();
             long t0 = System.nanoTime();
             Map<Resource, List<Wire>> newWires = resolver.resolve(rc);
             long t1 = System.nanoTime();
+            long a1 = getAllocatedBytes();
             double dt = (t1 - t0) * 1E-6;
-            System.out.println("Resolver took " + String.format("%7.2f", dt) + " ms");
+            double da = (a1 - a0) / (1024.0 * 1024.0);
+            System.out.println("Resolver took " + String.format("%7.2f", dt) + " ms, allocated "
+                    + String.format("%7.2f", da) + " MB");
             stats.put(dt);
+            allocStats.put(da);
             assertEquals(wires, newWires);
 
             if (i % 10 == 0) {
@@ -91,8 +99,10 @@ public class BigResolutionTest {
                 System.out.println("    Avg:    " + String.format("%7.2f", stats.getAverage()) + " ms");
                 System.out.println("    StdDev: " + String.format("%7" +
                         ".2f", stats.getStdDev() / stats.getAverage() * 100.0) + " %");
+                System.out.println("    Alloc:  " + String.format("%7.2f", allocStats.getAverage()) + " MB");
                 System.out.println();
                 stats = new RunningStat();
+                allocStats = new RunningStat();
             }
         }
 
@@ -118,10 +128,22 @@ public class BigResolutionTest {
         checkResolutions(wiring1, wiring2);
     }
 
-    private ResolveContext buildResolutionContext() throws IOException, BundleException {
+    /**
+     * Returns the bytes allocated by the current thread, or 0 if the
+     * JVM does not support measuring thread allocation.
+     */
+    private static long getAllocatedBytes() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return 0;
+    }
+
+    public static ResolveContext buildResolutionContext() throws IOException, BundleException {
         Object resolution;
 
-        InputStream is = getClass().getClassLoader().getResourceAsStream("resolution.json");
+        InputStream is = BigResolutionTest.class.getClassLoader().getResourceAsStream("resolution.json");
         try {
             resolution = JsonReader.read(is);
         } finally {
@@ -0,0 +1,140 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.resolver.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.felix.resolver.test.util.PackageCapability;
+import org.apache.felix.resolver.test.util.PackageRequirement;
+import org.apache.felix.resolver.test.util.ResourceImpl;
+import org.apache.felix.resolver.util.CandidateSelector;
+import org.apache.felix.resolver.util.CandidateSelectorMap;
+import org.junit.Test;
+import org.osgi.resource.Capability;
+import org.osgi.resource.Requirement;
+
+public class CandidateSelectorMapTest
+{
+    private static final int REQUIREMENTS = 64;
+
+    private final Requirement[] reqs = new Requirement[REQUIREMENTS];
+    private final Capability[][] caps = new Capability[REQUIREMENTS][];
+
+    private final ResourceImpl resource = new ResourceImpl("A");
+
+    private CandidateSelectorMap createMap()
+    {
+        AtomicBoolean unmodifiable = new AtomicBoolean(true);
+        CandidateSelectorMap map = new CandidateSelectorMap();
+        for (int i = 0; i < REQUIREMENTS; i++)
+        {
+            reqs[i] = new PackageRequirement(resource, "p" + i);
+            caps[i] = new Capability[] {
+                new PackageCapability(new ResourceImpl("B"), "p" + i),
+                new PackageCapability(new ResourceImpl("C"), "p" + i)};
+            map.put(reqs[i], new CandidateSelector(Arrays.asList(caps[i]), unmodifiable));
+        }
+        return map;
+    }
+
+    @Test
+    public void testCopyDoesNotChangeParent()
+    {
+        CandidateSelectorMap parent = createMap();
+        CandidateSelectorMap copy = parent.copy();
+
+        assertSame(caps[0][0], copy.getForUpdate(reqs[0]).removeCurrentCandidate());
+        copy.remove(reqs[1]);
+        Requirement added = new PackageRequirement(resource, "q");
+        copy.put(added, new CandidateSelector(Arrays.asList(caps[2]), new AtomicBoolean(true)));
+
+        assertSame(caps[0][1], copy.get(reqs[0]).getCurrentCandidate());
+        assertNull(copy.get(reqs[1]));
+        assertSame(caps[2][0], copy.get(added).getCurrentCandidate());
+        assertSame(caps[0][0], parent.get(reqs[0]).getCurrentCandidate());
+        assertSame(caps[1][0], parent.get(reqs[1]).getCurrentCandidate());
+        assertNull(parent.get(added));
+        assertEntries(parent, 0, REQUIREMENTS);
+    }
+
+    @Test
+    public void testParentDoesNotChangeCopy()
+    {
+        CandidateSelectorMap parent = createMap();
+        CandidateSelectorMap copy = parent.copy();
+
+        assertSame(caps[0][0], parent.getForUpdate(reqs[0]).removeCurrentCandidate());
+        parent.remove(reqs[1]);
+
+        assertSame(caps[0][1], parent.get(reqs[0]).getCurrentCandidate());
+        assertNull(parent.get(reqs[1]));
+        assertSame(caps[0][0], copy.get(reqs[0]).getCurrentCandidate());
+        assertSame(caps[1][0], copy.get(reqs[1]).getCurrentCandidate());
+        assertEntries(copy, 0, REQUIREMENTS);
+    }
+
+    @Test
+    public void testMergedCopies()
+    {
+        CandidateSelectorMap parent = createMap();
+        CandidateSelectorMap copy = parent.copy();
+
+        // enough changes for the next copy to merge them into a new base
+        for (int i = 0; i < REQUIREMENTS / 2; i++)
+        {
+            copy.getForUpdate(reqs[i]).removeCurrentCandidate();
+        }
+        CandidateSelectorMap second = copy.copy();
+        second.getForUpdate(reqs[0]).removeCurrentCandidate();
+        copy.getForUpdate(reqs[REQUIREMENTS - 1]).removeCurrentCandidate();
+
+        assertEntries(parent, 0, REQUIREMENTS);
+        assertEntries(copy, REQUIREMENTS / 2, REQUIREMENTS / 2 - 1);
+        assertSame(caps[REQUIREMENTS - 1][1], copy.get(reqs[REQUIREMENTS - 1]).getCurrentCandidate());
+        assertSame(caps[0][1], copy.get(reqs[0]).getCurrentCandidate());
+        assertNull(second.get(reqs[0]).getCurrentCandidate());
+        assertSame(caps[REQUIREMENTS - 1][0], second.get(reqs[REQUIREMENTS - 1]).getCurrentCandidate());
+    }
+
+    /**
+     * Asserts that the map has a selector for all requirements and that
+     * the given number of them, starting at the given index, still have
+     * their first candidate.
+     */
+    private void assertEntries(CandidateSelectorMap map, int from, int count)
+    {
+        Map<Requirement, CandidateSelector> entries = new HashMap<Requirement, CandidateSelector>();
+        for (Map.Entry<Requirement, CandidateSelector> entry : map.fast())
+        {
+            entries.put(entry.getKey(), entry.getValue());
+        }
+        assertEquals(REQUIREMENTS, entries.size());
+        for (int i = from; i < from + count && i < REQUIREMENTS; i++)
+        {
+            assertSame(caps[i][0], entries.get(reqs[i]).getCurrentCandidate());
+        }
+    }
+}
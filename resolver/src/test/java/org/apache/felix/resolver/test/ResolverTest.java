@@ -19,10 +19,12 @@
 package org.apache.felix.resolver.test;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -32,6 +34,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.felix.resolver.Logger;
 import org.apache.felix.resolver.ResolverImpl;
@@ -923,6 +926,121 @@ public class ResolverTest
         assertEquals("Wrong number of resolved bundles", 9, result.size());
     }
 
+    @Test
+    public void testWiredPackagesReused() throws Exception
+    {
+        ResolverImpl resolver = new ResolverImpl(new Logger(Logger.LOG_DEBUG), 1);
+
+        Map<Resource, Wiring> wirings = new HashMap<Resource, Wiring>();
+        Map<Requirement, List<Capability>> candMap = new HashMap<Requirement, List<Capability>>();
+
+        ResourceImpl a1 = new ResourceImpl("A");
+        Capability a1_pkgCap = addCap(a1, PackageNamespace.PACKAGE_NAMESPACE, "org.foo.a");
+
+        ResourceImpl b1 = new ResourceImpl("B");
+        Requirement b_pkgReq1 = addReq(b1, PackageNamespace.PACKAGE_NAMESPACE, "org.foo.a");
+
+        candMap.put(b_pkgReq1, Collections.singletonList(a1_pkgCap));
+
+        Map<Resource, List<Wire>> wires = new HashMap<Resource, List<Wire>>();
+        wires.put(a1, new ArrayList<Wire>());
+
+        Map<Resource, List<Wire>> invertedWires = new HashMap<Resource, List<Wire>>();
+        invertedWires.put(a1, new ArrayList<Wire>());
+
+        wirings.put(a1, new SimpleWiring(a1, Arrays.asList(a1_pkgCap), wires, invertedWires));
+
+        final AtomicInteger computed = new AtomicInteger();
+        ResolveContextImpl rci = new ResolveContextImpl(wirings, candMap, Collections.<Resource>singletonList(b1), Collections.<Resource> emptyList())
+        {
+            @Override
+            public List<Wire> getSubstitutionWires(Wiring wiring)
+            {
+                computed.incrementAndGet();
+                return super.getSubstitutionWires(wiring);
+            }
+        };
+
+        assertEquals(a1, resolver.resolve(rci).get(b1).get(0).getProvider());
+        assertEquals(1, computed.get());
+
+        // the package space of the resolved resource is reused
+        assertEquals(a1, resolver.resolve(rci).get(b1).get(0).getProvider());
+        assertEquals(1, computed.get());
+
+        // until its wiring is refreshed
+        wirings.put(a1, new SimpleWiring(a1, Arrays.asList(a1_pkgCap), wires, invertedWires));
+        assertEquals(a1, resolver.resolve(rci).get(b1).get(0).getProvider());
+        assertEquals(2, computed.get());
+    }
+
+    @Test
+    public void testWiredPackagesDynamicImport() throws Exception
+    {
+        ResolverImpl resolver = new ResolverImpl(new Logger(Logger.LOG_DEBUG), 1);
+
+        Map<Resource, Wiring> wirings = new HashMap<Resource, Wiring>();
+        Map<Requirement, List<Capability>> candMap = new HashMap<Requirement, List<Capability>>();
+
+        ResourceImpl a1 = new ResourceImpl("A");
+        Capability a1_pkgCap = addCap(a1, PackageNamespace.PACKAGE_NAMESPACE, "org.foo.a", "org.foo.c");
+        Requirement a_pkgReq = addReq(a1, PackageNamespace.PACKAGE_NAMESPACE, "org.foo.c");
+
+        ResourceImpl b1 = new ResourceImpl("B");
+        Capability b1_pkgCap = addCap(b1, PackageNamespace.PACKAGE_NAMESPACE, "org.foo.b");
+        GenericRequirement b_dynReq = (GenericRequirement) addReq(b1, PackageNamespace.PACKAGE_NAMESPACE, "org.foo.a");
+        b_dynReq.addDirective(PackageNamespace.REQUIREMENT_RESOLUTION_DIRECTIVE, PackageNamespace.RESOLUTION_DYNAMIC);
+
+        ResourceImpl c1 = new ResourceImpl("C");
+        Capability c1_pkgCap = addCap(c1, PackageNamespace.PACKAGE_NAMESPACE, "org.foo.c");
+
+        ResourceImpl x1 = new ResourceImpl("X");
+        GenericRequirement x_dynReq = (GenericRequirement) addReq(x1, PackageNamespace.PACKAGE_NAMESPACE, "org.foo.b");
+        x_dynReq.addDirective(PackageNamespace.REQUIREMENT_RESOLUTION_DIRECTIVE, PackageNamespace.RESOLUTION_DYNAMIC);
+
+        candMap.put(x_dynReq, Collections.singletonList(b1_pkgCap));
+
+        Map<Resource, List<Wire>> wires = new HashMap<Resource, List<Wire>>();
+        Map<Resource, List<Wire>> invertedWires = new HashMap<Resource, List<Wire>>();
+        for (Resource resource : Arrays.asList(a1, b1, c1, x1))
+        {
+            wires.put(resource, new ArrayList<Wire>());
+            invertedWires.put(resource, new ArrayList<Wire>());
+        }
+        wires.get(a1).add(new SimpleWire(a_pkgReq, c1_pkgCap));
+        invertedWires.get(c1).add(new SimpleWire(a_pkgReq, c1_pkgCap));
+        // B has already been wired by a previous dynamic import
+        wires.get(b1).add(new SimpleWire(b_dynReq, a1_pkgCap));
+        invertedWires.get(a1).add(new SimpleWire(b_dynReq, a1_pkgCap));
+
+        wirings.put(a1, new SimpleWiring(a1, Arrays.asList(a1_pkgCap), wires, invertedWires));
+        wirings.put(b1, new SimpleWiring(b1, Arrays.asList(b1_pkgCap), wires, invertedWires));
+        wirings.put(c1, new SimpleWiring(c1, Arrays.asList(c1_pkgCap), wires, invertedWires));
+        wirings.put(x1, new SimpleWiring(x1, Collections.<Capability>emptyList(), wires, invertedWires));
+
+        ResolveContextImpl rci = new ResolveContextImpl(wirings, candMap, Collections.<Resource>emptyList(), Collections.<Resource> emptyList());
+
+        // the uses constraints of the dynamic wire of B are merged into its
+        // package space on each resolve, which must not change the package
+        // space reused by the next resolve
+        Field field = ResolverImpl.class.getDeclaredField("m_wiredPackages");
+        field.setAccessible(true);
+        Map<?, ?> wiredPackages = (Map<?, ?>) field.get(resolver);
+        for (int i = 0; i < 5; i++)
+        {
+            Map<Resource, List<Wire>> wireMap = resolver.resolveDynamic(rci, wirings.get(x1), x_dynReq);
+            assertEquals(1, wireMap.size());
+            assertEquals(b1, wireMap.get(x1).get(0).getProvider());
+            assertFalse(wiredPackages.isEmpty());
+            for (Object wired : wiredPackages.values())
+            {
+                Field packages = wired.getClass().getDeclaredField("m_packages");
+                packages.setAccessible(true);
+                assertTrue(((ResolverImpl.Packages) packages.get(wired)).m_usedPkgs.isEmpty());
+            }
+        }
+    }
+
     private ResolveContext populateScenario17(boolean realSubstitute,
         boolean felixResolveContext, boolean existingWirings)
     {
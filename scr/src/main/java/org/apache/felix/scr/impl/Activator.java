@@ -46,6 +46,7 @@ import org.apache.felix.scr.impl.logger.InternalLogger.Level;
 import org.apache.felix.scr.impl.logger.ScrLoggerFactory;
 import org.apache.felix.scr.impl.logger.ScrLogger;
 import org.apache.felix.scr.impl.manager.ComponentHolder;
+import org.apache.felix.scr.impl.metadata.BundleMetadataCache;
 import org.apache.felix.scr.impl.metadata.ComponentMetadata;
 import org.apache.felix.scr.impl.metadata.MetadataStoreHelper.MetaDataReader;
 import org.apache.felix.scr.impl.metadata.MetadataStoreHelper.MetaDataWriter;
@@ -99,12 +100,18 @@ public class Activator extends AbstractExtender
     //  thread acting upon configurations
     private ComponentActorExecutor m_componentActor;
 
+    // threads enabling independent components, created on demand
+    private ComponentActivationExecutor m_activationExecutor;
+
     private ServiceRegistration<ServiceComponentRuntime> m_runtime_reg;
 
     private ComponentCommands m_componentCommands;
 
     private ConcurrentMap<Long, List<ComponentMetadata>> m_componentMetadataStore;
 
+    // per bundle metadata written when parsed, null if not caching metadata
+    private volatile BundleMetadataCache m_bundleMetadataCache;
+
     public Activator()
     {
         m_configuration = new ScrConfigurationImpl( this );
@@ -160,6 +167,8 @@ public class Activator extends AbstractExtender
     {
         m_componentMetadataStore = load(m_context, logger,
             m_configuration.cacheMetadata());
+        m_bundleMetadataCache = createBundleMetadataCache(m_context,
+            m_configuration.cacheMetadata());
         BundleContext context = m_globalContext;
         if ( globalExtender )
         {
@@ -225,7 +234,8 @@ public class Activator extends AbstractExtender
 
         super.doStart();
 
-        m_componentCommands = new ComponentCommands(m_context, m_globalContext, runtime, m_configuration);
+        m_componentCommands = new ComponentCommands(m_context, m_globalContext, runtime, m_configuration,
+            m_componentRegistry.getActivationProfiler());
         if(m_configuration.isCommandsEnabled()) {
             m_componentCommands.register();
         }
@@ -257,7 +267,7 @@ public class Activator extends AbstractExtender
             || eType == BundleEvent.UNINSTALLED
             || eType == BundleEvent.UNRESOLVED)
         {
-            m_componentMetadataStore.remove(event.getBundle().getBundleId());
+            removeCachedMetadata(event.getBundle().getBundleId());
         }
         if (eType == BundleEvent.RESOLVED)
         {
@@ -271,13 +281,88 @@ public class Activator extends AbstractExtender
                     for (BundleWire hostWire : hostWires)
                     {
                         // invalidate any hosts of newly resolved fragments
-                        m_componentMetadataStore.remove(hostWire.getProvider().getBundle().getBundleId());
+                        removeCachedMetadata(hostWire.getProvider().getBundle().getBundleId());
                     }
                 }
             }
         }
     }
 
+    private void removeCachedMetadata(long bundleId)
+    {
+        m_componentMetadataStore.remove(bundleId);
+        BundleMetadataCache bundleMetadataCache = m_bundleMetadataCache;
+        if (bundleMetadataCache != null)
+        {
+            bundleMetadataCache.remove(bundleId);
+        }
+    }
+
+    private static BundleMetadataCache createBundleMetadataCache(
+        BundleContext context, boolean cacheMetadata)
+    {
+        if (!cacheMetadata)
+        {
+            return null;
+        }
+        File directory = context.getDataFile("componentMetadataCache");
+        if (directory == null)
+        {
+            return null;
+        }
+        BundleMetadataCache bundleMetadataCache = new BundleMetadataCache(directory);
+        // drop the entries of bundles uninstalled while SCR was not running
+        Set<Long> bundleIds = new HashSet<>();
+        for (Bundle bundle : context.getBundles())
+        {
+            bundleIds.add(bundle.getBundleId());
+        }
+        bundleMetadataCache.retain(bundleIds);
+        return bundleMetadataCache;
+    }
+
+    /**
+     * Returns the metadata of the bundle from the per bundle cache or
+     * <code>null</code> if the cache has no valid entry for the bundle.
+     */
+    private List<ComponentMetadata> loadCachedMetadata(Bundle bundle)
+    {
+        BundleMetadataCache bundleMetadataCache = m_bundleMetadataCache;
+        if (bundleMetadataCache == null)
+        {
+            return null;
+        }
+        try
+        {
+            return bundleMetadataCache.load(bundle.getBundleId(), bundle.getLastModified());
+        }
+        catch (IOException | RuntimeException e)
+        {
+            logger.log(Level.WARN,
+                "Error loading cached component metadata of {0}.", e, bundle);
+            bundleMetadataCache.remove(bundle.getBundleId());
+            return null;
+        }
+    }
+
+    private void storeCachedMetadata(Bundle bundle, List<ComponentMetadata> metadatas)
+    {
+        BundleMetadataCache bundleMetadataCache = m_bundleMetadataCache;
+        if (bundleMetadataCache == null)
+        {
+            return;
+        }
+        try
+        {
+            bundleMetadataCache.store(bundle.getBundleId(), bundle.getLastModified(), metadatas);
+        }
+        catch (IOException e)
+        {
+            logger.log(Level.WARN,
+                "Error storing cached component metadata of {0}.", e, bundle);
+        }
+    }
+
     private static ConcurrentMap<Long, List<ComponentMetadata>> load(
         BundleContext context,
         ScrLogger logger, boolean loadFromCache)
@@ -434,9 +519,39 @@ public class Activator extends AbstractExtender
             m_componentActor.shutdownNow();
             m_componentActor = null;
         }
+        synchronized ( this )
+        {
+            if ( m_activationExecutor != null )
+            {
+                m_activationExecutor.shutdownNow();
+                m_activationExecutor = null;
+            }
+        }
         ClassUtils.setFrameworkWiring(null);
     }
 
+    /**
+     * Returns the executor used to enable independent components concurrently
+     * or <code>null</code> if components are to be enabled sequentially.
+     */
+    private synchronized ComponentActivationExecutor getActivationExecutor()
+    {
+        final int threads = m_configuration.parallelActivationThreads();
+        if ( threads <= 1 )
+        {
+            return null;
+        }
+        if ( m_activationExecutor == null )
+        {
+            m_activationExecutor = new ComponentActivationExecutor( this.logger, threads );
+        }
+        else
+        {
+            m_activationExecutor.setThreads( threads );
+        }
+        return m_activationExecutor;
+    }
+
     //---------- Component Management -----------------------------------------
 
     @Override
@@ -545,6 +660,16 @@ public class Activator extends AbstractExtender
             return;
         }
 
+        if (cached == null)
+        {
+            // not in the store written at the last stop, e.g. after a crash
+            cached = loadCachedMetadata(bundle);
+            if (cached != null)
+            {
+                m_componentMetadataStore.put(bundleId, cached);
+            }
+        }
+
         // there should be components, load them with a bundle context
         BundleContext context = bundle.getBundleContext();
         if ( context == null )
@@ -606,7 +731,7 @@ public class Activator extends AbstractExtender
         try
         {
             BundleComponentActivator ga = new BundleComponentActivator( this.logger, m_componentRegistry, m_componentActor,
-                context, m_configuration, cached, getTrueCondition());
+                getActivationExecutor(), context, m_configuration, cached, getTrueCondition());
             ga.initialEnable();
             if (cached == null)
             {
@@ -617,6 +742,7 @@ public class Activator extends AbstractExtender
                     metadatas.add(holder.getComponentMetadata());
                 }
                 m_componentMetadataStore.put(bundleId, metadatas);
+                storeCachedMetadata(bundle, metadatas);
             }
             // replace bundle activator in the map
             synchronized ( m_componentBundles )
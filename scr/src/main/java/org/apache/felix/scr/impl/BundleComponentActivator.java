@@ -26,10 +26,14 @@ import java.util.Collections;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.StringTokenizer;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -43,6 +47,7 @@ import org.apache.felix.scr.impl.logger.ComponentLogger;
 import org.apache.felix.scr.impl.logger.InternalLogger.Level;
 import org.apache.felix.scr.impl.logger.ScrLogger;
 import org.apache.felix.scr.impl.manager.AbstractComponentManager;
+import org.apache.felix.scr.impl.manager.ActivationProfiler;
 import org.apache.felix.scr.impl.manager.ComponentActivator;
 import org.apache.felix.scr.impl.manager.ComponentHolder;
 import org.apache.felix.scr.impl.manager.DependencyManager;
@@ -51,6 +56,7 @@ import org.apache.felix.scr.impl.manager.ExtendedServiceListener;
 import org.apache.felix.scr.impl.manager.RegionConfigurationSupport;
 import org.apache.felix.scr.impl.manager.ScrConfiguration;
 import org.apache.felix.scr.impl.metadata.ComponentMetadata;
+import org.apache.felix.scr.impl.metadata.ReferenceMetadata;
 import org.apache.felix.scr.impl.xml.XmlHandler;
 import org.osgi.framework.Bundle;
 import org.osgi.framework.BundleContext;
@@ -60,6 +66,7 @@ import org.osgi.framework.ServiceListener;
 import org.osgi.framework.ServiceReference;
 import org.osgi.service.cm.ConfigurationAdmin;
 import org.osgi.service.component.ComponentException;
+import org.osgi.service.component.ComponentFactory;
 
 /**
  * The BundleComponentActivator is helper class to load and unload Components of
@@ -84,6 +91,9 @@ public class BundleComponentActivator implements ComponentActivator
     // thread acting upon configurations
     private final ScheduledExecutorService m_componentActor;
 
+    // threads enabling independent components, null to enable sequentially
+    private final ComponentActivationExecutor m_activationExecutor;
+
     // true as long as the dispose method is not called
     private final AtomicBoolean m_active = new AtomicBoolean( true );
     private final CountDownLatch m_closeLatch = new CountDownLatch( 1 );
@@ -189,6 +199,8 @@ public class BundleComponentActivator implements ComponentActivator
      * @param componentRegistry The <code>ComponentRegistry</code> used to
      *      register components with to ensure uniqueness of component names
      *      and to ensure configuration updates.
+     * @param activationExecutor The executor used to enable independent
+     *      components concurrently or <code>null</code> to enable them sequentially
      * @param   context  The bundle context owning the components
      * @param serviceReference
      *
@@ -197,6 +209,7 @@ public class BundleComponentActivator implements ComponentActivator
     public BundleComponentActivator(final ScrLogger scrLogger,
             final ComponentRegistry componentRegistry,
             final ScheduledExecutorService componentActor,
+            final ComponentActivationExecutor activationExecutor,
             final BundleContext context,
             final ScrConfiguration configuration,
             final List<ComponentMetadata> cachedComponentMetadata,
@@ -208,6 +221,7 @@ public class BundleComponentActivator implements ComponentActivator
         // keep the parameters for later
         m_componentRegistry = componentRegistry;
         m_componentActor = componentActor;
+        m_activationExecutor = activationExecutor;
         m_context = context;
         m_bundle = context.getBundle();
 
@@ -322,9 +336,110 @@ public class BundleComponentActivator implements ComponentActivator
      * A component might possibly start a thread to enable other components, which could access m_managers
      */
     void initialEnable()
+    {
+        final ComponentActivationExecutor executor = m_activationExecutor;
+        if ( canEnableConcurrently( m_bundle, executor ) )
+        {
+            final List<List<ComponentHolder<?>>> groups = getIndependentGroups( m_holders );
+            if ( groups.size() > 1 )
+            {
+                initialEnable( executor, groups );
+                return;
+            }
+        }
+        initialEnable( m_holders );
+    }
+
+    /**
+     * Returns <code>true</code> if the components of the bundle may be enabled
+     * on the threads of the executor while the calling thread waits for them.
+     * <p>
+     * This is not the case for a thread of the executor, which must not wait
+     * for the executor, and for a bundle being started: a lazily activated
+     * bundle is started while the framework holds the lock of the bundle, so
+     * a component loading a class of the bundle on another thread would wait
+     * for the calling thread which in turn waits for the component.
+     */
+    static boolean canEnableConcurrently(final Bundle bundle, final ComponentActivationExecutor executor)
+    {
+        return executor != null
+            && !executor.isActivationThread()
+            && bundle.getState() != Bundle.STARTING;
+    }
+
+    /**
+     * Enables each group of components on the executor and waits for all
+     * groups to be enabled. The components of a group are enabled in order
+     * by the same thread.
+     */
+    private void initialEnable(final ComponentActivationExecutor executor,
+        final List<List<ComponentHolder<?>>> groups)
+    {
+        logger.log(Level.DEBUG,
+            "BundleComponentActivator : Enabling {0} independent groups of components concurrently", null,
+            groups.size() );
+
+        final List<Future<?>> futures = new ArrayList<>( groups.size() );
+        for ( final List<ComponentHolder<?>> group : groups )
+        {
+            final Runnable task = new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    initialEnable( group );
+                }
+
+                @Override
+                public String toString()
+                {
+                    return "Enable " + group.size() + " components of bundle " + m_bundle.getBundleId();
+                }
+            };
+            try
+            {
+                futures.add( executor.submit( task ) );
+            }
+            catch ( RejectedExecutionException ree )
+            {
+                // executor has been shut down, enable on this thread
+                task.run();
+            }
+        }
+
+        boolean interrupted = false;
+        for ( final Future<?> future : futures )
+        {
+            while ( true )
+            {
+                try
+                {
+                    future.get();
+                    break;
+                }
+                catch ( InterruptedException ie )
+                {
+                    // keep waiting, the groups are enabled in any case
+                    interrupted = true;
+                }
+                catch ( ExecutionException ee )
+                {
+                    logger.log(Level.ERROR,
+                        "BundleComponentActivator : Unexpected failure enabling components", ee.getCause() );
+                    break;
+                }
+            }
+        }
+        if ( interrupted )
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void initialEnable(final List<ComponentHolder<?>> holders)
     {
         //enable all the enabled components
-        for ( ComponentHolder<?> componentHolder : m_holders )
+        for ( ComponentHolder<?> componentHolder : holders )
         {
             logger.log(Level.DEBUG,
                 "BundleComponentActivator : May enable component holder {0}", null,
@@ -368,6 +483,90 @@ public class BundleComponentActivator implements ComponentActivator
         }
     }
 
+    /**
+     * Partitions the component holders into groups of components which may be
+     * enabled independently of each other. Two components are in the same group
+     * if one of them references a service interface provided by the other,
+     * directly or through other components of the group. The order of the
+     * holders is retained within each group.
+     */
+    static List<List<ComponentHolder<?>>> getIndependentGroups(final List<ComponentHolder<?>> holders)
+    {
+        final int size = holders.size();
+        final Map<String, List<Integer>> providers = new HashMap<>();
+        for ( int i = 0; i < size; i++ )
+        {
+            final ComponentMetadata metadata = holders.get( i ).getComponentMetadata();
+            if ( metadata.isFactory() )
+            {
+                addProvider( providers, ComponentFactory.class.getName(), i );
+            }
+            if ( metadata.getServiceMetadata() != null )
+            {
+                for ( final String provide : metadata.getServiceMetadata().getProvides() )
+                {
+                    addProvider( providers, provide, i );
+                }
+            }
+        }
+
+        // union-find over the holder indexes
+        final int[] parent = new int[size];
+        for ( int i = 0; i < size; i++ )
+        {
+            parent[i] = i;
+        }
+        for ( int i = 0; i < size; i++ )
+        {
+            for ( final ReferenceMetadata reference : holders.get( i ).getComponentMetadata().getDependencies() )
+            {
+                final List<Integer> provided = providers.get( reference.getInterface() );
+                if ( provided != null )
+                {
+                    for ( final Integer provider : provided )
+                    {
+                        parent[find( parent, i )] = find( parent, provider );
+                    }
+                }
+            }
+        }
+
+        final Map<Integer, List<ComponentHolder<?>>> groups = new LinkedHashMap<>();
+        for ( int i = 0; i < size; i++ )
+        {
+            final Integer root = find( parent, i );
+            List<ComponentHolder<?>> group = groups.get( root );
+            if ( group == null )
+            {
+                group = new ArrayList<>();
+                groups.put( root, group );
+            }
+            group.add( holders.get( i ) );
+        }
+        return new ArrayList<>( groups.values() );
+    }
+
+    private static void addProvider(final Map<String, List<Integer>> providers, final String service, final int index)
+    {
+        List<Integer> provided = providers.get( service );
+        if ( provided == null )
+        {
+            provided = new ArrayList<>( 1 );
+            providers.put( service, provided );
+        }
+        provided.add( index );
+    }
+
+    private static int find(final int[] parent, int i)
+    {
+        while ( parent[i] != i )
+        {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+        return i;
+    }
+
     /**
      * Finds component descriptors based on descriptor location.
      *
@@ -802,4 +1001,10 @@ public class BundleComponentActivator implements ComponentActivator
     {
         return this.m_trueCondition;
     }
+
+    @Override
+    public ActivationProfiler getActivationProfiler()
+    {
+        return m_componentRegistry.getActivationProfiler();
+    }
 }
@@ -0,0 +1,108 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.scr.impl;
+
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.felix.scr.impl.logger.InternalLogger.Level;
+import org.apache.felix.scr.impl.logger.ScrLogger;
+
+
+/**
+ * The <code>ComponentActivationExecutor</code> is the pool of threads used to
+ * enable independent components of a bundle concurrently if the
+ * {@link org.apache.felix.scr.impl.manager.ScrConfiguration#PROP_PARALLEL_ACTIVATION_THREADS}
+ * configuration is larger than one.
+ */
+class ComponentActivationExecutor extends ThreadPoolExecutor
+{
+
+    private static final AtomicInteger THREAD_COUNTER = new AtomicInteger();
+
+    private static final ThreadFactory THREAD_FACTORY = new ThreadFactory()
+    {
+        @Override
+        public Thread newThread(Runnable r)
+        {
+            Thread thread = new Thread(r, "SCR Component Activator " + THREAD_COUNTER.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    };
+
+    private final ThreadLocal<Boolean> activating = new ThreadLocal<>();
+
+    private final ScrLogger logger;
+
+    ComponentActivationExecutor(final ScrLogger log, final int threads )
+    {
+        super( threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), THREAD_FACTORY );
+        allowCoreThreadTimeOut( true );
+        logger = log;
+    }
+
+    /**
+     * Adjusts the number of threads to a changed configuration.
+     */
+    void setThreads(final int threads)
+    {
+        if ( threads > getMaximumPoolSize() )
+        {
+            setMaximumPoolSize( threads );
+            setCorePoolSize( threads );
+        }
+        else if ( threads < getMaximumPoolSize() )
+        {
+            setCorePoolSize( threads );
+            setMaximumPoolSize( threads );
+        }
+    }
+
+    /**
+     * Returns <code>true</code> if the calling thread is currently executing
+     * a task of this executor. Such a thread must not wait for other tasks of
+     * this executor as that might deadlock once all threads are waiting.
+     */
+    boolean isActivationThread()
+    {
+        return activating.get() != null;
+    }
+
+    @Override
+    protected void beforeExecute(Thread t, Runnable r)
+    {
+        activating.set( Boolean.TRUE );
+        logger.log(Level.DEBUG, "Running task: {0}", null, r);
+    }
+
+    @Override
+    protected void afterExecute(Runnable r, Throwable t)
+    {
+        activating.remove();
+        if (t != null)
+        {
+            logger.log(Level.ERROR, "Unexpected problem executing task {0}", t, r);
+        }
+    }
+}
@@ -38,6 +38,9 @@ import java.util.Map;
 import java.util.SortedMap;
 import java.util.TreeMap;
 
+import org.apache.felix.scr.impl.manager.ActivationProfiler;
+import org.apache.felix.scr.impl.manager.ActivationProfiler.Phase;
+import org.apache.felix.scr.impl.manager.ActivationProfiler.Record;
 import org.apache.felix.scr.impl.manager.ScrConfiguration;
 import org.apache.felix.scr.info.ScrInfo;
 import org.apache.felix.service.command.Converter;
@@ -71,6 +74,7 @@ public class ComponentCommands implements ServiceTrackerCustomizer<Object, Servi
     private final BundleContext context;
     private final ServiceComponentRuntime scr;
     private final ScrConfiguration scrConfig;
+    private final ActivationProfiler profiler;
     private final ServiceTracker<Object, ServiceRegistration<?>> gogoRuntimeTracker;
 
     private final Comparator<ComponentConfigurationDTO> configDtoComparator = new Comparator<ComponentConfigurationDTO>() {
@@ -105,7 +109,8 @@ public class ComponentCommands implements ServiceTrackerCustomizer<Object, Servi
                 "disable",
                 "enable",
                 "info",
-                "list"
+                "list",
+                "profile"
         });
         svcProps.put(Constants.SERVICE_DESCRIPTION, "SCR Gogo Shell Support");
         svcProps.put(Constants.SERVICE_VENDOR, "The Apache Software Foundation");
@@ -134,11 +139,12 @@ public class ComponentCommands implements ServiceTrackerCustomizer<Object, Servi
         }
     }
 
-    protected ComponentCommands(BundleContext context, BundleContext globalContext, ServiceComponentRuntime scr, ScrConfiguration scrConfig) {
+    protected ComponentCommands(BundleContext context, BundleContext globalContext, ServiceComponentRuntime scr, ScrConfiguration scrConfig, ActivationProfiler profiler) {
         this.context = context;
         this.globalContext = globalContext;
         this.scr = scr;
         this.scrConfig = scrConfig;
+        this.profiler = profiler;
         this.gogoRuntimeTracker = new ServiceTracker<>(context, "org.apache.felix.service.command.CommandProcessor", this);
     }
 
@@ -236,12 +242,91 @@ public class ComponentCommands implements ServiceTrackerCustomizer<Object, Servi
         out.put("Stop timeout ms", Long.toString(scrConfig.stopTimeout()));
         out.put("Global extender", Boolean.toString(scrConfig.globalExtender()));
         out.put("Info Service registered", scrConfig.infoAsService() ? "Supported" : "Unsupported");
+        out.put("Activation profile size", Integer.toString(scrConfig.activationProfileSize()));
 
         StringBuilder builder = new StringBuilder();
         printColumnsAligned("SCR Configuration", out, '=', builder);
         return builder.toString();
     }
 
+    @Descriptor("Show the recorded activation phases per component")
+    public String profile() {
+        return profile("text");
+    }
+
+    @Descriptor("Show the recorded activation phases per component")
+    public String profile(@Descriptor("Output format: text or json, or clear to remove the recorded phases") String format) {
+        if ("clear".equalsIgnoreCase(format)) {
+            profiler.clear();
+            return "Activation profile cleared";
+        }
+        if ("json".equalsIgnoreCase(format)) {
+            return profiler.toJson();
+        }
+        if (!"text".equalsIgnoreCase(format)) {
+            throw new IllegalArgumentException(MessageFormat.format("Unknown format \"{0}\", expected text, json or clear.", format));
+        }
+        final List<Record> records = profiler.getRecords();
+        if (records.isEmpty()) {
+            return profiler.isEnabled() ? "No activation phases recorded"
+                    : "Activation profiling is disabled, set " + ScrConfiguration.PROP_ACTIVATION_PROFILE_SIZE + " to enable it";
+        }
+        return formatProfile(records);
+    }
+
+    /**
+     * Formats the phases recorded per component configuration, ordered by the
+     * end of the last phase. The components at the end of the list delayed the
+     * startup the most.
+     */
+    static String formatProfile(List<Record> records) {
+        final Map<String, long[]> components = new LinkedHashMap<>();
+        final Phase[] phases = Phase.values();
+        for (Record r : records) {
+            final String key = r.getComponentId() + " " + r.getName();
+            long[] times = components.get(key);
+            if (times == null) {
+                // start, end, phase durations
+                times = new long[2 + phases.length];
+                times[0] = r.getStart();
+                times[1] = r.getEnd();
+                components.put(key, times);
+            }
+            times[0] = Math.min(times[0], r.getStart());
+            times[1] = Math.max(times[1], r.getEnd());
+            times[2 + r.getPhase().ordinal()] += r.getDuration();
+        }
+        final List<Map.Entry<String, long[]>> entries = new ArrayList<>(components.entrySet());
+        Collections.sort(entries, new Comparator<Map.Entry<String, long[]>>() {
+            @Override
+            public int compare(Map.Entry<String, long[]> e1, Map.Entry<String, long[]> e2) {
+                return Long.compare(e1.getValue()[1], e2.getValue()[1]);
+            }
+        });
+
+        final StringBuilder builder = new StringBuilder();
+        final String title = String.format("Activation Profile (%d phases, times in ms)", records.size());
+        builder.append(title).append('\n');
+        final char[] underline = new char[title.length()];
+        Arrays.fill(underline, '=');
+        builder.append(underline).append('\n');
+        builder.append(String.format("%10s %10s", "Start", "End"));
+        for (Phase phase : phases) {
+            builder.append(String.format(" %10s", phase.name().toLowerCase()));
+        }
+        builder.append(String.format("  %s", "Id Component"));
+        for (Map.Entry<String, long[]> e : entries) {
+            final long[] times = e.getValue();
+            builder.append('\n');
+            builder.append(String.format("%10.3f %10.3f", times[0] / 1e6, times[1] / 1e6));
+            for (int i = 0; i < phases.length; i++) {
+                builder.append(String.format(" %10.3f", times[2 + i] / 1e6));
+            }
+            builder.append("  ").append(e.getKey());
+        }
+        return builder.toString();
+    }
+
     public Object convert(Class<?> desiredType, Object in) throws Exception {
         return null;
     }
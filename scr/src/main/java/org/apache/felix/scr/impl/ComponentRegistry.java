@@ -41,6 +41,7 @@ import org.apache.felix.scr.impl.logger.ComponentLogger;
 import org.apache.felix.scr.impl.logger.InternalLogger.Level;
 import org.apache.felix.scr.impl.logger.ScrLogger;
 import org.apache.felix.scr.impl.manager.AbstractComponentManager;
+import org.apache.felix.scr.impl.manager.ActivationProfiler;
 import org.apache.felix.scr.impl.manager.ComponentActivator;
 import org.apache.felix.scr.impl.manager.ComponentHolder;
 import org.apache.felix.scr.impl.manager.ConfigurableComponentHolder;
@@ -135,6 +136,8 @@ public class ComponentRegistry
 
     private final UpdateChangeCountProperty m_updateChangeCountPropertyTask;
 
+    private final ActivationProfiler m_activationProfiler;
+
     public ComponentRegistry(final ScrConfiguration scrConfiguration, final ScrLogger logger, final ScheduledExecutorService componentActor )
     {
         m_configuration = scrConfiguration;
@@ -144,6 +147,7 @@ public class ComponentRegistry
         m_componentHoldersByName = new HashMap<>();
         m_componentHoldersByPid = new HashMap<>();
         m_componentsById = new HashMap<>();
+        m_activationProfiler = new ActivationProfiler( scrConfiguration );
     }
 
     //---------- ComponentManager registration by component Id
@@ -664,6 +668,18 @@ public class ComponentRegistry
             {
                 return ComponentRegistry.this.getComponentHoldersByPid(pid);
             }
+
+            @Override
+            protected long getConfigurationCoalesceDelay()
+            {
+                return m_configuration.configurationCoalesceDelay();
+            }
+
+            @Override
+            protected ScheduledExecutorService getComponentActor()
+            {
+                return m_componentActor;
+            }
         };
         return registerRegionConfigurationSupport(trialRcs);
     }
@@ -719,11 +735,29 @@ public class ComponentRegistry
         m_updateChangeCountPropertyTask.schedule();
     }
 
+    /**
+     * Returns the profiler recording the activation phases of components.
+     */
+    public ActivationProfiler getActivationProfiler()
+    {
+        return m_activationProfiler;
+    }
+
     public void updateChangeCount()
     {
         m_updateChangeCountPropertyTask.updateChangeCount();
     }
 
+    /**
+     * Returns the current value of the <code>service.changecount</code>
+     * property of the <code>ServiceComponentRuntime</code> service. The
+     * registered property may lag behind as it is updated asynchronously.
+     */
+    public long getChangeCount()
+    {
+        return m_updateChangeCountPropertyTask.getChangeCount();
+    }
+
     static class UpdateChangeCountProperty implements Runnable {
         // TODO 1 seems really low?  
         private static final long MIN_ALLOWED_DELAY = 1;
@@ -772,6 +806,10 @@ public class ComponentRegistry
             this.changeCount.incrementAndGet();
             schedule();
         }
+
+        long getChangeCount() {
+            return this.changeCount.get();
+        }
         synchronized void schedule()
         {
             // reset noChangesCount to ensure task runs at least once more if it exists
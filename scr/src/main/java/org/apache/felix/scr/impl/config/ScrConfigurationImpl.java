@@ -95,6 +95,14 @@ public class ScrConfigurationImpl implements ScrConfiguration
 
     private long serviceChangecountTimeout = DEFAULT_SERVICE_CHANGECOUNT_TIMEOUT_MILLISECONDS;
 
+    private int parallelActivationThreads;
+
+    private int activationProfileSize;
+
+    private long configurationCoalesceDelay;
+
+    private boolean lazyReferences;
+
     private Boolean globalExtender;
 
     private volatile BundleContext bundleContext;
@@ -187,6 +195,10 @@ public class ScrConfigurationImpl implements ScrConfiguration
                         isLogEnabled = true;
                         isLogExtensionEnabled = false;
                         commandsEnabled = true;
+                        parallelActivationThreads = 0;
+                        activationProfileSize = 0;
+                        configurationCoalesceDelay = 0;
+                        lazyReferences = false;
                     }
                     else
                     {
@@ -202,6 +214,10 @@ public class ScrConfigurationImpl implements ScrConfiguration
                         isLogEnabled = getDefaultLogEnabled();
                         isLogExtensionEnabled = getDefaultLogExtension();
                         commandsEnabled = getDefaultCommandsEnabled();
+                        parallelActivationThreads = getDefaultParallelActivationThreads();
+                        activationProfileSize = getDefaultActivationProfileSize();
+                        configurationCoalesceDelay = getDefaultConfigurationCoalesceDelay();
+                        lazyReferences = getDefaultLazyReferences();
                     }
                 }
                 else
@@ -226,6 +242,10 @@ public class ScrConfigurationImpl implements ScrConfiguration
                 isLogExtensionEnabled = VALUE_TRUE.equalsIgnoreCase(String.valueOf(config.get(PROP_LOG_EXTENSION)));
                 Object cmdEnabled =  config.get( PROP_COMMANDS_ENABLED );
                 commandsEnabled=cmdEnabled == null ? true : VALUE_TRUE.equalsIgnoreCase(cmdEnabled.toString());
+                parallelActivationThreads = getInt( config.get( PROP_PARALLEL_ACTIVATION_THREADS ) );
+                activationProfileSize = getInt( config.get( PROP_ACTIVATION_PROFILE_SIZE ) );
+                configurationCoalesceDelay = getInt( config.get( PROP_CONFIGURATION_COALESCE ) );
+                lazyReferences = VALUE_TRUE.equalsIgnoreCase( String.valueOf( config.get( PROP_LAZY_REFERENCES ) ) );
             }
             if ( scrCommand != null )
             {
@@ -302,6 +322,30 @@ public class ScrConfigurationImpl implements ScrConfiguration
         return serviceChangecountTimeout;
     }
 
+    @Override
+    public int parallelActivationThreads()
+    {
+        return parallelActivationThreads;
+    }
+
+    @Override
+    public int activationProfileSize()
+    {
+        return activationProfileSize;
+    }
+
+    @Override
+    public long configurationCoalesceDelay()
+    {
+        return configurationCoalesceDelay;
+    }
+
+    @Override
+    public boolean lazyReferences()
+    {
+        return lazyReferences;
+    }
+
     private boolean getDefaultFactoryEnabled()
     {
         return VALUE_TRUE.equals( bundleContext.getProperty( PROP_FACTORY_ENABLED ) );
@@ -365,6 +409,46 @@ public class ScrConfigurationImpl implements ScrConfiguration
             bundleContext.getProperty(PROP_CACHE_METADATA));
     }
 
+    private int getDefaultParallelActivationThreads()
+    {
+        return getInt( bundleContext.getProperty( PROP_PARALLEL_ACTIVATION_THREADS ) );
+    }
+
+    private int getDefaultActivationProfileSize()
+    {
+        return getInt( bundleContext.getProperty( PROP_ACTIVATION_PROFILE_SIZE ) );
+    }
+
+    private long getDefaultConfigurationCoalesceDelay()
+    {
+        return getInt( bundleContext.getProperty( PROP_CONFIGURATION_COALESCE ) );
+    }
+
+    private boolean getDefaultLazyReferences()
+    {
+        return VALUE_TRUE.equalsIgnoreCase( bundleContext.getProperty( PROP_LAZY_REFERENCES ) );
+    }
+
+    private int getInt(final Object intObject)
+    {
+        if ( intObject instanceof Number )
+        {
+            return ((Number) intObject).intValue();
+        }
+        if ( intObject != null )
+        {
+            try
+            {
+                return Integer.parseInt( intObject.toString().trim() );
+            }
+            catch ( NumberFormatException nfe )
+            {
+                // ignore and use the default
+            }
+        }
+        return 0;
+    }
+
     private Level getLogLevel(final Object levelObject)
     {
         if ( levelObject != null )
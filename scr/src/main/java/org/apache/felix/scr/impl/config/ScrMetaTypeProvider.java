@@ -129,6 +129,41 @@ class ScrMetaTypeProvider implements MetaTypeProvider
                 "Whether to enable the Felix SCR commands. If set to false, the commands will not be registered and thus not available.",
                 true ) );
 
+        adList.add( new AttributeDefinitionImpl(
+                ScrConfiguration.PROP_PARALLEL_ACTIVATION_THREADS,
+                "Parallel Activation Threads",
+                "Number of threads used to enable the components of a bundle which do not reference each other "
+                    + "concurrently. A value of 1 or less enables the components sequentially.",
+                AttributeDefinition.INTEGER,
+                new String[] { String.valueOf(this.configuration.parallelActivationThreads())},
+                0, null, null) );
+
+        adList.add( new AttributeDefinitionImpl(
+                ScrConfiguration.PROP_ACTIVATION_PROFILE_SIZE,
+                "Activation Profile Size",
+                "Number of component activation phases recorded with their duration for the scr:profile command. "
+                    + "A value of 0 disables profiling.",
+                AttributeDefinition.INTEGER,
+                new String[] { String.valueOf(this.configuration.activationProfileSize())},
+                0, null, null) );
+
+        adList.add( new AttributeDefinitionImpl(
+                ScrConfiguration.PROP_CONFIGURATION_COALESCE,
+                "Configuration Coalesce Delay",
+                "Time in milliseconds during which configuration events are collected before they are applied, "
+                    + "so that a component is reconfigured once for a burst of events. A value of 0 applies each "
+                    + "event immediately.",
+                AttributeDefinition.LONG,
+                new String[] { String.valueOf(this.configuration.configurationCoalesceDelay())},
+                0, null, null) );
+
+        adList.add( new AttributeDefinitionImpl(
+                ScrConfiguration.PROP_LAZY_REFERENCES,
+                "Lazy References",
+                "Whether delayed components check their references against the service registry when enabled "
+                    + "and only track the referenced services once they are first used.",
+                this.configuration.lazyReferences() ) );
+
         return new ObjectClassDefinition()
         {
 
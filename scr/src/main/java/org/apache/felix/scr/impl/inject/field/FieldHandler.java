@@ -19,12 +19,14 @@
 package org.apache.felix.scr.impl.inject.field;
 
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Modifier;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.CopyOnWriteArrayList;
@@ -59,6 +61,11 @@ public class FieldHandler
     /** The field used for the injection. */
     private volatile Field field;
 
+    /** Handles to set and get the field, null if reflection is used. */
+    private volatile MethodHandle setter;
+
+    private volatile MethodHandle getter;
+
     /** Value type. */
     private volatile ValueType valueType;
 
@@ -173,12 +180,8 @@ public class FieldHandler
 
     private Collection<Object> getReplaceCollection(final BindParameters bp)
     {
-        final List<Object> objects = new ArrayList<>();
-        for(final Object val : bp.getComponentContext().getBoundValues(metadata.getName()).values())
-        {
-            objects.add(val);
-        }
-        return objects;
+        // a new collection is required for the replace strategy, copy in one step
+        return new ArrayList<>(bp.getComponentContext().getBoundValues(metadata.getName()).values());
     }
 
     private MethodResult updateField(final METHOD_TYPE mType,
@@ -321,6 +324,19 @@ public class FieldHandler
     private void setFieldValue(final Object componentInstance, final Object value)
     throws InvocationTargetException
     {
+        final MethodHandle setter = this.setter;
+        if ( setter != null )
+        {
+            try
+            {
+                setter.invokeExact(componentInstance, value);
+            }
+            catch ( final Throwable t )
+            {
+                throw new InvocationTargetException(t);
+            }
+            return;
+        }
         try
         {
             field.set(componentInstance, value);
@@ -338,6 +354,18 @@ public class FieldHandler
     private Object getFieldValue(final Object componentInstance)
     throws InvocationTargetException
     {
+        final MethodHandle getter = this.getter;
+        if ( getter != null )
+        {
+            try
+            {
+                return (Object) getter.invokeExact(componentInstance);
+            }
+            catch ( final Throwable t )
+            {
+                throw new InvocationTargetException(t);
+            }
+        }
         try
         {
             return field.get(componentInstance);
@@ -468,6 +496,8 @@ public class FieldHandler
         if (result == null)
         {
             field = null;
+            setter = null;
+            getter = null;
             valueType = null;
             state = NotFound.INSTANCE;
             // TODO - will component really fail?
@@ -477,6 +507,7 @@ public class FieldHandler
         else
         {
             field = result.field;
+            createHandles(result.field);
             if (!result.usable)
             {
                 valueType = ValueType.ignore;
@@ -492,6 +523,34 @@ public class FieldHandler
         }
     }
 
+    /**
+     * Create the method handles for the (accessible) field. If a handle
+     * cannot be created, for example for a final field, the field is
+     * accessed by reflection.
+     */
+    private void createHandles(final Field field)
+    {
+        final MethodHandles.Lookup lookup = MethodHandles.lookup();
+        try
+        {
+            getter = lookup.unreflectGetter(field)
+                .asType(MethodType.methodType(Object.class, Object.class));
+        }
+        catch ( final IllegalAccessException | RuntimeException e )
+        {
+            getter = null;
+        }
+        try
+        {
+            setter = lookup.unreflectSetter(field)
+                .asType(MethodType.methodType(void.class, Object.class, Object.class));
+        }
+        catch ( final IllegalAccessException | RuntimeException e )
+        {
+            setter = null;
+        }
+    }
+
     public static final class ReferenceMethodImpl
         implements ReferenceMethod
     {
@@ -20,6 +20,7 @@ package org.apache.felix.scr.impl.inject.internal;
 
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
@@ -53,6 +54,26 @@ public class Annotations
         }
     }
 
+    /** The members and the generated implementation per property type */
+    private static final ClassValue<PropertyType> PROPERTY_TYPES = new ClassValue<PropertyType>()
+    {
+        @Override
+        protected PropertyType computeValue(final Class<?> type)
+        {
+            final List<Method> methods = new ArrayList<>();
+            for ( final Method method : type.getMethods() )
+            {
+                if ( !Modifier.isStatic(method.getModifiers()) && !isAnnotationMethod(method) )
+                {
+                    methods.add(method);
+                }
+            }
+            final PropertyTypeBase.Members members = new PropertyTypeBase.Members(type,
+                methods.toArray(new Method[methods.size()]));
+            return new PropertyType(members, PropertyTypeGenerator.generate(members));
+        }
+    };
+
     /** Constant for the single element method */
     private static final String VALUE_METHOD = "value";
 
@@ -76,17 +97,7 @@ public class Annotations
             for ( final Method method: clazz.getMethods() )
             {
                 // filter out methods from Annotation
-                boolean isFromAnnotation = false;
-                for(final Method objMethod : ANNOTATION_METHODS)
-                {
-                    if ( objMethod.getName().equals(method.getName())
-                      && Arrays.equals(objMethod.getParameterTypes(), method.getParameterTypes()) )
-                    {
-                        isFromAnnotation = true;
-                        break;
-                    }
-                }
-                if ( isFromAnnotation )
+                if ( isAnnotationMethod(method) )
                 {
                     continue;
                 }
@@ -111,6 +122,22 @@ public class Annotations
         return result;
     }
 
+    /**
+     * Check whether the method is one of the methods defined by {@link Annotation}.
+     */
+    private static boolean isAnnotationMethod(final Method method)
+    {
+        for(final Method objMethod : ANNOTATION_METHODS)
+        {
+            if ( objMethod.getName().equals(method.getName())
+              && Arrays.equals(objMethod.getParameterTypes(), method.getParameterTypes()) )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
     static public String getPrefix(Class<?> clazz)
     {
         try
@@ -135,15 +162,27 @@ public class Annotations
         return null;
     }
 
-    @SuppressWarnings("unchecked")
 	static public <T> T toObject(Class<T> clazz, Map<String, Object> props, Bundle b, boolean supportsInterfaces )
+    {
+        return toObject(clazz, props, b, supportsInterfaces, true);
+    }
+
+    /**
+     * Creates the property type instance, using a generated class if
+     * <code>generate</code> is <code>true</code> and a class could be generated
+     * for the property type, and a dynamic proxy otherwise.
+     */
+    @SuppressWarnings("unchecked")
+    static <T> T toObject(Class<T> clazz, Map<String, Object> props, Bundle b, boolean supportsInterfaces, boolean generate )
     {
         final boolean isSingleElementAnn = isSingleElementAnnotation(clazz);
         final String prefix = getPrefix(clazz);
         final Map<String, Object> m = new HashMap<>();
 
+        final PropertyType propertyType = PROPERTY_TYPES.get(clazz);
+
         final Map<String, Method> complexFields = new HashMap<>();
-        for ( final Method method: clazz.getMethods() )
+        for ( final Method method: propertyType.members.methods )
         {
             final String name = method.getName();
             final String mapped;
@@ -210,7 +249,7 @@ public class Annotations
                         for (int i = 0; i < proplist.size(); i++)
                         {
                             Map<String, Object> rawElement = proplist.get(i);
-                            Object cooked = toObject(componentType, rawElement, b, supportsInterfaces);
+                            Object cooked = toObject(componentType, rawElement, b, supportsInterfaces, generate);
                             Array.set(result, i, cooked);
                         }
                         m.put(method.getName(), result);
@@ -219,7 +258,7 @@ public class Annotations
                     {
                         if (!proplist.isEmpty())
                         {
-                            Object cooked = toObject(returnType, proplist.get(0), b, supportsInterfaces);
+                            Object cooked = toObject(returnType, proplist.get(0), b, supportsInterfaces, generate);
                             m.put(method.getName(), cooked);
                         }
                     }
@@ -234,6 +273,41 @@ public class Annotations
             }
         }
 
+        if ( generate && propertyType.constructor != null )
+        {
+            final Method[] methods = propertyType.members.methods;
+            final Object[] values = new Object[methods.length];
+            String[] invalid = null;
+            for ( int i = 0; i < methods.length; i++ )
+            {
+                Object value = m.get(methods[i].getName());
+                if ( value instanceof Invalid )
+                {
+                    if ( invalid == null )
+                    {
+                        invalid = new String[methods.length];
+                    }
+                    invalid[i] = ((Invalid)value).getMessage();
+                    value = null;
+                }
+                final Class<?> returnType = methods[i].getReturnType();
+                if ( value == null && returnType.isPrimitive() )
+                {
+                    // default value of the primitive type
+                    value = Array.get(Array.newInstance(returnType, 1), 0);
+                }
+                values[i] = value;
+            }
+            try
+            {
+                return (T) propertyType.constructor.newInstance(propertyType.members, values, invalid);
+            }
+            catch ( final Exception e )
+            {
+                // fall back to a proxy
+            }
+        }
+
         final InvocationHandler h = new Handler(m, clazz);
         return (T) Proxy.newProxyInstance(clazz.getClassLoader(), new Class<?>[] { clazz }, h);
     }
@@ -386,7 +460,7 @@ public class Annotations
                 {
                     int hashCode = 0;
                     for (final Map.Entry<String, Object> entry : values.entrySet()) {
-                        if (value instanceof Invalid) {
+                        if (entry.getValue() == null || entry.getValue() instanceof Invalid) {
                             continue;
                         }
                         hashCode += (127 * entry.getKey().hashCode()) ^ entry.getValue().hashCode();
@@ -428,6 +502,23 @@ public class Annotations
         }
     }
 
+    /**
+     * The members of a property type and the constructor of the generated
+     * implementation class, which is <code>null</code> if a proxy is used.
+     */
+    private final static class PropertyType
+    {
+        private final PropertyTypeBase.Members members;
+
+        private final Constructor<?> constructor;
+
+        PropertyType(final PropertyTypeBase.Members members, final Constructor<?> constructor)
+        {
+            this.members = members;
+            this.constructor = constructor;
+        }
+    }
+
     private final static class Invalid
     {
         private final String message;
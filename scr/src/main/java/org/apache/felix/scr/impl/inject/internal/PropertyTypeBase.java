@@ -0,0 +1,212 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.scr.impl.inject.internal;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+
+import org.osgi.service.component.ComponentException;
+
+/**
+ * Base class of the implementation classes generated for component property
+ * types by {@link PropertyTypeGenerator}. The generated class holds a field
+ * per member of the property type, the accessors just return the field.
+ * This class implements <code>equals</code>, <code>hashCode</code>,
+ * <code>toString</code> and <code>annotationType</code> as defined by
+ * <code>java.lang.annotation.Annotation</code>.
+ * <p>
+ * This class is public as it is the super class of classes defined by a
+ * different class loader, it is not meant to be used otherwise.
+ */
+public abstract class PropertyTypeBase
+{
+    private final Members members;
+
+    private final Object[] values;
+
+    private final String[] invalid;
+
+    /**
+     * Called by the generated constructor, which then copies the values into
+     * its fields.
+     * @param members The members of the property type
+     * @param values The coerced values, in the order of the members
+     * @param invalid The error messages of members which could not be coerced
+     *      or <code>null</code> if all members are valid
+     */
+    protected PropertyTypeBase(final Members members, final Object[] values, final String[] invalid)
+    {
+        this.members = members;
+        this.values = values;
+        this.invalid = invalid;
+    }
+
+    /**
+     * Called by the generated accessors before returning the field.
+     * @param index The index of the member
+     * @throws ComponentException If the value of the member is invalid
+     */
+    protected final void check(final int index)
+    {
+        if ( invalid != null && invalid[index] != null )
+        {
+            throw new ComponentException(invalid[index]);
+        }
+    }
+
+    public Class<?> annotationType()
+    {
+        return members.type;
+    }
+
+    @Override
+    public boolean equals(final Object obj)
+    {
+        if ( this == obj )
+        {
+            return true;
+        }
+        if ( obj instanceof PropertyTypeBase )
+        {
+            final PropertyTypeBase other = (PropertyTypeBase) obj;
+            return other.members.type == members.type && Arrays.deepEquals(values, other.values);
+        }
+        if ( !members.type.isInstance(obj) )
+        {
+            return false;
+        }
+        // another implementation, e.g. a real annotation
+        try
+        {
+            for ( int i = 0; i < values.length; i++ )
+            {
+                final Object value = members.methods[i].invoke(obj);
+                if ( !Arrays.deepEquals(new Object[] { values[i] }, new Object[] { value }) )
+                {
+                    return false;
+                }
+            }
+            return true;
+        }
+        catch ( final Exception e )
+        {
+            return false;
+        }
+    }
+
+    @Override
+    public int hashCode()
+    {
+        int hashCode = 0;
+        for ( int i = 0; i < values.length; i++ )
+        {
+            hashCode += (127 * members.methods[i].getName().hashCode()) ^ valueHashCode(values[i]);
+        }
+        return hashCode;
+    }
+
+    @Override
+    public String toString()
+    {
+        final StringBuilder sb = new StringBuilder(members.type.getName()).append(" : {");
+        for ( int i = 0; i < values.length; i++ )
+        {
+            if ( i > 0 )
+            {
+                sb.append(", ");
+            }
+            sb.append(members.methods[i].getName()).append('=');
+            final Object value = values[i];
+            if ( value != null && value.getClass().isArray() )
+            {
+                final String array = Arrays.deepToString(new Object[] { value });
+                sb.append(array, 1, array.length() - 1);
+            }
+            else
+            {
+                sb.append(value);
+            }
+        }
+        return sb.append('}').toString();
+    }
+
+    /**
+     * The hash code of a member value as defined by <code>Annotation.hashCode()</code>.
+     */
+    private static int valueHashCode(final Object value)
+    {
+        if ( value == null )
+        {
+            return 0;
+        }
+        if ( !value.getClass().isArray() )
+        {
+            return value.hashCode();
+        }
+        if ( value instanceof Object[] )
+        {
+            return Arrays.hashCode((Object[]) value);
+        }
+        if ( value instanceof int[] )
+        {
+            return Arrays.hashCode((int[]) value);
+        }
+        if ( value instanceof long[] )
+        {
+            return Arrays.hashCode((long[]) value);
+        }
+        if ( value instanceof boolean[] )
+        {
+            return Arrays.hashCode((boolean[]) value);
+        }
+        if ( value instanceof double[] )
+        {
+            return Arrays.hashCode((double[]) value);
+        }
+        if ( value instanceof float[] )
+        {
+            return Arrays.hashCode((float[]) value);
+        }
+        if ( value instanceof byte[] )
+        {
+            return Arrays.hashCode((byte[]) value);
+        }
+        if ( value instanceof short[] )
+        {
+            return Arrays.hashCode((short[]) value);
+        }
+        return Arrays.hashCode((char[]) value);
+    }
+
+    /**
+     * The members of a property type.
+     */
+    public static final class Members
+    {
+        final Class<?> type;
+
+        final Method[] methods;
+
+        Members(final Class<?> type, final Method[] methods)
+        {
+            this.type = type;
+            this.methods = methods;
+        }
+    }
+}
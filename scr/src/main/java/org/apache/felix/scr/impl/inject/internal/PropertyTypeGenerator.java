@@ -0,0 +1,479 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.scr.impl.inject.internal;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.security.AccessController;
+import java.security.PrivilegedAction;
+import java.security.ProtectionDomain;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Generates an implementation class of a component property type. The class
+ * extends {@link PropertyTypeBase} and has a field per member, holding the
+ * already coerced value. The accessors check the member for validity and
+ * return the field.
+ * <p>
+ * The class is defined by a new class loader whose parent is the class loader
+ * of the property type; only {@link PropertyTypeBase} is loaded from the SCR
+ * class loader. Therefore a class can only be generated if the property type
+ * and the types of all members are public. The class is defined in the
+ * protection domain of the property type, so it is granted the permissions
+ * of the component bundle rather than those of SCR.
+ */
+final class PropertyTypeGenerator
+{
+    /** Class file version 49 (Java 5) does not require stack map frames. */
+    private static final int CLASS_VERSION = 49;
+
+    private static final String BASE = PropertyTypeBase.class.getName().replace('.', '/');
+
+    private static final String MEMBERS = PropertyTypeBase.Members.class.getName().replace('.', '/');
+
+    private static final String PACKAGE = "org/apache/felix/scr/generated/";
+
+    private static final AtomicInteger COUNTER = new AtomicInteger();
+
+    private static final int ACC_PUBLIC = 0x0001;
+    private static final int ACC_PRIVATE = 0x0002;
+    private static final int ACC_FINAL = 0x0010;
+    private static final int ACC_SUPER = 0x0020;
+
+    private static final int ALOAD_0 = 0x2a;
+    private static final int ALOAD_1 = 0x2b;
+    private static final int ALOAD_2 = 0x2c;
+    private static final int ALOAD_3 = 0x2d;
+    private static final int AALOAD = 0x32;
+    private static final int ICONST_0 = 0x03;
+    private static final int BIPUSH = 0x10;
+    private static final int SIPUSH = 0x11;
+    private static final int IRETURN = 0xac;
+    private static final int LRETURN = 0xad;
+    private static final int FRETURN = 0xae;
+    private static final int DRETURN = 0xaf;
+    private static final int ARETURN = 0xb0;
+    private static final int RETURN = 0xb1;
+    private static final int GETFIELD = 0xb4;
+    private static final int PUTFIELD = 0xb5;
+    private static final int INVOKEVIRTUAL = 0xb6;
+    private static final int INVOKESPECIAL = 0xb7;
+    private static final int CHECKCAST = 0xc0;
+
+    private PropertyTypeGenerator()
+    {
+        // no instances
+    }
+
+    /**
+     * Generate the implementation class of the property type.
+     * @param members The members of the property type
+     * @return The constructor taking the members, the values and the invalid
+     *      member messages or <code>null</code> if no class can be generated
+     *      for this type.
+     */
+    static Constructor<?> generate(final PropertyTypeBase.Members members)
+    {
+        if ( !canGenerate(members) )
+        {
+            return null;
+        }
+        final String name = PACKAGE + members.type.getSimpleName() + "$Impl" + COUNTER.incrementAndGet();
+        try
+        {
+            final byte[] bytes = generateClass(name, members);
+            return AccessController.doPrivileged(new PrivilegedAction<Constructor<?>>()
+            {
+                @Override
+                public Constructor<?> run()
+                {
+                    final Class<?> clazz = new GeneratedClassLoader(members.type.getClassLoader())
+                        .define(name.replace('/', '.'), bytes, members.type.getProtectionDomain());
+                    try
+                    {
+                        return clazz.getConstructor(PropertyTypeBase.Members.class, Object[].class, String[].class);
+                    }
+                    catch ( final NoSuchMethodException e )
+                    {
+                        throw new IllegalStateException(e);
+                    }
+                }
+            });
+        }
+        catch ( final Throwable t )
+        {
+            // fall back to a dynamic proxy
+            return null;
+        }
+    }
+
+    private static boolean canGenerate(final PropertyTypeBase.Members members)
+    {
+        if ( !members.type.isInterface()
+             || !isAccessible(members.type)
+             || members.type.getClassLoader() == null )
+        {
+            return false;
+        }
+        final Set<String> names = new HashSet<>();
+        for ( final Method m : members.methods )
+        {
+            // methods with parameters or overloaded by return type are left to the proxy
+            if ( m.getParameterTypes().length > 0 || !isAccessible(m.getReturnType()) || !names.add(m.getName()) )
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isAccessible(Class<?> type)
+    {
+        while ( type.isArray() )
+        {
+            type = type.getComponentType();
+        }
+        return type.isPrimitive() || Modifier.isPublic(type.getModifiers());
+    }
+
+    static byte[] generateClass(final String name, final PropertyTypeBase.Members members) throws IOException
+    {
+        final ConstantPool cp = new ConstantPool();
+        final int thisClass = cp.clazz(name);
+        final int superClass = cp.clazz(BASE);
+        final int iface = cp.clazz(internalName(members.type));
+        final int code = cp.utf8("Code");
+
+        final ByteArrayOutputStream body = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(body);
+
+        // fields
+        final Method[] methods = members.methods;
+        final int[] fieldRefs = new int[methods.length];
+        out.writeShort(methods.length);
+        for ( int i = 0; i < methods.length; i++ )
+        {
+            final String fieldName = "f" + i;
+            final String desc = descriptor(methods[i].getReturnType());
+            out.writeShort(ACC_PRIVATE | ACC_FINAL);
+            out.writeShort(cp.utf8(fieldName));
+            out.writeShort(cp.utf8(desc));
+            out.writeShort(0);
+            fieldRefs[i] = cp.ref(9, name, fieldName, desc);
+        }
+
+        out.writeShort(methods.length + 1);
+
+        // constructor
+        final String ctorDesc = "(L" + MEMBERS + ";[Ljava/lang/Object;[Ljava/lang/String;)V";
+        final ByteArrayOutputStream ctor = new ByteArrayOutputStream();
+        ctor.write(ALOAD_0);
+        ctor.write(ALOAD_1);
+        ctor.write(ALOAD_2);
+        ctor.write(ALOAD_3);
+        writeOp(ctor, INVOKESPECIAL, cp.ref(10, BASE, "<init>", ctorDesc));
+        for ( int i = 0; i < methods.length; i++ )
+        {
+            final Class<?> type = methods[i].getReturnType();
+            ctor.write(ALOAD_0);
+            ctor.write(ALOAD_2);
+            pushInt(ctor, i);
+            ctor.write(AALOAD);
+            if ( type.isPrimitive() )
+            {
+                final Class<?> wrapper = wrapper(type);
+                writeOp(ctor, CHECKCAST, cp.clazz(internalName(wrapper)));
+                writeOp(ctor, INVOKEVIRTUAL, cp.ref(10, internalName(wrapper), type.getName() + "Value", "()" + descriptor(type)));
+            }
+            else if ( type != Object.class )
+            {
+                writeOp(ctor, CHECKCAST, cp.clazz(internalName(type)));
+            }
+            writeOp(ctor, PUTFIELD, fieldRefs[i]);
+        }
+        ctor.write(RETURN);
+        writeMethod(out, ACC_PUBLIC, cp.utf8("<init>"), cp.utf8(ctorDesc), code, 4, 4, ctor.toByteArray());
+
+        // accessors
+        final int check = cp.ref(10, BASE, "check", "(I)V");
+        for ( int i = 0; i < methods.length; i++ )
+        {
+            final Class<?> type = methods[i].getReturnType();
+            final ByteArrayOutputStream accessor = new ByteArrayOutputStream();
+            accessor.write(ALOAD_0);
+            pushInt(accessor, i);
+            writeOp(accessor, INVOKEVIRTUAL, check);
+            accessor.write(ALOAD_0);
+            writeOp(accessor, GETFIELD, fieldRefs[i]);
+            accessor.write(returnOp(type));
+            writeMethod(out, ACC_PUBLIC, cp.utf8(methods[i].getName()), cp.utf8("()" + descriptor(type)), code, 2, 1,
+                accessor.toByteArray());
+        }
+
+        // no class attributes
+        out.writeShort(0);
+        out.flush();
+
+        final ByteArrayOutputStream result = new ByteArrayOutputStream();
+        final DataOutputStream classFile = new DataOutputStream(result);
+        classFile.writeInt(0xCAFEBABE);
+        classFile.writeShort(0);
+        classFile.writeShort(CLASS_VERSION);
+        cp.write(classFile);
+        classFile.writeShort(ACC_PUBLIC | ACC_FINAL | ACC_SUPER);
+        classFile.writeShort(thisClass);
+        classFile.writeShort(superClass);
+        classFile.writeShort(1);
+        classFile.writeShort(iface);
+        body.writeTo(classFile);
+        classFile.flush();
+        return result.toByteArray();
+    }
+
+    private static void writeMethod(final DataOutputStream out, final int access, final int name, final int desc,
+        final int codeAttr, final int maxStack, final int maxLocals, final byte[] code) throws IOException
+    {
+        out.writeShort(access);
+        out.writeShort(name);
+        out.writeShort(desc);
+        out.writeShort(1);
+        out.writeShort(codeAttr);
+        out.writeInt(12 + code.length);
+        out.writeShort(maxStack);
+        out.writeShort(maxLocals);
+        out.writeInt(code.length);
+        out.write(code);
+        // no exception table, no attributes
+        out.writeShort(0);
+        out.writeShort(0);
+    }
+
+    private static void writeOp(final ByteArrayOutputStream code, final int op, final int index)
+    {
+        code.write(op);
+        code.write(index >> 8);
+        code.write(index);
+    }
+
+    private static void pushInt(final ByteArrayOutputStream code, final int value)
+    {
+        if ( value <= 5 )
+        {
+            code.write(ICONST_0 + value);
+        }
+        else if ( value <= Byte.MAX_VALUE )
+        {
+            code.write(BIPUSH);
+            code.write(value);
+        }
+        else
+        {
+            code.write(SIPUSH);
+            code.write(value >> 8);
+            code.write(value);
+        }
+    }
+
+    private static int returnOp(final Class<?> type)
+    {
+        if ( type == long.class )
+        {
+            return LRETURN;
+        }
+        if ( type == float.class )
+        {
+            return FRETURN;
+        }
+        if ( type == double.class )
+        {
+            return DRETURN;
+        }
+        return type.isPrimitive() ? IRETURN : ARETURN;
+    }
+
+    private static Class<?> wrapper(final Class<?> type)
+    {
+        if ( type == int.class ) return Integer.class;
+        if ( type == long.class ) return Long.class;
+        if ( type == boolean.class ) return Boolean.class;
+        if ( type == byte.class ) return Byte.class;
+        if ( type == short.class ) return Short.class;
+        if ( type == char.class ) return Character.class;
+        if ( type == float.class ) return Float.class;
+        return Double.class;
+    }
+
+    /**
+     * The name used in class constants: the internal name of a class or the
+     * descriptor of an array type.
+     */
+    private static String internalName(final Class<?> type)
+    {
+        return type.isArray() ? descriptor(type) : type.getName().replace('.', '/');
+    }
+
+    private static String descriptor(final Class<?> type)
+    {
+        if ( type.isArray() )
+        {
+            return "[" + descriptor(type.getComponentType());
+        }
+        if ( type.isPrimitive() )
+        {
+            if ( type == int.class ) return "I";
+            if ( type == long.class ) return "J";
+            if ( type == boolean.class ) return "Z";
+            if ( type == byte.class ) return "B";
+            if ( type == short.class ) return "S";
+            if ( type == char.class ) return "C";
+            if ( type == float.class ) return "F";
+            if ( type == double.class ) return "D";
+            return "V";
+        }
+        return "L" + type.getName().replace('.', '/') + ";";
+    }
+
+    /**
+     * The constant pool of the generated class.
+     */
+    private static final class ConstantPool
+    {
+        private final Map<String, Integer> indexes = new HashMap<>();
+
+        private final List<byte[]> entries = new ArrayList<>();
+
+        int utf8(final String value) throws IOException
+        {
+            final String key = "U" + value;
+            Integer index = indexes.get(key);
+            if ( index == null )
+            {
+                final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                final DataOutputStream out = new DataOutputStream(bytes);
+                out.writeByte(1);
+                out.writeUTF(value);
+                index = add(key, bytes.toByteArray());
+            }
+            return index;
+        }
+
+        int clazz(final String internalName) throws IOException
+        {
+            final String key = "C" + internalName;
+            Integer index = indexes.get(key);
+            if ( index == null )
+            {
+                index = add(key, entry(7, utf8(internalName)));
+            }
+            return index;
+        }
+
+        /**
+         * A field (tag 9) or method (tag 10) reference.
+         */
+        int ref(final int tag, final String owner, final String name, final String desc) throws IOException
+        {
+            final String key = tag + owner + '.' + name + desc;
+            Integer index = indexes.get(key);
+            if ( index == null )
+            {
+                final String ntKey = "N" + name + desc;
+                Integer nameAndType = indexes.get(ntKey);
+                if ( nameAndType == null )
+                {
+                    nameAndType = add(ntKey, entry(12, utf8(name), utf8(desc)));
+                }
+                index = add(key, entry(tag, clazz(owner), nameAndType));
+            }
+            return index;
+        }
+
+        private int add(final String key, final byte[] entry)
+        {
+            entries.add(entry);
+            // constant pool indexes start at 1
+            final int index = entries.size();
+            indexes.put(key, index);
+            return index;
+        }
+
+        private static byte[] entry(final int tag, final int... indexes)
+        {
+            final byte[] entry = new byte[1 + 2 * indexes.length];
+            entry[0] = (byte) tag;
+            for ( int i = 0; i < indexes.length; i++ )
+            {
+                entry[1 + 2 * i] = (byte) (indexes[i] >> 8);
+                entry[2 + 2 * i] = (byte) indexes[i];
+            }
+            return entry;
+        }
+
+        void write(final DataOutputStream out) throws IOException
+        {
+            out.writeShort(entries.size() + 1);
+            for ( final byte[] entry : entries )
+            {
+                out.write(entry);
+            }
+        }
+    }
+
+    /**
+     * Class loader defining the generated classes. It delegates to the
+     * class loader of the property type, except for the base class which
+     * is loaded by the SCR class loader.
+     */
+    private static final class GeneratedClassLoader extends ClassLoader
+    {
+        GeneratedClassLoader(final ClassLoader parent)
+        {
+            super(parent);
+        }
+
+        @Override
+        protected Class<?> loadClass(final String name, final boolean resolve) throws ClassNotFoundException
+        {
+            if ( name.equals(PropertyTypeBase.class.getName()) )
+            {
+                return PropertyTypeBase.class;
+            }
+            if ( name.equals(PropertyTypeBase.Members.class.getName()) )
+            {
+                return PropertyTypeBase.Members.class;
+            }
+            return super.loadClass(name, resolve);
+        }
+
+        Class<?> define(final String name, final byte[] bytes, final ProtectionDomain domain)
+        {
+            return defineClass(name, bytes, 0, bytes.length, domain);
+        }
+    }
+}
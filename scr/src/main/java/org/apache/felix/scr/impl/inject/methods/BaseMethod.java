@@ -19,6 +19,9 @@
 package org.apache.felix.scr.impl.inject.methods;
 
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
@@ -41,6 +44,12 @@ import org.apache.felix.scr.impl.metadata.DSVersion;
 public abstract class BaseMethod<P extends BaseParameter, T>
 {
 
+    /** The maximum number of parameters passed directly to a method handle */
+    private static final int MAX_DIRECT_ARGS = 3;
+
+    /** The type of the method handle for methods with more parameters */
+    private static final MethodType SPREAD_TYPE = MethodType.methodType( Object.class, Object.class, Object[].class );
+
     private final DSVersion dsVersion;
     private final boolean configurableServiceProperties;
 
@@ -49,6 +58,10 @@ public abstract class BaseMethod<P extends BaseParameter, T>
 
     private volatile Method m_method;
 
+    // handle for m_method taking the instance and the parameters,
+    // null if the method is invoked by reflection
+    private volatile MethodHandle m_methodHandle;
+
     private final boolean m_methodRequired;
 
     private volatile State m_state;
@@ -106,6 +119,7 @@ public abstract class BaseMethod<P extends BaseParameter, T>
     synchronized void setMethod(MethodInfo<T> methodInfo, ComponentLogger logger)
     {
         this.m_method = methodInfo == null ? null : methodInfo.getMethod();
+        this.m_methodHandle = m_method == null ? null : createMethodHandle( m_method );
 
         if (m_method != null)
         {
@@ -253,12 +267,36 @@ public abstract class BaseMethod<P extends BaseParameter, T>
                         getMethodNamePrefix(),
                             getMethodName(), Arrays.asList(getParametersForLogging(params)));
                 }
+                final Object value;
+                final MethodHandle handle = m_methodHandle;
+                if ( handle != null )
+                {
+                    try
+                    {
+                        value = invokeHandle( handle, componentInstance, params );
+                    }
+                    catch ( Throwable t )
+                    {
+                        // same as Method.invoke: anything thrown is a failure of the method
+                        throw new InvocationTargetException( t );
+                    }
+                }
+                else
+                {
+                    value = m_method.invoke( componentInstance, params );
+                }
                 @SuppressWarnings("unchecked")
-                final Map<String, Object> result = (Map<String, Object>) m_method.invoke(
-                    componentInstance, params);
-                logger.log(Level.DEBUG, "invoked {0}: {1}", null,
+                final Map<String, Object> result = (Map<String, Object>) value;
+                if (logger.isLogEnabled(Level.DEBUG))
+                {
+                    logger.log(Level.DEBUG, "invoked {0}: {1}", null,
                         getMethodNamePrefix(), getMethodName() );
-                return new MethodResult((m_method.getReturnType() != Void.TYPE), result);
+                }
+                if ( m_method.getReturnType() == Void.TYPE )
+                {
+                    return MethodResult.VOID;
+                }
+                return new MethodResult(true, result);
             }
             else
             {
@@ -487,6 +525,59 @@ public abstract class BaseMethod<P extends BaseParameter, T>
     }
 
 
+    /**
+     * Creates a method handle for the (accessible) method which takes the
+     * component instance followed by the parameters and returns the result
+     * of the method or <code>null</code> for a <code>void</code> method.
+     * Methods with more than {@link #MAX_DIRECT_ARGS} parameters take the
+     * parameters as an array.
+     *
+     * @return The method handle or <code>null</code> if the handle cannot
+     *      be created, in which case the method is invoked by reflection.
+     */
+    static MethodHandle createMethodHandle( final Method method )
+    {
+        try
+        {
+            final int arity = method.getParameterTypes().length;
+            final MethodHandle handle = MethodHandles.lookup().unreflect( method );
+            if ( arity <= MAX_DIRECT_ARGS )
+            {
+                return handle.asType( MethodType.genericMethodType( arity + 1 ) );
+            }
+            return handle.asSpreader( Object[].class, arity ).asType( SPREAD_TYPE );
+        }
+        catch ( IllegalAccessException | RuntimeException e )
+        {
+            return null;
+        }
+    }
+
+
+    /**
+     * Invokes a handle created by {@link #createMethodHandle(Method)}. The
+     * common arities are invoked directly, avoiding to spread the parameter
+     * array on each call.
+     */
+    static Object invokeHandle( final MethodHandle handle, final Object instance, final Object[] params )
+        throws Throwable
+    {
+        switch ( params.length )
+        {
+            case 0:
+                return (Object) handle.invokeExact( instance );
+            case 1:
+                return (Object) handle.invokeExact( instance, params[0] );
+            case 2:
+                return (Object) handle.invokeExact( instance, params[0], params[1] );
+            case 3:
+                return (Object) handle.invokeExact( instance, params[0], params[1], params[2] );
+            default:
+                return (Object) handle.invokeExact( instance, params );
+        }
+    }
+
+
     private static void setAccessible(final Method method)
     {
         AccessController.doPrivileged( new PrivilegedAction<Object>()
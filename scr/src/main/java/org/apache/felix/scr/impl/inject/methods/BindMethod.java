@@ -678,11 +678,12 @@ implements org.apache.felix.scr.impl.inject.ReferenceMethod
         ScrComponentContext key = bp.getComponentContext();
         Object[] result = new Object[ m_paramTypes.size()];
         RefPair<?, ?> refPair = bp.getRefPair();
+        final Class<?>[] parameterTypes = method.getParameterTypes();
         int i = 0;
         for ( ValueUtils.ValueType pt: m_paramTypes )
         {
             result[i] = ValueUtils.getValue(getComponentClass().getName(), pt,
-                method.getParameterTypes()[i], key, refPair, null);
+                parameterTypes[i], key, refPair, null);
             i++;
         }
         return result;
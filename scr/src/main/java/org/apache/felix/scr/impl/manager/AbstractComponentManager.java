@@ -137,6 +137,11 @@ public abstract class AbstractComponentManager<S> implements ComponentManager<S>
 
     private volatile boolean m_dependencyManagersInitialized;
 
+    // true while the references of a delayed component are not tracked
+    private volatile boolean m_lazyReferences;
+
+    private final Object m_lazyReferencesLock = new Object();
+
     private final AtomicInteger m_trackingCount = new AtomicInteger();
 
     private final ReentrantLock m_stateLock;
@@ -163,6 +168,11 @@ public abstract class AbstractComponentManager<S> implements ComponentManager<S>
 
     private volatile String failureReason;
 
+    // start of waiting for the references, only set while profiling
+    private volatile long m_enabledTime;
+
+    private volatile boolean m_awaitingReferences;
+
     /**
      * The constructor receives both the container and the methods.
      *
@@ -263,6 +273,12 @@ public abstract class AbstractComponentManager<S> implements ComponentManager<S>
 
     final void obtainActivationReadLock()
     {
+        // fast path: no activation holds or waits for the write lock
+        if (!m_activationLock.isWriteLocked() && !m_activationLock.hasQueuedThreads()
+            && m_activationLock.readLock().tryLock())
+        {
+            return;
+        }
         obtainLock(m_activationLock.readLock());
     }
 
@@ -669,10 +685,16 @@ public abstract class AbstractComponentManager<S> implements ComponentManager<S>
 
         registerComponentId();
         m_container.getLogger().log(Level.DEBUG, "Updating target filters", null);
+        m_lazyReferences = isLazyReferences();
         updateTargets(getProperties());
 
         setState(previousState, State.unsatisfiedReference);
         m_container.getLogger().log(Level.DEBUG, "Component enabled", null);
+        if (getActivationProfiler() != null)
+        {
+            m_enabledTime = System.nanoTime();
+            m_awaitingReferences = true;
+        }
         activateInternal();
     }
 
@@ -719,6 +741,13 @@ public abstract class AbstractComponentManager<S> implements ComponentManager<S>
             return;
         }
 
+        // Lazy references which are not available in the service registry
+        // have to be tracked to get notified once they become available
+        if (m_lazyReferences && !isLazySatisfied())
+        {
+            trackReferences();
+        }
+
         obtainActivationReadLock();
         try
         {
@@ -750,6 +779,15 @@ public abstract class AbstractComponentManager<S> implements ComponentManager<S>
                     "Not all dependencies satisfied, cannot activate", null);
                 return;
             }
+            if (m_awaitingReferences)
+            {
+                m_awaitingReferences = false;
+                final ActivationProfiler profiler = getActivationProfiler();
+                if (profiler != null)
+                {
+                    profiler.record(this, ActivationProfiler.Phase.REFERENCES, m_enabledTime);
+                }
+            }
 
             if (!registerService())
             {
@@ -983,7 +1021,14 @@ public abstract class AbstractComponentManager<S> implements ComponentManager<S>
         String[] services = getProvidedServices();
         if (services != null)
         {
-            return registrationManager.changeRegistration(RegistrationManager.RegState.registered, services);
+            final ActivationProfiler profiler = getActivationProfiler();
+            final long start = profiler == null ? 0 : System.nanoTime();
+            final boolean result = registrationManager.changeRegistration(RegistrationManager.RegState.registered, services);
+            if (profiler != null)
+            {
+                profiler.record(this, ActivationProfiler.Phase.REGISTER, start);
+            }
+            return result;
         }
         return true;
     }
@@ -1003,11 +1048,27 @@ public abstract class AbstractComponentManager<S> implements ComponentManager<S>
         return registrationManager.getServiceRegistration();
     }
 
+    /**
+     * Returns the profiler recording the activation phases of this component
+     * or <code>null</code> if profiling is disabled.
+     */
+    final ActivationProfiler getActivationProfiler()
+    {
+        final ActivationProfiler profiler = m_container.getActivator().getActivationProfiler();
+        return profiler != null && profiler.isEnabled() ? profiler : null;
+    }
+
     AtomicInteger getTrackingCount()
     {
         return m_trackingCount;
     }
 
+    @Override
+    public int getServiceEventCount()
+    {
+        return m_trackingCount.get();
+    }
+
     private void initDependencyManagers(final ComponentContextImpl<S> componentContext)
     {
         if (m_dependencyManagersInitialized)
@@ -1023,6 +1084,8 @@ public abstract class AbstractComponentManager<S> implements ComponentManager<S>
             throw new IllegalStateException("bundle shut down while trying to load implementation object class");
         }
 
+        final ActivationProfiler profiler = getActivationProfiler();
+        final long start = profiler == null ? 0 : System.nanoTime();
         try
         {
             @SuppressWarnings("unchecked")
@@ -1045,6 +1108,10 @@ public abstract class AbstractComponentManager<S> implements ComponentManager<S>
             dependencyManager.initBindingMethods(m_componentMethods.getBindMethods(dependencyManager.getName()));
         }
         m_dependencyManagersInitialized = true;
+        if (profiler != null)
+        {
+            profiler.record(this, ActivationProfiler.Phase.CLASS_LOAD, start);
+        }
     }
 
     /**
@@ -1056,6 +1123,12 @@ public abstract class AbstractComponentManager<S> implements ComponentManager<S>
      */
     protected boolean collectDependencies(ComponentContextImpl<S> componentContext)
     {
+        if (!trackLazyReferences())
+        {
+            m_container.getLogger().log(Level.DEBUG,
+                "Lazy references are not satisfied any longer", null);
+            return false;
+        }
         initDependencyManagers(componentContext);
         for (DependencyManager<S, ?> dependencyManager : m_dependencyManagers)
         {
@@ -1183,12 +1256,152 @@ public abstract class AbstractComponentManager<S> implements ComponentManager<S>
 
     final void updateTargets(final Map<String, Object> properties)
     {
+        if (m_lazyReferences)
+        {
+            synchronized (m_lazyReferencesLock)
+            {
+                if (m_lazyReferences)
+                {
+                    for (final DependencyManager<S, ?> dm : getDependencyManagers())
+                    {
+                        dm.setUntrackedTargetFilter(properties);
+                    }
+                    return;
+                }
+            }
+        }
         for (final DependencyManager<S, ?> dm : getDependencyManagers())
         {
             dm.setTargetFilter(properties);
         }
     }
 
+    /**
+     * Returns <code>true</code> if the references of this component are only
+     * checked against the service registry until the component is first used.
+     * This applies to delayed components providing a service if enabled by
+     * the {@link ScrConfiguration#PROP_LAZY_REFERENCES} configuration.
+     */
+    private boolean isLazyReferences()
+    {
+        final ScrConfiguration configuration = m_container.getActivator().getConfiguration();
+        return configuration != null && configuration.lazyReferences() && !isImmediate() && !isFactory()
+            && !getComponentMetadata().isFactory() && getProvidedServices() != null
+            && !m_dependencyManagers.isEmpty();
+    }
+
+    private boolean isLazySatisfied()
+    {
+        for (DependencyManager<S, ?> dm : getDependencyManagers())
+        {
+            if (!dm.isSatisfied())
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Starts tracking the referenced services of a component with lazy
+     * references.
+     *
+     * @return <code>true</code> if the references were not tracked before
+     */
+    private boolean trackReferences()
+    {
+        if (!m_lazyReferences)
+        {
+            return false;
+        }
+        synchronized (m_lazyReferencesLock)
+        {
+            if (!m_lazyReferences)
+            {
+                return false;
+            }
+            m_container.getLogger().log(Level.DEBUG, "Tracking lazy references", null);
+            m_lazyReferences = false;
+            updateTargets(getProperties());
+            return true;
+        }
+    }
+
+    /**
+     * Starts tracking the referenced services if they have only been checked
+     * against the service registry so far. If the references are no longer
+     * satisfied, the component service is unregistered asynchronously.
+     *
+     * @return <code>true</code> if the references are satisfied
+     */
+    private boolean trackLazyReferences()
+    {
+        if (!trackReferences())
+        {
+            return true;
+        }
+        if (verifyDependencyManagers())
+        {
+            return true;
+        }
+        m_container.getActivator().schedule(new Runnable()
+        {
+
+            @Override
+            public void run()
+            {
+                if (!getState().isSatisfied())
+                {
+                    deactivateInternal(ComponentConstants.DEACTIVATION_REASON_REFERENCE, false, false);
+                }
+            }
+
+            @Override
+            public String toString()
+            {
+                return "Unregister " + AbstractComponentManager.this + " with unsatisfied lazy references";
+            }
+        });
+        return false;
+    }
+
+    /**
+     * Called by a dependency which is not tracked while a referenced service
+     * goes away and the dependency would not be satisfied any longer. The
+     * component service is unregistered right away, so the service is never
+     * obtained without its references. The references are tracked once the
+     * event has been delivered, as the departing service is still registered
+     * until then.
+     */
+    void lazyReferenceLost()
+    {
+        if (!m_lazyReferences)
+        {
+            return;
+        }
+        m_container.getLogger().log(Level.DEBUG,
+            "Lazy reference lost, unregistering component", null);
+        deactivateInternal(ComponentConstants.DEACTIVATION_REASON_REFERENCE, false, false);
+        m_container.getActivator().schedule(new Runnable()
+        {
+
+            @Override
+            public void run()
+            {
+                if (trackReferences())
+                {
+                    activateInternal();
+                }
+            }
+
+            @Override
+            public String toString()
+            {
+                return "Track lazy references of " + AbstractComponentManager.this;
+            }
+        });
+    }
+
     protected boolean verifyDependencyManagers()
     {
         State previousState = getState();
@@ -0,0 +1,340 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.scr.impl.manager;
+
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+
+/**
+ * The <code>ActivationProfiler</code> records how long the phases of
+ * enabling and activating components take. It is enabled by setting the
+ * {@link ScrConfiguration#PROP_ACTIVATION_PROFILE_SIZE} configuration to the
+ * number of phases to keep. Once that many phases have been recorded, the
+ * oldest ones are overwritten.
+ * <p>
+ * All timestamps are in nanoseconds relative to the creation of the profiler.
+ */
+public class ActivationProfiler
+{
+
+    /**
+     * The phases of enabling and activating a component.
+     */
+    public enum Phase
+    {
+        /** Waiting for a required configuration after enabling the component */
+        CONFIGURATION,
+        /** Waiting for the mandatory references after enabling the component */
+        REFERENCES,
+        /** Loading the implementation class and looking up its methods */
+        CLASS_LOAD,
+        /** Registering the component service */
+        REGISTER,
+        /** Calling the constructor of the implementation class */
+        CONSTRUCT,
+        /** Binding the references */
+        BIND,
+        /** Calling the activate method */
+        ACTIVATE
+    }
+
+    /**
+     * A recorded phase of a component.
+     */
+    public static final class Record
+    {
+        private final String name;
+        private final long componentId;
+        private final long bundleId;
+        private final Phase phase;
+        private final long start;
+        private final long end;
+        private final String thread;
+
+        Record(final String name, final long componentId, final long bundleId, final Phase phase,
+            final long start, final long end, final String thread)
+        {
+            this.name = name;
+            this.componentId = componentId;
+            this.bundleId = bundleId;
+            this.phase = phase;
+            this.start = start;
+            this.end = end;
+            this.thread = thread;
+        }
+
+        public String getName()
+        {
+            return name;
+        }
+
+        public long getComponentId()
+        {
+            return componentId;
+        }
+
+        public long getBundleId()
+        {
+            return bundleId;
+        }
+
+        public Phase getPhase()
+        {
+            return phase;
+        }
+
+        public long getStart()
+        {
+            return start;
+        }
+
+        public long getEnd()
+        {
+            return end;
+        }
+
+        public long getDuration()
+        {
+            return end - start;
+        }
+
+        public String getThread()
+        {
+            return thread;
+        }
+    }
+
+    private static final Comparator<Record> START_ORDER = new Comparator<Record>()
+    {
+        @Override
+        public int compare(final Record r1, final Record r2)
+        {
+            return Long.compare( r1.start, r2.start );
+        }
+    };
+
+    private final ScrConfiguration m_configuration;
+
+    private final long m_origin = System.nanoTime();
+
+    private final long m_originMillis = System.currentTimeMillis();
+
+    // replaced when the configured size changes
+    private volatile Buffer m_buffer;
+
+    public ActivationProfiler(final ScrConfiguration configuration)
+    {
+        m_configuration = configuration;
+    }
+
+    /**
+     * Returns <code>true</code> if phases are currently recorded.
+     */
+    public boolean isEnabled()
+    {
+        return m_configuration.activationProfileSize() > 0;
+    }
+
+    /**
+     * Records a phase of the component which ends now.
+     * @param start The start of the phase as returned by {@link System#nanoTime()}
+     */
+    public void record(final AbstractComponentManager<?> manager, final Phase phase, final long start)
+    {
+        record( manager, phase, start, System.nanoTime() );
+    }
+
+    /**
+     * Records a phase of the component.
+     */
+    public void record(final AbstractComponentManager<?> manager, final Phase phase, final long start,
+        final long end)
+    {
+        final Buffer buffer = getBuffer();
+        if ( buffer == null )
+        {
+            return;
+        }
+        final long bundleId = manager.getBundle() == null ? -1 : manager.getBundle().getBundleId();
+        buffer.add( new Record( manager.getComponentMetadata().getName(), manager.getId(), bundleId, phase,
+            start - m_origin, end - m_origin, Thread.currentThread().getName() ) );
+    }
+
+    /**
+     * Returns the recorded phases ordered by their start.
+     */
+    public List<Record> getRecords()
+    {
+        final Buffer buffer = m_buffer;
+        if ( buffer == null )
+        {
+            return Collections.emptyList();
+        }
+        final List<Record> records = buffer.toList();
+        Collections.sort( records, START_ORDER );
+        return records;
+    }
+
+    /**
+     * Returns the time in milliseconds since the epoch at which the profiler
+     * has been created, which is the origin of the recorded timestamps.
+     */
+    public long getOriginMillis()
+    {
+        return m_originMillis;
+    }
+
+    /**
+     * Removes all recorded phases.
+     */
+    public synchronized void clear()
+    {
+        m_buffer = null;
+    }
+
+    /**
+     * Returns the recorded phases as a JSON object.
+     */
+    public String toJson()
+    {
+        final StringBuilder builder = new StringBuilder();
+        builder.append( "{\"origin\":" ).append( m_originMillis );
+        builder.append( ",\"records\":[" );
+        boolean first = true;
+        for ( Record r : getRecords() )
+        {
+            if ( !first )
+            {
+                builder.append( ',' );
+            }
+            first = false;
+            builder.append( "{\"component\":" );
+            appendJsonString( builder, r.name );
+            builder.append( ",\"id\":" ).append( r.componentId );
+            builder.append( ",\"bundle\":" ).append( r.bundleId );
+            builder.append( ",\"phase\":\"" ).append( r.phase.name().toLowerCase() ).append( '"' );
+            builder.append( ",\"start\":" ).append( r.start );
+            builder.append( ",\"duration\":" ).append( r.getDuration() );
+            builder.append( ",\"thread\":" );
+            appendJsonString( builder, r.thread );
+            builder.append( '}' );
+        }
+        builder.append( "]}" );
+        return builder.toString();
+    }
+
+    private static void appendJsonString(final StringBuilder builder, final String value)
+    {
+        builder.append( '"' );
+        for ( int i = 0; i < value.length(); i++ )
+        {
+            final char c = value.charAt( i );
+            switch ( c )
+            {
+                case '"':
+                    builder.append( "\\\"" );
+                    break;
+                case '\\':
+                    builder.append( "\\\\" );
+                    break;
+                case '\n':
+                    builder.append( "\\n" );
+                    break;
+                case '\r':
+                    builder.append( "\\r" );
+                    break;
+                case '\t':
+                    builder.append( "\\t" );
+                    break;
+                default:
+                    if ( c < 0x20 )
+                    {
+                        builder.append( String.format( "\\u%04x", (int) c ) );
+                    }
+                    else
+                    {
+                        builder.append( c );
+                    }
+            }
+        }
+        builder.append( '"' );
+    }
+
+    private Buffer getBuffer()
+    {
+        final int size = m_configuration.activationProfileSize();
+        if ( size <= 0 )
+        {
+            return null;
+        }
+        final Buffer buffer = m_buffer;
+        if ( buffer != null && buffer.records.length() == size )
+        {
+            return buffer;
+        }
+        synchronized ( this )
+        {
+            if ( m_buffer == null || m_buffer.records.length() != size )
+            {
+                m_buffer = new Buffer( size );
+            }
+            return m_buffer;
+        }
+    }
+
+    /**
+     * Fixed size ring buffer of records which does not block recording threads.
+     */
+    private static final class Buffer
+    {
+        final AtomicReferenceArray<Record> records;
+
+        final AtomicLong next = new AtomicLong();
+
+        Buffer(final int size)
+        {
+            records = new AtomicReferenceArray<>( size );
+        }
+
+        void add(final Record record)
+        {
+            records.set( (int) ( next.getAndIncrement() % records.length() ), record );
+        }
+
+        List<Record> toList()
+        {
+            final List<Record> list = new ArrayList<>( records.length() );
+            for ( int i = 0; i < records.length(); i++ )
+            {
+                final Record record = records.get( i );
+                if ( record != null )
+                {
+                    list.add( record );
+                }
+            }
+            return list;
+        }
+    }
+}
@@ -61,4 +61,6 @@ public interface ComponentActivator extends ExtendedServiceListenerContext<Exten
     void updateChangeCount();
 
     ServiceReference<?> getTrueCondition();
+
+    ActivationProfiler getActivationProfiler();
 }
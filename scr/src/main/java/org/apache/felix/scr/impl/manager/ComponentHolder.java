@@ -73,6 +73,22 @@ public interface ComponentHolder<S>
      * we have no factory pid
      */
     boolean configurationUpdated( TargetedPID targetedPid, TargetedPID factoryTargetedPid, Dictionary<String, Object> props, long changeCount );
+
+    /**
+     * Stores a configuration like {@link #configurationUpdated(TargetedPID, TargetedPID, Dictionary, long)}
+     * but does not reconfigure the components yet. This is done by the next call to
+     * {@link #applyConfigurationUpdates()}, so that storing several configurations
+     * reconfigures each component only once.
+     *
+     * @return true if a new component is created for a factory PID, false otherwise
+     */
+    boolean storeConfigurationUpdate( TargetedPID targetedPid, TargetedPID factoryTargetedPid, Dictionary<String, Object> props, long changeCount );
+
+    /**
+     * Reconfigures the components with the configurations stored by
+     * {@link #storeConfigurationUpdate(TargetedPID, TargetedPID, Dictionary, long)}.
+     */
+    void applyConfigurationUpdates();
     
     /**
      * Returns the targeted PID used to configure this component
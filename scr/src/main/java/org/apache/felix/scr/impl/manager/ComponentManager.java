@@ -45,4 +45,10 @@ public interface ComponentManager<S> {
 
     ServiceReference<S> getRegisteredServiceReference();
 
+    /**
+     * Returns a counter which changes whenever a service tracked by one of
+     * the references of this component is added, modified or removed.
+     */
+    int getServiceEventCount();
+
 }
\ No newline at end of file
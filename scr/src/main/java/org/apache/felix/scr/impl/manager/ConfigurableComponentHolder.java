@@ -26,6 +26,7 @@ import java.util.Dictionary;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -139,6 +140,21 @@ public abstract class ConfigurableComponentHolder<S> implements ComponentHolder<
     private volatile Promise<Void> m_enablePromise;
     private volatile Promise<Void> m_disablePromise = Promises.resolved(null);
 
+    // time the components have been enabled, only set while profiling
+    private volatile long m_enabledTime;
+
+    /**
+     * The components to reconfigure by {@link #applyConfigurationUpdates()},
+     * guarded by {@link #m_components}.
+     */
+    private final Map<AbstractComponentManager<S>, PendingConfiguration> m_pendingConfigurations = new LinkedHashMap<>();
+
+    /**
+     * The configurations taken from {@link #m_pendingConfigurations} which
+     * are being applied, guarded by {@link #m_components}.
+     */
+    private final List<PendingConfiguration> m_applyingConfigurations = new ArrayList<>();
+
     private final ComponentMethods<S> m_componentMethods;
 
     private final ComponentLogger logger;
@@ -163,6 +179,12 @@ public abstract class ConfigurableComponentHolder<S> implements ComponentHolder<
 
     protected abstract ComponentMethods<S> createComponentMethods();
 
+    private ActivationProfiler getActivationProfiler()
+    {
+        final ActivationProfiler profiler = getActivator().getActivationProfiler();
+        return profiler != null && profiler.isEnabled() ? profiler : null;
+    }
+
     protected ComponentMethods<S> getComponentMethods() {
         return m_componentMethods;
     }
@@ -356,13 +378,22 @@ public abstract class ConfigurableComponentHolder<S> implements ComponentHolder<
      */
     @Override
     public boolean configurationUpdated( TargetedPID pid, TargetedPID factoryPid, final Dictionary<String, Object> props, long changeCount )
+    {
+        final boolean created = storeConfigurationUpdate( pid, factoryPid, props, changeCount );
+        applyConfigurationUpdates();
+        return created;
+    }
+
+
+    @Override
+    public boolean storeConfigurationUpdate( TargetedPID pid, TargetedPID factoryPid, final Dictionary<String, Object> props, long changeCount )
     {
         logger.log(Level.DEBUG,
                 "ConfigurableComponentHolder configuration updated for pid {0} with change count {1}", null, pid,
                 changeCount);
 
-        // component to update or create
-        final Map<AbstractComponentManager<S>, Map<String, Object>> scms = new HashMap<>();
+        // component to update or create with the pid to merge the configurations for
+        final Map<AbstractComponentManager<S>, String> scms = new HashMap<>();
         boolean created = false;
 
         synchronized (m_components) {
@@ -380,15 +411,15 @@ public abstract class ConfigurableComponentHolder<S> implements ComponentHolder<
                 if (m_enabled && isSatisfied()) {
                     if (m_singleComponent != null && !m_componentMetadata.isObsoleteFactoryComponentFactory()) {
                         AbstractComponentManager<S> scm = m_singleComponent;
-                        scms.put( scm, mergeProperties( pid.getServicePid() ) );
+                        scms.put( scm, pid.getServicePid() );
                         m_singleComponent = null;
                         m_components.put(pid.getServicePid(), scm);
                     } else if (m_components.containsKey(pid.getServicePid())) {
-                        scms.put( m_components.get(pid.getServicePid()), mergeProperties( pid.getServicePid())  );
+                        scms.put( m_components.get(pid.getServicePid()), pid.getServicePid()  );
                     } else {
                         AbstractComponentManager<S> scm = createComponentManager(true);
                         m_components.put(pid.getServicePid(), scm);
-                        scms.put( scm, mergeProperties( pid.getServicePid())  );
+                        scms.put( scm, pid.getServicePid()  );
                         created = true;
                     }
                 } else {
@@ -406,19 +437,19 @@ public abstract class ConfigurableComponentHolder<S> implements ComponentHolder<
                 m_configurations[index] = props;
                 if (m_enabled && isSatisfied()) {
                     if (m_singleComponent != null) {
-                        scms.put( m_singleComponent, mergeProperties( pid.getServicePid() ) );
+                        scms.put( m_singleComponent, pid.getServicePid() );
                     }
                     else if ( m_factoryPidIndex != null)
                     {
                         for (Map.Entry<String, AbstractComponentManager<S>> entry: m_components.entrySet())
                         {
-                            scms.put(entry.getValue(), mergeProperties( entry.getKey()));
+                            scms.put(entry.getValue(), entry.getKey());
                         }
                     }
                     else
                     {
                         m_singleComponent = createComponentManager(false);
-                        scms.put( m_singleComponent, mergeProperties( pid.getServicePid() ) );
+                        scms.put( m_singleComponent, pid.getServicePid() );
                         created = true;
                     }
                 } else {
@@ -427,22 +458,113 @@ public abstract class ConfigurableComponentHolder<S> implements ComponentHolder<
 
             }
 
+            final boolean enable = created && m_enabled;// TODO WTF?? && getComponentMetadata().isEnabled();
+            for ( Map.Entry<AbstractComponentManager<S>, String> entry: scms.entrySet() )
+            {
+                PendingConfiguration pending = m_pendingConfigurations.get( entry.getKey() );
+                if ( pending == null )
+                {
+                    pending = new PendingConfiguration( pid );
+                    m_pendingConfigurations.put( entry.getKey(), pending );
+                }
+                pending.servicePid = entry.getValue();
+                pending.factoryPid = factoryPid;
+                pending.enable |= enable;
+            }
+        }
+        return created;
+    }
+
+
+    /**
+     * Applies the pending configurations. Configurations which are being
+     * applied by a concurrent call, possibly including one stored by the
+     * caller, are waited for, so that the components are reconfigured when
+     * this method returns.
+     */
+    @Override
+    public void applyConfigurationUpdates()
+    {
+        // the configuration to apply per component
+        final Map<AbstractComponentManager<S>, Map<String, Object>> scms = new LinkedHashMap<>();
+        final Map<AbstractComponentManager<S>, PendingConfiguration> pendings = new LinkedHashMap<>();
+        // the configurations applied by other threads
+        final List<PendingConfiguration> concurrent = new ArrayList<>();
+        synchronized (m_components)
+        {
+            for ( PendingConfiguration pending : m_applyingConfigurations )
+            {
+                if ( pending.thread != Thread.currentThread() )
+                {
+                    concurrent.add( pending );
+                }
+            }
+            for ( Map.Entry<AbstractComponentManager<S>, PendingConfiguration> entry: m_pendingConfigurations.entrySet() )
+            {
+                entry.getValue().thread = Thread.currentThread();
+                pendings.put( entry.getKey(), entry.getValue() );
+                scms.put( entry.getKey(), mergeProperties( entry.getValue().servicePid ) );
+            }
+            m_pendingConfigurations.clear();
+            m_applyingConfigurations.addAll( pendings.values() );
+        }
+        try
+        {
+            applyConfigurationUpdates( scms, pendings );
+        }
+        finally
+        {
+            synchronized (m_components)
+            {
+                if ( !pendings.isEmpty() )
+                {
+                    m_applyingConfigurations.removeAll( pendings.values() );
+                    m_components.notifyAll();
+                }
+                while ( !concurrent.isEmpty() )
+                {
+                    concurrent.retainAll( m_applyingConfigurations );
+                    if ( !concurrent.isEmpty() )
+                    {
+                        try
+                        {
+                            m_components.wait();
+                        }
+                        catch ( InterruptedException e )
+                        {
+                            Thread.currentThread().interrupt();
+                            break;
+                        }
+                    }
+                }
+            }
         }
+    }
 
 
+    private void applyConfigurationUpdates( final Map<AbstractComponentManager<S>, Map<String, Object>> scms,
+        final Map<AbstractComponentManager<S>, PendingConfiguration> pendings )
+    {
         // we have the icm.
         //properties is all the configs merged together (without any possible component factory info.
 
-        final boolean enable = created && m_enabled;// TODO WTF?? && getComponentMetadata().isEnabled();
+        final ActivationProfiler profiler = getActivationProfiler();
+        final long configured = profiler == null ? 0 : System.nanoTime();
         for ( Map.Entry<AbstractComponentManager<S>,Map<String, Object>> entry: scms.entrySet())
         {
+            final PendingConfiguration pending = pendings.get( entry.getKey() );
+            final TargetedPID pid = pending.pid;
             // configure the component
-            entry.getKey().reconfigure(entry.getValue(), false, factoryPid);
+            entry.getKey().reconfigure(entry.getValue(), false, pending.factoryPid);
             logger.log(Level.DEBUG,
                 "ImmediateComponentHolder Finished configuring the dependency managers for component for pid {0} ", null,
                 pid );
-            if (enable) {
+            if (pending.enable && m_enabled) {
                 entry.getKey().enable(false);
+                if ( profiler != null && m_enabledTime != 0 && m_componentMetadata.isConfigurationRequired() )
+                {
+                    profiler.record( entry.getKey(), ActivationProfiler.Phase.CONFIGURATION, m_enabledTime, configured );
+                }
                 logger.log(Level.DEBUG,
                     "ImmediateComponentHolder Finished enabling component for pid {0} ", null,
                     pid );
@@ -452,7 +574,6 @@ public abstract class ConfigurableComponentHolder<S> implements ComponentHolder<
                     pid, m_enabled, m_componentMetadata.isEnabled());
             }
         }
-        return created;
     }
 
     private Map<String, Object> mergeProperties(String servicePid) {
@@ -664,6 +785,10 @@ public abstract class ConfigurableComponentHolder<S> implements ComponentHolder<
                     }
                 }
                 m_enabled = true;
+                if ( getActivationProfiler() != null )
+                {
+                    m_enabledTime = System.nanoTime();
+                }
             }
             List<Promise<Void>> promises = new ArrayList<>();
             for ( AbstractComponentManager<S> cm : cms )
@@ -835,6 +960,7 @@ public abstract class ConfigurableComponentHolder<S> implements ComponentHolder<
     {
         m_components.clear();
         m_singleComponent = null;
+        m_pendingConfigurations.clear();
     }
 
 
@@ -862,4 +988,26 @@ public abstract class ConfigurableComponentHolder<S> implements ComponentHolder<
         }
     }
 
+    /**
+     * A stored configuration not yet applied to a component.
+     */
+    private static final class PendingConfiguration
+    {
+        // the first pid updated, for logging
+        final TargetedPID pid;
+
+        String servicePid;
+
+        TargetedPID factoryPid;
+
+        boolean enable;
+
+        // the thread applying the configuration, guarded by m_components
+        Thread thread;
+
+        PendingConfiguration(final TargetedPID pid)
+        {
+            this.pid = pid;
+        }
+    }
 }
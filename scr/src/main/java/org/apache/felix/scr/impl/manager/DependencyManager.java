@@ -46,6 +46,7 @@ import org.osgi.framework.BundleContext;
 import org.osgi.framework.Constants;
 import org.osgi.framework.FrameworkUtil;
 import org.osgi.framework.InvalidSyntaxException;
+import org.osgi.framework.ServiceEvent;
 import org.osgi.framework.ServicePermission;
 import org.osgi.framework.ServiceReference;
 import org.osgi.service.component.ComponentConstants;
@@ -83,6 +84,12 @@ public class DependencyManager<S, T> implements ReferenceManager<S, T>
 
     private volatile int m_minCardinality;
 
+    // true while the target is set but the services are not tracked
+    private volatile boolean m_untracked;
+
+    // notified of services going away while the services are not tracked
+    private volatile ExtendedServiceListener<ExtendedServiceEvent> m_lossListener;
+
     /**
      * Constructor that receives several parameters.
      * @param dependency An object that contains data about the dependency
@@ -1819,6 +1826,10 @@ public class DependencyManager<S, T> implements ReferenceManager<S, T>
     @Override
     public boolean isSatisfied()
     {
+        if (m_untracked)
+        {
+            return isRegistrySatisfied();
+        }
         return m_customizer.isSatisfied();
     }
 
@@ -2326,6 +2337,107 @@ public class DependencyManager<S, T> implements ReferenceManager<S, T>
         setTargetFilter((String) properties.get(m_dependencyMetadata.getTargetPropertyName()), minimumCardinality);
     }
 
+    /**
+     * Sets the target filter and minimum cardinality from the properties
+     * without tracking the services. The services are tracked once
+     * {@link #setTargetFilter(Map)} is called, until then
+     * {@link #isRegistrySatisfied()} is used to check this dependency. A
+     * mandatory dependency listens for referenced services going away, to
+     * tell the component once the dependency would not be satisfied any longer.
+     *
+     * @param properties The properties containing the optional target service
+     *      filter property
+     */
+    void setUntrackedTargetFilter(Map<String, Object> properties)
+    {
+        String target = (String) properties.get(m_dependencyMetadata.getTargetPropertyName());
+        if (target == null)
+        {
+            target = m_dependencyMetadata.getTarget();
+        }
+        m_target = checkTargetFilter(target);
+        m_minCardinality = getMinimumCardinality(properties);
+        m_untracked = true;
+        m_componentManager.getLogger().log(Level.DEBUG,
+            "Setting untracked target property for dependency {0} to {1}",
+                null, getName(), m_target );
+        if (m_lossListener == null && !isEffectivelyOptional())
+        {
+            final ExtendedServiceListener<ExtendedServiceEvent> listener = new ExtendedServiceListener<ExtendedServiceEvent>()
+            {
+                @Override
+                public void serviceChanged(ExtendedServiceEvent event)
+                {
+                    if (event.getType() == ServiceEvent.REGISTERED || !m_untracked)
+                    {
+                        return;
+                    }
+                    // an unregistering service is still registered while the event is delivered
+                    final ServiceReference<?> departing = event.getType() == ServiceEvent.UNREGISTERING
+                        ? event.getServiceReference() : null;
+                    if (countRegistered(departing) < m_minCardinality)
+                    {
+                        m_componentManager.lazyReferenceLost();
+                    }
+                }
+            };
+            m_lossListener = listener;
+            m_componentManager.getActivator().addServiceListener(getClassFilter(), listener);
+        }
+    }
+
+    /**
+     * Returns <code>true</code> if enough services matching this dependency
+     * are currently registered in the framework. Unlike {@link #isSatisfied()}
+     * this does not require the services to be tracked.
+     */
+    boolean isRegistrySatisfied()
+    {
+        return isEffectivelyOptional() || m_minCardinality <= countRegistered(null);
+    }
+
+    /**
+     * Returns the number of registered services matching this dependency,
+     * not counting the given service.
+     */
+    private int countRegistered(final ServiceReference<?> excluded)
+    {
+        final BundleContext bundleContext = m_componentManager.getActivator().getBundleContext();
+        if (bundleContext == null)
+        {
+            return 0;
+        }
+        final String filter = getInitialReferenceFilter(getClassFilter(), m_target);
+        try
+        {
+            final ServiceReference<?>[] refs = bundleContext.getServiceReferences((String) null, filter);
+            if (refs == null)
+            {
+                return 0;
+            }
+            int count = 0;
+            for (final ServiceReference<?> ref : refs)
+            {
+                if (!ref.equals(excluded))
+                {
+                    count++;
+                }
+            }
+            return count;
+        }
+        catch (IllegalStateException ise)
+        {
+            // bundle context is not valid any longer
+        }
+        catch (InvalidSyntaxException ise)
+        {
+            m_componentManager.getLogger().log(Level.ERROR,
+                "Unexpected problem with filter ''{0}''",
+                ise, filter );
+        }
+        return 0;
+    }
+
     private int getMinimumCardinality(Map<String, Object> properties)
     {
         Integer minimumCardinality = null;
@@ -2386,23 +2498,7 @@ public class DependencyManager<S, T> implements ReferenceManager<S, T>
                 return;
             }
         }
-        if (target != null)
-        {
-            try
-            {
-                FrameworkUtil.createFilter(target);
-            }
-            catch (InvalidSyntaxException e)
-            {
-                m_componentManager.getLogger().log(Level.ERROR,
-                        "Invalid syntax in target property for dependency {0} to {1}", null,
-                        getName(), target);
-
-                //create a filter that will never be satisfied
-                target = DependencyManager.NEVER_SATIFIED_FILTER;
-            }
-        }
-        m_target = target;
+        m_target = checkTargetFilter(target);
 
         // two filters are created:
         // classFilter = filters only on the service interface
@@ -2442,6 +2538,7 @@ public class DependencyManager<S, T> implements ReferenceManager<S, T>
         m_customizer.setTracker(tracker);
         //set minimum cardinality
         m_minCardinality = minimumCardinality;
+        m_untracked = false;
 
         tracker.open(m_componentManager.getTrackingCount());
         m_customizer.setTrackerOpened();
@@ -2454,6 +2551,27 @@ public class DependencyManager<S, T> implements ReferenceManager<S, T>
                 null, getName());
     }
 
+    private String checkTargetFilter(String target)
+    {
+        if (target != null)
+        {
+            try
+            {
+                FrameworkUtil.createFilter(target);
+            }
+            catch (InvalidSyntaxException e)
+            {
+                m_componentManager.getLogger().log(Level.ERROR,
+                        "Invalid syntax in target property for dependency {0} to {1}", null,
+                        getName(), target);
+
+                //create a filter that will never be satisfied
+                return DependencyManager.NEVER_SATIFIED_FILTER;
+            }
+        }
+        return target;
+    }
+
     private String getClassFilter()
     {
         String objectClass = m_dependencyMetadata.getInterface();
@@ -2582,6 +2700,13 @@ public class DependencyManager<S, T> implements ReferenceManager<S, T>
     SortedMap<ServiceReference<T>, RefPair<S, T>> unregisterServiceListener(AtomicInteger trackingCount)
     {
         SortedMap<ServiceReference<T>, RefPair<S, T>> refMap;
+        m_untracked = false;
+        final ExtendedServiceListener<ExtendedServiceEvent> lossListener = m_lossListener;
+        if (lossListener != null)
+        {
+            m_lossListener = null;
+            m_componentManager.getActivator().removeServiceListener(getClassFilter(), lossListener);
+        }
         ServiceTracker<T, RefPair<S, T>, ExtendedServiceEvent> tracker = m_tracker;
         if (tracker != null)
         {
@@ -0,0 +1,403 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.scr.impl.manager;
+
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+
+/**
+ * An immutable sorted map, backed by an AVL tree. Adding or removing an
+ * entry returns a new map sharing all but the O(log n) nodes on the path to
+ * the entry with this map, so a map can be handed out and kept by callers
+ * while the owner goes on updating its own version.
+ * <p>
+ * The views returned by {@link #subMap(Object, Object)},
+ * {@link #headMap(Object)} and {@link #tailMap(Object)} are copies and thus
+ * take O(n), they are not used by SCR.
+ */
+final class PersistentSortedMap<K, V> extends AbstractMap<K, V> implements SortedMap<K, V>
+{
+
+    private final Comparator<? super K> comparator;
+
+    private final Node<K, V> root;
+
+    private PersistentSortedMap( final Comparator<? super K> comparator, final Node<K, V> root )
+    {
+        this.comparator = comparator;
+        this.root = root;
+    }
+
+
+    /**
+     * Returns an empty map sorted by the comparator.
+     */
+    static <K, V> PersistentSortedMap<K, V> empty( final Comparator<? super K> comparator )
+    {
+        return new PersistentSortedMap<>( comparator, null );
+    }
+
+
+    /**
+     * Returns a map with the entries of this map and the given entry, which
+     * replaces the entry of an equal key.
+     */
+    PersistentSortedMap<K, V> with( final K key, final V value )
+    {
+        return new PersistentSortedMap<>( comparator, insert( root, key, value ) );
+    }
+
+
+    /**
+     * Returns a map with the entries of this map except the entry of the given
+     * key, or this map if it has no such entry.
+     */
+    PersistentSortedMap<K, V> without( final K key )
+    {
+        final Node<K, V> node = delete( root, key );
+        return node == root ? this : new PersistentSortedMap<>( comparator, node );
+    }
+
+
+    @Override
+    public int size()
+    {
+        return size( root );
+    }
+
+
+    @Override
+    public boolean isEmpty()
+    {
+        return root == null;
+    }
+
+
+    @Override
+    public boolean containsKey( final Object key )
+    {
+        return find( key ) != null;
+    }
+
+
+    @Override
+    public V get( final Object key )
+    {
+        final Node<K, V> node = find( key );
+        return node == null ? null : node.value;
+    }
+
+
+    @Override
+    public Comparator<? super K> comparator()
+    {
+        return comparator;
+    }
+
+
+    @Override
+    public K firstKey()
+    {
+        if ( root == null )
+        {
+            throw new NoSuchElementException();
+        }
+        Node<K, V> node = root;
+        while ( node.left != null )
+        {
+            node = node.left;
+        }
+        return node.key;
+    }
+
+
+    @Override
+    public K lastKey()
+    {
+        if ( root == null )
+        {
+            throw new NoSuchElementException();
+        }
+        Node<K, V> node = root;
+        while ( node.right != null )
+        {
+            node = node.right;
+        }
+        return node.key;
+    }
+
+
+    @Override
+    public SortedMap<K, V> subMap( final K fromKey, final K toKey )
+    {
+        return Collections.unmodifiableSortedMap( toTreeMap().subMap( fromKey, toKey ) );
+    }
+
+
+    @Override
+    public SortedMap<K, V> headMap( final K toKey )
+    {
+        return Collections.unmodifiableSortedMap( toTreeMap().headMap( toKey ) );
+    }
+
+
+    @Override
+    public SortedMap<K, V> tailMap( final K fromKey )
+    {
+        return Collections.unmodifiableSortedMap( toTreeMap().tailMap( fromKey ) );
+    }
+
+
+    @Override
+    public Set<Map.Entry<K, V>> entrySet()
+    {
+        return new AbstractSet<Map.Entry<K, V>>()
+        {
+            @Override
+            public Iterator<Map.Entry<K, V>> iterator()
+            {
+                return new EntryIterator<>( root );
+            }
+
+
+            @Override
+            public int size()
+            {
+                return PersistentSortedMap.this.size();
+            }
+        };
+    }
+
+
+    private TreeMap<K, V> toTreeMap()
+    {
+        final TreeMap<K, V> map = new TreeMap<>( comparator );
+        map.putAll( this );
+        return map;
+    }
+
+
+    private Node<K, V> find( final Object key )
+    {
+        @SuppressWarnings("unchecked")
+        final K k = ( K ) key;
+        Node<K, V> node = root;
+        while ( node != null )
+        {
+            final int c = comparator.compare( k, node.key );
+            if ( c == 0 )
+            {
+                return node;
+            }
+            node = c < 0 ? node.left : node.right;
+        }
+        return null;
+    }
+
+
+    private Node<K, V> insert( final Node<K, V> node, final K key, final V value )
+    {
+        if ( node == null )
+        {
+            return new Node<>( key, value, null, null );
+        }
+        final int c = comparator.compare( key, node.key );
+        if ( c == 0 )
+        {
+            return new Node<>( key, value, node.left, node.right );
+        }
+        if ( c < 0 )
+        {
+            return balance( node.key, node.value, insert( node.left, key, value ), node.right );
+        }
+        return balance( node.key, node.value, node.left, insert( node.right, key, value ) );
+    }
+
+
+    private Node<K, V> delete( final Node<K, V> node, final K key )
+    {
+        if ( node == null )
+        {
+            return null;
+        }
+        final int c = comparator.compare( key, node.key );
+        if ( c < 0 )
+        {
+            final Node<K, V> left = delete( node.left, key );
+            return left == node.left ? node : balance( node.key, node.value, left, node.right );
+        }
+        if ( c > 0 )
+        {
+            final Node<K, V> right = delete( node.right, key );
+            return right == node.right ? node : balance( node.key, node.value, node.left, right );
+        }
+        if ( node.left == null )
+        {
+            return node.right;
+        }
+        if ( node.right == null )
+        {
+            return node.left;
+        }
+        // replace by the smallest entry of the right subtree
+        Node<K, V> min = node.right;
+        while ( min.left != null )
+        {
+            min = min.left;
+        }
+        return balance( min.key, min.value, node.left, deleteMin( node.right ) );
+    }
+
+
+    private static <K, V> Node<K, V> deleteMin( final Node<K, V> node )
+    {
+        if ( node.left == null )
+        {
+            return node.right;
+        }
+        return balance( node.key, node.value, deleteMin( node.left ), node.right );
+    }
+
+
+    /**
+     * Creates a node of the given subtrees, whose heights differ by at most
+     * two, rotating them such that the heights of the subtrees of the new
+     * node differ by at most one.
+     */
+    private static <K, V> Node<K, V> balance( final K key, final V value, final Node<K, V> left,
+        final Node<K, V> right )
+    {
+        final int diff = height( left ) - height( right );
+        if ( diff > 1 )
+        {
+            if ( height( left.left ) >= height( left.right ) )
+            {
+                return new Node<>( left.key, left.value, left.left, new Node<>( key, value, left.right, right ) );
+            }
+            return new Node<>( left.right.key, left.right.value,
+                new Node<>( left.key, left.value, left.left, left.right.left ),
+                new Node<>( key, value, left.right.right, right ) );
+        }
+        if ( diff < -1 )
+        {
+            if ( height( right.right ) >= height( right.left ) )
+            {
+                return new Node<>( right.key, right.value, new Node<>( key, value, left, right.left ), right.right );
+            }
+            return new Node<>( right.left.key, right.left.value,
+                new Node<>( key, value, left, right.left.left ),
+                new Node<>( right.key, right.value, right.left.right, right.right ) );
+        }
+        return new Node<>( key, value, left, right );
+    }
+
+
+    private static int height( final Node<?, ?> node )
+    {
+        return node == null ? 0 : node.height;
+    }
+
+
+    private static int size( final Node<?, ?> node )
+    {
+        return node == null ? 0 : node.size;
+    }
+
+
+    private static final class Node<K, V>
+    {
+        final K key;
+
+        final V value;
+
+        final Node<K, V> left;
+
+        final Node<K, V> right;
+
+        final int height;
+
+        final int size;
+
+        Node( final K key, final V value, final Node<K, V> left, final Node<K, V> right )
+        {
+            this.key = key;
+            this.value = value;
+            this.left = left;
+            this.right = right;
+            this.height = Math.max( height( left ), height( right ) ) + 1;
+            this.size = size( left ) + size( right ) + 1;
+        }
+    }
+
+
+    /**
+     * Iterates the entries in order, keeping the path to the next entry.
+     */
+    private static final class EntryIterator<K, V> implements Iterator<Map.Entry<K, V>>
+    {
+        private final Deque<Node<K, V>> path = new ArrayDeque<>();
+
+        EntryIterator( final Node<K, V> root )
+        {
+            pushLeft( root );
+        }
+
+
+        @Override
+        public boolean hasNext()
+        {
+            return !path.isEmpty();
+        }
+
+
+        @Override
+        public Map.Entry<K, V> next()
+        {
+            final Node<K, V> node = path.poll();
+            if ( node == null )
+            {
+                throw new NoSuchElementException();
+            }
+            pushLeft( node.right );
+            return new AbstractMap.SimpleImmutableEntry<>( node.key, node.value );
+        }
+
+
+        private void pushLeft( Node<K, V> node )
+        {
+            while ( node != null )
+            {
+                path.push( node );
+                node = node.left;
+            }
+        }
+    }
+}
@@ -21,13 +21,20 @@ package org.apache.felix.scr.impl.manager;
 import java.io.IOException;
 import java.security.AccessController;
 import java.security.PrivilegedAction;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Dictionary;
 import java.util.HashMap;
 import java.util.Hashtable;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.felix.scr.impl.ComponentRegistry;
@@ -61,6 +68,12 @@ public abstract class RegionConfigurationSupport
     // the service registration of the ConfigurationListener service
     private volatile ServiceRegistration<ConfigurationListener> m_registration;
 
+    // events collected while coalescing, by type and pid in the order of their last occurrence
+    private final Map<String, ConfigurationEvent> m_pendingEvents = new LinkedHashMap<>();
+
+    // the scheduled application of the collected events, guarded by m_pendingEvents
+    private ScheduledFuture<?> m_eventTask;
+
     /**
      *
      * @param bundleContext of the ConfigurationAdmin we are tracking
@@ -97,7 +110,7 @@ public abstract class RegionConfigurationSupport
                             @Override
                             public Void run()
                             {
-                                RegionConfigurationSupport.this.configurationEvent(event);
+                                RegionConfigurationSupport.this.onConfigurationEvent(event);
                                 return null;
                             }
                         });
@@ -112,7 +125,7 @@ public abstract class RegionConfigurationSupport
                 @Override
                 public void configurationEvent(final ConfigurationEvent event)
                 {
-                    RegionConfigurationSupport.this.configurationEvent(event);
+                    RegionConfigurationSupport.this.onConfigurationEvent(event);
                 }
             };
         }
@@ -147,11 +160,39 @@ public abstract class RegionConfigurationSupport
                 // ignore; just trying to clean up
             }
             this.m_registration = null;
+            synchronized ( m_pendingEvents )
+            {
+                m_pendingEvents.clear();
+                if ( m_eventTask != null )
+                {
+                    m_eventTask.cancel( false );
+                    m_eventTask = null;
+                }
+            }
             return true;
         }
         return false;
     }
 
+    /**
+     * Returns the time in milliseconds during which configuration events are
+     * collected before they are applied together. Events are applied
+     * immediately if this is <code>0</code> or less.
+     */
+    protected long getConfigurationCoalesceDelay()
+    {
+        return 0;
+    }
+
+    /**
+     * Returns the executor applying the collected configuration events.
+     * Events are applied immediately if this is <code>null</code>.
+     */
+    protected ScheduledExecutorService getComponentActor()
+    {
+        return null;
+    }
+
     /**
      * The return value is only relevant for the call from {@link #configurationEvent(ConfigurationEvent)}
      * in the case of a deleted configuration which is not a factory configuration!
@@ -285,6 +326,118 @@ public abstract class RegionConfigurationSupport
      * @param event The configuration change event
      */
     public void configurationEvent(ConfigurationEvent event)
+    {
+        configurationEvent( event, null );
+    }
+
+    /**
+     * Applies the event immediately or, if coalescing is enabled, collects it
+     * to be applied together with the other events received within the
+     * configured delay. Of several events of the same type for the same pid
+     * only the last one is kept as the configuration is read from the
+     * Configuration Admin service when the event is applied.
+     */
+    private void onConfigurationEvent(final ConfigurationEvent event)
+    {
+        final long delay = getConfigurationCoalesceDelay();
+        final ScheduledExecutorService componentActor = getComponentActor();
+        if ( delay <= 0 || componentActor == null )
+        {
+            configurationEvent( event, null );
+            return;
+        }
+        synchronized ( m_pendingEvents )
+        {
+            if ( referenceCount.get() == 0 )
+            {
+                // no longer listening
+                return;
+            }
+            final String key = event.getType() + ":" + event.getPid();
+            m_pendingEvents.remove( key );
+            m_pendingEvents.put( key, event );
+            if ( m_pendingEvents.size() == 1 )
+            {
+                m_eventTask = componentActor.schedule( new Runnable()
+                {
+                    @Override
+                    public void run()
+                    {
+                        if ( System.getSecurityManager() != null )
+                        {
+                            AccessController.doPrivileged( new PrivilegedAction<Void>()
+                            {
+                                @Override
+                                public Void run()
+                                {
+                                    applyPendingEvents();
+                                    return null;
+                                }
+                            } );
+                        }
+                        else
+                        {
+                            applyPendingEvents();
+                        }
+                    }
+
+                    @Override
+                    public String toString()
+                    {
+                        return "Coalesced configuration events of bundle " + bundleId;
+                    }
+                }, delay, TimeUnit.MILLISECONDS );
+            }
+        }
+    }
+
+    /**
+     * Applies the collected events. The configurations are stored with each
+     * component holder first and applied once all events have been handled,
+     * so that each component is reconfigured once with its final
+     * configuration.
+     */
+    void applyPendingEvents()
+    {
+        final List<ConfigurationEvent> events;
+        synchronized ( m_pendingEvents )
+        {
+            events = new ArrayList<>( m_pendingEvents.values() );
+            m_pendingEvents.clear();
+        }
+        logger.log(Level.DEBUG, "Applying {0} coalesced configuration events", null, events.size());
+        final Set<ComponentHolder<?>> updated = new LinkedHashSet<>();
+        try
+        {
+            for ( ConfigurationEvent event : events )
+            {
+                try
+                {
+                    configurationEvent( event, updated );
+                }
+                catch ( RuntimeException e )
+                {
+                    logger.log(Level.ERROR, "Failed applying configuration event for pid {0}", e, event.getPid());
+                }
+            }
+        }
+        finally
+        {
+            for ( ComponentHolder<?> holder : updated )
+            {
+                holder.applyConfigurationUpdates();
+            }
+        }
+    }
+
+    /**
+     * Handles the configuration event.
+     *
+     * @param event The configuration change event
+     * @param updated If not <code>null</code> updated configurations are only
+     *      stored with the component holders, which are added to this set
+     */
+    private void configurationEvent(final ConfigurationEvent event, final Set<ComponentHolder<?>> updated)
     {
         final TargetedPID pid = new TargetedPID( event.getPid() );
         String rawFactoryPid = event.getFactoryPid();
@@ -302,6 +455,12 @@ public abstract class RegionConfigurationSupport
         {
             if ( !componentHolder.getComponentMetadata().isConfigurationIgnored() )
             {
+                if ( updated != null && event.getType() != ConfigurationEvent.CM_UPDATED
+                    && updated.remove( componentHolder ) )
+                {
+                    // keep the order of updates and other changes
+                    componentHolder.applyConfigurationUpdates();
+                }
                 switch (event.getType())
                 {
                     case ConfigurationEvent.CM_DELETED:
@@ -344,8 +503,17 @@ public abstract class RegionConfigurationSupport
                                     //{
                                     //componentHolder.configurationDeleted( pid, factoryPid );
                                     //}
-                                    componentHolder.configurationUpdated( pid, factoryPid, configInfo.getProps(),
-                                        configInfo.getChangeCount() );
+                                    if ( updated != null )
+                                    {
+                                        componentHolder.storeConfigurationUpdate( pid, factoryPid,
+                                            configInfo.getProps(), configInfo.getChangeCount() );
+                                        updated.add( componentHolder );
+                                    }
+                                    else
+                                    {
+                                        componentHolder.configurationUpdated( pid, factoryPid, configInfo.getProps(),
+                                            configInfo.getChangeCount() );
+                                    }
                                 }
                             }
                         }
@@ -70,6 +70,14 @@ public interface ScrConfiguration extends LogConfiguration
     String PROP_CACHE_METADATA = "ds.cache.metadata";
 
     String PROP_COMMANDS_ENABLED = "ds.commands.enabled";
+
+    String PROP_PARALLEL_ACTIVATION_THREADS = "ds.parallel.activation.threads";
+
+    String PROP_ACTIVATION_PROFILE_SIZE = "ds.activation.profile.size";
+
+    String PROP_CONFIGURATION_COALESCE = "ds.configuration.coalesce.milliseconds";
+
+    String PROP_LAZY_REFERENCES = "ds.delayed.lazyReferences";
     
     boolean isFactoryEnabled();
 
@@ -97,4 +105,33 @@ public interface ScrConfiguration extends LogConfiguration
 
 	boolean isCommandsEnabled();
 
+    /**
+     * Returns the number of threads used to enable the independent components
+     * of a bundle concurrently. A value of <code>1</code> or less means that
+     * components are enabled sequentially, which is the default.
+     */
+    int parallelActivationThreads();
+
+    /**
+     * Returns the number of component activation phases kept by the
+     * {@link ActivationProfiler}. A value of <code>0</code> or less disables
+     * profiling, which is the default.
+     */
+    int activationProfileSize();
+
+    /**
+     * Returns the time in milliseconds during which configuration events are
+     * collected before they are applied to the components together. A value
+     * of <code>0</code> or less applies each event immediately, which is the
+     * default.
+     */
+    long configurationCoalesceDelay();
+
+    /**
+     * Returns whether delayed components check their references against the
+     * service registry when they are enabled and only track the referenced
+     * services once they are first used. The default is <code>false</code>.
+     */
+    boolean lazyReferences();
+
 }
@@ -560,16 +560,16 @@ public class ServiceTracker<S, T, U extends ServiceEvent> {
 	 * @return A {@code SortedMap} with the {@code ServiceReference}s and
 	 *         service objects for all services being tracked by this
 	 *         {@code ServiceTracker}. If no services are being tracked, then
-	 *         the returned map is empty.
+	 *         the returned map is empty. The returned map is shared and must
+	 *         not be modified.
 	 * @since 1.5
      * @param activate
      * @param trackingCount
      */
 	public SortedMap<ServiceReference<S>, T> getTracked( Boolean activate, AtomicInteger trackingCount ) {
-		SortedMap<ServiceReference<S>, T> map = new TreeMap<ServiceReference<S>, T>(Collections.reverseOrder());
 		final Tracked t = tracked();
 		if (t == null) { /* if ServiceTracker is not open */
-			return map;
+			return new TreeMap<ServiceReference<S>, T>(Collections.reverseOrder());
 		}
 		synchronized (t) {
             if ( activate != null )
@@ -577,7 +577,7 @@ public class ServiceTracker<S, T, U extends ServiceEvent> {
                 active = activate;
             }
             trackingCount.set( t.getTrackingCount() );
-            return t.copyEntries(map);
+            return t.getSnapshot();
 		}
 	}
 
@@ -888,6 +888,7 @@ public class ServiceTracker<S, T, U extends ServiceEvent> {
                         System.out.println("AbstractTracked.track[modified]: " + item); //$NON-NLS-1$
                     }
                     trackingCount = modified(); /* increment modification count */
+                    trackedModified(item);
                 }
             }
 
@@ -934,6 +935,7 @@ public class ServiceTracker<S, T, U extends ServiceEvent> {
                          * callback
                          */
                         tracked.put( item, object );
+                        trackedAdded( item, object );
                         trackingCount = modified(); /* increment modification count */
                         serviceCount = tracked.size();
                         notifyAll(); /* notify any waiters */
@@ -1003,6 +1005,7 @@ public class ServiceTracker<S, T, U extends ServiceEvent> {
                 if (object == null) { /* are we actually tracking the item */
                     return;
                 }
+                trackedRemoved(item);
                 trackingCount = modified(); /* increment modification count */
             }
             if (DEBUG) {
@@ -1063,6 +1066,34 @@ public class ServiceTracker<S, T, U extends ServiceEvent> {
             return tracked.keySet().toArray(list);
         }
 
+        /**
+         * Called after an item has been added to the tracked items.
+         *
+         * @param item The item added
+         * @param object The customized object for the item
+         * @GuardedBy this
+         */
+        void trackedAdded(final S item, final T object) {
+        }
+
+        /**
+         * Called after an item has been removed from the tracked items.
+         *
+         * @param item The item removed
+         * @GuardedBy this
+         */
+        void trackedRemoved(final S item) {
+        }
+
+        /**
+         * Called when a tracked item has been modified.
+         *
+         * @param item The item modified
+         * @GuardedBy this
+         */
+        void trackedModified(final S item) {
+        }
+
         /**
          * Increment the modification count. If this method is overridden, the
          * overriding method MUST call this method to increment the tracking count.
@@ -1158,6 +1189,59 @@ public class ServiceTracker<S, T, U extends ServiceEvent> {
 			super( trackingCount );
 		}
 
+		/**
+		 * The tracked services in reverse order of {@code ServiceReference},
+		 * kept up to date once created or {@code null} if not created yet or
+		 * if it has to be recreated. The map is immutable and handed out as
+		 * the snapshot of the tracked services.
+		 *
+		 * @GuardedBy this
+		 */
+		private PersistentSortedMap<ServiceReference<S>, T> sorted;
+
+		/**
+		 * Return an immutable map of the tracked services, sorted in reverse
+		 * order of {@code ServiceReference}. The map is shared by all callers
+		 * until the tracked services change. Adding or removing a service
+		 * creates the next map in O(log n), sharing all other entries with the
+		 * previous one.
+		 *
+		 * @GuardedBy this
+		 */
+		SortedMap<ServiceReference<S>, T> getSnapshot() {
+			if (sorted == null) {
+				PersistentSortedMap<ServiceReference<S>, T> map = PersistentSortedMap.empty(
+						Collections.<ServiceReference<S>> reverseOrder());
+				for (Map.Entry<ServiceReference<S>, T> entry : copyEntries(new HashMap<ServiceReference<S>, T>()).entrySet()) {
+					map = map.with(entry.getKey(), entry.getValue());
+				}
+				sorted = map;
+			}
+			return sorted;
+		}
+
+		@Override
+		void trackedAdded(final ServiceReference<S> item, final T object) {
+			if (sorted != null) {
+				sorted = sorted.with(item, object);
+			}
+		}
+
+		@Override
+		void trackedRemoved(final ServiceReference<S> item) {
+			if (sorted != null) {
+				final PersistentSortedMap<ServiceReference<S>, T> removed = sorted.without(item);
+				/* not found if the ranking changed without a modified event yet */
+				sorted = removed != sorted ? removed : null;
+			}
+		}
+
+		@Override
+		void trackedModified(final ServiceReference<S> item) {
+			/* the ranking may have changed, which changes the order */
+			sorted = null;
+		}
+
 		/**
 		 * {@code ServiceListener} method for the {@code ServiceTracker} class.
 		 * This method must NOT be synchronized to avoid deadlock potential.
@@ -242,6 +242,9 @@ public class SingleComponentManager<S> extends AbstractComponentManager<S> imple
             return null;
         }
 
+        final ActivationProfiler profiler = getActivationProfiler();
+        long start = profiler == null ? 0 : System.nanoTime();
+
         // bind target services
         final List<OpenStatus<S, ?>> openStatusList = new ArrayList<>();
 
@@ -281,6 +284,11 @@ public class SingleComponentManager<S> extends AbstractComponentManager<S> imple
 
         if ( !failed )
         {
+            if ( profiler != null )
+            {
+                profiler.record( this, ActivationProfiler.Phase.BIND, start );
+                start = System.nanoTime();
+            }
             try
             {
                 implementationObject = getComponentMethods().getConstructor().newInstance(
@@ -311,6 +319,12 @@ public class SingleComponentManager<S> extends AbstractComponentManager<S> imple
             // 3. set the implementation object prematurely
             setter.presetComponentContext( componentContext );
 
+            if ( profiler != null )
+            {
+                profiler.record( this, ActivationProfiler.Phase.CONSTRUCT, start );
+                start = System.nanoTime();
+            }
+
             // 4. Bind the target services
             final Iterator<OpenStatus<S, ?>> iter = openStatusList.iterator();
             for ( DependencyManager<S, ?> dm: getDependencyManagers())
@@ -348,10 +362,20 @@ public class SingleComponentManager<S> extends AbstractComponentManager<S> imple
 
         }
 
+        if ( profiler != null )
+        {
+            profiler.record( this, ActivationProfiler.Phase.BIND, start );
+            start = System.nanoTime();
+        }
+
         // 5. Call the activate method, if present
         final MethodResult failedResult = new MethodResult(true, new HashMap<String, Object>());
         final MethodResult result = getComponentMethods().getActivateMethod().invoke( implementationObject,
                 componentContext, 1, failedResult );
+        if ( profiler != null )
+        {
+            profiler.record( this, ActivationProfiler.Phase.ACTIVATE, start );
+        }
         if ( result == failedResult )
         {
             this.setFailureReason((Throwable)failedResult.getResult().get("exception"));
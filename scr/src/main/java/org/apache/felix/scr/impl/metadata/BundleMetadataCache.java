@@ -0,0 +1,265 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.scr.impl.metadata;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+import org.apache.felix.scr.impl.metadata.MetadataStoreHelper.MetaDataReader;
+import org.apache.felix.scr.impl.metadata.MetadataStoreHelper.MetaDataWriter;
+
+/**
+ * The <code>BundleMetadataCache</code> keeps the component metadata of each
+ * bundle in a file of its own. Contrary to the store written when SCR is
+ * stopped, a bundle's file is written as soon as its descriptors have been
+ * parsed and thus survives an unclean shutdown.
+ * <p>
+ * Each file holds the bundle id and the last modification time of the bundle
+ * revision the metadata has been read from, followed by the metadata and a
+ * checksum. Files are replaced atomically, a file which does not match the
+ * bundle revision or fails the checksum is ignored. As an incomplete file is
+ * detected by its checksum, files are not synced to the disk when written.
+ */
+public class BundleMetadataCache
+{
+    private static final int MAGIC = 0x53435242; // "SCRB"
+
+    private static final String SUFFIX = ".bin";
+
+    // magic, version, bundle id, last modified, payload length
+    private static final int HEADER_LENGTH = 4 + 4 + 8 + 8 + 4;
+
+    private final File directory;
+
+    public BundleMetadataCache(final File directory)
+    {
+        this.directory = directory;
+    }
+
+    /**
+     * Returns the cached metadata of the bundle or <code>null</code> if there
+     * is no valid entry for the bundle revision.
+     * @param bundleId The id of the bundle
+     * @param lastModified The last modification time of the bundle revision
+     * @throws IOException If the entry cannot be read
+     */
+    public List<ComponentMetadata> load(final long bundleId, final long lastModified) throws IOException
+    {
+        final File file = getFile(bundleId);
+        if (!file.isFile())
+        {
+            return null;
+        }
+        final long size = file.length();
+        if (size < HEADER_LENGTH + 4 || size > Integer.MAX_VALUE)
+        {
+            return invalid(file);
+        }
+        final byte[] payload;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file))))
+        {
+            if (in.readInt() != MAGIC || in.readInt() != MetadataStoreHelper.STORE_VERSION
+                || in.readLong() != bundleId)
+            {
+                return invalid(file);
+            }
+            if (in.readLong() != lastModified)
+            {
+                // outdated revision, will be replaced once parsed again
+                return null;
+            }
+            final int length = in.readInt();
+            if (length < 0 || length != size - HEADER_LENGTH - 4)
+            {
+                return invalid(file);
+            }
+            payload = new byte[length];
+            in.readFully(payload);
+            final CRC32 crc = new CRC32();
+            crc.update(payload, 0, length);
+            if ((int) crc.getValue() != in.readInt())
+            {
+                return invalid(file);
+            }
+        }
+        catch (EOFException e)
+        {
+            // the file has been truncated while reading
+            return invalid(file);
+        }
+
+        final DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        final MetaDataReader metaDataReader = new MetaDataReader();
+        final int numStrings = in.readInt();
+        for (int i = 0; i < numStrings; i++)
+        {
+            metaDataReader.readIndexedString(in);
+        }
+        final int numComponents = in.readInt();
+        final List<ComponentMetadata> components = new ArrayList<>(numComponents);
+        for (int i = 0; i < numComponents; i++)
+        {
+            components.add(ComponentMetadata.load(in, metaDataReader));
+        }
+        return components;
+    }
+
+    /**
+     * Replaces the cached metadata of the bundle.
+     * @param bundleId The id of the bundle
+     * @param lastModified The last modification time of the bundle revision
+     * @param components The metadata of the components of the bundle
+     * @throws IOException If the entry cannot be written
+     */
+    public void store(final long bundleId, final long lastModified, final List<ComponentMetadata> components)
+        throws IOException
+    {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(bytes);
+        final MetaDataWriter metaDataWriter = new MetaDataWriter();
+        final Set<String> allStrings = new HashSet<>();
+        for (ComponentMetadata component : components)
+        {
+            component.collectStrings(allStrings);
+        }
+        // remove possible null
+        allStrings.remove(null);
+        out.writeInt(allStrings.size());
+        for (String s : allStrings)
+        {
+            metaDataWriter.writeIndexedString(s, out);
+        }
+        out.writeInt(components.size());
+        for (ComponentMetadata component : components)
+        {
+            component.store(out, metaDataWriter);
+        }
+        out.flush();
+        final byte[] payload = bytes.toByteArray();
+        final CRC32 crc = new CRC32();
+        crc.update(payload, 0, payload.length);
+
+        if (!directory.isDirectory() && !directory.mkdirs() && !directory.isDirectory())
+        {
+            throw new IOException("Cannot create directory " + directory);
+        }
+        final File tmp = File.createTempFile("bundle" + bundleId + "-", ".tmp", directory);
+        try
+        {
+            try (FileOutputStream fos = new FileOutputStream(tmp))
+            {
+                final DataOutputStream file = new DataOutputStream(fos);
+                file.writeInt(MAGIC);
+                file.writeInt(MetadataStoreHelper.STORE_VERSION);
+                file.writeLong(bundleId);
+                file.writeLong(lastModified);
+                file.writeInt(payload.length);
+                file.write(payload);
+                file.writeInt((int) crc.getValue());
+                file.flush();
+            }
+            try
+            {
+                Files.move(tmp.toPath(), getFile(bundleId).toPath(), StandardCopyOption.ATOMIC_MOVE);
+            }
+            catch (AtomicMoveNotSupportedException e)
+            {
+                Files.move(tmp.toPath(), getFile(bundleId).toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        finally
+        {
+            tmp.delete();
+        }
+    }
+
+    /**
+     * Removes the cached metadata of the bundle.
+     * @param bundleId The id of the bundle
+     */
+    public void remove(final long bundleId)
+    {
+        getFile(bundleId).delete();
+    }
+
+    /**
+     * Removes the cached metadata of all bundles except the given ones, as
+     * well as temporary files left behind by an interrupted store.
+     * @param bundleIds The ids of the installed bundles
+     */
+    public void retain(final Set<Long> bundleIds)
+    {
+        final File[] files = directory.listFiles();
+        if (files == null)
+        {
+            return;
+        }
+        for (final File file : files)
+        {
+            final String name = file.getName();
+            if (name.endsWith(SUFFIX))
+            {
+                try
+                {
+                    if (bundleIds.contains(Long.valueOf(name.substring(0, name.length() - SUFFIX.length()))))
+                    {
+                        continue;
+                    }
+                }
+                catch (NumberFormatException e)
+                {
+                    // not an entry of this cache
+                    continue;
+                }
+            }
+            else if (!name.endsWith(".tmp"))
+            {
+                continue;
+            }
+            file.delete();
+        }
+    }
+
+    private File getFile(final long bundleId)
+    {
+        return new File(directory, bundleId + SUFFIX);
+    }
+
+    private List<ComponentMetadata> invalid(final File file)
+    {
+        file.delete();
+        return null;
+    }
+}
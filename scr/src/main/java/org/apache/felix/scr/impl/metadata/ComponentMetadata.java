@@ -18,6 +18,10 @@
  */
 package org.apache.felix.scr.impl.metadata;
 
+import static org.apache.felix.scr.impl.metadata.MetadataCompaction.compactList;
+import static org.apache.felix.scr.impl.metadata.MetadataCompaction.compactProperties;
+import static org.apache.felix.scr.impl.metadata.MetadataCompaction.compactStrings;
+import static org.apache.felix.scr.impl.metadata.MetadataCompaction.intern;
 import static org.apache.felix.scr.impl.metadata.MetadataStoreHelper.addString;
 
 import java.io.DataInputStream;
@@ -106,29 +110,29 @@ public class ComponentMetadata
     // activation fields (since DS 1.4)
     private List<String> m_activationFields;
 
-    // Associated properties (0..*)
-    private final Map<String, Object> m_properties = new HashMap<>();
+    // Associated properties (0..*), immutable once validated
+    private Map<String, Object> m_properties = new HashMap<>();
 
-    // Associated factory properties (0..*)
-    private final Map<String, Object> m_factoryProperties = new HashMap<>();
+    // Associated factory properties (0..*), immutable once validated
+    private Map<String, Object> m_factoryProperties = new HashMap<>();
 
     // List of Property metadata - used while building the meta data
     // while validating the properties contained in the PropertyMetadata
     // instances are copied to the m_properties Dictionary while this
     // list will be cleared
-    private final List<PropertyMetadata> m_propertyMetaData = new ArrayList<>();
+    private List<PropertyMetadata> m_propertyMetaData = new ArrayList<>();
 
     // List of Property metadata - used while building the meta data
     // while validating the properties contained in the PropertyMetadata
     // instances are copied to the m_factoryProperties Dictionary while this
     // list will be cleared
-    private final List<PropertyMetadata> m_factoryPropertyMetaData = new ArrayList<>();
+    private List<PropertyMetadata> m_factoryPropertyMetaData = new ArrayList<>();
 
     // Provided services (0..1)
     private ServiceMetadata m_service;
 
-    // List of service references, (required services 0..*)
-    private final List<ReferenceMetadata> m_references = new ArrayList<>();
+    // List of service references, (required services 0..*), immutable once validated
+    private List<ReferenceMetadata> m_references = new ArrayList<>();
 
     private boolean m_configurableServiceProperties;
     private boolean m_persistentFactoryComponent;
@@ -1086,10 +1090,44 @@ public class ComponentMetadata
          	throw validationFailure("Only a factory component can be a persistent factory component");
         }
 
+        compact();
         m_validated = true;
     }
 
 
+    /**
+     * Reduces the memory used by the validated metadata by interning the
+     * strings, sharing the implicit satisfying condition reference and
+     * replacing the collections by immutable collections of the exact size.
+     */
+    private void compact()
+    {
+        m_name = intern( m_name );
+        m_factory = intern( m_factory );
+        m_implementationClassName = intern( m_implementationClassName );
+        m_activate = intern( m_activate );
+        m_deactivate = intern( m_deactivate );
+        m_modified = intern( m_modified );
+        m_configurationPolicy = intern( m_configurationPolicy );
+        m_init = intern( m_init );
+        m_configurationPid = compactStrings( m_configurationPid );
+        m_activationFields = compactStrings( m_activationFields );
+        m_properties = compactProperties( m_properties );
+        m_factoryProperties = compactProperties( m_factoryProperties );
+        m_propertyMetaData = Collections.emptyList();
+        m_factoryPropertyMetaData = Collections.emptyList();
+        for ( int i = 0; i < m_references.size(); i++ )
+        {
+            final ReferenceMetadata reference = m_references.get( i );
+            if ( reference.isImplicitSatisfyingCondition() )
+            {
+                m_references.set( i, ReferenceMetadata.getImplicitSatisfyingCondition() );
+            }
+        }
+        m_references = compactList( m_references );
+    }
+
+
     /**
      * Returns a <code>ComponentException</code> for this component with the
      * given explanation for failure.
@@ -1262,12 +1300,14 @@ public class ComponentMetadata
         result.m_modified = metaDataReader.readString(in);
         result.m_name = metaDataReader.readString(in);
         int numFProps = in.readInt();
+        result.m_factoryProperties = new HashMap<>(numFProps);
         for (int i = 0; i < numFProps; i++)
         {
             result.m_factoryProperties.put(metaDataReader.readString(in),
                 loadPropertyValue(in, metaDataReader));
         }
         int numProps = in.readInt();
+        result.m_properties = new HashMap<>(numProps);
         for (int i = 0; i < numProps; i++)
         {
             result.m_properties.put(metaDataReader.readString(in),
@@ -1294,6 +1334,7 @@ public class ComponentMetadata
             result.m_immediate = in.readBoolean();
         }
         // we only store valid metadata
+        result.compact();
         result.m_validated = true;
         return result;
     }
@@ -0,0 +1,121 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.scr.impl.metadata;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Helper methods to reduce the memory used by validated metadata. The
+ * strings of the metadata are interned as the same interface, policy and
+ * method names are used by many components, and collections are replaced
+ * by immutable collections of the exact size.
+ */
+final class MetadataCompaction
+{
+
+    private MetadataCompaction()
+    {
+    }
+
+    static String intern(final String value)
+    {
+        return value == null ? null : value.intern();
+    }
+
+    static <T> List<T> compactList(final List<T> list)
+    {
+        if (list == null)
+        {
+            return null;
+        }
+        switch (list.size())
+        {
+            case 0:
+                return Collections.emptyList();
+            case 1:
+                return Collections.singletonList(list.get(0));
+            default:
+                return Collections.unmodifiableList(new ArrayList<>(list));
+        }
+    }
+
+    static List<String> compactStrings(final List<String> list)
+    {
+        if (list == null)
+        {
+            return null;
+        }
+        final String[] values = list.toArray(new String[list.size()]);
+        for (int i = 0; i < values.length; i++)
+        {
+            values[i] = intern(values[i]);
+        }
+        switch (values.length)
+        {
+            case 0:
+                return Collections.emptyList();
+            case 1:
+                return Collections.singletonList(values[0]);
+            default:
+                return Collections.unmodifiableList(Arrays.asList(values));
+        }
+    }
+
+    static Map<String, Object> compactProperties(final Map<String, Object> properties)
+    {
+        switch (properties.size())
+        {
+            case 0:
+                return Collections.emptyMap();
+            case 1:
+                final Map.Entry<String, Object> entry = properties.entrySet().iterator().next();
+                return Collections.singletonMap(intern(entry.getKey()), internValue(entry.getValue()));
+            default:
+                // sized to hold the entries without resizing
+                final Map<String, Object> result = new HashMap<>(properties.size() * 4 / 3 + 1);
+                for (Map.Entry<String, Object> e : properties.entrySet())
+                {
+                    result.put(intern(e.getKey()), internValue(e.getValue()));
+                }
+                return Collections.unmodifiableMap(result);
+        }
+    }
+
+    private static Object internValue(final Object value)
+    {
+        if (value instanceof String)
+        {
+            return intern((String) value);
+        }
+        if (value instanceof String[])
+        {
+            final String[] values = (String[]) value;
+            for (int i = 0; i < values.length; i++)
+            {
+                values[i] = intern(values[i]);
+            }
+        }
+        return value;
+    }
+}
@@ -18,6 +18,7 @@
  */
 package org.apache.felix.scr.impl.metadata;
 
+import static org.apache.felix.scr.impl.metadata.MetadataCompaction.intern;
 import static org.apache.felix.scr.impl.metadata.MetadataStoreHelper.addString;
 
 import java.io.DataInputStream;
@@ -790,9 +791,75 @@ public class ReferenceMetadata
                     "Collection value type must be one of " + FIELD_VALUE_TYPE_VALID);
             }
         }
+        internStrings();
         m_validated = true;
     }
 
+    /**
+     * Interns the strings of this reference as the same interface, policy and
+     * method names are used by many components.
+     */
+    private void internStrings()
+    {
+        m_name = intern( m_name );
+        m_interface = intern( m_interface );
+        m_cardinality = intern( m_cardinality );
+        m_target = intern( m_target );
+        m_bind = intern( m_bind );
+        m_updated = intern( m_updated );
+        m_unbind = intern( m_unbind );
+        m_field = intern( m_field );
+        m_field_option = intern( m_field_option );
+        m_collection_type = intern( m_collection_type );
+        m_policy = intern( m_policy );
+        m_policy_option = intern( m_policy_option );
+        m_scopeName = intern( m_scopeName );
+        m_parameter = intern( m_parameter );
+    }
+
+    /**
+     * Returns <code>true</code> if this is a validated reference which is
+     * equal to the implicit satisfying condition reference added to every
+     * component when the framework provides the true condition.
+     */
+    boolean isImplicitSatisfyingCondition()
+    {
+        return m_validated
+            && REFERENCE_NAME_SATISFYING_CONDITION.equals( m_name )
+            && CONDITION_SERVICE_CLASS.equals( m_interface )
+            && CONDITION_TRUE_FILTER.equals( m_target )
+            && CARDINALITY_1_1.equals( m_cardinality )
+            && POLICY_DYNAMIC.equals( m_policy )
+            && POLICY_OPTION_RELUCTANT.equals( m_policy_option )
+            && m_scope == ReferenceScope.bundle && m_scopeName == null
+            && m_bind == null && m_updated == null && m_unbind == null
+            && m_field == null && m_field_option == null && m_collection_type == null
+            && m_parameter == null;
+    }
+
+    /**
+     * Returns the validated implicit satisfying condition reference shared
+     * by all components.
+     */
+    static ReferenceMetadata getImplicitSatisfyingCondition()
+    {
+        return ImplicitSatisfyingCondition.INSTANCE;
+    }
+
+    private static final class ImplicitSatisfyingCondition
+    {
+        static final ReferenceMetadata INSTANCE = new ReferenceMetadata();
+
+        static
+        {
+            INSTANCE.setName( REFERENCE_NAME_SATISFYING_CONDITION );
+            INSTANCE.setTarget( CONDITION_TRUE_FILTER );
+            INSTANCE.setInterface( CONDITION_SERVICE_CLASS );
+            INSTANCE.setPolicy( POLICY_DYNAMIC );
+            INSTANCE.validate( new ComponentMetadata( DSVersion.DS13 ) );
+        }
+    }
+
     public String getDebugInfo()
     {
         return getName() +
@@ -888,6 +955,7 @@ public class ReferenceMetadata
         result.m_updated = metaDataReader.readString(in);
 
         // only stored valid metadata
+        result.internStrings();
         result.m_validated = true;
         return result;
     }
@@ -18,6 +18,8 @@
  */
 package org.apache.felix.scr.impl.metadata;
 
+import static org.apache.felix.scr.impl.metadata.MetadataCompaction.compactStrings;
+import static org.apache.felix.scr.impl.metadata.MetadataCompaction.intern;
 import static org.apache.felix.scr.impl.metadata.MetadataStoreHelper.addString;
 
 import java.io.DataInputStream;
@@ -141,9 +143,16 @@ public class ServiceMetadata {
                 throw componentMetadata.validationFailure("Service scope may be only 'singleton' 'bundle' or 'prototype' not " + m_scopeName);
             }
         }
+        compact();
         m_validated = true;
     }
 
+    private void compact()
+    {
+        m_provides = compactStrings( m_provides );
+        m_scopeName = intern( m_scopeName );
+    }
+
     void collectStrings(Set<String> strings)
     {
         for (String s : m_provides)
@@ -186,6 +195,7 @@ public class ServiceMetadata {
             result.m_serviceFactory = in.readBoolean();
         }
         // only stored valid metadata
+        result.compact();
         result.m_validated = true;
         return result;
     }
@@ -0,0 +1,105 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.scr.impl.runtime;
+
+import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A map reading through to a shared map until it is modified, when it is
+ * replaced by a copy of its own. The property maps of the cached DTOs are
+ * handed out this way, so callers may modify the DTOs they receive without
+ * each call copying all properties.
+ * <p>
+ * The views of the map are read only until the map has been modified
+ * through {@link #put(Object, Object)}, {@link #remove(Object)},
+ * {@link #putAll(Map)} or {@link #clear()}.
+ */
+final class LazyCopyMap<K, V> extends AbstractMap<K, V>
+{
+    private Map<K, V> map;
+
+    private boolean copied;
+
+    LazyCopyMap(final Map<K, V> shared)
+    {
+        this.map = Collections.unmodifiableMap(shared);
+    }
+
+    @Override
+    public int size()
+    {
+        return map.size();
+    }
+
+    @Override
+    public boolean containsKey(final Object key)
+    {
+        return map.containsKey(key);
+    }
+
+    @Override
+    public V get(final Object key)
+    {
+        return map.get(key);
+    }
+
+    @Override
+    public Set<Map.Entry<K, V>> entrySet()
+    {
+        return map.entrySet();
+    }
+
+    @Override
+    public V put(final K key, final V value)
+    {
+        return copy().put(key, value);
+    }
+
+    @Override
+    public V remove(final Object key)
+    {
+        return copy().remove(key);
+    }
+
+    @Override
+    public void putAll(final Map<? extends K, ? extends V> m)
+    {
+        copy().putAll(m);
+    }
+
+    @Override
+    public void clear()
+    {
+        copy().clear();
+    }
+
+    private Map<K, V> copy()
+    {
+        if (!copied)
+        {
+            map = new HashMap<>(map);
+            copied = true;
+        }
+        return map;
+    }
+}
@@ -19,11 +19,13 @@
 package org.apache.felix.scr.impl.runtime;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.WeakHashMap;
 
 import org.apache.felix.scr.impl.ComponentRegistry;
 import org.apache.felix.scr.impl.manager.ComponentHolder;
@@ -53,6 +55,14 @@ public class ServiceComponentRuntimeImpl implements ServiceComponentRuntime
     private final BundleContext context;
     private final ComponentRegistry componentRegistry;
 
+    // cached description DTOs, rebuilt if the bundle changes
+    private final Map<ComponentHolder<?>, ComponentDescriptionDTO> descriptions = Collections.synchronizedMap(
+        new WeakHashMap<ComponentHolder<?>, ComponentDescriptionDTO>());
+
+    // cached configuration DTOs, rebuilt if the component or its references change
+    private final Map<ComponentManager<?>, ConfigurationSnapshot> configurations = Collections.synchronizedMap(
+        new WeakHashMap<ComponentManager<?>, ConfigurationSnapshot>());
+
     public ServiceComponentRuntimeImpl(final BundleContext context, final ComponentRegistry componentRegistry)
     {
         this.context = context;
@@ -81,7 +91,7 @@ public class ServiceComponentRuntimeImpl implements ServiceComponentRuntime
             ComponentDescriptionDTO dto = holderToDescription(holder);
             if ( dto != null )
             {
-                result.add(dto);
+                result.add(copy(dto));
             }
         }
         return result;
@@ -96,7 +106,8 @@ public class ServiceComponentRuntimeImpl implements ServiceComponentRuntime
         ComponentHolder<?> holder = componentRegistry.getComponentHolder(bundle, name);
         if ( holder != null )
         {
-            return holderToDescription(holder);
+            ComponentDescriptionDTO dto = holderToDescription(holder);
+            return dto == null ? null : copy(dto);
         }
         else
         {
@@ -127,11 +138,13 @@ public class ServiceComponentRuntimeImpl implements ServiceComponentRuntime
             {
                 return Collections.emptyList();
             }
+            // the configurations share a copy of the description
+            ComponentDescriptionDTO descriptionCopy = copy(description);
             List<? extends ComponentManager<?>> managers = holder.getComponents();
             List<ComponentConfigurationDTO> result = new ArrayList<>(managers.size());
             for (ComponentManager<?> manager: managers)
             {
-                result.add(managerToConfiguration(manager, description));
+                result.add(copy(getConfigurationSnapshot(manager, description).dto, descriptionCopy));
             }
             return result;
         }
@@ -141,6 +154,66 @@ public class ServiceComponentRuntimeImpl implements ServiceComponentRuntime
         }
     }
 
+    /**
+     * Returns the current <code>service.changecount</code> of this service.
+     * The registered service property is updated asynchronously and may lag
+     * behind this value.
+     */
+    public long getChangeCount()
+    {
+        return componentRegistry.getChangeCount();
+    }
+
+    /**
+     * Returns the configuration DTOs of all components which changed after
+     * the given change count. A client polling for changes passes
+     * <code>-1</code> to get all configurations first, and then the value of
+     * {@link #getChangeCount()} obtained right before its previous call.
+     * Configurations which have been removed are not reported.
+     * <p>
+     * Changes of the services bound to a component do not change the
+     * <code>service.changecount</code>. Changes are detected when the
+     * configurations are queried and reported as changed after the current
+     * change count, so a configuration may be reported again until the change
+     * count increases.
+     *
+     * @param changeCount The change count known to the caller
+     * @return The configurations changed since then
+     */
+    public Collection<ComponentConfigurationDTO> getChangedSince(final long changeCount)
+    {
+        final List<ComponentConfigurationDTO> result = new ArrayList<>();
+        for (ComponentHolder<?> holder : componentRegistry.getComponentHolders())
+        {
+            try
+            {
+                final ComponentDescriptionDTO description = holderToDescription(holder);
+                if (description == null)
+                {
+                    continue;
+                }
+                ComponentDescriptionDTO descriptionCopy = null;
+                for (ComponentManager<?> manager : holder.getComponents())
+                {
+                    final ConfigurationSnapshot snapshot = getConfigurationSnapshot(manager, description);
+                    if (snapshot.changeCount > changeCount)
+                    {
+                        if (descriptionCopy == null)
+                        {
+                            descriptionCopy = copy(description);
+                        }
+                        result.add(copy(snapshot.dto, descriptionCopy));
+                    }
+                }
+            }
+            catch ( IllegalStateException ise)
+            {
+                // bundle stopped concurrently
+            }
+        }
+        return result;
+    }
+
     /**
      * @see org.osgi.service.component.runtime.ServiceComponentRuntime#isComponentEnabled(org.osgi.service.component.runtime.dto.ComponentDescriptionDTO)
      */
@@ -211,6 +284,30 @@ public class ServiceComponentRuntimeImpl implements ServiceComponentRuntime
         }
     }
 
+    /**
+     * Returns the cached configuration DTO of the component if it is still
+     * current, otherwise builds a new one.
+     */
+    private ConfigurationSnapshot getConfigurationSnapshot(final ComponentManager<?> manager,
+        final ComponentDescriptionDTO description)
+    {
+        final ConfigurationSnapshot current = configurations.get(manager);
+        if (current != null && current.isCurrent(manager, description))
+        {
+            return current;
+        }
+        // capture the state before building the DTO so that concurrent changes
+        // cause another rebuild on the next call
+        final ConfigurationSnapshot snapshot = new ConfigurationSnapshot(manager, description);
+        // a change found here may not have increased the change count, so it
+        // is reported to clients which saw the current change count
+        final long changeCount = componentRegistry.getChangeCount();
+        snapshot.changeCount = current == null ? changeCount : changeCount + 1;
+        snapshot.dto = managerToConfiguration(manager, description);
+        configurations.put(manager, snapshot);
+        return snapshot;
+    }
+
     private ComponentConfigurationDTO managerToConfiguration(final ComponentManager<?> manager, final ComponentDescriptionDTO description)
     {
         final ComponentConfigurationDTO dto = new ComponentConfigurationDTO();
@@ -293,6 +390,138 @@ public class ServiceComponentRuntimeImpl implements ServiceComponentRuntime
         return serviceRef.adapt(ServiceReferenceDTO.class);
     }
 
+    /**
+     * Returns a copy of a cached description DTO, so that callers modifying
+     * the returned DTO do not modify the cache. Property maps are only copied
+     * once they are modified.
+     */
+    private ComponentDescriptionDTO copy(final ComponentDescriptionDTO source)
+    {
+        final ComponentDescriptionDTO dto = new ComponentDescriptionDTO();
+        dto.activate = source.activate;
+        dto.bundle = copy(source.bundle);
+        dto.configurationPid = source.configurationPid.clone();
+        dto.configurationPolicy = source.configurationPolicy;
+        dto.deactivate = source.deactivate;
+        dto.defaultEnabled = source.defaultEnabled;
+        dto.factory = source.factory;
+        dto.immediate = source.immediate;
+        dto.implementationClass = source.implementationClass;
+        dto.modified = source.modified;
+        dto.name = source.name;
+        dto.properties = copy(source.properties);
+        dto.references = new ReferenceDTO[source.references.length];
+        for (int i = 0; i < dto.references.length; i++)
+        {
+            dto.references[i] = copy(source.references[i]);
+        }
+        dto.scope = source.scope;
+        dto.serviceInterfaces = source.serviceInterfaces.clone();
+        dto.factoryProperties = copy(source.factoryProperties);
+        dto.activationFields = source.activationFields.clone();
+        dto.init = source.init;
+        return dto;
+    }
+
+    /**
+     * Returns a copy of a cached configuration DTO referring to the given
+     * copy of its description.
+     */
+    private ComponentConfigurationDTO copy(final ComponentConfigurationDTO source,
+        final ComponentDescriptionDTO description)
+    {
+        final ComponentConfigurationDTO dto = new ComponentConfigurationDTO();
+        dto.description = description;
+        dto.id = source.id;
+        dto.state = source.state;
+        dto.failure = source.failure;
+        dto.properties = copy(source.properties);
+        dto.service = copy(source.service);
+        dto.satisfiedReferences = new SatisfiedReferenceDTO[source.satisfiedReferences.length];
+        for (int i = 0; i < dto.satisfiedReferences.length; i++)
+        {
+            final SatisfiedReferenceDTO ref = new SatisfiedReferenceDTO();
+            ref.name = source.satisfiedReferences[i].name;
+            ref.target = source.satisfiedReferences[i].target;
+            ref.boundServices = copy(source.satisfiedReferences[i].boundServices);
+            dto.satisfiedReferences[i] = ref;
+        }
+        dto.unsatisfiedReferences = new UnsatisfiedReferenceDTO[source.unsatisfiedReferences.length];
+        for (int i = 0; i < dto.unsatisfiedReferences.length; i++)
+        {
+            final UnsatisfiedReferenceDTO ref = new UnsatisfiedReferenceDTO();
+            ref.name = source.unsatisfiedReferences[i].name;
+            ref.target = source.unsatisfiedReferences[i].target;
+            ref.targetServices = copy(source.unsatisfiedReferences[i].targetServices);
+            dto.unsatisfiedReferences[i] = ref;
+        }
+        return dto;
+    }
+
+    private ReferenceDTO copy(final ReferenceDTO source)
+    {
+        final ReferenceDTO dto = new ReferenceDTO();
+        dto.bind = source.bind;
+        dto.cardinality = source.cardinality;
+        dto.field = source.field;
+        dto.fieldOption = source.fieldOption;
+        dto.interfaceName = source.interfaceName;
+        dto.name = source.name;
+        dto.policy = source.policy;
+        dto.policyOption = source.policyOption;
+        dto.scope = source.scope;
+        dto.target = source.target;
+        dto.unbind = source.unbind;
+        dto.updated = source.updated;
+        dto.parameter = source.parameter;
+        dto.collectionType = source.collectionType;
+        return dto;
+    }
+
+    private ServiceReferenceDTO[] copy(final ServiceReferenceDTO[] source)
+    {
+        final ServiceReferenceDTO[] dtos = new ServiceReferenceDTO[source.length];
+        for (int i = 0; i < dtos.length; i++)
+        {
+            dtos[i] = copy(source[i]);
+        }
+        return dtos;
+    }
+
+    private ServiceReferenceDTO copy(final ServiceReferenceDTO source)
+    {
+        if (source == null)
+        {
+            return null;
+        }
+        final ServiceReferenceDTO dto = new ServiceReferenceDTO();
+        dto.id = source.id;
+        dto.bundle = source.bundle;
+        dto.properties = copy(source.properties);
+        dto.usingBundles = source.usingBundles == null ? null : source.usingBundles.clone();
+        return dto;
+    }
+
+    private BundleDTO copy(final BundleDTO source)
+    {
+        if (source == null)
+        {
+            return null;
+        }
+        final BundleDTO dto = new BundleDTO();
+        dto.id = source.id;
+        dto.lastModified = source.lastModified;
+        dto.state = source.state;
+        dto.symbolicName = source.symbolicName;
+        dto.version = source.version;
+        return dto;
+    }
+
+    private Map<String, Object> copy(final Map<String, Object> source)
+    {
+        return source == null ? null : new LazyCopyMap<>(source);
+    }
+
     /**
      * Return the component holder
      * @param description Component description DTO
@@ -315,17 +544,35 @@ public class ServiceComponentRuntimeImpl implements ServiceComponentRuntime
         return componentRegistry.getComponentHolder(b, name);
     }
 
+    /**
+     * Returns the cached description DTO of the component if the bundle did
+     * not change, otherwise builds a new one.
+     */
     private ComponentDescriptionDTO holderToDescription( ComponentHolder<?> holder )
     {
-        ComponentDescriptionDTO dto = new ComponentDescriptionDTO();
-        ComponentMetadata m = holder.getComponentMetadata();
-        dto.activate = m.getActivate();
-        dto.bundle = bundleToDTO(holder.getActivator().getBundleContext());
+        final BundleDTO bundle = bundleToDTO(holder.getActivator().getBundleContext());
         // immediately return if bundle is not active anymore
-        if ( dto.bundle == null )
+        if ( bundle == null )
         {
             return null;
         }
+        final ComponentDescriptionDTO current = descriptions.get(holder);
+        if ( current != null && current.bundle.state == bundle.state
+            && current.bundle.lastModified == bundle.lastModified )
+        {
+            return current;
+        }
+        final ComponentDescriptionDTO dto = buildDescription(holder, bundle);
+        descriptions.put(holder, dto);
+        return dto;
+    }
+
+    private ComponentDescriptionDTO buildDescription( ComponentHolder<?> holder, BundleDTO bundle )
+    {
+        ComponentDescriptionDTO dto = new ComponentDescriptionDTO();
+        ComponentMetadata m = holder.getComponentMetadata();
+        dto.activate = m.getActivate();
+        dto.bundle = bundle;
         dto.configurationPid = m.getConfigurationPid().toArray(new String[m.getConfigurationPid().size()]);
         dto.configurationPolicy = m.getConfigurationPolicy();
         dto.deactivate = m.getDeactivate();
@@ -445,4 +692,122 @@ public class ServiceComponentRuntimeImpl implements ServiceComponentRuntime
             return null;
         }
     }
+
+    /**
+     * A configuration DTO together with the state of the component it has
+     * been built from. The component state is compared on each access, which
+     * is cheap compared to building the DTO and its service reference DTOs.
+     */
+    private static final class ConfigurationSnapshot
+    {
+        private static final long[] NO_BUNDLES = {};
+
+        private final ComponentDescriptionDTO description;
+        private final int state;
+        private final String failureReason;
+        private final Map<String, Object> properties;
+        private final ServiceReference<?> service;
+        private final int serviceEventCount;
+        private final boolean[] satisfied;
+        private final String[] targets;
+        // the services of the DTO and the bundles using them
+        private final List<ServiceReference<?>> services = new ArrayList<>();
+        private final List<long[]> usingBundles = new ArrayList<>();
+
+        long changeCount;
+
+        ComponentConfigurationDTO dto;
+
+        ConfigurationSnapshot(final ComponentManager<?> manager, final ComponentDescriptionDTO description)
+        {
+            this.description = description;
+            this.state = manager.getSpecState();
+            this.failureReason = manager.getFailureReason();
+            this.properties = manager.getProperties();
+            this.service = manager.getRegisteredServiceReference();
+            this.serviceEventCount = manager.getServiceEventCount();
+            final List<? extends ReferenceManager<?, ?>> refs = manager.getReferenceManagers();
+            this.satisfied = new boolean[refs.size()];
+            this.targets = new String[refs.size()];
+            for (int i = 0; i < satisfied.length; i++)
+            {
+                satisfied[i] = refs.get(i).isSatisfied();
+                targets[i] = refs.get(i).getTarget();
+                for (ServiceReference<?> serviceRef : refs.get(i).getServiceReferences())
+                {
+                    addService(serviceRef);
+                }
+            }
+            addService(service);
+        }
+
+        private void addService(final ServiceReference<?> serviceRef)
+        {
+            if (serviceRef != null)
+            {
+                services.add(serviceRef);
+                usingBundles.add(getUsingBundles(serviceRef));
+            }
+        }
+
+        boolean isCurrent(final ComponentManager<?> manager, final ComponentDescriptionDTO description)
+        {
+            if (this.description != description
+                || state != manager.getSpecState()
+                || serviceEventCount != manager.getServiceEventCount()
+                || !equals(failureReason, manager.getFailureReason())
+                || !equals(service, manager.getRegisteredServiceReference()))
+            {
+                return false;
+            }
+            final List<? extends ReferenceManager<?, ?>> refs = manager.getReferenceManagers();
+            if (refs.size() != satisfied.length)
+            {
+                return false;
+            }
+            for (int i = 0; i < satisfied.length; i++)
+            {
+                if (satisfied[i] != refs.get(i).isSatisfied() || !equals(targets[i], refs.get(i).getTarget()))
+                {
+                    return false;
+                }
+            }
+            // getting or releasing a service does not cause a service event
+            for (int i = 0; i < services.size(); i++)
+            {
+                if (!Arrays.equals(usingBundles.get(i), getUsingBundles(services.get(i))))
+                {
+                    return false;
+                }
+            }
+            final Map<String, Object> currentProperties = manager.getProperties();
+            return properties == currentProperties || properties.equals(currentProperties);
+        }
+
+        /**
+         * Returns the ids of the bundles using the service, as reported by
+         * the <code>usingBundles</code> of its DTO.
+         */
+        private static long[] getUsingBundles(final ServiceReference<?> serviceRef)
+        {
+            final Bundle[] bundles = serviceRef.getUsingBundles();
+            if (bundles == null)
+            {
+                return NO_BUNDLES;
+            }
+            final long[] ids = new long[bundles.length];
+            for (int i = 0; i < ids.length; i++)
+            {
+                ids[i] = bundles[i].getBundleId();
+            }
+            // the order of the using bundles is not defined
+            Arrays.sort(ids);
+            return ids;
+        }
+
+        private static boolean equals(final Object a, final Object b)
+        {
+            return a == null ? b == null : a.equals(b);
+        }
+    }
 }
@@ -20,12 +20,27 @@ package org.apache.felix.scr.impl;
 
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Dictionary;
 import java.util.Enumeration;
+import java.util.Hashtable;
+import java.util.List;
 import java.util.Vector;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
+import org.apache.felix.scr.impl.logger.ScrLogger;
+import org.apache.felix.scr.impl.manager.ComponentHolder;
+import org.apache.felix.scr.impl.metadata.ComponentMetadata;
+import org.apache.felix.scr.impl.metadata.DSVersion;
+import org.apache.felix.scr.impl.metadata.ReferenceMetadata;
+import org.apache.felix.scr.impl.metadata.ServiceMetadata;
 import org.mockito.Mockito;
 import org.osgi.framework.Bundle;
+import org.osgi.framework.Constants;
+import org.osgi.service.component.ComponentFactory;
 
 import junit.framework.TestCase;
 
@@ -180,4 +195,95 @@ public class BundleComponentActivatorTest extends TestCase
         assertEquals( "Descriptor length", 0, actualUrls.length );
     }
 
-}
\ No newline at end of file
+    /**
+     * Test that components referencing each other end up in the same group
+     * and that unrelated components are in groups of their own.
+     */
+    public void test_getIndependentGroups()
+    {
+        final List<ComponentHolder<?>> holders = new ArrayList<>();
+        // a -> b -> c, d independent, e -> factory f, g references an unknown service
+        final ComponentHolder<?> a = createHolder( "a", null, false, "B" );
+        final ComponentHolder<?> d = createHolder( "d", "D", false );
+        final ComponentHolder<?> c = createHolder( "c", "C", false );
+        final ComponentHolder<?> b = createHolder( "b", "B", false, "C" );
+        final ComponentHolder<?> e = createHolder( "e", null, false, ComponentFactory.class.getName() );
+        final ComponentHolder<?> f = createHolder( "f", null, true );
+        final ComponentHolder<?> g = createHolder( "g", null, false, "X" );
+        holders.addAll( Arrays.asList( a, d, c, b, e, f, g ) );
+
+        final List<List<ComponentHolder<?>>> groups = BundleComponentActivator.getIndependentGroups( holders );
+        assertEquals( 4, groups.size() );
+        assertEquals( Arrays.asList( a, c, b ), groups.get( 0 ) );
+        assertEquals( Arrays.asList( d ), groups.get( 1 ) );
+        assertEquals( Arrays.asList( e, f ), groups.get( 2 ) );
+        assertEquals( Arrays.asList( g ), groups.get( 3 ) );
+    }
+
+    /**
+     * Test that the components of a lazily activated bundle, which is started
+     * while the framework holds the bundle lock, are not enabled concurrently.
+     */
+    public void test_canEnableConcurrently_lazyActivation() throws Exception
+    {
+        final Bundle bundle = Mockito.mock( Bundle.class );
+        final Dictionary<String, String> headers = new Hashtable<>();
+        headers.put( Constants.BUNDLE_ACTIVATIONPOLICY, Constants.ACTIVATION_LAZY );
+        Mockito.when( bundle.getHeaders( "" ) ).thenReturn( headers );
+
+        final ComponentActivationExecutor executor = new ComponentActivationExecutor(
+            Mockito.mock( ScrLogger.class ), 2 );
+        try
+        {
+            Mockito.when( bundle.getState() ).thenReturn( Bundle.STARTING );
+            assertFalse( BundleComponentActivator.canEnableConcurrently( bundle, executor ) );
+
+            Mockito.when( bundle.getState() ).thenReturn( Bundle.ACTIVE );
+            assertTrue( BundleComponentActivator.canEnableConcurrently( bundle, executor ) );
+            assertFalse( BundleComponentActivator.canEnableConcurrently( bundle, null ) );
+
+            // a thread of the executor must not wait for the executor
+            final Future<Boolean> nested = executor.submit( new Callable<Boolean>()
+            {
+                @Override
+                public Boolean call()
+                {
+                    return BundleComponentActivator.canEnableConcurrently( bundle, executor );
+                }
+            } );
+            assertFalse( nested.get( 5, TimeUnit.SECONDS ) );
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    private ComponentHolder<?> createHolder( final String name, final String provide, final boolean factory,
+        final String... references )
+    {
+        final ComponentMetadata metadata = new ComponentMetadata( DSVersion.DS13 );
+        metadata.setName( name );
+        if ( provide != null )
+        {
+            final ServiceMetadata service = new ServiceMetadata();
+            service.addProvide( provide );
+            metadata.setService( service );
+        }
+        if ( factory )
+        {
+            metadata.setFactoryIdentifier( name );
+        }
+        for ( final String reference : references )
+        {
+            final ReferenceMetadata rm = new ReferenceMetadata();
+            rm.setName( reference );
+            rm.setInterface( reference );
+            metadata.addDependency( rm );
+        }
+        final ComponentHolder<?> holder = Mockito.mock( ComponentHolder.class );
+        Mockito.when( holder.getComponentMetadata() ).thenReturn( metadata );
+        return holder;
+    }
+
+}
@@ -18,7 +18,11 @@
  */
 package org.apache.felix.scr.impl.inject.internal;
 
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
 import java.lang.reflect.Array;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
@@ -27,6 +31,7 @@ import java.util.Map;
 
 import org.mockito.Mockito;
 import org.osgi.framework.Bundle;
+import org.osgi.service.component.ComponentException;
 
 import junit.framework.TestCase;
 
@@ -696,6 +701,132 @@ public class AnnotationTest extends TestCase
         assertEquals("true-value", o.value());
     }
 
+    @Retention(RetentionPolicy.RUNTIME)
+    public @interface EqualsTest {
+        int integer() default 3;
+        String[] array() default {"a", "b"};
+        E1 e1() default E1.c;
+    }
+
+    @EqualsTest
+    private static class Annotated
+    {
+    }
+
+    public void testGeneratedImplementation() throws Exception
+    {
+        final A2 a = Annotations.toObject(A2.class, allValues(), mockBundle(), false);
+        assertFalse(Proxy.isProxyClass(a.getClass()));
+        assertTrue(a instanceof PropertyTypeBase);
+        assertEquals(A2.class, a.annotationType());
+
+        // the implementation class is generated once per type
+        final A2 other = Annotations.toObject(A2.class, Collections.<String, Object> emptyMap(), mockBundle(), false);
+        assertSame(a.getClass(), other.getClass());
+
+        // package private types use a proxy
+        final OddTest odd = Annotations.toObject(OddTest.class, Collections.<String, Object> emptyMap(), mockBundle(), true);
+        assertTrue(Proxy.isProxyClass(odd.getClass()));
+    }
+
+    public void testGeneratedMatchesProxy() throws Exception
+    {
+        assertSameValues(A1Arrays.class, arrayValues());
+        assertSameValues(A1Arrays.class, new HashMap<String, Object>());
+        assertSameValues(A2.class, allValues());
+        assertSameValues(A2.class, Collections.<String, Object> emptyMap());
+        assertSameValues(EqualsTest.class, Collections.<String, Object> emptyMap());
+        assertSameValues(B1.class, b1Values());
+        assertSameValues(C1.class, c1Values());
+    }
+
+    public void testGeneratedProtectionDomain() throws Exception
+    {
+        final A2 a = Annotations.toObject(A2.class, allValues(), mockBundle(), false);
+        assertFalse(Proxy.isProxyClass(a.getClass()));
+        assertSame(A2.class.getProtectionDomain(), a.getClass().getProtectionDomain());
+    }
+
+    private <T> void assertSameValues(Class<T> type, Map<String, Object> values) throws Exception
+    {
+        final T generated = Annotations.toObject(type, values, mockBundle(), true, true);
+        final T proxy = Annotations.toObject(type, values, mockBundle(), true, false);
+        assertFalse(Proxy.isProxyClass(generated.getClass()));
+        assertTrue(Proxy.isProxyClass(proxy.getClass()));
+        assertSameMembers(type, generated, proxy);
+    }
+
+    private void assertSameMembers(Class<?> type, Object generated, Object proxy) throws Exception
+    {
+        for (Method method: type.getDeclaredMethods())
+        {
+            final Object expected = method.invoke(proxy);
+            final Object actual = method.invoke(generated);
+            final Class<?> returnType = method.getReturnType();
+            if (returnType.isAnnotation())
+            {
+                assertSameMembers(returnType, actual, expected);
+            }
+            else if (returnType.isArray() && returnType.getComponentType().isAnnotation())
+            {
+                assertEquals(method.getName(), Array.getLength(expected), Array.getLength(actual));
+                for (int i = 0; i < Array.getLength(expected); i++)
+                {
+                    assertSameMembers(returnType.getComponentType(), Array.get(actual, i), Array.get(expected, i));
+                }
+            }
+            else if (returnType.isArray())
+            {
+                assertArrayEquals(expected, actual);
+            }
+            else
+            {
+                assertEquals(method.getName(), expected, actual);
+            }
+        }
+    }
+
+    public void testEqualsHashCode() throws Exception
+    {
+        final Map<String, Object> values = new HashMap<>();
+        values.put("integer", 3);
+        values.put("array", new String[] {"a", "b"});
+        values.put("e1", "c");
+
+        final EqualsTest a = Annotations.toObject(EqualsTest.class, values, mockBundle(), false);
+        final EqualsTest b = Annotations.toObject(EqualsTest.class, new HashMap<>(values), mockBundle(), false);
+        final EqualsTest real = Annotated.class.getAnnotation(EqualsTest.class);
+
+        assertEquals(a, b);
+        assertEquals(a.hashCode(), b.hashCode());
+        assertEquals(real.hashCode(), a.hashCode());
+        assertTrue(a.equals(real));
+        assertTrue(real.equals(a));
+
+        values.put("integer", 4);
+        final EqualsTest c = Annotations.toObject(EqualsTest.class, values, mockBundle(), false);
+        assertFalse(a.equals(c));
+        assertFalse(real.equals(c));
+    }
+
+    public void testInvalidValue() throws Exception
+    {
+        final Map<String, Object> values = allValues();
+        values.put("integer", "not a number");
+
+        final A1 a = Annotations.toObject(A1.class, values, mockBundle(), false);
+        assertEquals("3", a.string());
+        try
+        {
+            a.integer();
+            fail("Expected ComponentException");
+        }
+        catch (final ComponentException expected)
+        {
+            // expected
+        }
+    }
+
     private void assertOdd(String expectedContent, Object actual) {
         assertTrue("expected an Odd", actual instanceof Odd);
         assertEquals("Expected Odd contents", expectedContent, ((Odd)actual).getContent());
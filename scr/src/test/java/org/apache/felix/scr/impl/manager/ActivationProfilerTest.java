@@ -0,0 +1,118 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.scr.impl.manager;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.apache.felix.scr.impl.inject.internal.ComponentMethodsImpl;
+import org.apache.felix.scr.impl.logger.ComponentLogger;
+import org.apache.felix.scr.impl.manager.ActivationProfiler.Phase;
+import org.apache.felix.scr.impl.manager.ActivationProfiler.Record;
+import org.apache.felix.scr.impl.metadata.ComponentMetadata;
+import org.apache.felix.scr.impl.metadata.DSVersion;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+public class ActivationProfilerTest
+{
+    private ScrConfiguration configuration;
+
+    private ActivationProfiler profiler;
+
+    private SingleComponentManager<Object> manager;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setUp()
+    {
+        configuration = Mockito.mock( ScrConfiguration.class );
+        profiler = new ActivationProfiler( configuration );
+
+        ComponentMetadata cm = new ComponentMetadata( DSVersion.DS13 );
+        cm.setName( "some\"component" );
+        cm.setImplementationClassName( "foo.bar.SomeClass" );
+        cm.validate();
+
+        ComponentActivator activator = Mockito.mock( ComponentActivator.class );
+        Mockito.when( activator.getActivationProfiler() ).thenReturn( profiler );
+        ComponentContainer<Object> cc = Mockito.mock( ComponentContainer.class );
+        Mockito.when( cc.getComponentMetadata() ).thenReturn( cm );
+        Mockito.when( cc.getActivator() ).thenReturn( activator );
+        Mockito.when( cc.getLogger() ).thenReturn( Mockito.mock( ComponentLogger.class ) );
+        manager = new SingleComponentManager<>( cc, new ComponentMethodsImpl<>() );
+    }
+
+    @Test
+    public void testDisabled()
+    {
+        assertFalse( profiler.isEnabled() );
+        assertEquals( null, manager.getActivationProfiler() );
+        profiler.record( manager, Phase.ACTIVATE, System.nanoTime() );
+        assertTrue( profiler.getRecords().isEmpty() );
+        assertEquals( "{\"origin\":" + profiler.getOriginMillis() + ",\"records\":[]}", profiler.toJson() );
+    }
+
+    @Test
+    public void testBounded()
+    {
+        Mockito.when( configuration.activationProfileSize() ).thenReturn( 3 );
+        assertEquals( profiler, manager.getActivationProfiler() );
+        final long start = System.nanoTime();
+        final Phase[] phases = Phase.values();
+        for ( int i = 0; i < 5; i++ )
+        {
+            profiler.record( manager, phases[i], start + i * 1000, start + i * 1000 + 10 );
+        }
+        final List<Record> records = profiler.getRecords();
+        assertEquals( 3, records.size() );
+        // the oldest phases have been overwritten
+        assertEquals( phases[2], records.get( 0 ).getPhase() );
+        assertEquals( phases[3], records.get( 1 ).getPhase() );
+        assertEquals( phases[4], records.get( 2 ).getPhase() );
+        assertEquals( 10, records.get( 0 ).getDuration() );
+        assertEquals( "some\"component", records.get( 0 ).getName() );
+        assertEquals( Thread.currentThread().getName(), records.get( 0 ).getThread() );
+
+        // resizing discards the recorded phases
+        Mockito.when( configuration.activationProfileSize() ).thenReturn( 10 );
+        profiler.record( manager, Phase.ACTIVATE, start );
+        assertEquals( 1, profiler.getRecords().size() );
+
+        profiler.clear();
+        assertTrue( profiler.getRecords().isEmpty() );
+    }
+
+    @Test
+    public void testJson()
+    {
+        Mockito.when( configuration.activationProfileSize() ).thenReturn( 10 );
+        final long start = System.nanoTime();
+        profiler.record( manager, Phase.CONSTRUCT, start, start + 1500 );
+        final String json = profiler.toJson();
+        assertTrue( json, json.startsWith( "{\"origin\":" + profiler.getOriginMillis() + ",\"records\":[{" ) );
+        assertTrue( json, json.contains( "\"component\":\"some\\\"component\",\"id\":-1,\"bundle\":-1,\"phase\":\"construct\"" ) );
+        assertTrue( json, json.contains( "\"duration\":1500," ) );
+        assertTrue( json, json.endsWith( "}]}" ) );
+    }
+}
@@ -23,6 +23,8 @@ import java.util.Dictionary;
 import java.util.Hashtable;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.felix.scr.impl.inject.ComponentMethods;
 import org.apache.felix.scr.impl.inject.internal.ComponentMethodsImpl;
@@ -166,6 +168,79 @@ final Map<String, Object> componentConfig = ((MockImmediateComponentManager<Obje
     }
 
 
+    public void test_stored_updates()
+    {
+        // setup a holder
+        final String name = "test.stored";
+        final ComponentMetadata cm = createComponentMetadata( name );
+        final TestingConfiguredComponentHolder holder = new TestingConfiguredComponentHolder( cm );
+
+        holder.enableComponents(false);
+        final MockImmediateComponentManager<Object> cmgr = (MockImmediateComponentManager<Object>) getSingleManager(holder);
+
+        // store several configurations without reconfiguring
+        final int count = cmgr.getReconfigureCount();
+        final TargetedPID targetedPid = new TargetedPID(name);
+        final Dictionary<String, Object> config1 = new Hashtable<>();
+        config1.put( "value", "first" );
+        holder.storeConfigurationUpdate( targetedPid, null, config1, 1 );
+        final Dictionary<String, Object> config2 = new Hashtable<>();
+        config2.put( "value", "second" );
+        holder.storeConfigurationUpdate( targetedPid, null, config2, 2 );
+        assertEquals( count, cmgr.getReconfigureCount() );
+
+        // applied once with the last configuration
+        holder.applyConfigurationUpdates();
+        assertEquals( count + 1, cmgr.getReconfigureCount() );
+        assertEquals( config2, cmgr.getConfiguration() );
+
+        holder.applyConfigurationUpdates();
+        assertEquals( count + 1, cmgr.getReconfigureCount() );
+
+        // a stored update is applied by the next immediate update
+        final Dictionary<String, Object> config3 = new Hashtable<>();
+        config3.put( "value", "third" );
+        holder.storeConfigurationUpdate( targetedPid, null, config3, 3 );
+        holder.configurationUpdated( targetedPid, null, config3, 3 );
+        assertEquals( count + 2, cmgr.getReconfigureCount() );
+        assertEquals( config3, cmgr.getConfiguration() );
+    }
+
+
+    public void test_concurrent_updates() throws Exception
+    {
+        // setup a holder
+        final String name = "test.concurrent";
+        final ComponentMetadata cm = createComponentMetadata( name );
+        final TestingConfiguredComponentHolder holder = new TestingConfiguredComponentHolder( cm );
+
+        holder.enableComponents(false);
+        final MockImmediateComponentManager<Object> cmgr = (MockImmediateComponentManager<Object>) getSingleManager(holder);
+        final CountDownLatch reconfiguring = new CountDownLatch( 1 );
+        final CountDownLatch release = new CountDownLatch( 1 );
+        cmgr.block( reconfiguring, release );
+
+        // the update stored by the second caller is applied by the first
+        final Dictionary<String, Object> config = new Hashtable<>();
+        config.put( "value", "first" );
+        holder.storeConfigurationUpdate( new TargetedPID(name), null, config, 1 );
+        final Thread first = new Thread( holder::applyConfigurationUpdates );
+        first.start();
+        assertTrue( reconfiguring.await( 10, TimeUnit.SECONDS ) );
+
+        // the second caller returns once its update has been applied
+        final Thread second = new Thread( holder::applyConfigurationUpdates );
+        second.start();
+        second.join( 200 );
+        assertTrue( second.isAlive() );
+        release.countDown();
+        second.join( 10000 );
+        assertFalse( second.isAlive() );
+        assertEquals( config, cmgr.getConfiguration() );
+        first.join( 10000 );
+    }
+
+
     private static ComponentMetadata createComponentMetadata( String name )
     {
         final ComponentMetadata metadata = new ComponentMetadata( DSVersion.DS11 );
@@ -226,15 +301,47 @@ final Map<String, Object> componentConfig = ((MockImmediateComponentManager<Obje
         }
 
 
+        private int m_reconfigureCount;
+
+        private CountDownLatch m_reconfiguring;
+
+        private CountDownLatch m_release;
+
+
+        void block( CountDownLatch reconfiguring, CountDownLatch release )
+        {
+            this.m_reconfiguring = reconfiguring;
+            this.m_release = release;
+        }
+
+
         Map<String, Object> getConfiguration()
         {
             return m_configuration;
         }
 
+        int getReconfigureCount()
+        {
+            return m_reconfigureCount;
+        }
+
         @Override
         public void reconfigure( Map<String, Object> configuration, boolean configurationDeleted, TargetedPID factoryPid)
         {
+            if ( m_reconfiguring != null )
+            {
+                m_reconfiguring.countDown();
+                try
+                {
+                    m_release.await( 10, TimeUnit.SECONDS );
+                }
+                catch ( InterruptedException e )
+                {
+                    Thread.currentThread().interrupt();
+                }
+            }
             this.m_configuration = configuration;
+            this.m_reconfigureCount++;
         }
     }
 }
@@ -0,0 +1,225 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.scr.impl.manager;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Dictionary;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.felix.scr.impl.inject.internal.ComponentMethodsImpl;
+import org.apache.felix.scr.impl.logger.ComponentLogger;
+import org.apache.felix.scr.impl.manager.AbstractComponentManager.State;
+import org.apache.felix.scr.impl.metadata.ComponentMetadata;
+import org.apache.felix.scr.impl.metadata.DSVersion;
+import org.apache.felix.scr.impl.metadata.ReferenceMetadata;
+import org.apache.felix.scr.impl.metadata.ServiceMetadata;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.ServiceEvent;
+import org.osgi.framework.ServiceReference;
+import org.osgi.framework.ServiceRegistration;
+
+public class LazyReferencesTest
+{
+    private static final String FILTER = "(objectClass=foo.Referenced)";
+
+    private ScrConfiguration configuration;
+
+    private BundleContext bundleContext;
+
+    private ComponentActivator activator;
+
+    private ServiceRegistration<?> registration;
+
+    private SingleComponentManager<Object> manager;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setUp() throws Exception
+    {
+        configuration = Mockito.mock( ScrConfiguration.class );
+        Mockito.when( configuration.lazyReferences() ).thenReturn( true );
+
+        final Bundle bundle = Mockito.mock( Bundle.class );
+        bundleContext = Mockito.mock( BundleContext.class );
+        Mockito.when( bundleContext.getBundle() ).thenReturn( bundle );
+        registration = Mockito.mock( ServiceRegistration.class );
+        Mockito.when( bundleContext.registerService( Mockito.any( String[].class ), Mockito.any(),
+            Mockito.any( Dictionary.class ) ) ).thenReturn( (ServiceRegistration) registration );
+
+        activator = Mockito.mock( ComponentActivator.class );
+        Mockito.when( activator.isActive() ).thenReturn( true );
+        Mockito.when( activator.getConfiguration() ).thenReturn( configuration );
+        Mockito.when( activator.getBundleContext() ).thenReturn( bundleContext );
+
+        final ComponentMetadata cm = new ComponentMetadata( DSVersion.DS13 );
+        cm.setName( "lazy.component" );
+        cm.setImplementationClassName( "foo.Component" );
+        final ServiceMetadata sm = new ServiceMetadata();
+        sm.addProvide( "foo.Provided" );
+        cm.setService( sm );
+        final ReferenceMetadata rm = new ReferenceMetadata();
+        rm.setName( "referenced" );
+        rm.setInterface( "foo.Referenced" );
+        cm.addDependency( rm );
+        cm.validate();
+
+        final ComponentContainer<Object> cc = Mockito.mock( ComponentContainer.class );
+        Mockito.when( cc.getComponentMetadata() ).thenReturn( cm );
+        Mockito.when( cc.getActivator() ).thenReturn( activator );
+        Mockito.when( cc.getLogger() ).thenReturn( Mockito.mock( ComponentLogger.class ) );
+        manager = new SingleComponentManager<>( cc, new ComponentMethodsImpl<>() );
+    }
+
+    @Test
+    public void testRegisteredWithoutTracking() throws Exception
+    {
+        Mockito.when( bundleContext.getServiceReferences( (String) null, FILTER ) ).thenReturn(
+            new ServiceReference<?>[] { Mockito.mock( ServiceReference.class ) } );
+        manager.enableInternal();
+
+        assertEquals( State.satisfied, manager.getState() );
+        assertTrue( manager.getDependencyManager( "referenced" ).isSatisfied() );
+        assertEquals( 0, trackers() );
+        Mockito.verify( bundleContext ).registerService( Mockito.any( String[].class ), Mockito.any(),
+            Mockito.any( Dictionary.class ) );
+    }
+
+    @Test
+    public void testTrackedWhenUnsatisfied() throws Exception
+    {
+        manager.enableInternal();
+
+        assertEquals( State.unsatisfiedReference, manager.getState() );
+        assertFalse( manager.getDependencyManager( "referenced" ).isSatisfied() );
+        assertEquals( 1, trackers() );
+    }
+
+    @Test
+    public void testNotLazyWhenDisabled() throws Exception
+    {
+        Mockito.when( configuration.lazyReferences() ).thenReturn( false );
+        Mockito.when( bundleContext.getServiceReferences( (String) null, FILTER ) ).thenReturn(
+            new ServiceReference<?>[] { Mockito.mock( ServiceReference.class ) } );
+        manager.enableInternal();
+
+        Mockito.verify( activator ).addServiceListener( Mockito.eq( FILTER ), Mockito.any() );
+    }
+
+    @Test
+    public void testUntrackedTarget() throws Exception
+    {
+        final Map<String, Object> properties = new HashMap<>();
+        properties.put( "referenced.target", "(foo=bar)" );
+        final DependencyManager<Object, ?> dm = manager.getDependencyManager( "referenced" );
+        dm.setUntrackedTargetFilter( properties );
+        assertEquals( "(foo=bar)", dm.getTarget() );
+        assertFalse( dm.isSatisfied() );
+
+        Mockito.when( bundleContext.getServiceReferences( (String) null, "(&" + FILTER + "(foo=bar))" ) ).thenReturn(
+            new ServiceReference<?>[] { Mockito.mock( ServiceReference.class ) } );
+        assertTrue( dm.isSatisfied() );
+        assertEquals( 0, trackers() );
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testUnregisteredOnLoss() throws Exception
+    {
+        final ServiceReference<?> reference = Mockito.mock( ServiceReference.class );
+        Mockito.when( bundleContext.getServiceReferences( (String) null, FILTER ) ).thenReturn(
+            new ServiceReference<?>[] { reference } );
+        manager.enableInternal();
+        assertEquals( State.satisfied, manager.getState() );
+
+        // the referenced service is still registered while it is unregistering,
+        // the component service must be gone before consumers could get it
+        lossListener().serviceChanged( new ExtendedServiceEvent( ServiceEvent.UNREGISTERING, reference ) );
+        Mockito.verify( registration ).unregister();
+        assertEquals( State.unsatisfiedReference, manager.getState() );
+
+        // once the service is gone the references are tracked
+        Mockito.when( bundleContext.getServiceReferences( (String) null, FILTER ) ).thenReturn( null );
+        final ArgumentCaptor<Runnable> task = ArgumentCaptor.forClass( Runnable.class );
+        Mockito.verify( activator ).schedule( task.capture() );
+        task.getValue().run();
+        assertEquals( 1, trackers() );
+        assertEquals( State.unsatisfiedReference, manager.getState() );
+        assertFalse( manager.getDependencyManager( "referenced" ).isSatisfied() );
+    }
+
+    @Test
+    public void testRegisteredWhileSatisfied() throws Exception
+    {
+        final ServiceReference<?> reference = Mockito.mock( ServiceReference.class );
+        Mockito.when( bundleContext.getServiceReferences( (String) null, FILTER ) ).thenReturn(
+            new ServiceReference<?>[] { reference, Mockito.mock( ServiceReference.class ) } );
+        manager.enableInternal();
+
+        // another referenced service is still available
+        lossListener().serviceChanged( new ExtendedServiceEvent( ServiceEvent.UNREGISTERING, reference ) );
+        Mockito.verify( registration, Mockito.never() ).unregister();
+        assertEquals( State.satisfied, manager.getState() );
+        assertEquals( 0, trackers() );
+    }
+
+    private List<ExtendedServiceListener<ExtendedServiceEvent>> listeners()
+    {
+        @SuppressWarnings("unchecked")
+        final ArgumentCaptor<ExtendedServiceListener<ExtendedServiceEvent>> listeners = ArgumentCaptor.forClass(
+            ExtendedServiceListener.class );
+        Mockito.verify( activator, Mockito.atLeast( 0 ) ).addServiceListener( Mockito.eq( FILTER ),
+            listeners.capture() );
+        return listeners.getAllValues();
+    }
+
+    private int trackers()
+    {
+        int trackers = 0;
+        for ( final ExtendedServiceListener<ExtendedServiceEvent> listener : listeners() )
+        {
+            if ( listener.getClass().getEnclosingClass() == ServiceTracker.class )
+            {
+                trackers++;
+            }
+        }
+        return trackers;
+    }
+
+    private ExtendedServiceListener<ExtendedServiceEvent> lossListener()
+    {
+        for ( final ExtendedServiceListener<ExtendedServiceEvent> listener : listeners() )
+        {
+            if ( listener.getClass().getEnclosingClass() != ServiceTracker.class )
+            {
+                return listener;
+            }
+        }
+        throw new AssertionError( "No listener for lost references" );
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.scr.impl.manager;
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.Test;
+
+
+public class PersistentSortedMapTest
+{
+
+    @Test
+    public void testSameAsTreeMap()
+    {
+        final Random random = new Random( 42 );
+        final TreeMap<Integer, String> expected = new TreeMap<>( Collections.reverseOrder() );
+        PersistentSortedMap<Integer, String> map = PersistentSortedMap.empty( Collections.<Integer> reverseOrder() );
+        for ( int i = 0; i < 5000; i++ )
+        {
+            final Integer key = random.nextInt( 500 );
+            if ( random.nextInt( 3 ) == 0 )
+            {
+                expected.remove( key );
+                map = map.without( key );
+            }
+            else
+            {
+                expected.put( key, "v" + i );
+                map = map.with( key, "v" + i );
+            }
+            if ( i % 100 == 0 )
+            {
+                assertEquals( expected, map );
+                assertEquals( new ArrayList<>( expected.keySet() ), new ArrayList<>( map.keySet() ) );
+            }
+        }
+        assertEquals( expected, map );
+        assertEquals( new ArrayList<>( expected.values() ), new ArrayList<>( map.values() ) );
+        assertEquals( expected.firstKey(), map.firstKey() );
+        assertEquals( expected.lastKey(), map.lastKey() );
+        assertEquals( expected.headMap( 250 ), map.headMap( 250 ) );
+        for ( int key = 0; key < 500; key++ )
+        {
+            assertEquals( expected.get( key ), map.get( key ) );
+        }
+    }
+
+
+    @Test
+    public void testVersionsAreIndependent()
+    {
+        final List<PersistentSortedMap<Integer, String>> versions = new ArrayList<>();
+        PersistentSortedMap<Integer, String> map = PersistentSortedMap.empty( Collections.<Integer> reverseOrder() );
+        for ( int i = 0; i < 100; i++ )
+        {
+            versions.add( map );
+            map = map.with( i, "v" + i );
+        }
+        for ( int i = 0; i < 100; i += 2 )
+        {
+            map = map.without( i );
+        }
+        assertEquals( 50, map.size() );
+        // each version still holds the entries it was created with
+        for ( int i = 0; i < versions.size(); i++ )
+        {
+            final PersistentSortedMap<Integer, String> version = versions.get( i );
+            assertEquals( i, version.size() );
+            for ( int key = 0; key < i; key++ )
+            {
+                assertEquals( "v" + key, version.get( key ) );
+            }
+            assertNull( version.get( i ) );
+        }
+        assertSame( map, map.without( 0 ) );
+    }
+
+
+    @Test
+    public void testImmutable()
+    {
+        final PersistentSortedMap<Integer, String> map = PersistentSortedMap.<Integer, String> empty(
+            Collections.<Integer> reverseOrder() ).with( 1, "one" );
+        try
+        {
+            map.put( 2, "two" );
+            fail( "map must not be modifiable" );
+        }
+        catch ( UnsupportedOperationException e )
+        {
+            // expected
+        }
+        try
+        {
+            map.clear();
+            fail( "map must not be modifiable" );
+        }
+        catch ( UnsupportedOperationException e )
+        {
+            // expected
+        }
+        assertEquals( 1, map.size() );
+    }
+}
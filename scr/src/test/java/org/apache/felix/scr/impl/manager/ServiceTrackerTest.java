@@ -0,0 +1,253 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.scr.impl.manager;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Dictionary;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.Constants;
+import org.osgi.framework.ServiceEvent;
+import org.osgi.framework.ServiceReference;
+
+public class ServiceTrackerTest
+{
+
+    private ServiceTracker<Object, String, ExtendedServiceEvent> tracker;
+
+    private ExtendedServiceListener<ExtendedServiceEvent> listener;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setUp() throws Exception
+    {
+        final BundleContext context = Mockito.mock( BundleContext.class );
+        final ExtendedServiceListenerContext<ExtendedServiceEvent> listenerContext = new ExtendedServiceListenerContext<ExtendedServiceEvent>()
+        {
+
+            @Override
+            public void addServiceListener(String serviceFilterString,
+                ExtendedServiceListener<ExtendedServiceEvent> l)
+            {
+                listener = l;
+            }
+
+            @Override
+            public void removeServiceListener(String serviceFilterString,
+                ExtendedServiceListener<ExtendedServiceEvent> l)
+            {
+                listener = null;
+            }
+        };
+        final ServiceTrackerCustomizer<Object, String, ExtendedServiceEvent> customizer = Mockito.mock( ServiceTrackerCustomizer.class );
+        Mockito.when( customizer.addingService( Mockito.any( ServiceReference.class ) ) ).thenAnswer(
+            invocation -> "service" + invocation.getArgument( 0 ).toString() );
+        tracker = new ServiceTracker<>( context, customizer, true, listenerContext, "(objectClass=foo)", null );
+        tracker.open( new AtomicInteger() );
+    }
+
+    private void fire(int type, ServiceReference<?> ref)
+    {
+        listener.serviceChanged( new ExtendedServiceEvent( type, ref ) );
+    }
+
+    private String[] order()
+    {
+        final SortedMap<ServiceReference<Object>, String> tracked = tracker.getTracked( null, new AtomicInteger() );
+        return tracked.values().toArray( new String[tracked.size()] );
+    }
+
+    @Test
+    public void testSnapshotOrder()
+    {
+        final Ref r1 = new Ref( 1, 0 );
+        final Ref r2 = new Ref( 2, 10 );
+        final Ref r3 = new Ref( 3, 0 );
+        fire( ServiceEvent.REGISTERED, r1 );
+        fire( ServiceEvent.REGISTERED, r2 );
+        assertArrayEquals( new String[] { "service2", "service1" }, order() );
+
+        // incrementally maintained once created
+        fire( ServiceEvent.REGISTERED, r3 );
+        assertArrayEquals( new String[] { "service2", "service1", "service3" }, order() );
+
+        fire( ServiceEvent.UNREGISTERING, r2 );
+        assertArrayEquals( new String[] { "service1", "service3" }, order() );
+
+        // ranking change
+        r3.ranking = 5;
+        fire( ServiceEvent.MODIFIED, r3 );
+        assertArrayEquals( new String[] { "service3", "service1" }, order() );
+
+        // ranking change without modified event before unregistration
+        r1.ranking = 20;
+        fire( ServiceEvent.UNREGISTERING, r1 );
+        assertArrayEquals( new String[] { "service3" }, order() );
+    }
+
+    @Test
+    public void testSnapshotShared()
+    {
+        fire( ServiceEvent.REGISTERED, new Ref( 1, 0 ) );
+        final SortedMap<ServiceReference<Object>, String> first = tracker.getTracked( null, new AtomicInteger() );
+        assertSame( first, tracker.getTracked( null, new AtomicInteger() ) );
+        try
+        {
+            first.clear();
+            fail( "snapshot must not be modifiable" );
+        }
+        catch ( UnsupportedOperationException e )
+        {
+            // expected
+        }
+
+        fire( ServiceEvent.REGISTERED, new Ref( 2, 0 ) );
+        final SortedMap<ServiceReference<Object>, String> second = tracker.getTracked( null, new AtomicInteger() );
+        assertNotSame( first, second );
+        // previous snapshot is unchanged
+        assertEquals( 1, first.size() );
+        assertEquals( 2, second.size() );
+    }
+
+    @Test
+    public void testManyServices()
+    {
+        final List<Ref> refs = new ArrayList<>();
+        for ( int i = 1; i <= 500; i++ )
+        {
+            final Ref ref = new Ref( i, i % 7 );
+            refs.add( ref );
+            fire( ServiceEvent.REGISTERED, ref );
+            if ( i % 50 == 0 )
+            {
+                assertEquals( i, tracker.getTracked( null, new AtomicInteger() ).size() );
+            }
+        }
+        ServiceReference<Object> previous = null;
+        for ( ServiceReference<Object> ref : tracker.getTracked( null, new AtomicInteger() ).keySet() )
+        {
+            if ( previous != null && previous.compareTo( ref ) < 0 )
+            {
+                fail( "not in reverse order: " + previous + ", " + ref );
+            }
+            previous = ref;
+        }
+        for ( Ref ref : refs )
+        {
+            fire( ServiceEvent.UNREGISTERING, ref );
+        }
+        assertEquals( 0, tracker.getTracked( null, new AtomicInteger() ).size() );
+    }
+
+    /**
+     * Service reference ordered by ranking and id as defined by the framework.
+     */
+    private static class Ref implements ServiceReference<Object>
+    {
+        private final long id;
+
+        volatile int ranking;
+
+        Ref(long id, int ranking)
+        {
+            this.id = id;
+            this.ranking = ranking;
+        }
+
+        @Override
+        public Object getProperty(String key)
+        {
+            if ( Constants.SERVICE_ID.equals( key ) )
+            {
+                return id;
+            }
+            if ( Constants.SERVICE_RANKING.equals( key ) )
+            {
+                return ranking;
+            }
+            return null;
+        }
+
+        @Override
+        public String[] getPropertyKeys()
+        {
+            return new String[] { Constants.SERVICE_ID, Constants.SERVICE_RANKING };
+        }
+
+        @Override
+        public Bundle getBundle()
+        {
+            return null;
+        }
+
+        @Override
+        public Bundle[] getUsingBundles()
+        {
+            return null;
+        }
+
+        @Override
+        public boolean isAssignableTo(Bundle bundle, String className)
+        {
+            return true;
+        }
+
+        @Override
+        public int compareTo(Object reference)
+        {
+            final Ref other = (Ref) reference;
+            if ( ranking != other.ranking )
+            {
+                return ranking < other.ranking ? -1 : 1;
+            }
+            return id == other.id ? 0 : ( id < other.id ? 1 : -1 );
+        }
+
+        @Override
+        public Dictionary<String, Object> getProperties()
+        {
+            return null;
+        }
+
+        @Override
+        public <A> A adapt(Class<A> type)
+        {
+            return null;
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.valueOf( id );
+        }
+    }
+}
@@ -177,6 +177,12 @@ public class SingleComponentManagerTest
             // TODO Auto-generated method stub
             return null;
         }
+
+        @Override
+        public ActivationProfiler getActivationProfiler()
+        {
+            return null;
+        }
     };
 
     @SuppressWarnings("unchecked")
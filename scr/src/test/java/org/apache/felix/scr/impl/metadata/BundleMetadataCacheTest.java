@@ -0,0 +1,159 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.scr.impl.metadata;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class BundleMetadataCacheTest extends ComponentBase
+{
+    private File directory;
+
+    private BundleMetadataCache cache;
+
+    @Override
+    protected void setUp() throws Exception
+    {
+        super.setUp();
+        directory = Files.createTempDirectory("scr-metadata").toFile();
+        cache = new BundleMetadataCache(directory);
+    }
+
+    @Override
+    protected void tearDown() throws Exception
+    {
+        for (File f : directory.listFiles())
+        {
+            f.delete();
+        }
+        directory.delete();
+        super.tearDown();
+    }
+
+    private List<ComponentMetadata> readValidatedMetadata() throws Exception
+    {
+        final List<ComponentMetadata> metadataList = readMetadata("/components_13.xml");
+        for (ComponentMetadata cm : metadataList)
+        {
+            cm.validate();
+        }
+        return metadataList;
+    }
+
+    public void testStoreLoad() throws Exception
+    {
+        final List<ComponentMetadata> metadataList = readValidatedMetadata();
+        assertNull(cache.load(5, 100));
+
+        cache.store(5, 100, metadataList);
+        final List<ComponentMetadata> cached = cache.load(5, 100);
+        assertNotNull(cached);
+        assertEquals(metadataList.size(), cached.size());
+        for (int i = 0; i < cached.size(); i++)
+        {
+            assertEquals(metadataList.get(i).getName(), cached.get(i).getName());
+            assertEquals(metadataList.get(i).getImplementationClassName(),
+                cached.get(i).getImplementationClassName());
+            assertEquals(metadataList.get(i).getDependencies().size(),
+                cached.get(i).getDependencies().size());
+        }
+        // no temporary files are left behind
+        assertEquals(1, directory.listFiles().length);
+    }
+
+    public void testOutdatedRevision() throws Exception
+    {
+        cache.store(5, 100, readValidatedMetadata());
+        assertNull(cache.load(5, 101));
+        assertNull(cache.load(6, 100));
+
+        cache.store(5, 101, readValidatedMetadata());
+        assertNotNull(cache.load(5, 101));
+
+        cache.remove(5);
+        assertNull(cache.load(5, 101));
+    }
+
+    public void testCorruptEntry() throws Exception
+    {
+        cache.store(5, 100, readValidatedMetadata());
+        final File file = directory.listFiles()[0];
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw"))
+        {
+            // flip a byte of the payload
+            raf.seek(40);
+            final int b = raf.read();
+            raf.seek(40);
+            raf.write(b ^ 0xFF);
+        }
+        assertNull(cache.load(5, 100));
+        assertFalse(file.exists());
+
+        cache.store(5, 100, readValidatedMetadata());
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw"))
+        {
+            // incomplete write
+            raf.setLength(raf.length() - 10);
+        }
+        assertNull(cache.load(5, 100));
+    }
+
+    public void testTruncatedEntry() throws Exception
+    {
+        cache.store(5, 100, readValidatedMetadata());
+        final File file = directory.listFiles()[0];
+        final byte[] content = Files.readAllBytes(file.toPath());
+
+        // files are not synced, so a crash may leave any prefix of the file
+        for (int length = 0; length < content.length; length++)
+        {
+            Files.write(file.toPath(), Arrays.copyOf(content, length));
+            assertNull("Truncated to " + length, cache.load(5, 100));
+            assertFalse("Truncated to " + length, file.exists());
+        }
+
+        // or blocks which have not been written yet
+        Files.write(file.toPath(), new byte[content.length]);
+        assertNull(cache.load(5, 100));
+        assertFalse(file.exists());
+
+        Files.write(file.toPath(), content);
+        assertNotNull(cache.load(5, 100));
+    }
+
+    public void testRetain() throws Exception
+    {
+        cache.store(5, 100, readValidatedMetadata());
+        cache.store(6, 100, readValidatedMetadata());
+        final File tmp = new File(directory, "bundle7-1.tmp");
+        assertTrue(tmp.createNewFile());
+        final File other = new File(directory, "other.bin");
+        assertTrue(other.createNewFile());
+
+        cache.retain(Collections.singleton(6L));
+        assertNull(cache.load(5, 100));
+        assertNotNull(cache.load(6, 100));
+        assertFalse(tmp.exists());
+        assertTrue(other.exists());
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.scr.impl.metadata;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javax.management.InstanceNotFoundException;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+
+import junit.framework.TestCase;
+
+/**
+ * Checks that validated metadata shares its strings and empty collections
+ * with other components and uses immutable collections, and measures the
+ * heap retained by a synthetic set of 10k components.
+ */
+public class ComponentMetadataFootprintTest extends TestCase
+{
+    private static final int COMPONENTS = 10000;
+
+    public void testFootprint() throws Exception
+    {
+        final long initial = liveBytes();
+        if ( initial < 0 )
+        {
+            // no class histogram on this VM
+            return;
+        }
+        final List<ComponentMetadata> components = new ArrayList<>( COMPONENTS );
+        for ( int i = 0; i < COMPONENTS; i++ )
+        {
+            components.add( createComponent( i ) );
+        }
+        final long unvalidated = liveBytes() - initial;
+
+        for ( ComponentMetadata cm : components )
+        {
+            cm.validate();
+        }
+        final long validated = liveBytes() - initial;
+        assertEquals( COMPONENTS, components.size() );
+
+        System.out.println( "Heap retained by " + COMPONENTS + " components: " + unvalidated / 1024
+            + "KB unvalidated, " + validated / 1024 + "KB validated" );
+        assertTrue( "Validated metadata takes " + validated + " bytes, unvalidated " + unvalidated,
+            validated < unvalidated );
+    }
+
+    public void testShared()
+    {
+        final List<ComponentMetadata> components = new ArrayList<>();
+        for ( int i = 0; i < 3; i++ )
+        {
+            final ComponentMetadata cm = createComponent( i );
+            cm.validate();
+            components.add( cm );
+        }
+
+        final ComponentMetadata first = components.get( 0 );
+        for ( ComponentMetadata cm : components )
+        {
+            // interned strings
+            assertSame( "activate".intern(), cm.getActivate() );
+            assertSame( first.getActivate(), cm.getActivate() );
+            assertSame( first.getConfigurationPolicy(), cm.getConfigurationPolicy() );
+            assertSame( first.getServiceMetadata().getProvides()[0], cm.getServiceMetadata().getProvides()[0] );
+            assertSame( first.getProperties().get( "service.vendor" ), cm.getProperties().get( "service.vendor" ) );
+
+            final ReferenceMetadata reference = cm.getDependencies().get( 0 );
+            assertSame( first.getDependencies().get( 0 ).getInterface(), reference.getInterface() );
+            assertSame( first.getDependencies().get( 0 ).getBind(), reference.getBind() );
+
+            // shared instances
+            assertSame( ReferenceMetadata.getImplicitSatisfyingCondition(), cm.getDependencies().get( 1 ) );
+            assertSame( Collections.emptyMap(), cm.getFactoryProperties() );
+            assertSame( first.getFactoryProperties(), cm.getFactoryProperties() );
+            assertSame( Collections.emptyList(), cm.getPropertyMetaData() );
+        }
+    }
+
+    public void testImmutable()
+    {
+        final ComponentMetadata cm = createComponent( 0 );
+        cm.validate();
+        try
+        {
+            cm.getProperties().put( "foo", "bar" );
+            fail( "validated properties must not be modifiable" );
+        }
+        catch ( UnsupportedOperationException e )
+        {
+            // expected
+        }
+        try
+        {
+            cm.getDependencies().clear();
+            fail( "validated references must not be modifiable" );
+        }
+        catch ( UnsupportedOperationException e )
+        {
+            // expected
+        }
+    }
+
+    private static ComponentMetadata createComponent( final int index )
+    {
+        // new string instances as created by the XML parser
+        final ComponentMetadata cm = new ComponentMetadata( DSVersion.DS13 );
+        cm.setName( "org.example.component.Component" + index );
+        cm.setImplementationClassName( "org.example.component.Component" + index );
+        cm.setActivate( copy( "activate" ) );
+        cm.setConfigurationPolicy( copy( ComponentMetadata.CONFIGURATION_POLICY_OPTIONAL ) );
+
+        final ServiceMetadata sm = new ServiceMetadata();
+        sm.addProvide( copy( "org.example.api.Service" ) );
+        cm.setService( sm );
+
+        final PropertyMetadata vendor = new PropertyMetadata();
+        vendor.setName( copy( "service.vendor" ) );
+        vendor.setValue( copy( "The Apache Software Foundation" ) );
+        cm.addProperty( vendor );
+        final PropertyMetadata ranking = new PropertyMetadata();
+        ranking.setName( copy( "service.ranking" ) );
+        ranking.setType( copy( "Integer" ) );
+        ranking.setValue( copy( "10" ) );
+        cm.addProperty( ranking );
+
+        final ReferenceMetadata rm = new ReferenceMetadata();
+        rm.setName( copy( "log" ) );
+        rm.setInterface( copy( "org.osgi.service.log.LoggerFactory" ) );
+        rm.setCardinality( copy( ReferenceMetadata.CARDINALITY_0_1 ) );
+        rm.setPolicy( copy( ReferenceMetadata.POLICY_DYNAMIC ) );
+        rm.setBind( copy( "setLoggerFactory" ) );
+        rm.setUnbind( copy( "unsetLoggerFactory" ) );
+        cm.addDependency( rm );
+
+        final ReferenceMetadata condition = new ReferenceMetadata();
+        condition.setName( copy( ReferenceMetadata.REFERENCE_NAME_SATISFYING_CONDITION ) );
+        condition.setTarget( copy( ReferenceMetadata.CONDITION_TRUE_FILTER ) );
+        condition.setInterface( copy( ReferenceMetadata.CONDITION_SERVICE_CLASS ) );
+        condition.setPolicy( copy( ReferenceMetadata.POLICY_DYNAMIC ) );
+        cm.addDependency( condition );
+        return cm;
+    }
+
+    /**
+     * Returns the size of the objects reachable after a full garbage
+     * collection, as reported by the class histogram of the VM, or -1 if
+     * the VM does not provide a class histogram.
+     */
+    private static long liveBytes() throws Exception
+    {
+        final String histogram;
+        try
+        {
+            histogram = ( String ) ManagementFactory.getPlatformMBeanServer().invoke(
+                new ObjectName( "com.sun.management:type=DiagnosticCommand" ), "gcClassHistogram",
+                new Object[] { new String[0] }, new String[] { String[].class.getName() } );
+        }
+        catch ( InstanceNotFoundException | ReflectionException e )
+        {
+            return -1;
+        }
+        // the last line is "Total <instances> <bytes>"
+        final String[] lines = histogram.trim().split( "\n" );
+        final String[] total = lines[lines.length - 1].trim().split( "\\s+" );
+        return Long.parseLong( total[2] );
+    }
+
+    private static String copy( final String value )
+    {
+        return new String( value.toCharArray() );
+    }
+}
@@ -18,23 +18,44 @@
  */
 package org.apache.felix.scr.impl.runtime;
 
+import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
 
+import org.apache.felix.scr.impl.ComponentRegistry;
+import org.apache.felix.scr.impl.logger.ScrLogger;
+import org.apache.felix.scr.impl.manager.ComponentActivator;
+import org.apache.felix.scr.impl.manager.ComponentHolder;
+import org.apache.felix.scr.impl.manager.ComponentManager;
+import org.apache.felix.scr.impl.manager.ReferenceManager;
+import org.apache.felix.scr.impl.manager.ScrConfiguration;
+import org.apache.felix.scr.impl.metadata.ComponentMetadata;
+import org.apache.felix.scr.impl.metadata.DSVersion;
 import org.mockito.Mockito;
 import org.osgi.dto.DTO;
 import org.osgi.framework.Bundle;
 import org.osgi.framework.BundleContext;
 import org.osgi.framework.Constants;
 import org.osgi.framework.ServiceReference;
+import org.osgi.framework.Version;
 import org.osgi.framework.dto.BundleDTO;
 import org.osgi.framework.dto.ServiceReferenceDTO;
+import org.osgi.service.component.runtime.dto.ComponentConfigurationDTO;
+import org.osgi.service.component.runtime.dto.ComponentDescriptionDTO;
 
 import junit.framework.TestCase;
 
 public class ServiceComponentRuntimeImplTest extends TestCase
 {
+    private ComponentRegistry registry;
+
+    private BundleContext bundleContext;
+
     public void testBundleServiceReferenceDTO() throws Exception
     {
         Bundle b = Mockito.mock(Bundle.class);
@@ -84,4 +105,180 @@ public class ServiceComponentRuntimeImplTest extends TestCase
         assertSame(o, scr.convert(o));
     }
 
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    public void testConfigurationSnapshot() throws Exception
+    {
+        ScrConfiguration config = Mockito.mock(ScrConfiguration.class);
+        Mockito.when(config.serviceChangecountTimeout()).thenReturn(1000L);
+        ComponentRegistry registry = new ComponentRegistry(config, Mockito.mock(ScrLogger.class),
+            Mockito.mock(ScheduledExecutorService.class));
+        ServiceComponentRuntimeImpl scr = new ServiceComponentRuntimeImpl(Mockito.mock(BundleContext.class), registry);
+
+        ReferenceManager ref = Mockito.mock(ReferenceManager.class);
+        Mockito.when(ref.isSatisfied()).thenReturn(true);
+        ServiceReference bound = Mockito.mock(ServiceReference.class);
+        Mockito.when(ref.getServiceReferences()).thenReturn(Collections.singletonList(bound));
+        ComponentManager manager = Mockito.mock(ComponentManager.class);
+        Mockito.when(manager.getSpecState()).thenReturn(ComponentConfigurationDTO.SATISFIED);
+        Mockito.when(manager.getProperties()).thenReturn(Collections.singletonMap("foo", "bar"));
+        Mockito.when(manager.getReferenceManagers()).thenReturn((List) Collections.singletonList(ref));
+        ComponentDescriptionDTO description = new ComponentDescriptionDTO();
+
+        Method m = scr.getClass().getDeclaredMethod("getConfigurationSnapshot", ComponentManager.class,
+            ComponentDescriptionDTO.class);
+        m.setAccessible(true);
+        registry.updateChangeCount();
+        ComponentConfigurationDTO first = dto(m.invoke(scr, manager, description));
+
+        // unchanged component returns the same DTO
+        assertSame(first, dto(m.invoke(scr, manager, description)));
+        Mockito.when(manager.getProperties()).thenReturn(Collections.singletonMap("foo", "bar"));
+        assertSame(first, dto(m.invoke(scr, manager, description)));
+
+        // a change of a tracked service rebuilds the DTO
+        Mockito.when(manager.getServiceEventCount()).thenReturn(1);
+        ComponentConfigurationDTO tracked = dto(m.invoke(scr, manager, description));
+        assertNotSame(first, tracked);
+
+        // getting a bound service is not a service event, but changes its usingBundles
+        Bundle using1 = Mockito.mock(Bundle.class);
+        Mockito.when(using1.getBundleId()).thenReturn(1L);
+        Bundle using2 = Mockito.mock(Bundle.class);
+        Mockito.when(using2.getBundleId()).thenReturn(2L);
+        Mockito.when(bound.getUsingBundles()).thenReturn(new Bundle[] {using1, using2});
+        ComponentConfigurationDTO used = dto(m.invoke(scr, manager, description));
+        assertNotSame(tracked, used);
+        Mockito.when(bound.getUsingBundles()).thenReturn(new Bundle[] {using2, using1});
+        assertSame(used, dto(m.invoke(scr, manager, description)));
+        Mockito.when(bound.getUsingBundles()).thenReturn(new Bundle[] {using2});
+        tracked = dto(m.invoke(scr, manager, description));
+        assertNotSame(used, tracked);
+
+        // so does a reference becoming unsatisfied
+        Mockito.when(ref.isSatisfied()).thenReturn(false);
+        ComponentConfigurationDTO unsatisfied = dto(m.invoke(scr, manager, description));
+        assertNotSame(tracked, unsatisfied);
+        assertEquals(0, unsatisfied.satisfiedReferences.length);
+        assertEquals(1, unsatisfied.unsatisfiedReferences.length);
+
+        // and a changed configuration
+        Mockito.when(manager.getProperties()).thenReturn(Collections.singletonMap("foo", "baz"));
+        assertEquals("baz", dto(m.invoke(scr, manager, description)).properties.get("foo"));
+
+        // querying the runtime does not change it
+        assertEquals(1, scr.getChangeCount());
+    }
+
+    public void testReturnedDTOsAreCopies() throws Exception
+    {
+        ComponentManager<?> manager = Mockito.mock(ComponentManager.class);
+        Mockito.when(manager.getSpecState()).thenReturn(ComponentConfigurationDTO.SATISFIED);
+        Mockito.when(manager.getProperties()).thenReturn(Collections.singletonMap("foo", "bar"));
+        Mockito.when(manager.getReferenceManagers()).thenReturn(Collections.emptyList());
+        ServiceComponentRuntimeImpl scr = createRuntime(manager);
+        Bundle bundle = bundleContext.getBundle();
+
+        ComponentDescriptionDTO description = scr.getComponentDescriptionDTO(bundle, "test");
+        description.name = "modified";
+        description.bundle.state = Bundle.STOPPING;
+        description.properties.put("foo", "modified");
+        assertEquals("test", scr.getComponentDescriptionDTO(bundle, "test").name);
+        assertEquals(Bundle.ACTIVE, scr.getComponentDescriptionDTO(bundle, "test").bundle.state);
+        assertFalse(scr.getComponentDescriptionDTO(bundle, "test").properties.containsKey("foo"));
+
+        description = scr.getComponentDescriptionDTO(bundle, "test");
+        ComponentConfigurationDTO configuration = scr.getComponentConfigurationDTOs(description).iterator().next();
+        configuration.state = ComponentConfigurationDTO.ACTIVE;
+        configuration.properties.put("foo", "modified");
+        configuration = scr.getComponentConfigurationDTOs(description).iterator().next();
+        assertEquals(ComponentConfigurationDTO.SATISFIED, configuration.state);
+        assertEquals("bar", configuration.properties.get("foo"));
+    }
+
+    public void testGetChangedSince() throws Exception
+    {
+        ComponentManager<?> manager = Mockito.mock(ComponentManager.class);
+        Mockito.when(manager.getSpecState()).thenReturn(ComponentConfigurationDTO.SATISFIED);
+        Mockito.when(manager.getProperties()).thenReturn(Collections.singletonMap("foo", "bar"));
+        Mockito.when(manager.getReferenceManagers()).thenReturn(Collections.emptyList());
+        ServiceComponentRuntimeImpl scr = createRuntime(manager);
+        registry.updateChangeCount();
+
+        assertEquals(1, scr.getChangedSince(-1).size());
+        long changeCount = scr.getChangeCount();
+        assertTrue(scr.getChangedSince(changeCount).isEmpty());
+
+        // a change of the component is reported
+        Mockito.when(manager.getProperties()).thenReturn(Collections.singletonMap("foo", "baz"));
+        registry.updateChangeCount();
+        Collection<ComponentConfigurationDTO> changed = scr.getChangedSince(changeCount);
+        assertEquals(1, changed.size());
+        assertEquals("baz", changed.iterator().next().properties.get("foo"));
+
+        // a tracked service event does not move the change count, so the
+        // change is reported to clients which saw the current change count
+        registry.updateChangeCount();
+        changeCount = scr.getChangeCount();
+        assertTrue(scr.getChangedSince(changeCount).isEmpty());
+        Mockito.when(manager.getServiceEventCount()).thenReturn(1);
+        assertEquals(1, scr.getChangedSince(changeCount).size());
+        assertEquals(1, scr.getChangedSince(changeCount).size());
+        assertEquals(changeCount, scr.getChangeCount());
+
+        // until the change count moved
+        registry.updateChangeCount();
+        assertTrue(scr.getChangedSince(scr.getChangeCount()).isEmpty());
+    }
+
+    /**
+     * Creates a runtime with a registered component named test having the
+     * given configuration.
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private ServiceComponentRuntimeImpl createRuntime(ComponentManager<?> manager) throws Exception
+    {
+        ScrConfiguration config = Mockito.mock(ScrConfiguration.class);
+        Mockito.when(config.serviceChangecountTimeout()).thenReturn(1000L);
+        registry = new ComponentRegistry(config, Mockito.mock(ScrLogger.class),
+            Mockito.mock(ScheduledExecutorService.class));
+        Bundle bundle = Mockito.mock(Bundle.class);
+        Mockito.when(bundle.getBundleId()).thenReturn(42L);
+        Mockito.when(bundle.getState()).thenReturn(Bundle.ACTIVE);
+        Mockito.when(bundle.getVersion()).thenReturn(Version.emptyVersion);
+        bundleContext = Mockito.mock(BundleContext.class);
+        Mockito.when(bundleContext.getBundle()).thenReturn(bundle);
+        Mockito.when(bundleContext.getBundle(42L)).thenReturn(bundle);
+        ComponentActivator activator = Mockito.mock(ComponentActivator.class);
+        Mockito.when(activator.getBundleContext()).thenReturn(bundleContext);
+
+        ComponentMetadata metadata = new ComponentMetadata(DSVersion.DS13);
+        metadata.setName("test");
+        metadata.setImplementationClassName("test.Impl");
+        metadata.validate();
+        ComponentHolder holder = Mockito.mock(ComponentHolder.class);
+        Mockito.when(holder.getActivator()).thenReturn(activator);
+        Mockito.when(holder.getComponentMetadata()).thenReturn(metadata);
+        Mockito.when(holder.getComponents()).thenReturn(Collections.singletonList(manager));
+        // the registration methods are package private
+        Method check = ComponentRegistry.class.getDeclaredMethod("checkComponentName", Bundle.class, String.class);
+        check.setAccessible(true);
+        Object key = check.invoke(registry, bundle, "test");
+        Method register = ComponentRegistry.class.getDeclaredMethod("registerComponentHolder", key.getClass(),
+            ComponentHolder.class);
+        register.setAccessible(true);
+        register.invoke(registry, key, holder);
+        return new ServiceComponentRuntimeImpl(bundleContext, registry);
+    }
+
+    private ComponentConfigurationDTO dto(Object snapshot) throws Exception
+    {
+        return (ComponentConfigurationDTO) field(snapshot, "dto");
+    }
+
+    private Object field(Object snapshot, String name) throws Exception
+    {
+        Field f = snapshot.getClass().getDeclaredField(name);
+        f.setAccessible(true);
+        return f.get(snapshot);
+    }
 }
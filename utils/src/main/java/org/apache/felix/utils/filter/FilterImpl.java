@@ -28,6 +28,7 @@ import org.osgi.framework.Version;
 import java.lang.reflect.AccessibleObject;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
+import java.lang.ref.WeakReference;
 import java.security.AccessController;
 import java.security.PrivilegedAction;
 import java.util.ArrayList;
@@ -37,6 +38,7 @@ import java.util.Dictionary;
 import java.util.Enumeration;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -46,6 +48,8 @@ import java.util.StringTokenizer;
  * This filter implementation is based on the official OSGi filter with additional
  * support for the SUPERSET (&gt;*) and SUBSET (&lt;*) operators.
  * This filter also has a few optimizations (cached transformation).
+ * Parsed filters are cached, and each filter converts its operand once to
+ * the type of the values it is compared with instead of on every match.
  */
 public class FilterImpl implements Filter {
 
@@ -74,6 +78,26 @@ public class FilterImpl implements Filter {
     /* normalized filter string for Filter object */
     private transient volatile String   filterString;
 
+    /** operand converted to the type of the last compared value */
+    private transient volatile Operand  operand;
+
+    /** marker of an operand which cannot be converted */
+    private static final Object         INVALID     = new Object();
+
+    /** marker of an operand which must be converted on each match */
+    private static final Object         UNCACHED    = new Object();
+
+    /** maximum number of parsed filters kept in the cache */
+    private static final int            CACHE_SIZE  = 1024;
+
+    private static final Map<String, FilterImpl> cache = Collections.synchronizedMap(
+            new LinkedHashMap<String, FilterImpl>(CACHE_SIZE * 4 / 3, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, FilterImpl> eldest) {
+                    return size() > CACHE_SIZE;
+                }
+            });
+
     /**
      * Constructs a {@link FilterImpl} object. This filter object may be
      * used to match a {@link org.osgi.framework.ServiceReference} or a Dictionary.
@@ -95,7 +119,14 @@ public class FilterImpl implements Filter {
 
     public static FilterImpl newInstance(String filterString, boolean ignoreCase)
             throws InvalidSyntaxException {
-        return new Parser(filterString, ignoreCase).parse();
+        // filters are immutable, so the parsed instances can be shared
+        String key = (ignoreCase ? 'i' : 'c') + filterString;
+        FilterImpl filter = cache.get(key);
+        if (filter == null) {
+            filter = new Parser(filterString, ignoreCase).parse();
+            cache.put(key, filter);
+        }
+        return filter;
     }
 
     FilterImpl(int operation, String attr, Object value) {
@@ -831,7 +862,7 @@ public class FilterImpl implements Filter {
             }
             case APPROX : {
                 string = approxString(string);
-                String string2 = approxString((String) value2);
+                String string2 = (String) operand(String.class);
 
                 return string.equalsIgnoreCase(string2);
             }
@@ -849,13 +880,11 @@ public class FilterImpl implements Filter {
         if (operation == SUBSTRING) {
             return false;
         }
-        int intval2;
-        try {
-            intval2 = Integer.parseInt(((String) value2).trim());
-        }
-        catch (IllegalArgumentException e) {
+        Object operand = operand(Integer.class);
+        if (operand == INVALID) {
             return false;
         }
+        int intval2 = ((Integer) operand).intValue();
         switch (operation) {
             case APPROX :
             case EQUAL : {
@@ -875,13 +904,11 @@ public class FilterImpl implements Filter {
         if (operation == SUBSTRING) {
             return false;
         }
-        long longval2;
-        try {
-            longval2 = Long.parseLong(((String) value2).trim());
-        }
-        catch (IllegalArgumentException e) {
+        Object operand = operand(Long.class);
+        if (operand == INVALID) {
             return false;
         }
+        long longval2 = ((Long) operand).longValue();
 
         switch (operation) {
             case APPROX :
@@ -902,13 +929,11 @@ public class FilterImpl implements Filter {
         if (operation == SUBSTRING) {
             return false;
         }
-        byte byteval2;
-        try {
-            byteval2 = Byte.parseByte(((String) value2).trim());
-        }
-        catch (IllegalArgumentException e) {
+        Object operand = operand(Byte.class);
+        if (operand == INVALID) {
             return false;
         }
+        byte byteval2 = ((Byte) operand).byteValue();
 
         switch (operation) {
             case APPROX :
@@ -930,13 +955,11 @@ public class FilterImpl implements Filter {
         if (operation == SUBSTRING) {
             return false;
         }
-        short shortval2;
-        try {
-            shortval2 = Short.parseShort(((String) value2).trim());
-        }
-        catch (IllegalArgumentException e) {
+        Object operand = operand(Short.class);
+        if (operand == INVALID) {
             return false;
         }
+        short shortval2 = ((Short) operand).shortValue();
 
         switch (operation) {
             case APPROX :
@@ -958,13 +981,11 @@ public class FilterImpl implements Filter {
         if (operation == SUBSTRING) {
             return false;
         }
-        char charval2;
-        try {
-            charval2 = ((String) value2).charAt(0);
-        }
-        catch (IndexOutOfBoundsException e) {
+        Object operand = operand(Character.class);
+        if (operand == INVALID) {
             return false;
         }
+        char charval2 = ((Character) operand).charValue();
 
         switch (operation) {
             case EQUAL : {
@@ -992,8 +1013,7 @@ public class FilterImpl implements Filter {
         if (operation == SUBSTRING) {
             return false;
         }
-        boolean boolval2 = Boolean.valueOf(((String) value2).trim())
-                .booleanValue();
+        boolean boolval2 = ((Boolean) operand(Boolean.class)).booleanValue();
         switch (operation) {
             case APPROX :
             case EQUAL :
@@ -1010,13 +1030,11 @@ public class FilterImpl implements Filter {
         if (operation == SUBSTRING) {
             return false;
         }
-        float floatval2;
-        try {
-            floatval2 = Float.parseFloat(((String) value2).trim());
-        }
-        catch (IllegalArgumentException e) {
+        Object operand = operand(Float.class);
+        if (operand == INVALID) {
             return false;
         }
+        float floatval2 = ((Float) operand).floatValue();
 
         switch (operation) {
             case APPROX :
@@ -1038,13 +1056,11 @@ public class FilterImpl implements Filter {
         if (operation == SUBSTRING) {
             return false;
         }
-        double doubleval2;
-        try {
-            doubleval2 = Double.parseDouble(((String) value2).trim());
-        }
-        catch (IllegalArgumentException e) {
+        Object operand = operand(Double.class);
+        if (operand == INVALID) {
             return false;
         }
+        double doubleval2 = ((Double) operand).doubleValue();
 
         switch (operation) {
             case APPROX :
@@ -1068,27 +1084,8 @@ public class FilterImpl implements Filter {
         if (operation == SUBSTRING) {
             return false;
         }
-        Constructor constructor;
-        try {
-            constructor = value1.getClass().getConstructor(constructorType);
-        }
-        catch (NoSuchMethodException e) {
-            return false;
-        }
-        try {
-            if (!constructor.isAccessible())
-                AccessController.doPrivileged(new SetAccessibleAction(
-                        constructor));
-            value2 = constructor
-                    .newInstance(new Object[] {((String) value2).trim()});
-        }
-        catch (IllegalAccessException e) {
-            return false;
-        }
-        catch (InvocationTargetException e) {
-            return false;
-        }
-        catch (InstantiationException e) {
+        value2 = operand(value1.getClass());
+        if (value2 == INVALID) {
             return false;
         }
 
@@ -1112,39 +1109,109 @@ public class FilterImpl implements Filter {
         if (operation == SUBSTRING) {
             return false;
         }
-        Constructor constructor;
-        try {
-            constructor = value1.getClass().getConstructor(constructorType);
-        }
-        catch (NoSuchMethodException e) {
+        value2 = operand(value1.getClass());
+        if (value2 == INVALID) {
             return false;
         }
+
+        switch (operation) {
+            case APPROX :
+            case EQUAL :
+            case GREATER:
+            case LESS: {
+                return value1.equals(value2);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the operand converted to the given type. The converted operand
+     * is kept for the next matches, unless the type is not visible from this
+     * class, as the filter must not keep the classes of other bundles.
+     *
+     * @param type the type of the compared value
+     * @return the converted operand, or {@link #INVALID} if the operand
+     *         cannot be converted
+     */
+    private Object operand(Class type) {
+        Operand o = operand;
+        if (o != null && o.type.get() == type) {
+            return o.value != UNCACHED ? o.value : convert(type);
+        }
+        Object converted = convert(type);
+        operand = new Operand(type, isVisible(type) ? converted : UNCACHED);
+        return converted;
+    }
+
+    private Object convert(Class type) {
+        String string = (String) value;
         try {
+            if (type == String.class) {
+                return approxString(string);
+            }
+            if (type == Character.class) {
+                return string.length() > 0 ? Character.valueOf(string.charAt(0)) : INVALID;
+            }
+            string = string.trim();
+            if (type == Integer.class) {
+                return Integer.valueOf(string);
+            }
+            if (type == Long.class) {
+                return Long.valueOf(string);
+            }
+            if (type == Byte.class) {
+                return Byte.valueOf(string);
+            }
+            if (type == Short.class) {
+                return Short.valueOf(string);
+            }
+            if (type == Float.class) {
+                return Float.valueOf(string);
+            }
+            if (type == Double.class) {
+                return Double.valueOf(string);
+            }
+            if (type == Boolean.class) {
+                return Boolean.valueOf(string);
+            }
+            Constructor constructor = type.getConstructor(constructorType);
             if (!constructor.isAccessible())
                 AccessController.doPrivileged(new SetAccessibleAction(
                         constructor));
-            value2 = constructor
-                    .newInstance(new Object[] {((String) value2).trim()});
+            return constructor.newInstance(new Object[] {string});
+        }
+        catch (IllegalArgumentException e) {
+            return INVALID;
+        }
+        catch (NoSuchMethodException e) {
+            return INVALID;
         }
         catch (IllegalAccessException e) {
-            return false;
+            return INVALID;
         }
         catch (InvocationTargetException e) {
-            return false;
+            return INVALID;
         }
         catch (InstantiationException e) {
-            return false;
+            return INVALID;
         }
+    }
 
-        switch (operation) {
-            case APPROX :
-            case EQUAL :
-            case GREATER:
-            case LESS: {
-                return value1.equals(value2);
-            }
+    private static boolean isVisible(Class type) {
+        ClassLoader loader = type.getClassLoader();
+        if (loader == null || loader == FilterImpl.class.getClassLoader()) {
+            return true;
+        }
+        try {
+            return Class.forName(type.getName(), false, FilterImpl.class.getClassLoader()) == type;
+        }
+        catch (ClassNotFoundException e) {
+            return false;
+        }
+        catch (LinkageError e) {
+            return false;
         }
-        return false;
     }
 
     /**
@@ -1614,6 +1681,20 @@ public class FilterImpl implements Filter {
         }
     }
 
+    /**
+     * Operand converted to a type. The type is weakly referenced so that the
+     * filter does not keep the class of an uncached operand.
+     */
+    private static class Operand {
+        final WeakReference<Class> type;
+        final Object value;
+
+        Operand(Class type, Object value) {
+            this.type = new WeakReference<Class>(type);
+            this.value = value;
+        }
+    }
+
     private static class SetAccessibleAction implements PrivilegedAction {
         private final AccessibleObject accessible;
 
@@ -0,0 +1,451 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.felix.utils.json;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PushbackInputStream;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * A streaming JSON reader to be used on top of a {@link Reader}.
+ *
+ * The input is read in a single pass and reported as a sequence of
+ * {@link Event events}, so that large documents can be processed without
+ * holding them in memory. The value of the current event is available through
+ * {@link #getString()} and {@link #getValue()}, and {@link #readValue()}
+ * reads a complete value, including nested objects and lists, in the same
+ * representation as the {@link JSONParser}.
+ * <p>
+ * Malformed input is reported with an {@link IllegalArgumentException}.
+ */
+public class JSONReader implements Closeable {
+
+    public enum Event {
+        START_OBJECT, END_OBJECT, START_ARRAY, END_ARRAY, KEY_NAME,
+        VALUE_STRING, VALUE_NUMBER, VALUE_TRUE, VALUE_FALSE, VALUE_NULL
+    }
+
+    private enum State {
+        VALUE, FIRST_VALUE, KEY, FIRST_KEY, AFTER_VALUE
+    }
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final Reader reader;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int pos;
+    private int limit;
+    private long offset;
+
+    // true for an object, false for a list
+    private boolean[] scopes = new boolean[32];
+    private int depth;
+    private State state = State.VALUE;
+
+    private final StringBuilder text = new StringBuilder();
+    private Object value;
+
+    public JSONReader(Reader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * Creates a reader for a stream, inferring the encoding from the byte order
+     * mark or the pattern of nulls in the first octets as described in
+     * section 3 of RFC 4627.
+     */
+    public JSONReader(InputStream is) throws IOException {
+        this(createReader(is));
+    }
+
+    /**
+     * Returns whether there are more events. Once the top level value has been
+     * read, the remaining input must only contain whitespace.
+     */
+    public boolean hasNext() throws IOException {
+        if (depth == 0 && state == State.AFTER_VALUE) {
+            int c = skipWhitespace();
+            if (c != -1) {
+                throw error("Unexpected character '" + (char) c + "' after the end of the JSON value");
+            }
+            return false;
+        }
+        return true;
+    }
+
+    public Event next() throws IOException {
+        while (true) {
+            int c = skipWhitespace();
+            switch (state) {
+            case FIRST_KEY:
+                if (c == '}') {
+                    pos++;
+                    return endScope(Event.END_OBJECT);
+                }
+                // fall through
+            case KEY:
+                if (c != '"') {
+                    throw error(c, "object key");
+                }
+                pos++;
+                readString();
+                if (skipWhitespace() != ':') {
+                    throw error(peek(), "':'");
+                }
+                pos++;
+                value = text.toString();
+                state = State.VALUE;
+                return Event.KEY_NAME;
+            case FIRST_VALUE:
+                if (c == ']') {
+                    pos++;
+                    return endScope(Event.END_ARRAY);
+                }
+                // fall through
+            case VALUE:
+                return readValueEvent(c);
+            default:
+                if (depth == 0) {
+                    throw new NoSuchElementException();
+                }
+                pos++;
+                boolean object = scopes[depth - 1];
+                if (c == ',') {
+                    state = object ? State.KEY : State.VALUE;
+                } else if (c == '}' && object) {
+                    return endScope(Event.END_OBJECT);
+                } else if (c == ']' && !object) {
+                    return endScope(Event.END_ARRAY);
+                } else {
+                    pos--;
+                    throw error(c, object ? "',' or '}'" : "',' or ']'");
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the text of the current key, string or number.
+     */
+    public String getString() {
+        return text.toString();
+    }
+
+    /**
+     * Returns the value of the current key or scalar value as a {@link String},
+     * {@link Long}, {@link Double}, {@link Boolean} or {@code null}.
+     */
+    public Object getValue() {
+        return value;
+    }
+
+    /**
+     * Reads the next value. Objects are read into a {@link Map}, lists into a
+     * {@link List}.
+     */
+    public Object readValue() throws IOException {
+        return readValue(next());
+    }
+
+    /**
+     * Skips the next value, including all nested objects and lists.
+     */
+    public void skipValue() throws IOException {
+        int start = depth;
+        next();
+        while (depth > start) {
+            next();
+        }
+    }
+
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private Object readValue(Event event) throws IOException {
+        switch (event) {
+        case START_OBJECT:
+            Map<String, Object> map = new HashMap<String, Object>();
+            for (Event e = next(); e != Event.END_OBJECT; e = next()) {
+                String key = (String) value;
+                map.put(key, readValue(next()));
+            }
+            return map;
+        case START_ARRAY:
+            List<Object> list = new ArrayList<Object>();
+            for (Event e = next(); e != Event.END_ARRAY; e = next()) {
+                list.add(readValue(e));
+            }
+            return list;
+        case END_OBJECT:
+        case END_ARRAY:
+        case KEY_NAME:
+            throw error("Unexpected " + event);
+        default:
+            return value;
+        }
+    }
+
+    private Event readValueEvent(int c) throws IOException {
+        switch (c) {
+        case '{':
+            pos++;
+            startScope(true);
+            return Event.START_OBJECT;
+        case '[':
+            pos++;
+            startScope(false);
+            return Event.START_ARRAY;
+        case '"':
+            pos++;
+            readString();
+            value = text.toString();
+            state = State.AFTER_VALUE;
+            return Event.VALUE_STRING;
+        case -1:
+            throw error(c, "value");
+        default:
+            readToken();
+            state = State.AFTER_VALUE;
+            return tokenEvent();
+        }
+    }
+
+    private Event tokenEvent() {
+        String token = text.toString();
+        if ("true".equalsIgnoreCase(token)) {
+            value = Boolean.TRUE;
+            return Event.VALUE_TRUE;
+        } else if ("false".equalsIgnoreCase(token)) {
+            value = Boolean.FALSE;
+            return Event.VALUE_FALSE;
+        } else if ("null".equalsIgnoreCase(token)) {
+            value = null;
+            return Event.VALUE_NULL;
+        }
+        try {
+            if (token.indexOf('.') >= 0 || token.indexOf('e') >= 0 || token.indexOf('E') >= 0) {
+                value = Double.valueOf(token);
+            } else {
+                value = Long.valueOf(token);
+            }
+        } catch (NumberFormatException e) {
+            throw error("Malformatted JSON value: " + token);
+        }
+        return Event.VALUE_NUMBER;
+    }
+
+    private void startScope(boolean object) {
+        if (depth == scopes.length) {
+            boolean[] newScopes = new boolean[depth * 2];
+            System.arraycopy(scopes, 0, newScopes, 0, depth);
+            scopes = newScopes;
+        }
+        scopes[depth++] = object;
+        state = object ? State.FIRST_KEY : State.FIRST_VALUE;
+    }
+
+    private Event endScope(Event event) {
+        depth--;
+        state = State.AFTER_VALUE;
+        return event;
+    }
+
+    /**
+     * Reads the characters of a string up to the closing quote into the text
+     * buffer, the opening quote having been consumed already.
+     */
+    private void readString() throws IOException {
+        text.setLength(0);
+        while (true) {
+            if (pos == limit && !fill()) {
+                throw error("Unterminated JSON string");
+            }
+            int start = pos;
+            while (pos < limit) {
+                char c = buffer[pos];
+                if (c == '"' || c == '\\') {
+                    break;
+                }
+                pos++;
+            }
+            text.append(buffer, start, pos - start);
+            if (pos == limit) {
+                continue;
+            }
+            if (buffer[pos++] == '"') {
+                return;
+            }
+            int c = read();
+            switch (c) {
+            case -1:
+                throw error("Unterminated JSON string");
+            case 'b':
+                text.append('\b');
+                break;
+            case 'f':
+                text.append('\f');
+                break;
+            case 'n':
+                text.append('\n');
+                break;
+            case 'r':
+                text.append('\r');
+                break;
+            case 't':
+                text.append('\t');
+                break;
+            case 'u':
+                int uc = 0;
+                for (int i = 0; i < 4; i++) {
+                    int d = Character.digit(read(), 16);
+                    if (d < 0) {
+                        throw error("Malformatted unicode escape in JSON string");
+                    }
+                    uc = (uc << 4) | d;
+                }
+                text.append((char) uc);
+                break;
+            default:
+                text.append((char) c);
+            }
+        }
+    }
+
+    /**
+     * Reads a number or literal into the text buffer.
+     */
+    private void readToken() throws IOException {
+        text.setLength(0);
+        for (int c = peek(); c != -1; c = peek()) {
+            if (c == ',' || c == ':' || c == '}' || c == ']' || c == '{' || c == '[' || c == '"' || isWhitespace(c)) {
+                break;
+            }
+            text.append((char) c);
+            pos++;
+        }
+    }
+
+    private int skipWhitespace() throws IOException {
+        for (int c = peek(); c != -1; c = peek()) {
+            if (!isWhitespace(c)) {
+                return c;
+            }
+            pos++;
+        }
+        return -1;
+    }
+
+    private static boolean isWhitespace(int c) {
+        return c == ' ' || c == '\n' || c == '\r' || c == '\t';
+    }
+
+    private int peek() throws IOException {
+        if (pos == limit && !fill()) {
+            return -1;
+        }
+        return buffer[pos];
+    }
+
+    private int read() throws IOException {
+        if (pos == limit && !fill()) {
+            return -1;
+        }
+        return buffer[pos++];
+    }
+
+    private boolean fill() throws IOException {
+        offset += limit;
+        pos = 0;
+        limit = 0;
+        int length = reader.read(buffer, 0, buffer.length);
+        if (length <= 0) {
+            return false;
+        }
+        limit = length;
+        return true;
+    }
+
+    private IllegalArgumentException error(int c, String expected) {
+        return error((c == -1 ? "Unexpected end of input" : "Unexpected character '" + (char) c + "'")
+            + ", expected " + expected);
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException(message + " at offset " + (offset + pos));
+    }
+
+    private static Reader createReader(InputStream is) throws IOException {
+        PushbackInputStream pis = new PushbackInputStream(is, 4);
+        byte[] bytes = new byte[4];
+        int length = 0;
+        int n;
+        while (length < bytes.length && (n = pis.read(bytes, length, bytes.length - length)) != -1) {
+            length += n;
+        }
+
+        /* Infer the encoding as described in section 3 of http://www.ietf.org/rfc/rfc4627.txt
+         * which reads:
+         *   Encoding
+         *
+         *   JSON text SHALL be encoded in Unicode.  The default encoding is
+         *   UTF-8.
+         *
+         *   Since the first two characters of a JSON text will always be ASCII
+         *   characters [RFC0020], it is possible to determine whether an octet
+         *   stream is UTF-8, UTF-16 (BE or LE), or UTF-32 (BE or LE) by looking
+         *   at the pattern of nulls in the first four octets.
+         *
+         *         00 00 00 xx  UTF-32BE
+         *         00 xx 00 xx  UTF-16BE
+         *         xx 00 00 00  UTF-32LE
+         *         xx 00 xx 00  UTF-16LE
+         *         xx xx xx xx  UTF-8
+         */
+        String encoding = "UTF-8";
+        int skip = 0;
+        if (length >= 2 && bytes[0] == (byte) 0xFE && bytes[1] == (byte) 0xFF) {
+            encoding = "UTF-16BE";
+            skip = 2;
+        } else if (length >= 2 && bytes[0] == (byte) 0xFF && bytes[1] == (byte) 0xFE) {
+            encoding = "UTF-16LE";
+            skip = 2;
+        } else if (length >= 3 && bytes[0] == (byte) 0xEF && bytes[1] == (byte) 0xBB && bytes[2] == (byte) 0xBF) {
+            skip = 3;
+        } else if (length == 4) {
+            if (bytes[0] == 0 && bytes[1] == 0 && bytes[2] == 0) {
+                encoding = "UTF-32BE";
+            } else if (bytes[0] == 0 && bytes[2] == 0) {
+                encoding = "UTF-16BE";
+            } else if (bytes[1] == 0 && bytes[2] == 0 && bytes[3] == 0) {
+                encoding = "UTF-32LE";
+            } else if (bytes[1] == 0 && bytes[3] == 0) {
+                encoding = "UTF-16LE";
+            }
+        }
+        pis.unread(bytes, skip, length - skip);
+        return new InputStreamReader(pis, encoding);
+    }
+}
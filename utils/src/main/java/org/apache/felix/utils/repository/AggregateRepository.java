@@ -18,31 +18,78 @@ package org.apache.felix.utils.repository;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import org.osgi.resource.Capability;
 import org.osgi.resource.Requirement;
 import org.osgi.service.repository.Repository;
 
+/**
+ * Repository aggregating the capabilities of other repositories.
+ * When created with an {@link ExecutorService}, the repositories are queried
+ * concurrently, so that repositories loading their content on first access,
+ * such as the {@link XmlRepository} and {@link JsonRepository}, are loaded and
+ * parsed in parallel.
+ */
 public class AggregateRepository implements Repository {
 
     private final Collection<Repository> repositories;
+    private final ExecutorService executor;
 
     public AggregateRepository(Collection<Repository> repositories) {
+        this(repositories, null);
+    }
+
+    public AggregateRepository(Collection<Repository> repositories, ExecutorService executor) {
         this.repositories = repositories;
+        this.executor = executor;
     }
 
     @Override
-    public Map<Requirement, Collection<Capability>> findProviders(Collection<? extends Requirement> requirements) {
+    public Map<Requirement, Collection<Capability>> findProviders(final Collection<? extends Requirement> requirements) {
+        List<Map<Requirement, Collection<Capability>>> results = new ArrayList<>();
+        if (executor == null || repositories.size() < 2) {
+            for (Repository repository : repositories) {
+                results.add(repository.findProviders(requirements));
+            }
+        } else {
+            List<Callable<Map<Requirement, Collection<Capability>>>> tasks = new ArrayList<>();
+            for (final Repository repository : repositories) {
+                tasks.add(new Callable<Map<Requirement, Collection<Capability>>>() {
+                    @Override
+                    public Map<Requirement, Collection<Capability>> call() {
+                        return repository.findProviders(requirements);
+                    }
+                });
+            }
+            try {
+                for (Future<Map<Requirement, Collection<Capability>>> future : executor.invokeAll(tasks)) {
+                    results.add(future.get());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while querying repositories", e);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                } else if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw new IllegalStateException(cause);
+            }
+        }
+
         Map<Requirement, Collection<Capability>> result = new HashMap<>();
         for (Requirement requirement : requirements) {
             List<Capability> caps = new ArrayList<>();
-            for (Repository repository : repositories) {
-                Map<Requirement, Collection<Capability>> resMap =
-                        repository.findProviders(Collections.singleton(requirement));
+            for (Map<Requirement, Collection<Capability>> resMap : results) {
                 Collection<Capability> res = resMap != null ? resMap.get(requirement) : null;
                 if (res != null) {
                     caps.addAll(res);
@@ -17,16 +17,21 @@
 package org.apache.felix.utils.repository;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.apache.felix.utils.resource.CapabilitySet;
 import org.apache.felix.utils.resource.RequirementImpl;
 import org.apache.felix.utils.resource.SimpleFilter;
 import org.osgi.framework.Constants;
+import org.osgi.framework.namespace.IdentityNamespace;
+import org.osgi.namespace.service.ServiceNamespace;
 import org.osgi.resource.Capability;
 import org.osgi.resource.Requirement;
 import org.osgi.resource.Resource;
@@ -56,7 +61,7 @@ public class BaseRepository implements Repository {
             String ns = cap.getNamespace();
             CapabilitySet cs = capSets.get(ns);
             if (cs == null) {
-                cs = new CapabilitySet(Collections.singletonList(ns));
+                cs = new CapabilitySet(getIndexedAttributes(ns));
                 capSets.put(ns, cs);
             }
             cs.addCapability(cap);
@@ -64,6 +69,20 @@ public class BaseRepository implements Repository {
         resources.add(resource);
     }
 
+    /**
+     * Returns the names of the attributes to index for the capabilities of the
+     * given namespace, so that equality filters on them do not need to match
+     * each capability. Only attributes with string values can be indexed.
+     */
+    protected List<String> getIndexedAttributes(String namespace) {
+        if (IdentityNamespace.IDENTITY_NAMESPACE.equals(namespace)) {
+            return Arrays.asList(namespace, IdentityNamespace.CAPABILITY_TYPE_ATTRIBUTE);
+        } else if (ServiceNamespace.SERVICE_NAMESPACE.equals(namespace)) {
+            return Collections.singletonList(ServiceNamespace.CAPABILITY_OBJECTCLASS_ATTRIBUTE);
+        }
+        return Collections.singletonList(namespace);
+    }
+
     public List<Resource> getResources() {
         return resources;
     }
@@ -71,6 +90,9 @@ public class BaseRepository implements Repository {
     @Override
     public Map<Requirement, Collection<Capability>> findProviders(Collection<? extends Requirement> requirements) {
         Map<Requirement, Collection<Capability>> result = new HashMap<>();
+        // requirements with the same namespace and filter, such as the imports
+        // of a package by many resources, are only matched once
+        Map<String, Set<Capability>> matches = new HashMap<>();
         for (Requirement requirement : requirements) {
             CapabilitySet set = capSets.get(requirement.getNamespace());
             if (set != null) {
@@ -83,7 +105,15 @@ public class BaseRepository implements Repository {
                             ? SimpleFilter.parse(filter)
                             : SimpleFilter.MATCH_ALL_FILTER;
                 }
-                result.put(requirement, set.match(sf, true));
+                String key = requirement.getNamespace() + ":" + sf;
+                Set<Capability> caps = matches.get(key);
+                if (caps == null) {
+                    caps = set.match(sf, true);
+                    matches.put(key, caps);
+                } else {
+                    caps = new HashSet<>(caps);
+                }
+                result.put(requirement, caps);
             } else {
                 result.put(requirement, Collections.<Capability>emptyList());
             }
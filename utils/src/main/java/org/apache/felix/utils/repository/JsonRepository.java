@@ -19,12 +19,13 @@ package org.apache.felix.utils.repository;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
-import org.apache.felix.utils.json.JSONParser;
+import org.apache.felix.utils.json.JSONReader;
 import org.apache.felix.utils.resource.ResourceBuilder;
 import org.osgi.framework.BundleException;
 import org.osgi.resource.Capability;
@@ -78,7 +79,21 @@ public class JsonRepository extends BaseRepository {
     }
 
     protected boolean doRead(InputStream is) throws IOException {
-        Map<String, Map<String, String>> metadatas = verify(new JSONParser(is).getParsed());
+        // stream the index instead of parsing it as a whole
+        Map<String, Map<String, String>> metadatas = new LinkedHashMap<String, Map<String, String>>();
+        JSONReader reader = new JSONReader(is);
+        try {
+            if (reader.next() != JSONReader.Event.START_OBJECT) {
+                throw new IllegalArgumentException("Malformatted JSON repository: expected an object");
+            }
+            while (reader.next() == JSONReader.Event.KEY_NAME) {
+                String uri = reader.getString();
+                metadatas.put(uri, verify(reader.readValue()));
+            }
+            reader.hasNext();
+        } finally {
+            reader.close();
+        }
         lock.writeLock().lock();
         try {
             resources.clear();
@@ -102,17 +117,13 @@ public class JsonRepository extends BaseRepository {
     }
 
     @SuppressWarnings("unchecked")
-    private Map<String, Map<String, String>> verify(Object value) {
-        Map<?, ?> obj = Map.class.cast(value);
-        for (Map.Entry<?, ?> entry : obj.entrySet()) {
-            String.class.cast(entry.getKey());
-            Map<?, ?> child = Map.class.cast(entry.getValue());
-            for (Map.Entry<?, ?> ce : child.entrySet()) {
-                String.class.cast(ce.getKey());
-                String.class.cast(ce.getValue());
-            }
+    private Map<String, String> verify(Object value) {
+        Map<?, ?> child = Map.class.cast(value);
+        for (Map.Entry<?, ?> ce : child.entrySet()) {
+            String.class.cast(ce.getKey());
+            String.class.cast(ce.getValue());
         }
-        return (Map<String, Map<String, String>>) obj;
+        return (Map<String, String>) child;
     }
 
 }
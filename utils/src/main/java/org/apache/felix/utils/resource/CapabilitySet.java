@@ -160,7 +160,9 @@ public class CapabilitySet {
             // For AND we calculate the intersection of each subfilter.
             // We can short-circuit the AND operation if there are no
             // remaining capabilities.
-            List<SimpleFilter> sfs = (List<SimpleFilter>) sf.getValue();
+            // Indexed equality subfilters are evaluated first, so that the
+            // remaining subfilters only scan the capabilities they selected.
+            List<SimpleFilter> sfs = sortIndexedFirst((List<SimpleFilter>) sf.getValue());
             for (int i = 0; (caps.size() > 0) && (i < sfs.size()); i++) {
                 matches = match(caps, sfs.get(i));
                 caps = matches;
@@ -186,7 +188,9 @@ public class CapabilitySet {
                 Set<Capability> existingCaps = index.get(sf.getValue());
                 if (existingCaps != null) {
                     matches.addAll(existingCaps);
-                    matches.retainAll(caps);
+                    if (caps != capSet) {
+                        matches.retainAll(caps);
+                    }
                 }
             } else {
                 for (Capability cap : caps) {
@@ -203,6 +207,38 @@ public class CapabilitySet {
         return matches;
     }
 
+    private List<SimpleFilter> sortIndexedFirst(List<SimpleFilter> sfs) {
+        boolean sorted = true;
+        boolean scanned = false;
+        for (SimpleFilter sf : sfs) {
+            if (!isIndexed(sf)) {
+                scanned = true;
+            } else if (scanned) {
+                sorted = false;
+                break;
+            }
+        }
+        if (sorted) {
+            return sfs;
+        }
+        List<SimpleFilter> result = new ArrayList<>(sfs.size());
+        for (SimpleFilter sf : sfs) {
+            if (isIndexed(sf)) {
+                result.add(sf);
+            }
+        }
+        for (SimpleFilter sf : sfs) {
+            if (!isIndexed(sf)) {
+                result.add(sf);
+            }
+        }
+        return result;
+    }
+
+    private boolean isIndexed(SimpleFilter sf) {
+        return sf.getOperation() == SimpleFilter.EQ && indices.containsKey(sf.getName());
+    }
+
     public static boolean matches(Capability capability, Requirement requirement) {
         return Objects.equals(capability.getNamespace(), requirement.getNamespace())
                 && matches(capability, RequirementImpl.getFilter(requirement));
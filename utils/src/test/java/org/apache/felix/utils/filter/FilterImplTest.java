@@ -23,9 +23,12 @@ import junit.framework.TestCase;
 import org.osgi.framework.InvalidSyntaxException;
 import org.osgi.framework.Version;
 
+import java.math.BigDecimal;
 import java.util.Collections;
 import java.util.Dictionary;
+import java.util.HashMap;
 import java.util.Hashtable;
+import java.util.Map;
 
 public class FilterImplTest extends TestCase
 {
@@ -132,4 +135,55 @@ public class FilterImplTest extends TestCase
         assertFalse("The matches operation should be case-sensitive",
                 filterImpl.matches(Collections.singletonMap("FOO", "bar")));
     }
+
+    public void testParseCache() throws InvalidSyntaxException {
+        FilterImpl filterImpl = FilterImpl.newInstance("(foo=bar)");
+        assertSame(filterImpl, FilterImpl.newInstance("(foo=bar)"));
+        assertNotSame(filterImpl, FilterImpl.newInstance("(foo=bar)", true));
+        try {
+            FilterImpl.newInstance("(foo=bar");
+            fail("invalid filter");
+        } catch (InvalidSyntaxException e) {
+            // expected
+        }
+    }
+
+    public void testTypedOperands() throws InvalidSyntaxException {
+        FilterImpl filterImpl = FilterImpl.newInstance("(&(ranking>=10)(ranking<= 20 ))");
+        Map<String, Object> map = new HashMap<String, Object>();
+        // the same filter matched against values of different types
+        for (int i = 0; i < 3; i++) {
+            map.put("ranking", Integer.valueOf(15));
+            assertTrue(filterImpl.matches(map));
+            map.put("ranking", Long.valueOf(25));
+            assertFalse(filterImpl.matches(map));
+            map.put("ranking", new short[] { 1, 12 });
+            assertTrue(filterImpl.matches(map));
+            map.put("ranking", new BigDecimal("10.0"));
+            assertTrue(filterImpl.matches(map));
+            map.put("ranking", Double.valueOf(9.5));
+            assertFalse(filterImpl.matches(map));
+            map.put("ranking", "15");
+            assertFalse(filterImpl.matches(map));
+        }
+
+        filterImpl = FilterImpl.newInstance("(count=abc)");
+        map.put("count", Integer.valueOf(1));
+        assertFalse(filterImpl.matches(map));
+        assertFalse(filterImpl.matches(map));
+        map.put("count", Character.valueOf('a'));
+        assertTrue(filterImpl.matches(map));
+
+        filterImpl = FilterImpl.newInstance("(description~=Hello World)");
+        map.put("description", "hello  world");
+        assertTrue(filterImpl.matches(map));
+        map.put("description", "hello");
+        assertFalse(filterImpl.matches(map));
+
+        filterImpl = FilterImpl.newInstance("(bundle-version>=1.2)");
+        map.put("bundle-version", new Version("1.3.0"));
+        assertTrue(filterImpl.matches(map));
+        map.put("bundle-version", new Version("1.1.0"));
+        assertFalse(filterImpl.matches(map));
+    }
 }
\ No newline at end of file
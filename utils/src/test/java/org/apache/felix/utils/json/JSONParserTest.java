@@ -16,6 +16,8 @@
  */
 package org.apache.felix.utils.json;
 
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
 import java.io.StringWriter;
 import java.util.Arrays;
 import java.util.Collections;
@@ -28,6 +30,7 @@ import org.junit.Test;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 public class JSONParserTest {
     @Test
@@ -142,4 +145,93 @@ public class JSONParserTest {
 
         assertEquals("hi ", l.get(1));
     }
+
+    @Test
+    public void testNumbersAndLiterals() throws Exception {
+        String s = "[-12, 1.5e3, 2E-2, TRUE, False, null]";
+
+        List<Object> res = new JSONParser(s).getParsedList();
+        assertEquals(Arrays.asList(-12L, 1500d, 0.02d, true, false, null), res);
+    }
+
+    @Test
+    public void testInputStreamEncodings() throws Exception {
+        String s = "{\"a\": \"\u00e9\u2708\"}";
+        for (String encoding : new String[] { "UTF-8", "UTF-16BE", "UTF-16LE", "UTF-32BE", "UTF-32LE" }) {
+            JSONParser jp = new JSONParser(new ByteArrayInputStream(s.getBytes(encoding)));
+            assertEquals(encoding, "\u00e9\u2708", jp.getParsed().get("a"));
+        }
+        byte[] bom = { (byte) 0xFF, (byte) 0xFE };
+        byte[] bytes = s.getBytes("UTF-16LE");
+        byte[] withBom = new byte[bom.length + bytes.length];
+        System.arraycopy(bom, 0, withBom, 0, bom.length);
+        System.arraycopy(bytes, 0, withBom, bom.length, bytes.length);
+        assertEquals("\u00e9\u2708", new JSONParser(new ByteArrayInputStream(withBom)).getParsed().get("a"));
+    }
+
+    @Test
+    public void testMalformatted() {
+        String[] invalid = { "", "{", "{\"a\" 1}", "{\"a\": 1,}", "[1 2]", "[1]]", "{\"a\": \"b}", "[1.2.3]", "[tru]", "{\"a\": 1} x" };
+        for (String s : invalid) {
+            try {
+                new JSONParser(s);
+                fail("Expected an exception for " + s);
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void testLargeDocument() throws Exception {
+        // larger than the read buffer, with strings crossing buffer boundaries
+        StringWriter sw = new StringWriter();
+        JSONWriter js = new JSONWriter(sw);
+        js.object();
+        for (int i = 0; i < 10000; i++) {
+            js.key("resource-" + i).object().key("Bundle-SymbolicName").value("bundle\t" + i).endObject();
+        }
+        js.endObject().flush();
+
+        Map<String, Object> m = new JSONParser(new StringReader(sw.toString())).getParsed();
+        assertEquals(10000, m.size());
+        assertEquals(Collections.singletonMap("Bundle-SymbolicName", "bundle\t9999"), m.get("resource-9999"));
+    }
+
+    @Test
+    public void testReaderEvents() throws Exception {
+        String s = "{\"a\": [1, {\"b\": null}], \"c\": \"d\"}";
+        JSONReader reader = new JSONReader(new StringReader(s));
+        assertEquals(JSONReader.Event.START_OBJECT, reader.next());
+        assertEquals(JSONReader.Event.KEY_NAME, reader.next());
+        assertEquals("a", reader.getString());
+        assertEquals(JSONReader.Event.START_ARRAY, reader.next());
+        assertEquals(JSONReader.Event.VALUE_NUMBER, reader.next());
+        assertEquals(1L, reader.getValue());
+        assertEquals(JSONReader.Event.START_OBJECT, reader.next());
+        assertEquals(JSONReader.Event.KEY_NAME, reader.next());
+        assertEquals(JSONReader.Event.VALUE_NULL, reader.next());
+        assertEquals(JSONReader.Event.END_OBJECT, reader.next());
+        assertEquals(JSONReader.Event.END_ARRAY, reader.next());
+        assertEquals(JSONReader.Event.KEY_NAME, reader.next());
+        assertEquals(JSONReader.Event.VALUE_STRING, reader.next());
+        assertEquals("d", reader.getString());
+        assertTrue(reader.hasNext());
+        assertEquals(JSONReader.Event.END_OBJECT, reader.next());
+        assertFalse(reader.hasNext());
+    }
+
+    @Test
+    public void testReaderSkipValue() throws Exception {
+        String s = "{\"a\": {\"x\": [1, [2, 3]], \"y\": {}}, \"b\": 2}";
+        JSONReader reader = new JSONReader(new StringReader(s));
+        assertEquals(JSONReader.Event.START_OBJECT, reader.next());
+        assertEquals(JSONReader.Event.KEY_NAME, reader.next());
+        reader.skipValue();
+        assertEquals(JSONReader.Event.KEY_NAME, reader.next());
+        assertEquals("b", reader.getString());
+        assertEquals(2L, reader.readValue());
+        assertEquals(JSONReader.Event.END_OBJECT, reader.next());
+        assertFalse(reader.hasNext());
+    }
 }
@@ -24,13 +24,26 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.zip.GZIPOutputStream;
 
+import org.apache.felix.utils.resource.RequirementImpl;
 import org.junit.Test;
+import org.osgi.resource.Capability;
+import org.osgi.resource.Requirement;
 import org.osgi.resource.Resource;
+import org.osgi.service.repository.Repository;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
 import static org.osgi.framework.namespace.BundleNamespace.BUNDLE_NAMESPACE;
 import static org.osgi.framework.namespace.IdentityNamespace.IDENTITY_NAMESPACE;
 import static org.osgi.framework.namespace.PackageNamespace.PACKAGE_NAMESPACE;
@@ -67,6 +80,46 @@ public class RepositoryTest {
         verify(repo);
     }
 
+    @Test
+    public void testFindProviders() throws Exception {
+        URL url = getClass().getResource("repo.json");
+        JsonRepository repo = new JsonRepository(url.toExternalForm(), 0);
+        Requirement r1 = new RequirementImpl(null, PACKAGE_NAMESPACE, "(&(osgi.wiring.package=org.acme.pool)(version>=1.0))");
+        Requirement r2 = new RequirementImpl(null, PACKAGE_NAMESPACE, "(&(version>=1.0)(osgi.wiring.package=org.acme.pool))");
+        Requirement r3 = new RequirementImpl(null, PACKAGE_NAMESPACE, "(&(osgi.wiring.package=org.acme.pool)(version>=1.0))");
+        Requirement r4 = new RequirementImpl(null, PACKAGE_NAMESPACE, "(&(osgi.wiring.package=org.acme.pool)(version>=2.0))");
+        Requirement r5 = new RequirementImpl(null, IDENTITY_NAMESPACE, "(&(type=osgi.bundle)(osgi.identity=org.acme.pool))");
+        Map<Requirement, Collection<Capability>> result = repo.findProviders(Arrays.asList(r1, r2, r3, r4, r5));
+        assertEquals(5, result.size());
+        assertEquals(1, result.get(r1).size());
+        assertEquals(result.get(r1), result.get(r2));
+        assertEquals(result.get(r1), result.get(r3));
+        assertNotSame(result.get(r1), result.get(r3));
+        assertTrue(result.get(r4).isEmpty());
+        assertEquals(1, result.get(r5).size());
+    }
+
+    @Test
+    public void testAggregate() throws Exception {
+        List<Repository> repositories = new ArrayList<>();
+        repositories.add(new XmlRepository(getClass().getResource("repo.xml").toExternalForm(), 0));
+        repositories.add(new JsonRepository(getClass().getResource("repo.json").toExternalForm(), 0));
+        Requirement r1 = new RequirementImpl(null, PACKAGE_NAMESPACE, "(osgi.wiring.package=org.acme.pool)");
+        Requirement r2 = new RequirementImpl(null, BUNDLE_NAMESPACE, "(osgi.wiring.bundle=org.acme.pool)");
+
+        Map<Requirement, Collection<Capability>> result = new AggregateRepository(repositories).findProviders(Arrays.asList(r1, r2));
+        assertEquals(2, result.get(r1).size());
+        assertEquals(2, result.get(r2).size());
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Map<Requirement, Collection<Capability>> parallel = new AggregateRepository(repositories, executor).findProviders(Arrays.asList(r1, r2));
+            assertEquals(result, parallel);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
     private void verify(BaseRepository repo) {
         assertNotNull(repo.getResources());
         assertEquals(1, repo.getResources().size());